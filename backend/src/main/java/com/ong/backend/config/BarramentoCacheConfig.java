@@ -0,0 +1,48 @@
+package com.ong.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ong.backend.services.BarramentoInvalidacaoCache;
+import com.ong.backend.services.BarramentoInvalidacaoLocal;
+import com.ong.backend.services.BarramentoInvalidacaoPostgres;
+import com.ong.backend.services.BarramentoInvalidacaoTabela;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+
+@Configuration
+@Slf4j
+public class BarramentoCacheConfig {
+
+  // cache.barramento.tipo: local (uma instância só), postgres (LISTEN/NOTIFY), tabela (varredura de
+  // cache_invalidacao) ou auto, que usa postgres no PostgreSQL e tabela nos demais bancos.
+  // O LISTEN fica numa conexão aberta direto pelo driver, com a mesma URL e usuário do pool: mantida aberta
+  // enquanto a aplicação roda, ela não tira uma vaga do Hikari
+  @Bean
+  public BarramentoInvalidacaoCache barramentoInvalidacaoCache(DataSource dataSource,
+      DataSourceProperties dataSourceProperties, ObjectMapper objectMapper,
+      @Value("${cache.barramento.tipo:auto}") String tipo) throws MetaDataAccessException {
+    String escolhido = "auto".equals(tipo) ? detectar(dataSource) : tipo;
+    log.info("Barramento de invalidação de cache: {}", escolhido);
+    return switch (escolhido) {
+      case "local" -> new BarramentoInvalidacaoLocal();
+      case "postgres" -> new BarramentoInvalidacaoPostgres(objectMapper, dataSource,
+          dataSourceProperties.initializeDataSourceBuilder().type(SimpleDriverDataSource.class).build());
+      case "tabela" -> new BarramentoInvalidacaoTabela(objectMapper, dataSource);
+      default -> throw new IllegalStateException("cache.barramento.tipo inválido: " + tipo);
+    };
+  }
+
+  private String detectar(DataSource dataSource) throws MetaDataAccessException {
+    String banco = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+    return "PostgreSQL".equals(banco) ? "postgres" : "tabela";
+  }
+}
@@ -1,24 +1,114 @@
 package com.ong.backend.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ong.backend.services.CaffeineCacheDistribuido;
+import com.ong.backend.services.ChaveListagemProdutos;
+import com.ong.backend.services.SincronizacaoCaches;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Slice;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+  private static final long MAX_ENTRADAS_PADRAO = 1000;
+  private static final long TTL_MS_PADRAO = 600_000;
+
+  // Só os caches de cache.nomes existem (cache com nome fora da lista é erro, não um mapa novo sem limite).
+  // Cada um lê cache.<nome>.max-entradas ou cache.<nome>.peso-max, e cache.<nome>.ttl-ms.
+  // recordStats alimenta as métricas cache.gets/puts/evictions/load que o Actuator registra no início.
+  // Remoções (@CacheEvict) esperam o commit da transação e são repetidas nos outros nós pelo barramento
   @Bean
-  public CacheManager cacheManager() {
-    List<String> cacheNames = Arrays.asList("categorias", "produtos");
-    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-    cacheManager.setCacheNames(cacheNames);
+  public CacheManager cacheManager(Environment environment,
+      @Value("${cache.nomes:categorias,produtos,produtos-estoque,usuarios-sessao}") List<String> nomes,
+      ObjectProvider<SincronizacaoCaches> sincronizacao) {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+      @Override
+      protected org.springframework.cache.Cache adaptCaffeineCache(String nome, Cache<Object, Object> cache) {
+        return new TransactionAwareCacheDecorator(new CaffeineCacheDistribuido(nome, cache, sincronizacao));
+      }
+    };
+    cacheManager.setCacheNames(List.of());
+    for (String nome : nomes) {
+      cacheManager.registerCustomCache(nome, construir(environment, nome).build());
+    }
     return cacheManager;
   }
+
+  // ProdutoService.listarComFiltros: páginas filtradas por estoque (estoqueCritico, estoqueAte,
+  // somenteComEstoque) ficam em "produtos-estoque", separadas das que só dependem do cadastro
+  @Bean
+  public CacheResolver listagemProdutosCacheResolver(CacheManager cacheManager) {
+    return contexto -> {
+      Object[] args = contexto.getArgs();
+      boolean dependeDeEstoque = ChaveListagemProdutos.dependeDeEstoque((Boolean) args[2], (Integer) args[3],
+          (Boolean) args[4]);
+      return List.of(cacheManager.getCache(dependeDeEstoque ? "produtos-estoque" : "produtos"));
+    };
+  }
+
+  // O Micrometer só publica o tempo de carga de LoadingCache; aqui as cargas vêm do @Cacheable(sync = true)
+  // (Cache.get com a função de carga), que o recordStats também conta
+  @Bean
+  @SuppressWarnings("unchecked")
+  public MeterBinder metricasCargaCache(CacheManager cacheManager) {
+    return registry -> cacheManager.getCacheNames().forEach(nome -> {
+      Cache<Object, Object> cache = (Cache<Object, Object>) cacheManager.getCache(nome).getNativeCache();
+      Tags tags = Tags.of("cache", nome, "name", nome, "cache.manager", "cacheManager");
+      TimeGauge.builder("cache.load.duration", cache, TimeUnit.NANOSECONDS, c -> c.stats().totalLoadTime())
+          .tags(tags)
+          .description("Tempo total gasto carregando valores")
+          .register(registry);
+      FunctionCounter.builder("cache.load", cache, c -> c.stats().loadSuccessCount())
+          .tags(tags).tag("result", "success")
+          .register(registry);
+      FunctionCounter.builder("cache.load", cache, c -> c.stats().loadFailureCount())
+          .tags(tags).tag("result", "failure")
+          .register(registry);
+    });
+  }
+
+  private Caffeine<Object, Object> construir(Environment environment, String nome) {
+    String prefixo = "cache." + nome + ".";
+    Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(environment.getProperty(prefixo + "ttl-ms", Long.class, TTL_MS_PADRAO)))
+        .recordStats();
+
+    Long pesoMax = environment.getProperty(prefixo + "peso-max", Long.class);
+    if (pesoMax != null) {
+      return caffeine.maximumWeight(pesoMax).weigher((chave, valor) -> peso(valor));
+    }
+    return caffeine.maximumSize(environment.getProperty(prefixo + "max-entradas", Long.class, MAX_ENTRADAS_PADRAO));
+  }
+
+  // Listas e páginas pesam o número de elementos; o resto pesa 1
+  private static int peso(Object valor) {
+    if (valor instanceof Collection<?> colecao) {
+      return Math.max(1, colecao.size());
+    }
+    if (valor instanceof Slice<?> pagina) {
+      return Math.max(1, pagina.getNumberOfElements());
+    }
+    return 1;
+  }
 }
@@ -0,0 +1,58 @@
+package com.ong.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class DashboardConfig {
+
+  // Recálculos do cache do dashboard: só esperam pelas seções, sem conexão própria
+  @Bean(destroyMethod = "close")
+  public ExecutorService dashboardExecutor() {
+    return Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  // Seções do dashboard: cada uma segura uma conexão do pool enquanto roda, então as threads são poucas
+  // e compartilhadas por todos os pedidos; o excedente espera na fila, dentro do prazo da seção
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService dashboardSecoesExecutor(@Value("${dashboard.secoes.threads:3}") int threads) {
+    AtomicInteger contador = new AtomicInteger();
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        tarefa -> {
+          Thread thread = new Thread(tarefa, "dashboard-secao-" + contador.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  // Painel ao vivo (SSE): a consulta de cada atualização sai do agendador compartilhado e fica nesta thread
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService dashboardStreamExecutor() {
+    return Executors.newSingleThreadExecutor(tarefa -> {
+      Thread thread = new Thread(tarefa, "dashboard-stream");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Envios aos assinantes do painel ao vivo: no máximo uma tarefa por assinante na fila, então um socket
+  // lento prende uma destas threads, não a entrega aos demais
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService dashboardEnvioExecutor(@Value("${dashboard.stream.envio-threads:4}") int threads) {
+    AtomicInteger contador = new AtomicInteger();
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        tarefa -> {
+          Thread thread = new Thread(tarefa, "dashboard-envio-" + contador.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -23,14 +24,15 @@ public class DataInitializer implements CommandLineRunner {
     private final CategoriaRepository categoriaRepository;
     private final ProdutoRepository produtoRepository;
     private final LoteRepository loteRepository;
-    private final LoteItemRepository loteItemRepository;
     private final MovimentacaoRepository movimentacaoRepository;
     private final ComposicaoProdutoRepository composicaoProdutoRepository;
     private final PasswordEncoder passwordEncoder;
     
     private final Random random = new Random();
 
+    // Uma transação só: os INSERTs da carga saem em lotes JDBC em vez de um commit por registro
     @Override
+    @Transactional
     public void run(String... args) {
         log.info("🚀 Iniciando população MASSIVA de dados para apresentação...");
         
@@ -160,6 +162,7 @@ public class DataInitializer implements CommandLineRunner {
 
     private List<Lote> initializeLotes(List<Produto> produtos, List<Usuario> usuarios) {
         List<Lote> lotes = new ArrayList<>();
+        List<Movimentacao> entradas = new ArrayList<>();
         LocalDate hoje = LocalDate.now();
 
         for (int i = 0; i < 40; i++) {
@@ -172,7 +175,6 @@ public class DataInitializer implements CommandLineRunner {
             lote.setDataEntrada(hoje.minusDays(random.nextInt(60)));
             lote.setUnidadeMedida(UnidadeMedida.UNIDADE);
             lote.setObservacoes("Lote automático " + i);
-            lote = loteRepository.save(lote);
 
             LoteItem item = new LoteItem();
             item.setLote(lote);
@@ -184,7 +186,7 @@ public class DataInitializer implements CommandLineRunner {
             } else {
                 item.setDataValidade(hoje.plusMonths(6 + random.nextInt(12)));
             }
-            loteItemRepository.save(item);
+            lote.getItens().add(item);
             lotes.add(lote);
             
             // Movimentação de entrada
@@ -194,13 +196,17 @@ public class DataInitializer implements CommandLineRunner {
             m.setTipo(TipoMovimentacao.ENTRADA);
             m.setQuantidade(qtd);
             m.setDataHora(lote.getDataEntrada().atStartOfDay().plusHours(8));
-            movimentacaoRepository.save(m);
+            entradas.add(m);
         }
+        // Itens vão junto com o lote (cascade)
+        loteRepository.saveAll(lotes);
+        movimentacaoRepository.saveAll(entradas);
         return lotes;
     }
 
     private void initializeMovimentacoes(List<Lote> lotes, List<Usuario> usuarios) {
         // Criar saídas aleatórias para popular gráficos
+        List<Movimentacao> saidas = new ArrayList<>();
         for (int i = 0; i < 30; i++) {
             Lote lote = lotes.get(random.nextInt(lotes.size()));
             if (lote.getQuantidadeAtual() > 5) {
@@ -212,11 +218,14 @@ public class DataInitializer implements CommandLineRunner {
                 m.setTipo(TipoMovimentacao.SAIDA);
                 m.setQuantidade(saida);
                 m.setDataHora(LocalDateTime.now().minusDays(random.nextInt(15)));
-                movimentacaoRepository.save(m);
+                // Lotes de exemplo têm um único item
+                m.getParcelas().put(lote.getItens().get(0).getProduto().getId(), (long) saida);
+                saidas.add(m);
 
+                // Lote gerenciado: o novo saldo sai no flush do commit
                 lote.setQuantidadeAtual(lote.getQuantidadeAtual() - saida);
-                loteRepository.save(lote);
             }
         }
+        movimentacaoRepository.saveAll(saidas);
     }
 }
@@ -0,0 +1,30 @@
+package com.ong.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ImportacaoConfig {
+
+  // Poucas threads e fila curta: importações além disso são recusadas na hora (RejectedExecutionException).
+  // No desligamento as importações em andamento são interrompidas entre um bloco e outro.
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService importacaoExecutor(
+      @Value("${importacao.doacoes.threads:2}") int threads,
+      @Value("${importacao.doacoes.fila:10}") int fila) {
+    AtomicInteger contador = new AtomicInteger();
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(fila),
+        tarefa -> {
+          Thread thread = new Thread(tarefa, "importacao-doacoes-" + contador.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -37,6 +37,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/produtos/**").hasAnyRole("ADMIN", "VOLUNTARIO")
                         .requestMatchers("/api/lotes/**").hasAnyRole("ADMIN", "VOLUNTARIO")
                         .requestMatchers("/api/movimentacoes/**").hasAnyRole("ADMIN", "VOLUNTARIO")
+                        .requestMatchers("/api/reservas/**").hasAnyRole("ADMIN", "VOLUNTARIO")
                         .requestMatchers("/api/etiquetas/**").hasAnyRole("ADMIN", "VOLUNTARIO")
                         .requestMatchers(HttpMethod.DELETE, "/api/**").hasRole("ADMIN")
                         .requestMatchers("/api/usuarios/**").hasRole("ADMIN")
@@ -0,0 +1,105 @@
+package com.ong.backend.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.ong.backend.services.InvalidacaoCacheEntidades;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+@Configuration
+public class SegundoNivelCacheConfig {
+
+  private static final long MAX_ENTRADAS_PADRAO = 1000;
+  private static final long TTL_MS_PADRAO = 3_600_000;
+
+  // Uma região por entidade/coleção em cache (@Cache(region = ...)), com cache.segundo-nivel.<região>.max-entradas
+  // e .ttl-ms; "consultas" é a região dos resultados do cache de consultas. A região dos carimbos de
+  // gravação por tabela não expira nem tem limite: sem ela o Hibernate não sabe que um resultado ficou velho.
+  // Um gerenciador por contexto (URI própria): contextos de teste na mesma JVM não dividem regiões
+  @Bean(destroyMethod = "close")
+  public CacheManager cacheSegundoNivel(Environment environment,
+      @Value("${cache.segundo-nivel.regioes:produto,categoria,usuario,composicao-produto,produto-componentes}")
+      List<String> regioes) {
+    CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+        .getCacheManager(URI.create("ong-segundo-nivel:" + UUID.randomUUID()), getClass().getClassLoader());
+    for (String regiao : regioes) {
+      cacheManager.createCache(regiao, configuracao(environment, regiao));
+    }
+    cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+        configuracao(environment, "consultas"));
+    cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+        new CaffeineConfiguration<>());
+    return cacheManager;
+  }
+
+  // Regiões fora da configuração falham na subida em vez de virarem caches sem limite. As estatísticas
+  // do Hibernate alimentam as métricas hibernate.second.level.cache.* e hibernate.cache.query.* do Actuator
+  @Bean
+  public HibernatePropertiesCustomizer segundoNivelCacheCustomizer(CacheManager cacheSegundoNivel,
+      InvalidacaoCacheEntidades invalidacaoCacheEntidades) {
+    return propriedades -> {
+      propriedades.put("hibernate.cache.use_second_level_cache", true);
+      propriedades.put("hibernate.cache.use_query_cache", true);
+      propriedades.put("hibernate.cache.region.factory_class", "jcache");
+      propriedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+      propriedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+      propriedades.put("hibernate.generate_statistics", true);
+      propriedades.put("hibernate.integrator_provider",
+          (IntegratorProvider) () -> List.of(registrar(invalidacaoCacheEntidades)));
+    };
+  }
+
+  private CaffeineConfiguration<Object, Object> configuracao(Environment environment, String regiao) {
+    String prefixo = "cache.segundo-nivel." + regiao + ".";
+    CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+    configuracao.setMaximumSize(OptionalLong.of(
+        environment.getProperty(prefixo + "max-entradas", Long.class, MAX_ENTRADAS_PADRAO)));
+    configuracao.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(
+        environment.getProperty(prefixo + "ttl-ms", Long.class, TTL_MS_PADRAO))));
+    return configuracao;
+  }
+
+  private static Integrator registrar(InvalidacaoCacheEntidades invalidacao) {
+    return new Integrator() {
+      @Override
+      public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+          SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registro = sessionFactory.getServiceRegistry()
+            .requireService(EventListenerRegistry.class);
+        registro.appendListeners(EventType.POST_INSERT, invalidacao);
+        registro.appendListeners(EventType.POST_UPDATE, invalidacao);
+        registro.appendListeners(EventType.POST_DELETE, invalidacao);
+        registro.appendListeners(EventType.POST_COLLECTION_RECREATE, invalidacao);
+        registro.appendListeners(EventType.POST_COLLECTION_UPDATE, invalidacao);
+        registro.appendListeners(EventType.POST_COLLECTION_REMOVE, invalidacao);
+      }
+
+      @Override
+      public void disintegrate(SessionFactoryImplementor sessionFactory,
+          SessionFactoryServiceRegistry serviceRegistry) {
+      }
+    };
+  }
+}
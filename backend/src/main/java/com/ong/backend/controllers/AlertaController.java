@@ -0,0 +1,24 @@
+package com.ong.backend.controllers;
+
+import com.ong.backend.dto.alerta.AlertasDTO;
+import com.ong.backend.services.AlertaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/alertas")
+@RequiredArgsConstructor
+public class AlertaController {
+
+    private final AlertaService alertaService;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'VOLUNTARIO')")
+    public ResponseEntity<AlertasDTO> obterAlertas() {
+        return ResponseEntity.ok(alertaService.obterAlertas());
+    }
+}
@@ -1,8 +1,14 @@
 package com.ong.backend.controllers;
 
 import com.ong.backend.dto.dashboard.DashboardMetricsDTO;
-import com.ong.backend.services.DashboardService;
+import com.ong.backend.dto.dashboard.EvolucaoEstoqueDTO;
+import com.ong.backend.dto.dashboard.TopProdutoDTO;
+import com.ong.backend.services.DashboardCacheService;
+import com.ong.backend.services.DashboardStreamService;
+import com.ong.backend.services.DistribuicaoProdutoService;
+import com.ong.backend.services.EstoqueDiarioService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -10,22 +16,54 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/dashboard")
 @RequiredArgsConstructor
 public class DashboardController {
     
-    private final DashboardService dashboardService;
+    private final DashboardCacheService dashboardCacheService;
+    private final EstoqueDiarioService estoqueDiarioService;
+    private final DistribuicaoProdutoService distribuicaoProdutoService;
+    private final DashboardStreamService dashboardStreamService;
     
     @GetMapping("/metrics")
     @PreAuthorize("hasAnyRole('ADMIN', 'VOLUNTARIO')")
     public ResponseEntity<DashboardMetricsDTO> obterMetricas(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
-        return ResponseEntity.ok(dashboardService.obterMetricas(dataInicio, dataFim));
+        return ResponseEntity.ok(dashboardCacheService.obterMetricas(dataInicio, dataFim));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'VOLUNTARIO')")
+    public SseEmitter acompanharMetricas() {
+        return dashboardStreamService.inscrever();
+    }
+
+    @GetMapping("/estoque-diario")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VOLUNTARIO')")
+    public ResponseEntity<List<EvolucaoEstoqueDTO>> obterEstoqueDiario(
+            @RequestParam(required = false) Long produtoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
+        if (produtoId != null) {
+            return ResponseEntity.ok(estoqueDiarioService.obterEvolucaoProduto(produtoId, dataInicio, dataFim));
+        }
+        return ResponseEntity.ok(estoqueDiarioService.obterEvolucao(dataInicio, dataFim));
     }
-}
 
+    @GetMapping("/top-produtos")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VOLUNTARIO')")
+    public ResponseEntity<List<TopProdutoDTO>> obterTopProdutos(
+            @RequestParam(required = false) Long categoriaId,
+            @RequestParam(defaultValue = "5") int limite,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
+        return ResponseEntity.ok(distribuicaoProdutoService.rankear(dataInicio, dataFim, categoriaId, limite));
+    }
+}
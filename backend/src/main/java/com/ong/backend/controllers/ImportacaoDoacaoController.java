@@ -0,0 +1,57 @@
+package com.ong.backend.controllers;
+
+import com.ong.backend.dto.doacao.ImportacaoDoacaoDTO;
+import com.ong.backend.services.ImportacaoDoacaoService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Importação de planilhas grandes de doação: o envio devolve 202 com o id, e o andamento é consultado depois
+@RestController
+@RequestMapping("/api/doacoes/importacoes")
+@RequiredArgsConstructor
+public class ImportacaoDoacaoController {
+
+    private final ImportacaoDoacaoService importacaoDoacaoService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportacaoDoacaoDTO> importar(
+            @RequestParam("arquivo") MultipartFile arquivo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataEntrada,
+            @RequestParam(required = false) String observacoesGerais,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                importacaoDoacaoService.iniciar(arquivo, dataEntrada, observacoesGerais, userDetails.getUsername()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportacaoDoacaoDTO> buscar(@PathVariable UUID id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(importacaoDoacaoService.buscar(id, userDetails.getUsername()));
+    }
+
+    @GetMapping("/{id}/falhas")
+    public ResponseEntity<Resource> baixarFalhas(@PathVariable UUID id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Resource relatorio = new FileSystemResource(
+                importacaoDoacaoService.buscarRelatorioFalhas(id, userDetails.getUsername()));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("text", "csv"));
+        headers.setContentDispositionFormData("attachment", "importacao-" + id + "-falhas.csv");
+
+        return new ResponseEntity<>(relatorio, headers, HttpStatus.OK);
+    }
+}
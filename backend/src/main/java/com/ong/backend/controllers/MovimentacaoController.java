@@ -5,13 +5,19 @@ import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
 import com.ong.backend.dto.movimentacao.MovimentacaoSimplesDTO;
 import com.ong.backend.dto.movimentacao.MovimentacaoDetalhesDTO;
 import com.ong.backend.dto.movimentacao.MontagemKitRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO;
+import com.ong.backend.dto.movimentacao.SaidaProdutoRequestDTO;
 import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.services.FilaGravacaoMovimentacoes;
 import com.ong.backend.services.MovimentacaoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -27,6 +33,7 @@ import java.util.List;
 public class MovimentacaoController {
 
     private final MovimentacaoService movimentacaoService;
+    private final FilaGravacaoMovimentacoes filaGravacao;
 
     @GetMapping
     public ResponseEntity<Page<MovimentacaoResponseDTO>> listarTodas(
@@ -81,9 +88,24 @@ public class MovimentacaoController {
 
     @PostMapping
     public ResponseEntity<MovimentacaoResponseDTO> criar(@Valid @RequestBody MovimentacaoRequestDTO dto,
-            @org.springframework.security.core.annotation.AuthenticationPrincipal org.springframework.security.core.userdetails.UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails) {
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(movimentacaoService.criar(dto, userDetails.getUsername()));
+                .body(filaGravacao.registrar(dto, userDetails.getUsername()));
+    }
+
+    @PostMapping("/saida-produto")
+    public ResponseEntity<List<MovimentacaoResponseDTO>> registrarSaidaPorProduto(
+            @Valid @RequestBody SaidaProdutoRequestDTO dto,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(movimentacaoService.registrarSaidaPorProduto(dto, userDetails.getUsername()));
+    }
+
+    @PostMapping("/em-massa")
+    public ResponseEntity<MovimentacaoMassaResponseDTO> registrarEmMassa(
+            @Valid @RequestBody MovimentacaoMassaRequestDTO dto,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(movimentacaoService.registrarEmMassa(dto.itens(), userDetails.getUsername()));
     }
 
     @DeleteMapping("/{id}")
@@ -95,7 +117,7 @@ public class MovimentacaoController {
     @PostMapping("/montagem")
     public ResponseEntity<MovimentacaoResponseDTO> montarKit(
             @Valid @RequestBody MontagemKitRequestDTO dto,
-            @org.springframework.security.core.annotation.AuthenticationPrincipal org.springframework.security.core.userdetails.UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails) {
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(movimentacaoService.montarKit(dto, userDetails.getUsername()));
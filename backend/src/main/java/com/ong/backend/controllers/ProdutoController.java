@@ -1,9 +1,11 @@
 package com.ong.backend.controllers;
 
+import com.ong.backend.dto.produto.ImportacaoCatalogoDTO;
 import com.ong.backend.dto.produto.ProdutoRequestDTO;
 import com.ong.backend.dto.produto.ProdutoResponseDTO;
 import com.ong.backend.dto.produto.ProdutoSimplesDTO;
 import com.ong.backend.dto.produto.ProdutoDetalhesDTO;
+import com.ong.backend.services.ImportacaoCatalogoService;
 import com.ong.backend.services.ProdutoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,8 +14,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -23,6 +28,7 @@ import java.util.List;
 public class ProdutoController {
 
     private final ProdutoService produtoService;
+    private final ImportacaoCatalogoService importacaoCatalogoService;
 
     @GetMapping
     public ResponseEntity<Page<ProdutoResponseDTO>> listarTodos(
@@ -66,6 +72,13 @@ public class ProdutoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(produtoService.criar(dto));
     }
 
+    // Catálogo de parceiro em CSV: casa pelo código de barras, insere os novos e atualiza os existentes
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportacaoCatalogoDTO> importarCatalogo(@RequestParam("arquivo") MultipartFile arquivo) {
+        return ResponseEntity.ok(importacaoCatalogoService.importar(arquivo));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProdutoResponseDTO> atualizar(
             @PathVariable Long id,
@@ -0,0 +1,55 @@
+package com.ong.backend.controllers;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
+import com.ong.backend.dto.reserva.ReservaRequestDTO;
+import com.ong.backend.dto.reserva.ReservaResponseDTO;
+import com.ong.backend.dto.reserva.SaldoReservaDTO;
+import com.ong.backend.services.ReservaService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reservas")
+@RequiredArgsConstructor
+public class ReservaController {
+
+    private final ReservaService reservaService;
+
+    @PostMapping
+    public ResponseEntity<ReservaResponseDTO> reservar(@Valid @RequestBody ReservaRequestDTO dto,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(reservaService.reservar(dto, userDetails.getUsername()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReservaResponseDTO> buscarPorId(@PathVariable Long id) {
+        return ResponseEntity.ok(reservaService.buscarPorId(id));
+    }
+
+    @GetMapping("/saldo")
+    public ResponseEntity<SaldoReservaDTO> consultarSaldo(
+            @RequestParam(required = false) Long loteId,
+            @RequestParam(required = false) Long produtoId) {
+        return ResponseEntity.ok(reservaService.consultarSaldo(loteId, produtoId));
+    }
+
+    @PostMapping("/{id}/confirmar")
+    public ResponseEntity<List<MovimentacaoResponseDTO>> confirmar(@PathVariable Long id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(reservaService.confirmar(id, userDetails.getUsername()));
+    }
+
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<ReservaResponseDTO> cancelar(@PathVariable Long id) {
+        return ResponseEntity.ok(reservaService.cancelar(id));
+    }
+}
@@ -0,0 +1,54 @@
+package com.ong.backend.controllers;
+
+import com.ong.backend.dto.leitura.LeituraRequestDTO;
+import com.ong.backend.dto.leitura.ReciboLeituraDTO;
+import com.ong.backend.dto.leitura.SessaoLeituraDTO;
+import com.ong.backend.services.SessaoLeituraService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+// Leituras de etiquetas no balcão: abrir sessão, ler quantas vezes for preciso e confirmar uma vez
+@RestController
+@RequestMapping("/api/movimentacoes/sessoes-leitura")
+@RequiredArgsConstructor
+public class SessaoLeituraController {
+
+    private final SessaoLeituraService sessaoLeituraService;
+
+    @PostMapping
+    public ResponseEntity<SessaoLeituraDTO> abrir(@AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(sessaoLeituraService.abrir(userDetails.getUsername()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SessaoLeituraDTO> buscar(@PathVariable UUID id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(sessaoLeituraService.buscar(id, userDetails.getUsername()));
+    }
+
+    @PostMapping("/{id}/leituras")
+    public ResponseEntity<SessaoLeituraDTO> ler(@PathVariable UUID id, @Valid @RequestBody LeituraRequestDTO dto,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(sessaoLeituraService.ler(id, dto, userDetails.getUsername()));
+    }
+
+    @PostMapping("/{id}/confirmar")
+    public ResponseEntity<ReciboLeituraDTO> confirmar(@PathVariable UUID id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(sessaoLeituraService.confirmar(id, userDetails.getUsername()));
+    }
+
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<Void> cancelar(@PathVariable UUID id, @AuthenticationPrincipal UserDetails userDetails) {
+        sessaoLeituraService.cancelar(id, userDetails.getUsername());
+        return ResponseEntity.noContent().build();
+    }
+}
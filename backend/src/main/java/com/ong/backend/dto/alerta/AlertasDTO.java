@@ -0,0 +1,12 @@
+package com.ong.backend.dto.alerta;
+
+import java.util.List;
+
+public record AlertasDTO(
+    Long lotesVencendo,
+    Long produtosEstoqueBaixo,
+    Long lotesSemEstoque,
+    List<Long> lotesVencendoIds,
+    List<Long> produtosEstoqueBaixoIds,
+    List<Long> lotesSemEstoqueIds
+) {}
@@ -0,0 +1,13 @@
+package com.ong.backend.dto.dashboard;
+
+import java.util.List;
+
+public record DashboardAtualizacaoDTO(
+    List<MovimentacaoResumoDTO> novasMovimentacoes,
+    List<Long> movimentacoesRemovidas,
+    Long totalLotes,
+    Long estoqueTotal,
+    Integer movimentacoesHoje,
+    AlertasCriticosDTO alertasCriticos,
+    String atualizadoEm
+) {}
@@ -13,6 +13,8 @@ public record DashboardMetricsDTO(
     List<TopProdutoDTO> top5ProdutosMaisDistribuidos,
     List<MovimentacaoResumoDTO> ultimasMovimentacoes,
     List<MovimentacaoPorDiaDTO> movimentacoesPorDia,
-    List<TipoMovimentacaoCountDTO> movimentacoesPorTipo
+    List<TipoMovimentacaoCountDTO> movimentacoesPorTipo,
+    Boolean parcial,
+    List<String> secoesIncompletas
 ) {}
 
@@ -0,0 +1,18 @@
+package com.ong.backend.dto.doacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record ImportacaoDoacaoDTO(
+    UUID id,
+    String arquivo,
+    StatusImportacao status,
+    Integer percentual,
+    Long linhasLidas,
+    Long linhasImportadas,
+    Long linhasComFalha,
+    LocalDateTime criadaEm,
+    LocalDateTime iniciadaEm,
+    LocalDateTime concluidaEm,
+    String erro
+) {}
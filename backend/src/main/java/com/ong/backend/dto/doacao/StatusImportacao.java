@@ -0,0 +1,8 @@
+package com.ong.backend.dto.doacao;
+
+public enum StatusImportacao {
+    NA_FILA,
+    EM_ANDAMENTO,
+    CONCLUIDA,
+    FALHOU
+}
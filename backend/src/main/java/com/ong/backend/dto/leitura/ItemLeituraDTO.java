@@ -0,0 +1,8 @@
+package com.ong.backend.dto.leitura;
+
+public record ItemLeituraDTO(
+    Long loteId,
+    String codigoBarras,
+    Integer quantidade,
+    Integer leituras
+) {}
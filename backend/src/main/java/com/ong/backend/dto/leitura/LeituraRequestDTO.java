@@ -0,0 +1,14 @@
+package com.ong.backend.dto.leitura;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public record LeituraRequestDTO(
+
+    @NotBlank(message = "Código de barras é obrigatório")
+    String codigoBarras,
+
+    // Opcional: sem valor, cada leitura conta uma unidade
+    @Positive(message = "Quantidade deve ser positiva")
+    Integer quantidade
+) {}
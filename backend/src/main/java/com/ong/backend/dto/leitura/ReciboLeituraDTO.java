@@ -0,0 +1,16 @@
+package com.ong.backend.dto.leitura;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record ReciboLeituraDTO(
+    UUID sessaoId,
+    LocalDateTime abertaEm,
+    LocalDateTime confirmadaEm,
+    Integer leituras,
+    List<ItemLeituraDTO> itens,
+    MovimentacaoMassaResponseDTO movimentacoes
+) {}
@@ -0,0 +1,12 @@
+package com.ong.backend.dto.leitura;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record SessaoLeituraDTO(
+    UUID id,
+    LocalDateTime abertaEm,
+    Integer leituras,
+    List<ItemLeituraDTO> itens
+) {}
@@ -0,0 +1,14 @@
+package com.ong.backend.dto.movimentacao;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record MovimentacaoMassaRequestDTO(
+
+    @NotEmpty(message = "Informe ao menos uma movimentação")
+    @Size(max = 1000, message = "No máximo 1000 movimentações por envio")
+    List<@Valid MovimentacaoRequestDTO> itens
+) {}
@@ -0,0 +1,28 @@
+package com.ong.backend.dto.movimentacao;
+
+import java.util.List;
+
+public record MovimentacaoMassaResponseDTO(
+    int total,
+    int registradas,
+    int rejeitadas,
+    List<ResultadoItem> resultados
+) {
+    // Um resultado por item, na ordem recebida
+    public record ResultadoItem(
+        int indice,
+        Long loteId,
+        boolean sucesso,
+        Long movimentacaoId,
+        String erro
+    ) {}
+
+    public MovimentacaoMassaResponseDTO(List<ResultadoItem> resultados) {
+        this(
+            resultados.size(),
+            (int) resultados.stream().filter(ResultadoItem::sucesso).count(),
+            (int) resultados.stream().filter(resultado -> !resultado.sucesso()).count(),
+            resultados
+        );
+    }
+}
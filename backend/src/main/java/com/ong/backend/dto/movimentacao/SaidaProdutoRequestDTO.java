@@ -0,0 +1,16 @@
+package com.ong.backend.dto.movimentacao;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record SaidaProdutoRequestDTO(
+
+    @NotNull(message = "Produto é obrigatório")
+    Long produtoId,
+
+    Long usuarioId,
+
+    @NotNull(message = "Quantidade é obrigatória")
+    @Positive(message = "Quantidade deve ser positiva")
+    Integer quantidade
+) {}
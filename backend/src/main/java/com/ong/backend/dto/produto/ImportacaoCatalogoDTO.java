@@ -0,0 +1,12 @@
+package com.ong.backend.dto.produto;
+
+import java.util.List;
+
+// Ignorados: linhas inválidas, códigos repetidos no arquivo e produtos que já estavam iguais
+public record ImportacaoCatalogoDTO(
+    long linhasLidas,
+    long inseridos,
+    long atualizados,
+    long ignorados,
+    List<String> erros
+) {}
@@ -1,6 +1,7 @@
 package com.ong.backend.dto.produto;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -24,5 +25,8 @@ public record ProdutoRequestDTO(
     Boolean isKit,
 
     @Valid
-    List<ComponenteRequestDTO> componentes
+    List<ComponenteRequestDTO> componentes,
+
+    @Min(value = 0, message = "Estoque mínimo deve ser maior ou igual a zero")
+    Integer estoqueMinimo
 ) {}
\ No newline at end of file
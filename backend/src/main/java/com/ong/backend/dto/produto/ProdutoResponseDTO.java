@@ -12,7 +12,8 @@ public record ProdutoResponseDTO(
     String codigoBarrasFabricante,
     CategoriaResponseDTO categoria,
     boolean isKit,
-    List<ComponenteResponseDTO> componentes
+    List<ComponenteResponseDTO> componentes,
+    Integer estoqueMinimo
 ) {
     public ProdutoResponseDTO(Produto produto) {
         this(
@@ -29,7 +30,8 @@ public record ProdutoResponseDTO(
                         c.getComponente().getNome(), 
                         c.getQuantidade()))
                     .collect(Collectors.toList()) 
-                : List.of()
+                : List.of(),
+            produto.getEstoqueMinimo()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.ong.backend.dto.reserva;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record ReservaRequestDTO(
+
+    // Informe o lote ou o produto (nunca os dois)
+    Long loteId,
+
+    Long produtoId,
+
+    Long usuarioId,
+
+    @NotNull(message = "Quantidade é obrigatória")
+    @Positive(message = "Quantidade deve ser positiva")
+    Integer quantidade,
+
+    @Positive(message = "Validade da reserva deve ser positiva")
+    Integer ttlSegundos
+) {}
@@ -0,0 +1,32 @@
+package com.ong.backend.dto.reserva;
+
+import com.ong.backend.models.Reserva;
+import com.ong.backend.models.StatusReserva;
+
+import java.time.LocalDateTime;
+
+public record ReservaResponseDTO(
+    Long id,
+    Long loteId,
+    Long produtoId,
+    Long usuarioId,
+    Integer quantidade,
+    StatusReserva status,
+    LocalDateTime criadaEm,
+    LocalDateTime expiraEm,
+    LocalDateTime finalizadaEm
+) {
+    public ReservaResponseDTO(Reserva reserva) {
+        this(
+            reserva.getId(),
+            reserva.getLote() != null ? reserva.getLote().getId() : null,
+            reserva.getProduto() != null ? reserva.getProduto().getId() : null,
+            reserva.getUsuario().getId(),
+            reserva.getQuantidade(),
+            reserva.getStatus(),
+            reserva.getCriadaEm(),
+            reserva.getExpiraEm(),
+            reserva.getFinalizadaEm()
+        );
+    }
+}
@@ -0,0 +1,9 @@
+package com.ong.backend.dto.reserva;
+
+public record SaldoReservaDTO(
+    Long loteId,
+    Long produtoId,
+    Integer estoque,
+    Integer reservado,
+    Integer disponivel
+) {}
@@ -0,0 +1,21 @@
+package com.ong.backend.events;
+
+import com.ong.backend.models.Lote;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public record EstoqueAlteradoEvent(
+    Set<Long> loteIds,
+    Set<Long> produtoIds
+) {
+    public EstoqueAlteradoEvent(Lote lote) {
+        this(Set.of(lote.getId()), produtosDoLote(lote));
+    }
+
+    private static Set<Long> produtosDoLote(Lote lote) {
+        Set<Long> produtoIds = new HashSet<>();
+        lote.getItens().forEach(item -> produtoIds.add(item.getProduto().getId()));
+        return produtoIds;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ong.backend.events;
+
+import com.ong.backend.models.Movimentacao;
+import com.ong.backend.models.TipoMovimentacao;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record MovimentacaoRegistradaEvent(
+    Long movimentacaoId,
+    Long loteId,
+    TipoMovimentacao tipo,
+    Integer quantidade,
+    LocalDateTime dataHora,
+    Map<Long, Long> parcelas
+) {
+    public MovimentacaoRegistradaEvent(Movimentacao movimentacao) {
+        this(
+            movimentacao.getId(),
+            movimentacao.getLote().getId(),
+            movimentacao.getTipo(),
+            movimentacao.getQuantidade(),
+            movimentacao.getDataHora(),
+            Map.copyOf(movimentacao.getParcelas())
+        );
+    }
+}
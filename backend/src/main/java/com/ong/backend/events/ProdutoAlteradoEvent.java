@@ -0,0 +1,17 @@
+package com.ong.backend.events;
+
+import java.util.Set;
+
+// Produtos criados, editados ou removidos, descritos pelo que as listagens filtram: nome e categoria,
+// antes e depois da mudança
+public record ProdutoAlteradoEvent(
+    Set<ProdutoListado> produtos
+) {
+    // Nome nulo vale para qualquer produto da categoria
+    public record ProdutoListado(String nome, Long categoriaId) {
+    }
+
+    public static ProdutoAlteradoEvent daCategoria(Long categoriaId) {
+        return new ProdutoAlteradoEvent(Set.of(new ProdutoListado(null, categoriaId)));
+    }
+}
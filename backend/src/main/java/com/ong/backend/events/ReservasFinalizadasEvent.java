@@ -0,0 +1,27 @@
+package com.ong.backend.events;
+
+import com.ong.backend.models.Reserva;
+import com.ong.backend.models.StatusReserva;
+
+import java.util.List;
+
+public record ReservasFinalizadasEvent(
+    StatusReserva status,
+    List<ReservaFinalizada> reservas
+) {
+    public record ReservaFinalizada(
+        Long reservaId,
+        Long loteId,
+        Long produtoId,
+        Integer quantidade
+    ) {
+        public ReservaFinalizada(Reserva reserva) {
+            this(
+                reserva.getId(),
+                reserva.getLote() != null ? reserva.getLote().getId() : null,
+                reserva.getProduto() != null ? reserva.getProduto().getId() : null,
+                reserva.getQuantidade()
+            );
+        }
+    }
+}
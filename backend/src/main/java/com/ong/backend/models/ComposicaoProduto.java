@@ -1,17 +1,22 @@
 package com.ong.backend.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "composicao-produto")
 @Data
 @NoArgsConstructor
 @Table(name = "composicao_produtos")
 public class ComposicaoProduto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "composicao_produtos_seq")
+    @SequenceGenerator(name = "composicao_produtos_seq", sequenceName = "composicao_produtos_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,40 @@
+package com.ong.backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "distribuicao_diaria_produto", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_distribuicao_diaria_produto", columnNames = { "data", "produto_id" })
+}, indexes = {
+        @Index(name = "idx_distribuicao_diaria_data", columnList = "data")
+})
+public class DistribuicaoDiariaProduto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "distribuicao_diaria_produto_seq")
+    @SequenceGenerator(name = "distribuicao_diaria_produto_seq",
+            sequenceName = "distribuicao_diaria_produto_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate data;
+
+    // Sem FK: o histórico não deve impedir a exclusão do produto
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    // Quantidade que saiu do produto no dia (saídas rateadas entre os itens do lote)
+    @Column(nullable = false)
+    private Long quantidade;
+
+    public DistribuicaoDiariaProduto(LocalDate data, Long produtoId, Long quantidade) {
+        this.data = data;
+        this.produtoId = produtoId;
+        this.quantidade = quantidade;
+    }
+}
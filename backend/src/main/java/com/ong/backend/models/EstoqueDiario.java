@@ -0,0 +1,32 @@
+package com.ong.backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "estoque_diario", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_estoque_diario_data", columnNames = "data")
+})
+public class EstoqueDiario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estoque_diario_seq")
+    @SequenceGenerator(name = "estoque_diario_seq", sequenceName = "estoque_diario_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate data;
+
+    // Estoque total (soma de quantidadeAtual dos lotes) no fechamento do dia
+    @Column(nullable = false)
+    private Long quantidade;
+
+    public EstoqueDiario(LocalDate data, Long quantidade) {
+        this.data = data;
+        this.quantidade = quantidade;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ong.backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "estoque_diario_produto", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_estoque_diario_produto", columnNames = { "data", "produto_id" })
+})
+public class EstoqueDiarioProduto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estoque_diario_produto_seq")
+    @SequenceGenerator(name = "estoque_diario_produto_seq",
+            sequenceName = "estoque_diario_produto_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate data;
+
+    // Sem FK: o histórico não deve impedir a exclusão do produto
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    // Estoque do produto (soma de quantidade dos itens de lote) no fechamento do dia
+    @Column(nullable = false)
+    private Long quantidade;
+
+    public EstoqueDiarioProduto(LocalDate data, Long produtoId, Long quantidade) {
+        this.data = data;
+        this.produtoId = produtoId;
+        this.quantidade = quantidade;
+    }
+}
@@ -17,7 +17,8 @@ import java.util.List;
 public class Lote {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lotes_seq")
+    @SequenceGenerator(name = "lotes_seq", sequenceName = "lotes_seq", allocationSize = 50)
     private Long id;
 
     @OneToMany(mappedBy = "lote", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -52,7 +53,19 @@ public class Lote {
         return codigoSemDigito + digito;
     }
 
-    private int calcularDigitoVerificador(String codigo) {
+    // Caminho inverso de getCodigoBarras: devolve o ID do lote ou null se o código não for de lote
+    public static Long extrairIdDoCodigoBarras(String codigoBarras) {
+        if (codigoBarras == null || !codigoBarras.matches("2\\d{12}")) {
+            return null;
+        }
+        int digito = Character.getNumericValue(codigoBarras.charAt(12));
+        if (calcularDigitoVerificador(codigoBarras.substring(0, 12)) != digito) {
+            return null;
+        }
+        return Long.parseLong(codigoBarras.substring(1, 12));
+    }
+
+    private static int calcularDigitoVerificador(String codigo) {
         int soma = 0;
         for (int i = 0; i < codigo.length(); i++) {
             int n = Character.getNumericValue(codigo.charAt(i));
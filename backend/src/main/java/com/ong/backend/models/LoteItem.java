@@ -16,7 +16,8 @@ import java.time.LocalDate;
 public class LoteItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lote_itens_seq")
+    @SequenceGenerator(name = "lote_itens_seq", sequenceName = "lote_itens_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -27,8 +28,9 @@ public class LoteItem {
     @JoinColumn(name = "produto_id", nullable = false)
     private Produto produto;
 
+    // Saldo do item: chega a zero quando o estoque do produto no lote é todo consumido
     @Column(nullable = false)
-    @jakarta.validation.constraints.Min(value = 1, message = "Quantidade deve ser maior que zero")
+    @jakarta.validation.constraints.Min(value = 0, message = "Quantidade deve ser maior ou igual a zero")
     private Integer quantidade;
 
     private LocalDate dataValidade;
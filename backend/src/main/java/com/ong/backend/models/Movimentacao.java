@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 @Entity
 @Data
@@ -17,7 +19,8 @@ import java.time.LocalDateTime;
 public class Movimentacao {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimentacoes_seq")
+    @SequenceGenerator(name = "movimentacoes_seq", sequenceName = "movimentacoes_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -39,6 +42,13 @@ public class Movimentacao {
     @Column(nullable = false)
     private LocalDateTime dataHora;
 
+    // Saídas: quanto saiu de cada produto, fixado no registro para o estorno desfazer exatamente o mesmo
+    @ElementCollection
+    @CollectionTable(name = "movimentacao_parcelas", joinColumns = @JoinColumn(name = "movimentacao_id"))
+    @MapKeyColumn(name = "produto_id")
+    @Column(name = "quantidade", nullable = false)
+    private Map<Long, Long> parcelas = new HashMap<>();
+
     public Movimentacao(Lote lote, Usuario usuario, TipoMovimentacao tipo, Integer quantidade) {
         this.lote = lote;
         this.usuario = usuario;
@@ -1,12 +1,16 @@
 package com.ong.backend.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.util.List;
 import java.util.ArrayList;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "produto")
 @Data
 @NoArgsConstructor
 @Table(name = "produtos", indexes = {
@@ -17,7 +21,8 @@ import java.util.ArrayList;
 public class Produto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produtos_seq")
+    @SequenceGenerator(name = "produtos_seq", sequenceName = "produtos_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -34,6 +39,10 @@ public class Produto {
     @Column(nullable = false)
     private boolean isKit = false;
 
+    // Abaixo deste total em estoque o produto entra nos alertas; nulo usa o padrão configurado
+    private Integer estoqueMinimo;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "produto-componentes")
     @OneToMany(mappedBy = "produtoPai", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ComposicaoProduto> componentes = new ArrayList<>();
 }
\ No newline at end of file
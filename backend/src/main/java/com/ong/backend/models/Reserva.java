@@ -0,0 +1,50 @@
+package com.ong.backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Quantidade separada de um lote ou de um produto até expiraEm; vira saída ao ser confirmada
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "reservas", indexes = {
+        @Index(name = "idx_reserva_status_expira_em", columnList = "status, expira_em")
+})
+public class Reserva {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservas_seq")
+    @SequenceGenerator(name = "reservas_seq", sequenceName = "reservas_seq", allocationSize = 50)
+    private Long id;
+
+    // Exatamente um dos dois: reserva de um lote específico ou de um produto (lotes escolhidos na confirmação)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lote_id")
+    private Lote lote;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "produto_id")
+    private Produto produto;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false)
+    @jakarta.validation.constraints.Min(value = 1, message = "Quantidade deve ser maior que zero")
+    private Integer quantidade;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusReserva status;
+
+    @Column(nullable = false)
+    private LocalDateTime criadaEm;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+
+    private LocalDateTime finalizadaEm;
+}
@@ -0,0 +1,8 @@
+package com.ong.backend.models;
+
+public enum StatusReserva {
+    ATIVA,
+    CONFIRMADA,
+    CANCELADA,
+    EXPIRADA
+}
@@ -4,6 +4,10 @@ import com.ong.backend.models.ComposicaoProduto;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ComposicaoProdutoRepository extends JpaRepository<ComposicaoProduto, Long> {
+
+    List<ComposicaoProduto> findByComponenteId(Long componenteId);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.ong.backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+// Escritas que dependem de SQL do banco (upsert, UPDATE ... RETURNING): PostgreSQL em produção, H2 nos testes
+final class DialetoBanco {
+
+    private DialetoBanco() {
+    }
+
+    static boolean postgres(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+}
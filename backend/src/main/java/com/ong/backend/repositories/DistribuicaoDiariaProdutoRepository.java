@@ -0,0 +1,31 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.DistribuicaoDiariaProduto;
+import com.ong.backend.repositories.projections.ProdutoDistribuidoTotal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DistribuicaoDiariaProdutoRepository extends JpaRepository<DistribuicaoDiariaProduto, Long>,
+        DistribuicaoDiariaProdutoRepositoryCustom {
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ProdutoDistribuidoTotal(
+                p.id, p.nome, SUM(d.quantidade), MAX(d.data))
+            FROM DistribuicaoDiariaProduto d
+            JOIN Produto p ON p.id = d.produtoId
+            WHERE d.data >= :inicio AND d.data <= :fim
+              AND d.quantidade > 0
+              AND (:categoriaId IS NULL OR p.categoria.id = :categoriaId)
+            GROUP BY p.id, p.nome
+            ORDER BY SUM(d.quantidade) DESC, p.id
+            """)
+    List<ProdutoDistribuidoTotal> rankear(@Param("inicio") LocalDate inicio, @Param("fim") LocalDate fim,
+            @Param("categoriaId") Long categoriaId, Pageable pageable);
+}
@@ -0,0 +1,10 @@
+package com.ong.backend.repositories;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface DistribuicaoDiariaProdutoRepositoryCustom {
+
+    // Soma a quantidade de cada produto no acumulado do dia, criando a linha se ainda não existir
+    void acumular(LocalDate data, Map<Long, Long> quantidadesPorProduto);
+}
@@ -0,0 +1,46 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.DistribuicaoDiariaProduto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+class DistribuicaoDiariaProdutoRepositoryCustomImpl implements DistribuicaoDiariaProdutoRepositoryCustom {
+
+    // Upsert atômico: duas primeiras saídas do dia concorrentes não disputam o INSERT na chave única
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO distribuicao_diaria_produto (id, data, produto_id, quantidade)
+            VALUES (nextval('distribuicao_diaria_produto_seq'), :data, :produtoId, :quantidade)
+            ON CONFLICT (data, produto_id)
+            DO UPDATE SET quantidade = distribuicao_diaria_produto.quantidade + EXCLUDED.quantidade
+            """;
+
+    private static final String UPSERT_H2 = """
+            MERGE INTO distribuicao_diaria_produto d
+            USING (VALUES (CAST(:data AS DATE), CAST(:produtoId AS BIGINT), CAST(:quantidade AS BIGINT)))
+                AS s (data, produto_id, quantidade)
+            ON d.data = s.data AND d.produto_id = s.produto_id
+            WHEN MATCHED THEN UPDATE SET quantidade = d.quantidade + s.quantidade
+            WHEN NOT MATCHED THEN INSERT (id, data, produto_id, quantidade)
+                VALUES (NEXT VALUE FOR distribuicao_diaria_produto_seq, s.data, s.produto_id, s.quantidade)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void acumular(LocalDate data, Map<Long, Long> quantidadesPorProduto) {
+        String sql = DialetoBanco.postgres(entityManager) ? UPSERT_POSTGRES : UPSERT_H2;
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                // Sem isso o Hibernate invalida todas as regiões do cache de segundo nível
+                .addSynchronizedEntityClass(DistribuicaoDiariaProduto.class)
+                .setParameter("data", data)
+                .setParameter("produtoId", produtoId)
+                .setParameter("quantidade", quantidade)
+                .executeUpdate());
+    }
+}
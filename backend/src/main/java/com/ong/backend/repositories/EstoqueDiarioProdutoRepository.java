@@ -0,0 +1,32 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.EstoqueDiarioProduto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstoqueDiarioProdutoRepository extends JpaRepository<EstoqueDiarioProduto, Long>,
+        EstoqueDiarioProdutoRepositoryCustom {
+
+    List<EstoqueDiarioProduto> findByProdutoIdAndDataBetweenOrderByData(Long produtoId, LocalDate inicio,
+            LocalDate fim);
+
+    Optional<EstoqueDiarioProduto> findFirstByProdutoIdAndDataLessThanOrderByDataDesc(Long produtoId,
+            LocalDate data);
+
+    @Modifying
+    @Query("UPDATE EstoqueDiarioProduto e SET e.quantidade = e.quantidade + :delta "
+            + "WHERE e.data = :data AND e.produtoId = :produtoId")
+    int incrementar(@Param("data") LocalDate data, @Param("produtoId") Long produtoId, @Param("delta") long delta);
+
+    @Modifying
+    @Query("DELETE FROM EstoqueDiarioProduto e WHERE e.data = :data")
+    int deleteByData(@Param("data") LocalDate data);
+}
@@ -0,0 +1,40 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.EstoqueDiarioProduto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+
+class EstoqueDiarioProdutoRepositoryCustomImpl implements EstoqueDiarioProdutoRepositoryCustom {
+
+    private static final String INSERIR_POSTGRES = """
+            INSERT INTO estoque_diario_produto (id, data, produto_id, quantidade)
+            VALUES (nextval('estoque_diario_produto_seq'), :data, :produtoId, :quantidade)
+            ON CONFLICT (data, produto_id) DO NOTHING
+            """;
+
+    private static final String INSERIR_H2 = """
+            MERGE INTO estoque_diario_produto e
+            USING (VALUES (CAST(:data AS DATE), CAST(:produtoId AS BIGINT), CAST(:quantidade AS BIGINT)))
+                AS s (data, produto_id, quantidade)
+            ON e.data = s.data AND e.produto_id = s.produto_id
+            WHEN NOT MATCHED THEN INSERT (id, data, produto_id, quantidade)
+                VALUES (NEXT VALUE FOR estoque_diario_produto_seq, s.data, s.produto_id, s.quantidade)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int inserirSeAusente(LocalDate data, Long produtoId, long quantidade) {
+        return entityManager.createNativeQuery(DialetoBanco.postgres(entityManager) ? INSERIR_POSTGRES : INSERIR_H2)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(EstoqueDiarioProduto.class)
+                .setParameter("data", data)
+                .setParameter("produtoId", produtoId)
+                .setParameter("quantidade", quantidade)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,27 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.EstoqueDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstoqueDiarioRepository extends JpaRepository<EstoqueDiario, Long>,
+        EstoqueDiarioRepositoryCustom {
+
+    Optional<EstoqueDiario> findByData(LocalDate data);
+
+    List<EstoqueDiario> findByDataBetweenOrderByData(LocalDate inicio, LocalDate fim);
+
+    Optional<EstoqueDiario> findFirstByDataLessThanOrderByDataDesc(LocalDate data);
+
+    @Modifying
+    @Query("UPDATE EstoqueDiario e SET e.quantidade = e.quantidade + :delta WHERE e.data = :data")
+    int incrementar(@Param("data") LocalDate data, @Param("delta") long delta);
+}
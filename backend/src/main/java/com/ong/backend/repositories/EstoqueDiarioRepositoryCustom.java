@@ -0,0 +1,9 @@
+package com.ong.backend.repositories;
+
+import java.time.LocalDate;
+
+public interface EstoqueDiarioRepositoryCustom {
+
+    // Abre o dia com a quantidade informada; devolve 0 se a linha já existir (sem alterá-la)
+    int inserirSeAusente(LocalDate data, long quantidade);
+}
@@ -0,0 +1,38 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.EstoqueDiario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+
+class EstoqueDiarioRepositoryCustomImpl implements EstoqueDiarioRepositoryCustom {
+
+    private static final String INSERIR_POSTGRES = """
+            INSERT INTO estoque_diario (id, data, quantidade)
+            VALUES (nextval('estoque_diario_seq'), :data, :quantidade)
+            ON CONFLICT (data) DO NOTHING
+            """;
+
+    private static final String INSERIR_H2 = """
+            MERGE INTO estoque_diario e
+            USING (VALUES (CAST(:data AS DATE), CAST(:quantidade AS BIGINT))) AS s (data, quantidade)
+            ON e.data = s.data
+            WHEN NOT MATCHED THEN INSERT (id, data, quantidade)
+                VALUES (NEXT VALUE FOR estoque_diario_seq, s.data, s.quantidade)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int inserirSeAusente(LocalDate data, long quantidade) {
+        return entityManager.createNativeQuery(DialetoBanco.postgres(entityManager) ? INSERIR_POSTGRES : INSERIR_H2)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(EstoqueDiario.class)
+                .setParameter("data", data)
+                .setParameter("quantidade", quantidade)
+                .executeUpdate();
+    }
+}
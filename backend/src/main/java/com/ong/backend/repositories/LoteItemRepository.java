@@ -1,15 +1,80 @@
 package com.ong.backend.repositories;
 
 import com.ong.backend.models.LoteItem;
+import com.ong.backend.repositories.projections.LoteItemAlocavel;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.repositories.projections.LoteProdutoNome;
+import com.ong.backend.repositories.projections.ProdutoEstoqueTotal;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface LoteItemRepository extends JpaRepository<LoteItem, Long> {
 
   
   @Query("SELECT COALESCE(SUM(li.quantidade), 0) FROM LoteItem li WHERE li.produto.id = :produtoId")
   Integer calcularEstoqueTotalPorProduto(@Param("produtoId") Long produtoId);
+
+  @Query("""
+      SELECT COUNT(p) FROM Produto p
+      WHERE (SELECT COALESCE(SUM(li.quantidade), 0) FROM LoteItem li WHERE li.produto = p) > 0
+        AND (SELECT COALESCE(SUM(li.quantidade), 0) FROM LoteItem li WHERE li.produto = p)
+            < COALESCE(p.estoqueMinimo, :limitePadrao)
+      """)
+  long contarProdutosComEstoqueAbaixoDoMinimo(@Param("limitePadrao") int limitePadrao);
+
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.LoteProdutoNome(li.lote.id, p.nome)
+      FROM LoteItem li JOIN li.produto p
+      WHERE li.lote.id IN :loteIds
+      ORDER BY li.id
+      """)
+  List<LoteProdutoNome> buscarNomesProdutosPorLotes(@Param("loteIds") Collection<Long> loteIds);
+
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.ProdutoEstoqueTotal(li.produto.id, SUM(li.quantidade))
+      FROM LoteItem li
+      GROUP BY li.produto.id
+      """)
+  List<ProdutoEstoqueTotal> calcularEstoquePorProduto();
+
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.LoteItemQuantidade(li.lote.id, li.produto.id, li.quantidade)
+      FROM LoteItem li
+      WHERE li.lote.id IN :loteIds
+      """)
+  List<LoteItemQuantidade> buscarQuantidadesPorLotes(@Param("loteIds") Collection<Long> loteIds);
+
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.LoteItemAlocavel(
+          li.id, l.id, li.produto.id, li.quantidade, l.quantidadeAtual, li.dataValidade, l.dataEntrada)
+      FROM LoteItem li JOIN li.lote l
+      WHERE li.quantidade > 0 AND l.quantidadeAtual > 0
+      """)
+  List<LoteItemAlocavel> buscarAlocaveis();
+
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.LoteItemAlocavel(
+          li.id, l.id, li.produto.id, li.quantidade, l.quantidadeAtual, li.dataValidade, l.dataEntrada)
+      FROM LoteItem li JOIN li.lote l
+      WHERE li.quantidade > 0 AND l.quantidadeAtual > 0
+        AND l.id IN :loteIds
+      """)
+  List<LoteItemAlocavel> buscarAlocaveisPorLotes(@Param("loteIds") Collection<Long> loteIds);
+
+  // Mesma ordem FEFO/FIFO do índice de alocação, dentro de cada produto
+  @Query("""
+      SELECT new com.ong.backend.repositories.projections.LoteItemAlocavel(
+          li.id, l.id, li.produto.id, li.quantidade, l.quantidadeAtual, li.dataValidade, l.dataEntrada)
+      FROM LoteItem li JOIN li.lote l
+      WHERE li.quantidade > 0 AND l.quantidadeAtual > 0
+        AND li.produto.id IN :produtoIds
+      ORDER BY li.produto.id, li.dataValidade ASC NULLS LAST, l.dataEntrada ASC, li.id ASC
+      """)
+  List<LoteItemAlocavel> buscarAlocaveisPorProdutos(@Param("produtoIds") Collection<Long> produtoIds);
 }
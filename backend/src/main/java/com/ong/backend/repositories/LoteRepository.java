@@ -1,22 +1,69 @@
 package com.ong.backend.repositories;
 
 import com.ong.backend.models.Lote;
+import com.ong.backend.repositories.projections.LoteValidade;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface LoteRepository extends JpaRepository<Lote, Long>, JpaSpecificationExecutor<Lote> {
+public interface LoteRepository extends JpaRepository<Lote, Long>, JpaSpecificationExecutor<Lote>,
+        LoteRepositoryCustom {
 
     List<Lote> findByQuantidadeAtualGreaterThan(Integer quantidade);
 
+    @Query("SELECT l.quantidadeAtual FROM Lote l WHERE l.id = :id")
+    Optional<Integer> buscarQuantidadeAtual(@Param("id") Long id);
+
+    // Todos os locks em um único SELECT ... FOR UPDATE, sempre na ordem dos IDs para evitar deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM Lote l JOIN FETCH l.itens WHERE l.id IN :ids ORDER BY l.id")
+    List<Lote> travarComItens(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM Lote l WHERE l.id IN :ids ORDER BY l.id")
+    List<Lote> travarPorIds(@Param("ids") Collection<Long> ids);
+
+    // Mesma consulta com SKIP LOCKED (timeout -2 no Hibernate): lotes travados por outra transação não vêm
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT l FROM Lote l WHERE l.id = :id")
-    Optional<Lote> findByIdWithLock(@Param("id") Long id);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT l FROM Lote l JOIN FETCH l.itens WHERE l.id IN :ids ORDER BY l.id")
+    List<Lote> travarDisponiveisComItens(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COALESCE(SUM(l.quantidadeAtual), 0) FROM Lote l")
+    long somarEstoqueTotal();
+
+    @Query("SELECT COUNT(l) FROM Lote l WHERE l.quantidadeAtual IS NULL OR l.quantidadeAtual = 0")
+    long contarSemEstoque();
+
+    @Query("""
+            SELECT COUNT(DISTINCT l.id) FROM Lote l JOIN l.itens i
+            WHERE l.quantidadeAtual > 0
+              AND i.dataValidade >= :inicio AND i.dataValidade <= :fim
+            """)
+    long contarComEstoqueVencendoEntre(@Param("inicio") LocalDate inicio, @Param("fim") LocalDate fim);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.LoteValidade(l.id, l.quantidadeAtual, i.dataValidade)
+            FROM Lote l LEFT JOIN l.itens i
+            """)
+    List<LoteValidade> buscarValidades();
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.LoteValidade(l.id, l.quantidadeAtual, i.dataValidade)
+            FROM Lote l LEFT JOIN l.itens i
+            WHERE l.id IN :loteIds
+            """)
+    List<LoteValidade> buscarValidadesPorLotes(@Param("loteIds") Collection<Long> loteIds);
+}
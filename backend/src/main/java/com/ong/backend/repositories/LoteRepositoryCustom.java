@@ -0,0 +1,10 @@
+package com.ong.backend.repositories;
+
+import java.util.Optional;
+
+public interface LoteRepositoryCustom {
+
+    // Soma o delta ao saldo e devolve o novo valor no mesmo comando; vazio se o lote não existir
+    // ou se o saldo ficasse negativo
+    Optional<Integer> aplicarDelta(Long id, int delta);
+}
@@ -0,0 +1,61 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.Lote;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+
+import java.util.List;
+import java.util.Optional;
+
+class LoteRepositoryCustomImpl implements LoteRepositoryCustom {
+
+    private static final String APLICAR_POSTGRES = """
+            UPDATE lotes SET quantidade_atual = quantidade_atual + :delta
+            WHERE id = :id AND quantidade_atual + :delta >= 0
+            RETURNING quantidade_atual
+            """;
+
+    private static final String APLICAR_H2 = """
+            SELECT quantidade_atual FROM FINAL TABLE (
+                UPDATE lotes SET quantidade_atual = quantidade_atual + :delta
+                WHERE id = :id AND quantidade_atual + :delta >= 0)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Integer> aplicarDelta(Long id, int delta) {
+        // Alterações pendentes do lote vão antes do UPDATE, que não passa pelo contexto de persistência
+        entityManager.flush();
+        String sql = DialetoBanco.postgres(entityManager) ? APLICAR_POSTGRES : APLICAR_H2;
+        List<?> saldo = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Lote.class)
+                .setParameter("id", id)
+                .setParameter("delta", delta)
+                .getResultList();
+        if (saldo.isEmpty()) {
+            return Optional.empty();
+        }
+        int novaQuantidade = ((Number) saldo.get(0)).intValue();
+        sincronizarCarregado(id, novaQuantidade);
+        return Optional.of(novaQuantidade);
+    }
+
+    // Lote já carregado na sessão passa a ver o novo saldo sem reler a linha nem gerar outro UPDATE:
+    // voltar de somente-leitura para editável refaz o snapshot do dirty checking com o valor atual
+    private void sincronizarCarregado(Long id, int novaQuantidade) {
+        Session sessao = entityManager.unwrap(Session.class);
+        Lote lote = sessao.getReference(Lote.class, id);
+        if (!Hibernate.isInitialized(lote)) {
+            return;
+        }
+        sessao.setReadOnly(lote, true);
+        lote.setQuantidadeAtual(novaQuantidade);
+        sessao.setReadOnly(lote, false);
+    }
+}
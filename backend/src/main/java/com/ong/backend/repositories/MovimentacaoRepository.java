@@ -4,12 +4,23 @@ import com.ong.backend.models.Movimentacao;
 import com.ong.backend.models.Lote;
 import com.ong.backend.models.Usuario;
 import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.repositories.projections.MovimentacaoDiaResumo;
+import com.ong.backend.repositories.projections.MovimentacaoDiaTipoTotal;
+import com.ong.backend.repositories.projections.MovimentacaoResumo;
+import com.ong.backend.repositories.projections.SaidaDiaLote;
+import com.ong.backend.repositories.projections.SaidaDiaProduto;
+import com.ong.backend.repositories.projections.TipoMovimentacaoTotal;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor; 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MovimentacaoRepository
@@ -28,4 +39,99 @@ public interface MovimentacaoRepository
     List<Movimentacao> findByDataHoraBetween(LocalDateTime inicio, LocalDateTime fim);
 
     List<Movimentacao> findByLoteIdOrderByDataHoraDesc(Long loteId);
-}
\ No newline at end of file
+
+    // ===== Agregações do dashboard (intervalos semiabertos: inicio <= dataHora < fim) =====
+
+    @Query("SELECT COUNT(m) FROM Movimentacao m WHERE m.dataHora >= :inicio AND m.dataHora < :fim")
+    long contarNoPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.TipoMovimentacaoTotal(m.tipo, COUNT(m))
+            FROM Movimentacao m
+            WHERE m.dataHora >= :inicio AND m.dataHora < :fim
+            GROUP BY m.tipo
+            """)
+    List<TipoMovimentacaoTotal> contarPorTipoNoPeriodo(@Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.MovimentacaoDiaResumo(
+                CAST(m.dataHora AS LocalDate),
+                COUNT(m),
+                SUM(CASE WHEN m.tipo = com.ong.backend.models.TipoMovimentacao.ENTRADA THEN 1 ELSE 0 END),
+                SUM(CASE WHEN m.tipo = com.ong.backend.models.TipoMovimentacao.SAIDA THEN 1 ELSE 0 END),
+                SUM(CASE WHEN m.tipo IN (com.ong.backend.models.TipoMovimentacao.ENTRADA,
+                                         com.ong.backend.models.TipoMovimentacao.AJUSTE_GANHO)
+                         THEN m.quantidade ELSE -m.quantidade END))
+            FROM Movimentacao m
+            WHERE m.dataHora >= :inicio AND m.dataHora < :fim
+            GROUP BY CAST(m.dataHora AS LocalDate)
+            ORDER BY CAST(m.dataHora AS LocalDate)
+            """)
+    List<MovimentacaoDiaResumo> resumirPorDia(@Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT MIN(m.dataHora) FROM Movimentacao m")
+    Optional<LocalDateTime> buscarPrimeiraDataHora();
+
+    @Query("""
+            SELECT COALESCE(SUM(CASE WHEN m.tipo IN (com.ong.backend.models.TipoMovimentacao.ENTRADA,
+                                                     com.ong.backend.models.TipoMovimentacao.AJUSTE_GANHO)
+                                     THEN m.quantidade ELSE -m.quantidade END), 0)
+            FROM Movimentacao m
+            WHERE m.dataHora >= :inicio
+            """)
+    long calcularSaldoDesde(@Param("inicio") LocalDateTime inicio);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.SaidaDiaLote(
+                CAST(m.dataHora AS LocalDate), m.lote.id, SUM(m.quantidade))
+            FROM Movimentacao m
+            WHERE m.tipo = com.ong.backend.models.TipoMovimentacao.SAIDA
+              AND m.parcelas IS EMPTY
+            GROUP BY CAST(m.dataHora AS LocalDate), m.lote.id
+            """)
+    List<SaidaDiaLote> totalizarSaidasSemParcelasPorDiaELote();
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.SaidaDiaProduto(
+                CAST(m.dataHora AS LocalDate), KEY(p), SUM(VALUE(p)))
+            FROM Movimentacao m
+            JOIN m.parcelas p
+            WHERE m.tipo = com.ong.backend.models.TipoMovimentacao.SAIDA
+            GROUP BY CAST(m.dataHora AS LocalDate), KEY(p)
+            """)
+    List<SaidaDiaProduto> totalizarParcelasPorDiaEProduto();
+
+    @Query("SELECT m.id FROM Movimentacao m WHERE m.id IN :ids")
+    List<Long> buscarIdsExistentes(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.MovimentacaoResumo(
+                m.id, m.lote.id, m.dataHora, m.tipo, m.quantidade, u.nome)
+            FROM Movimentacao m
+            JOIN m.usuario u
+            WHERE m.dataHora >= :inicio AND m.dataHora < :fim
+            ORDER BY m.dataHora DESC
+            """)
+    List<MovimentacaoResumo> buscarUltimasNoPeriodo(@Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim, Pageable pageable);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.MovimentacaoResumo(
+                m.id, m.lote.id, m.dataHora, m.tipo, m.quantidade, u.nome)
+            FROM Movimentacao m
+            JOIN m.usuario u
+            WHERE m.id IN :ids
+            ORDER BY m.dataHora DESC
+            """)
+    List<MovimentacaoResumo> buscarResumosPorIds(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.MovimentacaoDiaTipoTotal(
+                CAST(m.dataHora AS LocalDate), m.tipo, COUNT(m), SUM(m.quantidade))
+            FROM Movimentacao m
+            GROUP BY CAST(m.dataHora AS LocalDate), m.tipo
+            """)
+    List<MovimentacaoDiaTipoTotal> totalizarPorDiaETipo();
+}
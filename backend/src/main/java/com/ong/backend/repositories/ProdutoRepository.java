@@ -2,18 +2,64 @@ package com.ong.backend.repositories;
 
 import com.ong.backend.models.Produto;
 import com.ong.backend.models.Categoria;
+import com.ong.backend.repositories.projections.ProdutoCodigoBarras;
+import com.ong.backend.repositories.projections.ProdutoEstoqueMinimo;
+import com.ong.backend.repositories.projections.ProdutoNomeCategoria;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProdutoRepository extends JpaRepository<Produto, Long>, JpaSpecificationExecutor<Produto> {
+public interface ProdutoRepository extends JpaRepository<Produto, Long>, JpaSpecificationExecutor<Produto>,
+        ProdutoRepositoryCustom {
     
     List<Produto> findByCategoria(Categoria categoria);
     List<Produto> findByCategoriaId(Long categoriaId);
     Optional<Produto> findByCodigoBarrasFabricante(String codigoBarrasFabricante);
     List<Produto> findByNomeContainingIgnoreCase(String nome);
-}
\ No newline at end of file
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ProdutoEstoqueMinimo(
+                p.id, p.estoqueMinimo, COALESCE(SUM(li.quantidade), 0))
+            FROM Produto p LEFT JOIN LoteItem li ON li.produto = p
+            GROUP BY p.id, p.estoqueMinimo
+            """)
+    List<ProdutoEstoqueMinimo> buscarEstoqueEMinimo();
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ProdutoEstoqueMinimo(
+                p.id, p.estoqueMinimo, COALESCE(SUM(li.quantidade), 0))
+            FROM Produto p LEFT JOIN LoteItem li ON li.produto = p
+            WHERE p.id IN :produtoIds
+            GROUP BY p.id, p.estoqueMinimo
+            """)
+    List<ProdutoEstoqueMinimo> buscarEstoqueEMinimoPorProdutos(@Param("produtoIds") Collection<Long> produtoIds);
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ProdutoCodigoBarras(p.id, p.codigoBarrasFabricante)
+            FROM Produto p
+            WHERE p.codigoBarrasFabricante IS NOT NULL
+            ORDER BY p.id
+            """)
+    List<ProdutoCodigoBarras> buscarCodigosBarras();
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ProdutoNomeCategoria(p.id, p.nome, p.categoria.id)
+            FROM Produto p
+            WHERE p.id IN :produtoIds
+            """)
+    List<ProdutoNomeCategoria> buscarNomeECategoria(@Param("produtoIds") Collection<Long> produtoIds);
+
+    @Query("""
+            SELECT DISTINCT new com.ong.backend.repositories.projections.ProdutoNomeCategoria(p.id, p.nome, p.categoria.id)
+            FROM LoteItem li JOIN li.produto p
+            WHERE li.lote.id IN :loteIds
+            """)
+    List<ProdutoNomeCategoria> buscarNomeECategoriaPorLotes(@Param("loteIds") Collection<Long> loteIds);
+}
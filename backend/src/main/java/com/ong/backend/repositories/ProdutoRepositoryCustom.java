@@ -0,0 +1,12 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.Produto;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProdutoRepositoryCustom {
+
+    // Como findAllById, mas os produtos já no cache de segundo nível não vão ao banco; inexistentes ficam de fora
+    List<Produto> buscarPorIds(Collection<Long> ids);
+}
@@ -0,0 +1,28 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.Produto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+class ProdutoRepositoryCustomImpl implements ProdutoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // O findAllById é uma consulta (WHERE id IN) e sempre vai ao banco; o multiLoad só busca os que faltam
+    @Override
+    public List<Produto> buscarPorIds(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class).byMultipleIds(Produto.class)
+                .with(CacheMode.NORMAL)
+                .enableSessionCheck(true)
+                .multiLoad(List.copyOf(ids)).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ong.backend.repositories;
+
+import com.ong.backend.models.Reserva;
+import com.ong.backend.repositories.projections.ReservaAtivaTotal;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReservaRepository extends JpaRepository<Reserva, Long> {
+
+    @Query("""
+            SELECT new com.ong.backend.repositories.projections.ReservaAtivaTotal(l.id, p.id, SUM(r.quantidade))
+            FROM Reserva r LEFT JOIN r.lote l LEFT JOIN r.produto p
+            WHERE r.status = com.ong.backend.models.StatusReserva.ATIVA
+            GROUP BY l.id, p.id
+            """)
+    List<ReservaAtivaTotal> somarAtivas();
+
+    // Transições condicionais: só uma entre confirmação, cancelamento e varredura vence para cada reserva
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Reserva r SET r.status = com.ong.backend.models.StatusReserva.CONFIRMADA, r.finalizadaEm = :agora
+            WHERE r.id = :id AND r.status = com.ong.backend.models.StatusReserva.ATIVA AND r.expiraEm > :agora
+            """)
+    int confirmarSeAtiva(@Param("id") Long id, @Param("agora") LocalDateTime agora);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Reserva r SET r.status = com.ong.backend.models.StatusReserva.CANCELADA, r.finalizadaEm = :agora
+            WHERE r.id = :id AND r.status = com.ong.backend.models.StatusReserva.ATIVA
+            """)
+    int cancelarSeAtiva(@Param("id") Long id, @Param("agora") LocalDateTime agora);
+
+    // Reservas vencidas já travadas por outra instância da varredura (ou por uma confirmação) são puladas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT r FROM Reserva r
+            WHERE r.status = com.ong.backend.models.StatusReserva.ATIVA AND r.expiraEm <= :agora
+            ORDER BY r.expiraEm
+            """)
+    List<Reserva> travarVencidas(@Param("agora") LocalDateTime agora, Limit limite);
+}
@@ -2,17 +2,26 @@ package com.ong.backend.repositories;
 
 import com.ong.backend.models.Usuario;
 import com.ong.backend.models.PerfilUsuario;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long>, JpaSpecificationExecutor<Usuario> {
     
+    // Consultas de cada movimentação e entrada: o resultado (só os IDs) fica no cache de consultas do
+    // Hibernate e os usuários no cache de segundo nível; qualquer gravação em usuarios invalida o resultado
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Usuario> findByEmail(String email);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Usuario> findByEmailIn(Collection<String> emails);
     
     boolean existsByEmail(String email);
     
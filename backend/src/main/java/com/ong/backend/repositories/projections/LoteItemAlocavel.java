@@ -0,0 +1,18 @@
+package com.ong.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+public record LoteItemAlocavel(
+    Long loteItemId,
+    Long loteId,
+    Long produtoId,
+    Integer quantidade,
+    Integer quantidadeLote,
+    LocalDate dataValidade,
+    LocalDate dataEntrada
+) {
+    // Saídas registradas direto no lote reduzem o saldo do lote sem tocar nos itens
+    public int disponivel() {
+        return Math.min(quantidade, quantidadeLote);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ong.backend.repositories.projections;
+
+public record LoteItemQuantidade(
+    Long loteId,
+    Long produtoId,
+    Integer quantidade
+) {}
@@ -0,0 +1,9 @@
+package com.ong.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+public record LoteValidade(
+    Long loteId,
+    Integer quantidadeAtual,
+    LocalDate dataValidade
+) {}
@@ -0,0 +1,11 @@
+package com.ong.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+public record MovimentacaoDiaResumo(
+    LocalDate dia,
+    Long total,
+    Long entradas,
+    Long saidas,
+    Long saldo
+) {}
@@ -0,0 +1,12 @@
+package com.ong.backend.repositories.projections;
+
+import com.ong.backend.models.TipoMovimentacao;
+
+import java.time.LocalDate;
+
+public record MovimentacaoDiaTipoTotal(
+    LocalDate dia,
+    TipoMovimentacao tipo,
+    Long total,
+    Long quantidade
+) {}
@@ -0,0 +1,14 @@
+package com.ong.backend.repositories.projections;
+
+import com.ong.backend.models.TipoMovimentacao;
+
+import java.time.LocalDateTime;
+
+public record MovimentacaoResumo(
+    Long id,
+    Long loteId,
+    LocalDateTime dataHora,
+    TipoMovimentacao tipo,
+    Integer quantidade,
+    String usuarioNome
+) {}
@@ -0,0 +1,10 @@
+package com.ong.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+public record ProdutoDistribuidoTotal(
+    Long produtoId,
+    String produtoNome,
+    Long quantidade,
+    LocalDate ultimaSaida
+) {}
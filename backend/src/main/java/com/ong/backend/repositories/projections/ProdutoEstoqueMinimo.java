@@ -0,0 +1,7 @@
+package com.ong.backend.repositories.projections;
+
+public record ProdutoEstoqueMinimo(
+    Long produtoId,
+    Integer estoqueMinimo,
+    Long estoque
+) {}
@@ -0,0 +1,6 @@
+package com.ong.backend.repositories.projections;
+
+public record ProdutoEstoqueTotal(
+    Long produtoId,
+    Long quantidade
+) {}
@@ -0,0 +1,7 @@
+package com.ong.backend.repositories.projections;
+
+public record ProdutoNomeCategoria(
+    Long produtoId,
+    String nome,
+    Long categoriaId
+) {}
@@ -0,0 +1,7 @@
+package com.ong.backend.repositories.projections;
+
+public record ReservaAtivaTotal(
+    Long loteId,
+    Long produtoId,
+    Long quantidade
+) {}
@@ -0,0 +1,9 @@
+package com.ong.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+public record SaidaDiaLote(
+    LocalDate dia,
+    Long loteId,
+    Long quantidade
+) {}
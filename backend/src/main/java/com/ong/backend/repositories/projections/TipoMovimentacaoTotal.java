@@ -0,0 +1,8 @@
+package com.ong.backend.repositories.projections;
+
+import com.ong.backend.models.TipoMovimentacao;
+
+public record TipoMovimentacaoTotal(
+    TipoMovimentacao tipo,
+    Long total
+) {}
@@ -2,6 +2,7 @@ package com.ong.backend.security;
 
 import com.ong.backend.repositories.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,6 +11,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -30,4 +32,13 @@ public class CustomUserDetailsService implements UserDetailsService {
                 ))
                 .build();
     }
+
+    // Cache curto e limitado (usuarios-sessao): o filtro JWT confere por aqui se o usuário do token ainda
+    // existe e tem o mesmo perfil, sem um SELECT por requisição. UsuarioService esvazia o cache ao gravar
+    @Cacheable(value = "usuarios-sessao", key = "#email", sync = true)
+    public Optional<UsuarioAutenticado> buscarAutenticado(String email) {
+        return usuarioRepository.findByEmail(email)
+                .map(usuario -> new UsuarioAutenticado(usuario.getId(), usuario.getEmail(),
+                        usuario.getPerfil().name()));
+    }
 }
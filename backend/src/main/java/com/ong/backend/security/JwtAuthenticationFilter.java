@@ -1,18 +1,24 @@
 package com.ong.backend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -21,28 +27,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
 
+    // true: o usuário vem das claims do token (conferidas contra o cache usuarios-sessao);
+    // false: o usuário é relido do banco a cada requisição
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
+            UserDetails userDetails = null;
             try {
-                username = jwtUtil.extractUsername(jwt);
+                userDetails = stateless ? dasClaims(jwt) : doBanco(jwt);
             } catch (Exception e) {
                 logger.warn("JWT token inválido: " + e.getMessage());
             }
-        }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities()
@@ -54,4 +60,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Token já validado pelo parser. Usuário removido ou com perfil diferente do token não autentica:
+    // o cliente renova o token e recebe o perfil atual
+    private UserDetails dasClaims(String jwt) {
+        Optional<Claims> claims = jwtUtil.extractAccessClaims(jwt);
+        if (claims.isEmpty()) {
+            return null;
+        }
+        String email = claims.get().getSubject();
+        String perfil = claims.get().get("perfil", String.class);
+        if (perfil == null) {
+            // Token antigo, sem as claims do usuário
+            return doBanco(jwt);
+        }
+        Optional<UsuarioAutenticado> atual = userDetailsService.buscarAutenticado(email);
+        if (atual.isEmpty() || !perfil.equals(atual.get().perfil())) {
+            logger.debug("Token de usuário removido ou com perfil alterado: " + email);
+            return null;
+        }
+        return User.withUsername(email)
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_" + perfil)))
+                .build();
+    }
+
+    private UserDetails doBanco(String jwt) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(jwtUtil.extractUsername(jwt));
+        return jwtUtil.validateToken(jwt, userDetails.getUsername()) ? userDetails : null;
+    }
 }
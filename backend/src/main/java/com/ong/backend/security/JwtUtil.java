@@ -11,6 +11,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Component
@@ -51,6 +52,13 @@ public class JwtUtil {
         return claims.get("perfil", String.class);
     }
 
+    // Claims de um access token com assinatura e validade já conferidas pelo parser (que lança JwtException
+    // se não conferirem); refresh token não serve para autenticar requisição
+    public Optional<Claims> extractAccessClaims(String token) {
+        Claims claims = extractAllClaims(token);
+        return "refresh".equals(claims.get("type")) ? Optional.empty() : Optional.of(claims);
+    }
+
     public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
@@ -0,0 +1,9 @@
+package com.ong.backend.security;
+
+// Estado atual de quem está autenticado, conferido contra as claims do token a cada requisição
+public record UsuarioAutenticado(
+    Long id,
+    String email,
+    String perfil
+) {
+}
@@ -0,0 +1,218 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.alerta.AlertasDTO;
+import com.ong.backend.dto.dashboard.AlertasCriticosDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.projections.LoteValidade;
+import com.ong.backend.repositories.projections.ProdutoEstoqueMinimo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mantém os alertas críticos em memória: a carga inicial lê tudo uma vez e, a partir daí,
+// cada alteração de estoque reavalia apenas os lotes e produtos afetados.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertaService {
+
+    private static final int DIAS_VENCIMENTO = 30;
+
+    private final LoteRepository loteRepository;
+    private final LoteItemRepository loteItemRepository;
+    private final ProdutoRepository produtoRepository;
+
+    @Value("${alertas.estoque-minimo-padrao:10}")
+    private int estoqueMinimoPadrao;
+
+    // Validades dos itens de cada lote com estoque
+    private final Map<Long, List<LocalDate>> validadesPorLote = new HashMap<>();
+    private final Set<Long> lotesVencendo = ConcurrentHashMap.newKeySet();
+    private final Set<Long> lotesSemEstoque = ConcurrentHashMap.newKeySet();
+    private final Set<Long> produtosEstoqueBaixo = ConcurrentHashMap.newKeySet();
+    private LocalDate hoje;
+    private volatile AlertasCriticosDTO resumo;
+
+    // Versão tirada antes de cada leitura: por lote e por produto, só vale a leitura mais recente
+    private final AtomicLong versoes = new AtomicLong();
+    private final Map<Long, Long> versaoPorLote = new HashMap<>();
+    private final Map<Long, Long> versaoPorProduto = new HashMap<>();
+    private long versaoCarga;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void carregar() {
+        validadesPorLote.clear();
+        lotesVencendo.clear();
+        lotesSemEstoque.clear();
+        produtosEstoqueBaixo.clear();
+        versaoPorLote.clear();
+        versaoPorProduto.clear();
+        versaoCarga = versoes.incrementAndGet();
+        hoje = LocalDate.now();
+
+        aplicarLotes(loteRepository.buscarValidades());
+        aplicarProdutos(produtoRepository.buscarEstoqueEMinimo());
+        publicarResumo();
+        log.info("Alertas carregados: {}", resumo);
+    }
+
+    // Roda após o commit sem transação nova: as duas consultas usam a conexão que o commit ainda segura,
+    // em vez de tomar outra do pool. Elas ficam fora do monitor, para os commits não se enfileirarem atrás
+    // delas; só a troca dos conjuntos em memória é sincronizada
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        if (resumo == null) {
+            return;
+        }
+        long versao = versoes.incrementAndGet();
+        List<LoteValidade> lotes = event.loteIds().isEmpty()
+                ? List.of()
+                : loteRepository.buscarValidadesPorLotes(event.loteIds());
+        List<ProdutoEstoqueMinimo> produtos = event.produtoIds().isEmpty()
+                ? List.of()
+                : produtoRepository.buscarEstoqueEMinimoPorProdutos(event.produtoIds());
+
+        synchronized (this) {
+            Set<Long> loteIds = maisRecentes(event.loteIds(), versaoPorLote, versao);
+            removerLotes(loteIds);
+            aplicarLotes(lotes.stream().filter(linha -> loteIds.contains(linha.loteId())).toList());
+
+            Set<Long> produtoIds = maisRecentes(event.produtoIds(), versaoPorProduto, versao);
+            produtosEstoqueBaixo.removeAll(produtoIds);
+            aplicarProdutos(produtos.stream().filter(linha -> produtoIds.contains(linha.produtoId())).toList());
+            publicarResumo();
+        }
+    }
+
+    // IDs cuja última leitura aplicada é anterior a esta; uma leitura mais antiga que termine depois é descartada
+    private Set<Long> maisRecentes(Set<Long> ids, Map<Long, Long> versaoPorId, long versao) {
+        Set<Long> recentes = new HashSet<>();
+        for (Long id : ids) {
+            if (versaoPorId.getOrDefault(id, versaoCarga) < versao) {
+                versaoPorId.put(id, versao);
+                recentes.add(id);
+            }
+        }
+        return recentes;
+    }
+
+    // A janela de vencimento anda um dia: reavalia os lotes já em memória, sem consultar o banco
+    @Scheduled(cron = "${alertas.vencimento.cron:0 0 0 * * *}")
+    public synchronized void atualizarVencimentos() {
+        if (resumo == null) {
+            return;
+        }
+        hoje = LocalDate.now();
+        lotesVencendo.clear();
+        validadesPorLote.forEach((loteId, validades) -> {
+            if (venceNaJanela(validades)) {
+                lotesVencendo.add(loteId);
+            }
+        });
+        publicarResumo();
+    }
+
+    public boolean isCarregado() {
+        return resumo != null;
+    }
+
+    public AlertasCriticosDTO obterResumo() {
+        AlertasCriticosDTO atual = resumo;
+        if (atual != null) {
+            return atual;
+        }
+
+        // Antes da carga inicial, calcula direto no banco
+        LocalDate dataAtual = LocalDate.now();
+        return new AlertasCriticosDTO(
+                loteRepository.contarComEstoqueVencendoEntre(dataAtual, dataAtual.plusDays(DIAS_VENCIMENTO)),
+                loteItemRepository.contarProdutosComEstoqueAbaixoDoMinimo(estoqueMinimoPadrao),
+                loteRepository.contarSemEstoque());
+    }
+
+    public AlertasDTO obterAlertas() {
+        AlertasCriticosDTO atual = obterResumo();
+        return new AlertasDTO(
+                atual.lotesVencendo(),
+                atual.produtosEstoqueBaixo(),
+                atual.lotesSemEstoque(),
+                ordenados(lotesVencendo),
+                ordenados(produtosEstoqueBaixo),
+                ordenados(lotesSemEstoque));
+    }
+
+    private void aplicarLotes(List<LoteValidade> linhas) {
+        Map<Long, List<LocalDate>> validadesComEstoque = new HashMap<>();
+        for (LoteValidade linha : linhas) {
+            if (linha.quantidadeAtual() == null || linha.quantidadeAtual() == 0) {
+                lotesSemEstoque.add(linha.loteId());
+                continue;
+            }
+            List<LocalDate> validades = validadesComEstoque.computeIfAbsent(linha.loteId(), id -> new ArrayList<>());
+            if (linha.dataValidade() != null) {
+                validades.add(linha.dataValidade());
+            }
+        }
+
+        validadesComEstoque.forEach((loteId, validades) -> {
+            validadesPorLote.put(loteId, validades);
+            if (venceNaJanela(validades)) {
+                lotesVencendo.add(loteId);
+            }
+        });
+    }
+
+    private void removerLotes(Collection<Long> loteIds) {
+        loteIds.forEach(validadesPorLote::remove);
+        lotesVencendo.removeAll(loteIds);
+        lotesSemEstoque.removeAll(loteIds);
+    }
+
+    private void aplicarProdutos(List<ProdutoEstoqueMinimo> linhas) {
+        for (ProdutoEstoqueMinimo linha : linhas) {
+            int minimo = linha.estoqueMinimo() != null ? linha.estoqueMinimo() : estoqueMinimoPadrao;
+            if (linha.estoque() > 0 && linha.estoque() < minimo) {
+                produtosEstoqueBaixo.add(linha.produtoId());
+            }
+        }
+    }
+
+    private boolean venceNaJanela(List<LocalDate> validades) {
+        LocalDate limite = hoje.plusDays(DIAS_VENCIMENTO);
+        return validades.stream().anyMatch(validade -> !validade.isBefore(hoje) && !validade.isAfter(limite));
+    }
+
+    private void publicarResumo() {
+        resumo = new AlertasCriticosDTO(
+                (long) lotesVencendo.size(),
+                (long) produtosEstoqueBaixo.size(),
+                (long) lotesSemEstoque.size());
+    }
+
+    private static List<Long> ordenados(Set<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
@@ -0,0 +1,14 @@
+package com.ong.backend.services;
+
+import java.util.function.Consumer;
+
+// Transporte das invalidações de cache entre as réplicas. Implementações: local (mesma JVM, testes e
+// instância única), postgres (LISTEN/NOTIFY) e tabela (varredura de cache_invalidacao; H2 e afins).
+// Quem recebe também recebe as próprias mensagens; descartá-las é papel da SincronizacaoCaches.
+// As mensagens de um mesmo nó chegam na ordem em que foram publicadas
+public interface BarramentoInvalidacaoCache {
+
+    void publicar(MensagemInvalidacaoCache mensagem);
+
+    void assinar(Consumer<MensagemInvalidacaoCache> ouvinte);
+}
@@ -0,0 +1,86 @@
+package com.ong.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Base dos barramentos pelo banco. Publicar só enfileira: uma única thread grava, fora de qualquer
+// transação (auto-commit), na ordem da fila. Assim a mensagem sai mesmo quando publicada por um listener
+// AFTER_COMMIT (onde a conexão da transação já não confirma mais nada) e as de um nó não se invertem
+@Slf4j
+public abstract class BarramentoInvalidacaoJdbc implements BarramentoInvalidacaoCache {
+
+    // Limite do payload do NOTIFY (e da coluna de cache_invalidacao), com folga
+    static final int TAMANHO_MAXIMO = 7900;
+
+    private final ObjectMapper objectMapper;
+    private final List<Consumer<MensagemInvalidacaoCache>> ouvintes = new CopyOnWriteArrayList<>();
+    private final ExecutorService publicador = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "barramento-cache-publicador");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected BarramentoInvalidacaoJdbc(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    protected abstract void enviar(String mensagem);
+
+    @Override
+    public void publicar(MensagemInvalidacaoCache mensagem) {
+        String texto = serializar(mensagem);
+        if (texto.getBytes(StandardCharsets.UTF_8).length > TAMANHO_MAXIMO) {
+            texto = serializar(mensagem.resumida());
+        }
+        String conteudo = texto;
+        publicador.execute(() -> {
+            try {
+                enviar(conteudo);
+            } catch (RuntimeException e) {
+                log.warn("Invalidação de cache não publicada ({} {}): {}", mensagem.tipo(), mensagem.versao(),
+                        e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void assinar(Consumer<MensagemInvalidacaoCache> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    protected void entregar(String texto) {
+        MensagemInvalidacaoCache mensagem;
+        try {
+            mensagem = objectMapper.readValue(texto, MensagemInvalidacaoCache.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Invalidação de cache ilegível descartada: {}", e.getMessage());
+            return;
+        }
+        ouvintes.forEach(ouvinte -> ouvinte.accept(mensagem));
+    }
+
+    @PreDestroy
+    public void pararPublicador() throws InterruptedException {
+        publicador.shutdown();
+        publicador.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private String serializar(MensagemInvalidacaoCache mensagem) {
+        try {
+            return objectMapper.writeValueAsString(mensagem);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar a invalidação de cache", e);
+        }
+    }
+}
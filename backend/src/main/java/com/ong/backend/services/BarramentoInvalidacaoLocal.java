@@ -0,0 +1,21 @@
+package com.ong.backend.services;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Entrega na hora, na thread de quem publica, a todos os assinantes da mesma JVM
+public class BarramentoInvalidacaoLocal implements BarramentoInvalidacaoCache {
+
+    private final List<Consumer<MensagemInvalidacaoCache>> ouvintes = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publicar(MensagemInvalidacaoCache mensagem) {
+        ouvintes.forEach(ouvinte -> ouvinte.accept(mensagem));
+    }
+
+    @Override
+    public void assinar(Consumer<MensagemInvalidacaoCache> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+}
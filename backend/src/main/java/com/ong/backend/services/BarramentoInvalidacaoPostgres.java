@@ -0,0 +1,91 @@
+package com.ong.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// NOTIFY (por uma conexão do pool) para publicar e LISTEN numa conexão dedicada, aberta fora do pool e
+// mantida aberta, para receber. Se a conexão cair, a escuta é refeita; o que foi avisado enquanto isso se
+// perde e fica para o TTL
+@Slf4j
+public class BarramentoInvalidacaoPostgres extends BarramentoInvalidacaoJdbc {
+
+    static final String CANAL = "cache_invalidacao";
+    private static final int ESPERA_MS = 1000;
+    private static final long RECONEXAO_MS = 5000;
+
+    private final DataSource conexoesEscuta;
+    private final JdbcTemplate jdbcTemplate;
+    private Thread ouvinte;
+    private volatile boolean ativo;
+
+    // conexoesEscuta deve abrir uma conexão nova a cada pedido (sem pool): a do LISTEN nunca é devolvida
+    public BarramentoInvalidacaoPostgres(ObjectMapper objectMapper, DataSource dataSource,
+            DataSource conexoesEscuta) {
+        super(objectMapper);
+        this.conexoesEscuta = conexoesEscuta;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    protected void enviar(String mensagem) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CANAL, mensagem);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        ativo = true;
+        ouvinte = Thread.ofPlatform().daemon().name("barramento-cache-ouvinte").start(this::escutar);
+    }
+
+    @PreDestroy
+    public void parar() throws InterruptedException {
+        ativo = false;
+        if (ouvinte != null) {
+            ouvinte.interrupt();
+            ouvinte.join(ESPERA_MS * 2);
+        }
+    }
+
+    private void escutar() {
+        while (ativo) {
+            try (Connection conexao = conexoesEscuta.getConnection()) {
+                try (Statement statement = conexao.createStatement()) {
+                    statement.execute("LISTEN " + CANAL);
+                }
+                PGConnection postgres = conexao.unwrap(PGConnection.class);
+                log.info("Escutando invalidações de cache no canal {}", CANAL);
+                while (ativo) {
+                    PGNotification[] notificacoes = postgres.getNotifications(ESPERA_MS);
+                    if (notificacoes != null) {
+                        for (PGNotification notificacao : notificacoes) {
+                            entregar(notificacao.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!ativo) {
+                    return;
+                }
+                log.warn("Escuta de invalidações de cache interrompida, reconectando: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONEXAO_MS);
+                } catch (InterruptedException interrompida) {
+                    return;
+                }
+            }
+        }
+    }
+}
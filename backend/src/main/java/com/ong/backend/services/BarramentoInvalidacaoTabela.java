@@ -0,0 +1,72 @@
+package com.ong.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Sem LISTEN/NOTIFY: cada mensagem é uma linha em cache_invalidacao e cada nó varre as novas.
+// A varredura relê as últimas linhas já vistas (folga), porque um ID menor pode ser confirmado depois
+// de um maior; as repetidas são descartadas pela versão. Linhas antigas são apagadas pela retenção
+@Slf4j
+public class BarramentoInvalidacaoTabela extends BarramentoInvalidacaoJdbc {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${cache.barramento.folga-linhas:100}")
+    private long folgaLinhas;
+
+    @Value("${cache.barramento.retencao-ms:600000}")
+    private long retencaoMs;
+
+    private long ultimoId;
+
+    public BarramentoInvalidacaoTabela(ObjectMapper objectMapper, DataSource dataSource) {
+        super(objectMapper);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS cache_invalidacao (
+                    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    mensagem VARCHAR(8000) NOT NULL,
+                    criada_em TIMESTAMP NOT NULL
+                )
+                """);
+        // O que foi publicado antes de este nó subir não interessa: o cache dele começa vazio
+        ultimoId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cache_invalidacao", Long.class);
+    }
+
+    @Override
+    protected void enviar(String mensagem) {
+        jdbcTemplate.update("INSERT INTO cache_invalidacao (mensagem, criada_em) VALUES (?, ?)", mensagem,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${cache.barramento.varredura-ms:1000}")
+    public synchronized void varrer() {
+        List<Map<String, Object>> linhas = jdbcTemplate.queryForList(
+                "SELECT id, mensagem FROM cache_invalidacao WHERE id > ? ORDER BY id",
+                Math.max(0, ultimoId - folgaLinhas));
+        for (Map<String, Object> linha : linhas) {
+            ultimoId = Math.max(ultimoId, ((Number) linha.get("id")).longValue());
+            entregar((String) linha.get("mensagem"));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.barramento.limpeza-ms:60000}")
+    public void apagarAntigas() {
+        int apagadas = jdbcTemplate.update("DELETE FROM cache_invalidacao WHERE criada_em < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusNanos(retencaoMs * 1_000_000)));
+        if (apagadas > 0) {
+            log.debug("{} invalidação(ões) de cache antiga(s) apagada(s)", apagadas);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.ong.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+// Cache Caffeine cujas remoções pelo Spring (@CacheEvict) também valem nos outros nós. A remoção de uma
+// chave sai como limpeza do cache inteiro: as chaves não são serializáveis para o barramento em geral
+public class CaffeineCacheDistribuido extends CaffeineCache {
+
+    private final ObjectProvider<SincronizacaoCaches> sincronizacao;
+
+    public CaffeineCacheDistribuido(String nome, Cache<Object, Object> cache,
+            ObjectProvider<SincronizacaoCaches> sincronizacao) {
+        super(nome, cache);
+        this.sincronizacao = sincronizacao;
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        propagar();
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean removida = super.evictIfPresent(key);
+        propagar();
+        return removida;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        propagar();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean havia = super.invalidate();
+        propagar();
+        return havia;
+    }
+
+    private void propagar() {
+        sincronizacao.ifAvailable(sincronizacao -> sincronizacao.publicar(MensagemInvalidacaoCache.limpar(getName())));
+    }
+}
@@ -3,6 +3,7 @@ package com.ong.backend.services;
 import com.ong.backend.dto.categoria.CategoriaRequestDTO;
 import com.ong.backend.dto.categoria.CategoriaResponseDTO;
 import com.ong.backend.dto.categoria.CategoriaSimplesDTO;
+import com.ong.backend.events.ProdutoAlteradoEvent;
 import com.ong.backend.exceptions.BusinessException;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Categoria;
@@ -14,12 +15,16 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -27,9 +32,10 @@ import java.util.List;
 public class CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "categorias", key = "'todas'")
+    @Cacheable(value = "categorias", key = "'todas'", sync = true)
     public List<CategoriaResponseDTO> listarTodas() {
         log.debug("Buscando todas as categorias");
         return categoriaRepository.findAll()
@@ -45,7 +51,7 @@ public class CategoriaService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "categorias", key = "'simples'")
+    @Cacheable(value = "categorias", key = "'simples'", sync = true)
     public List<CategoriaSimplesDTO> listarTodasSimples() {
         log.debug("Buscando categorias simples");
         return categoriaRepository.findAll()
@@ -97,6 +103,8 @@ public class CategoriaService {
         categoria.setIcone(dto.icone());
 
         categoria = categoriaRepository.save(categoria);
+        // As listagens de produtos trazem a categoria de cada produto
+        eventPublisher.publishEvent(ProdutoAlteradoEvent.daCategoria(categoria.getId()));
         log.info("Categoria atualizada com sucesso. ID: {}", categoria.getId());
         return new CategoriaResponseDTO(categoria);
     }
@@ -117,4 +125,17 @@ public class CategoriaService {
         return categoriaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoria", "id", id));
     }
+
+    // Nome em minúsculas -> categoria, numa consulta só
+    @Transactional(readOnly = true)
+    public Map<String, Categoria> buscarEntidadesPorNome() {
+        Map<String, Categoria> categorias = new HashMap<>();
+        categoriaRepository.findAll()
+                .forEach(categoria -> categorias.putIfAbsent(chaveNome(categoria.getNome()), categoria));
+        return categorias;
+    }
+
+    public static String chaveNome(String nome) {
+        return nome.trim().toLowerCase(Locale.ROOT);
+    }
 }
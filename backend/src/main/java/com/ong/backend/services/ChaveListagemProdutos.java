@@ -0,0 +1,27 @@
+package com.ong.backend.services;
+
+import org.springframework.data.domain.Pageable;
+
+// Chave das páginas de ProdutoService.listarComFiltros. Guarda os filtros para a invalidação saber
+// quais páginas um produto alterado pode aparecer (ou deixar de aparecer)
+public record ChaveListagemProdutos(
+    String nome,
+    Long categoriaId,
+    Boolean estoqueCritico,
+    Integer estoqueAte,
+    Boolean somenteComEstoque,
+    Pageable pageable
+) {
+    public static boolean dependeDeEstoque(Boolean estoqueCritico, Integer estoqueAte, Boolean somenteComEstoque) {
+        return Boolean.TRUE.equals(estoqueCritico) || estoqueAte != null || Boolean.TRUE.equals(somenteComEstoque);
+    }
+
+    // Mesmo critério de ProdutoSpecs.comFiltros para nome e categoria; nome nulo casa com qualquer filtro de nome
+    public boolean alcanca(String nomeProduto, Long categoriaProdutoId) {
+        if (categoriaId != null && !categoriaId.equals(categoriaProdutoId)) {
+            return false;
+        }
+        return nome == null || nome.trim().isEmpty() || nomeProduto == null
+                || nomeProduto.toLowerCase().contains(nome.toLowerCase());
+    }
+}
@@ -0,0 +1,187 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.DashboardMetricsDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache das métricas por período. Valores vencidos continuam sendo servidos enquanto um único
+// recálculo roda em segundo plano; o período padrão é recalculado antes de vencer.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardCacheService {
+
+    private final DashboardService dashboardService;
+    private final ExecutorService dashboardExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Periodo, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<Periodo, CompletableFuture<DashboardMetricsDTO>> emCalculo = new ConcurrentHashMap<>();
+    private final AtomicLong versao = new AtomicLong();
+
+    @Value("${dashboard.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${dashboard.cache.antecedencia-ms:15000}")
+    private long antecedenciaMs;
+
+    @Value("${dashboard.cache.max-desatualizado-ms:600000}")
+    private long maxDesatualizadoMs;
+
+    @Value("${dashboard.cache.max-entradas:50}")
+    private int maxEntradas;
+
+    record Periodo(LocalDate inicio, LocalDate fim) {
+
+        // Se não informar datas, assume do dia 1 do mês atual até hoje (conforme pedido pelo PO)
+        static Periodo de(LocalDate inicio, LocalDate fim) {
+            return new Periodo(
+                    inicio != null ? inicio : LocalDate.now().withDayOfMonth(1),
+                    fim != null ? fim : LocalDate.now());
+        }
+    }
+
+    record Entrada(DashboardMetricsDTO valor, long calculadoEm, boolean invalidada) {
+
+        long idadeMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - calculadoEm);
+        }
+    }
+
+    @PostConstruct
+    void registrarMetricas() {
+        meterRegistry.gauge("dashboard.cache.entradas", entradas, Map::size);
+        meterRegistry.gauge("dashboard.cache.idade.segundos", this, cache -> {
+            Entrada entrada = cache.entradas.get(Periodo.de(null, null));
+            return entrada != null ? entrada.idadeMs() / 1000.0 : Double.NaN;
+        });
+    }
+
+    public DashboardMetricsDTO obterMetricas(LocalDate dataInicio, LocalDate dataFim) {
+        Periodo periodo = Periodo.de(dataInicio, dataFim);
+        Entrada entrada = entradas.get(periodo);
+
+        if (entrada != null && !entrada.invalidada() && entrada.idadeMs() < ttlMs) {
+            contar("hit");
+            return entrada.valor();
+        }
+        if (entrada != null && entrada.idadeMs() < maxDesatualizadoMs) {
+            contar("stale");
+            recalcular(periodo);
+            return entrada.valor();
+        }
+
+        contar("miss");
+        try {
+            return recalcular(periodo).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRegistrarMovimentacao(MovimentacaoRegistradaEvent event) {
+        invalidar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRemoverMovimentacao(MovimentacaoRemovidaEvent event) {
+        invalidar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        invalidar();
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.cache.verificacao-ms:5000}")
+    public void atualizarAntecipadamente() {
+        entradas.entrySet().removeIf(e -> e.getValue().idadeMs() >= maxDesatualizadoMs);
+
+        // Só o período padrão (pedido por todos os usuários) é mantido quente
+        Periodo padrao = Periodo.de(null, null);
+        Entrada entrada = entradas.get(padrao);
+        if (entrada != null && (entrada.invalidada() || entrada.idadeMs() >= ttlMs - antecedenciaMs)) {
+            recalcular(padrao);
+        }
+    }
+
+    // Uma única execução por período: pedidos concorrentes recebem o mesmo future
+    private CompletableFuture<DashboardMetricsDTO> recalcular(Periodo periodo) {
+        CompletableFuture<DashboardMetricsDTO> novo = new CompletableFuture<>();
+        CompletableFuture<DashboardMetricsDTO> existente = emCalculo.putIfAbsent(periodo, novo);
+        if (existente != null) {
+            return existente;
+        }
+
+        // Sai do mapa antes de completar, para que um pedido após a conclusão dispare novo cálculo
+        dashboardExecutor.execute(() -> {
+            try {
+                DashboardMetricsDTO metricas = calcular(periodo);
+                emCalculo.remove(periodo, novo);
+                novo.complete(metricas);
+            } catch (Throwable e) {
+                log.error("Erro ao recalcular métricas do dashboard para {}", periodo, e);
+                emCalculo.remove(periodo, novo);
+                novo.completeExceptionally(e);
+            }
+        });
+        return novo;
+    }
+
+    private DashboardMetricsDTO calcular(Periodo periodo) {
+        long versaoInicial = versao.get();
+        long inicio = System.nanoTime();
+        DashboardMetricsDTO metricas = dashboardService.obterMetricas(periodo.inicio(), periodo.fim());
+        meterRegistry.timer("dashboard.cache.recalculo").record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        // Resultado parcial (seção fora do prazo) é devolvido, mas não fica no cache
+        if (!Boolean.TRUE.equals(metricas.parcial())) {
+            // Alteração confirmada durante o cálculo: o valor já nasce desatualizado
+            entradas.put(periodo, new Entrada(metricas, System.nanoTime(), versao.get() != versaoInicial));
+            descartarExcedentes();
+        }
+        return metricas;
+    }
+
+    private void invalidar() {
+        versao.incrementAndGet();
+        entradas.replaceAll((periodo, entrada) -> new Entrada(entrada.valor(), entrada.calculadoEm(), true));
+    }
+
+    private void descartarExcedentes() {
+        while (entradas.size() > maxEntradas) {
+            entradas.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().calculadoEm()))
+                    .ifPresent(maisAntiga -> entradas.remove(maisAntiga.getKey(), maisAntiga.getValue()));
+        }
+    }
+
+    private void contar(String resultado) {
+        meterRegistry.counter("dashboard.cache.requisicoes", "resultado", resultado).increment();
+    }
+}
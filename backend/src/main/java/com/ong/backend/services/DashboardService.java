@@ -3,246 +3,281 @@ package com.ong.backend.services;
 import com.ong.backend.dto.dashboard.*;
 import com.ong.backend.models.TipoMovimentacao;
 import com.ong.backend.repositories.*;
+import com.ong.backend.repositories.projections.LoteProdutoNome;
+import com.ong.backend.repositories.projections.MovimentacaoDiaResumo;
+import com.ong.backend.repositories.projections.MovimentacaoResumo;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class DashboardService {
 
+    private static final DateTimeFormatter FORMATO_DIA = DateTimeFormatter.ofPattern("dd/MM");
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     private final CategoriaRepository categoriaRepository;
     private final ProdutoRepository produtoRepository;
     private final LoteRepository loteRepository;
     private final LoteItemRepository loteItemRepository;
     private final MovimentacaoRepository movimentacaoRepository;
+    private final EstoqueDiarioService estoqueDiarioService;
+    private final IndiceTemporalMovimentacoes indiceTemporal;
+    private final AlertaService alertaService;
+    private final DistribuicaoProdutoService distribuicaoProdutoService;
+    private final ExecutorService dashboardSecoesExecutor;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${dashboard.execucao-paralela:true}")
+    private boolean execucaoParalela;
+
+    @Value("${dashboard.timeout-secao-ms:3000}")
+    private long timeoutSecaoMs;
 
-    @Transactional(readOnly = true)
     public DashboardMetricsDTO obterMetricas(LocalDate dataInicio, LocalDate dataFim) {
         // Se não informar datas, assume do dia 1 do mês atual até hoje (conforme pedido pelo PO)
-        if (dataInicio == null) {
-            dataInicio = LocalDate.now().withDayOfMonth(1);
-        }
-        if (dataFim == null) {
-            dataFim = LocalDate.now();
-        }
+        LocalDate inicio = dataInicio != null ? dataInicio : LocalDate.now().withDayOfMonth(1);
+        LocalDate fim = dataFim != null ? dataFim : LocalDate.now();
 
+        return execucaoParalela ? obterMetricasEmParalelo(inicio, fim) : obterMetricasSequencial(inicio, fim);
+    }
+
+    private DashboardMetricsDTO obterMetricasSequencial(LocalDate dataInicio, LocalDate dataFim) {
+        // Todas as consultas por período usam o intervalo semiaberto [inicio, fim)
         LocalDateTime inicioPeriodo = dataInicio.atStartOfDay();
-        LocalDateTime fimPeriodo = dataFim.atTime(23, 59, 59);
+        LocalDateTime fimPeriodo = dataFim.plusDays(1).atStartOfDay();
+
+        return transacaoLeitura().execute(status -> new DashboardMetricsDTO(
+                categoriaRepository.count(),
+                produtoRepository.count(),
+                loteRepository.count(),
+                loteRepository.somarEstoqueTotal(),
+                contarMovimentacoesNoPeriodo(dataInicio, dataFim), // Alterado para refletir o período selecionado
+                alertaService.obterResumo(),
+                estoqueDiarioService.obterEvolucao(dataInicio, dataFim),
+                distribuicaoProdutoService.rankear(dataInicio, dataFim, null, 5),
+                obterUltimasMovimentacoes(10, inicioPeriodo, fimPeriodo),
+                obterMovimentacoesPorDia(dataInicio, dataFim),
+                obterMovimentacoesPorTipo(dataInicio, dataFim),
+                false,
+                List.of()));
+    }
 
-        Long totalCategorias = categoriaRepository.count();
-        Long totalProdutos = produtoRepository.count();
-        Long totalLotes = loteRepository.count();
+    // Cada seção roda em sua própria transação somente leitura (conexão própria), no executor limitado das seções.
+    // As contagens simples dividem uma única seção. Seções que não terminam no prazo voltam vazias e são
+    // listadas em secoesIncompletas.
+    private DashboardMetricsDTO obterMetricasEmParalelo(LocalDate dataInicio, LocalDate dataFim) {
+        LocalDateTime inicioPeriodo = dataInicio.atStartOfDay();
+        LocalDateTime fimPeriodo = dataFim.plusDays(1).atStartOfDay();
+
+        Future<Totais> totais = submeter(() -> new Totais(
+                categoriaRepository.count(),
+                produtoRepository.count(),
+                loteRepository.count(),
+                loteRepository.somarEstoqueTotal()));
+        Future<Integer> movimentacoesNoPeriodo = submeter(() -> contarMovimentacoesNoPeriodo(dataInicio, dataFim));
+        Future<AlertasCriticosDTO> alertas = submeter(alertaService::obterResumo);
+        Future<List<EvolucaoEstoqueDTO>> evolucaoEstoque = submeter(
+                () -> estoqueDiarioService.obterEvolucao(dataInicio, dataFim));
+        Future<List<TopProdutoDTO>> top5Produtos = submeter(
+                () -> distribuicaoProdutoService.rankear(dataInicio, dataFim, null, 5));
+        Future<List<MovimentacaoResumoDTO>> ultimasMovimentacoes = submeter(
+                () -> obterUltimasMovimentacoes(10, inicioPeriodo, fimPeriodo));
+        Future<List<MovimentacaoPorDiaDTO>> movimentacoesPorDia = submeter(
+                () -> obterMovimentacoesPorDia(dataInicio, dataFim));
+        Future<List<TipoMovimentacaoCountDTO>> movimentacoesPorTipo = submeter(
+                () -> obterMovimentacoesPorTipo(dataInicio, dataFim));
+
+        // O prazo conta a partir do pedido, inclusive para as seções que ainda esperam thread livre
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutSecaoMs);
+        List<String> incompletas = new ArrayList<>();
+
+        Totais contagens = aguardar(List.of("totalCategorias", "totalProdutos", "totalLotes", "estoqueTotal"),
+                totais, prazo, Totais.VAZIO, incompletas);
+        return new DashboardMetricsDTO(
+                contagens.categorias(),
+                contagens.produtos(),
+                contagens.lotes(),
+                contagens.estoque(),
+                aguardar("movimentacoesHoje", movimentacoesNoPeriodo, prazo, null, incompletas),
+                aguardar("alertasCriticos", alertas, prazo, new AlertasCriticosDTO(null, null, null), incompletas),
+                aguardar("evolucaoEstoque", evolucaoEstoque, prazo, List.of(), incompletas),
+                aguardar("top5ProdutosMaisDistribuidos", top5Produtos, prazo, List.of(), incompletas),
+                aguardar("ultimasMovimentacoes", ultimasMovimentacoes, prazo, List.of(), incompletas),
+                aguardar("movimentacoesPorDia", movimentacoesPorDia, prazo, List.of(), incompletas),
+                aguardar("movimentacoesPorTipo", movimentacoesPorTipo, prazo, List.of(), incompletas),
+                !incompletas.isEmpty(),
+                incompletas);
+    }
 
-        Long estoqueTotal = loteRepository.findAll().stream()
-                .mapToLong(lote -> lote.getQuantidadeAtual() != null ? lote.getQuantidadeAtual() : 0L)
-                .sum();
+    private record Totais(Long categorias, Long produtos, Long lotes, Long estoque) {
+        static final Totais VAZIO = new Totais(null, null, null, null);
+    }
 
-        Integer movimentacoesNoPeriodo = movimentacaoRepository.findByDataHoraBetween(inicioPeriodo, fimPeriodo).size();
+    private <T> Future<T> submeter(Supplier<T> secao) {
+        TransactionTemplate transacao = transacaoLeitura();
+        return dashboardSecoesExecutor.submit(() -> transacao.execute(status -> secao.get()));
+    }
 
-        AlertasCriticosDTO alertas = obterAlertasCriticos();
-        List<EvolucaoEstoqueDTO> evolucaoEstoque = obterEvolucaoEstoque(dataInicio, dataFim);
-        List<TopProdutoDTO> top5Produtos = obterTop5ProdutosMaisDistribuidos(inicioPeriodo, fimPeriodo);
-        List<MovimentacaoResumoDTO> ultimasMovimentacoes = obterUltimasMovimentacoes(10, inicioPeriodo, fimPeriodo);
-        List<MovimentacaoPorDiaDTO> movimentacoesPorDia = obterMovimentacoesPorDia(dataInicio, dataFim);
-        List<TipoMovimentacaoCountDTO> movimentacoesPorTipo = obterMovimentacoesPorTipo(inicioPeriodo, fimPeriodo);
+    private <T> T aguardar(String secao, Future<T> futuro, long prazo, T valorParcial, List<String> incompletas) {
+        return aguardar(List.of(secao), futuro, prazo, valorParcial, incompletas);
+    }
 
-        return new DashboardMetricsDTO(
-                totalCategorias,
-                totalProdutos,
-                totalLotes,
-                estoqueTotal,
-                movimentacoesNoPeriodo, // Alterado para refletir o período selecionado
-                alertas,
-                evolucaoEstoque,
-                top5Produtos,
-                ultimasMovimentacoes,
-                movimentacoesPorDia,
-                movimentacoesPorTipo);
+    // Uma tarefa pode preencher várias seções; se falhar, todas entram em secoesIncompletas
+    private <T> T aguardar(List<String> secoes, Future<T> futuro, long prazo, T valorParcial,
+            List<String> incompletas) {
+        try {
+            return futuro.get(Math.max(prazo - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            log.warn("Seção {} do dashboard excedeu o prazo de {} ms", String.join(", ", secoes), timeoutSecaoMs);
+        } catch (ExecutionException e) {
+            log.error("Erro ao calcular a seção {} do dashboard", String.join(", ", secoes), e.getCause());
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        incompletas.addAll(secoes);
+        return valorParcial;
     }
 
-    private AlertasCriticosDTO obterAlertasCriticos() {
+    // Delta enviado aos painéis conectados: só o que muda a cada movimentação
+    public DashboardAtualizacaoDTO obterAtualizacao(Collection<Long> novasMovimentacaoIds,
+            Collection<Long> movimentacoesRemovidasIds) {
         LocalDate hoje = LocalDate.now();
-        LocalDate em30Dias = hoje.plusDays(30);
-
-        Long lotesVencendo = loteRepository.findAll().stream()
-                .filter(lote -> {
-                    if (lote.getQuantidadeAtual() == null || lote.getQuantidadeAtual() <= 0)
-                        return false;
-
-                    return lote.getItens().stream()
-                            .anyMatch(item -> {
-                                if (item.getDataValidade() == null)
-                                    return false;
-                                LocalDate validade = item.getDataValidade();
-                                return !validade.isBefore(hoje) && !validade.isAfter(em30Dias);
-                            });
-                })
-                .count();
-
-        // Calcula produtos com estoque baixo (ex: < 10 unidades no total)
-        Long produtosEstoqueBaixo = produtoRepository.findAll().stream()
-                .filter(p -> {
-                    Integer total = loteItemRepository.calcularEstoqueTotalPorProduto(p.getId());
-                    return total != null && total > 0 && total < 10;
-                })
-                .count();
-
-        Long lotesSemEstoque = loteRepository.findAll().stream()
-                .filter(lote -> lote.getQuantidadeAtual() == null || lote.getQuantidadeAtual() == 0)
-                .count();
-
-        return new AlertasCriticosDTO(lotesVencendo, produtosEstoqueBaixo, lotesSemEstoque);
+        return transacaoLeitura().execute(status -> new DashboardAtualizacaoDTO(
+                novasMovimentacaoIds.isEmpty() ? List.of()
+                        : paraResumos(movimentacaoRepository.buscarResumosPorIds(novasMovimentacaoIds)),
+                List.copyOf(movimentacoesRemovidasIds),
+                loteRepository.count(),
+                loteRepository.somarEstoqueTotal(),
+                contarMovimentacoesNoPeriodo(hoje, hoje),
+                alertaService.obterResumo(),
+                LocalDateTime.now().format(FORMATO_DATA_HORA)));
     }
 
-    private List<EvolucaoEstoqueDTO> obterEvolucaoEstoque(LocalDate dataInicio, LocalDate dataFim) {
-        List<EvolucaoEstoqueDTO> evolucao = new ArrayList<>();
-        
-        long estoqueSimulado = loteRepository.findAll().stream()
-                .mapToLong(lote -> lote.getQuantidadeAtual() != null ? lote.getQuantidadeAtual() : 0L)
-                .sum();
-
-        LocalDate hoje = LocalDate.now();
-        
-        // Se o fim do período for antes de hoje, precisamos voltar o estoque até aquele dia
-        if (dataFim.isBefore(hoje)) {
-            List<com.ong.backend.models.Movimentacao> movsFuturas = movimentacaoRepository.findByDataHoraBetween(
-                dataFim.plusDays(1).atStartOfDay(), 
-                hoje.atTime(23,59,59)
-            );
-            for (com.ong.backend.models.Movimentacao m : movsFuturas) {
-                if (m.getTipo() == TipoMovimentacao.ENTRADA || m.getTipo() == TipoMovimentacao.AJUSTE_GANHO) {
-                    estoqueSimulado -= m.getQuantidade();
-                } else {
-                    estoqueSimulado += m.getQuantidade();
-                }
-            }
-        }
+    private TransactionTemplate transacaoLeitura() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        transacao.setReadOnly(true);
+        return transacao;
+    }
 
-        // Reconstrói o histórico dia a dia dentro do range selecionado
-        for (LocalDate dia = dataFim; !dia.isBefore(dataInicio); dia = dia.minusDays(1)) {
-            evolucao.add(0, new EvolucaoEstoqueDTO(
-                    dia.format(DateTimeFormatter.ofPattern("dd/MM")),
-                    estoqueSimulado));
-            
-            LocalDateTime inicioDia = dia.atStartOfDay();
-            LocalDateTime fimDia = dia.atTime(23, 59, 59);
-            List<com.ong.backend.models.Movimentacao> movsDia = movimentacaoRepository.findByDataHoraBetween(inicioDia, fimDia);
-            
-            for (com.ong.backend.models.Movimentacao m : movsDia) {
-                if (m.getTipo() == TipoMovimentacao.ENTRADA || m.getTipo() == TipoMovimentacao.AJUSTE_GANHO) {
-                    estoqueSimulado -= m.getQuantidade();
-                } else {
-                    estoqueSimulado += m.getQuantidade();
-                }
-            }
+    private Integer contarMovimentacoesNoPeriodo(LocalDate dataInicio, LocalDate dataFim) {
+        if (indiceTemporal.isCarregado()) {
+            return (int) indiceTemporal.contar(dataInicio, dataFim);
         }
-        return evolucao;
+        return (int) movimentacaoRepository.contarNoPeriodo(dataInicio.atStartOfDay(),
+                dataFim.plusDays(1).atStartOfDay());
     }
 
-    private List<TopProdutoDTO> obterTop5ProdutosMaisDistribuidos(LocalDateTime inicio, LocalDateTime fim) {
-        Map<String, Long> saidasPorProduto = movimentacaoRepository.findAll().stream()
-                .filter(mov -> mov.getTipo() == TipoMovimentacao.SAIDA)
-                .filter(mov -> !mov.getDataHora().isBefore(inicio) && !mov.getDataHora().isAfter(fim))
-                .collect(Collectors.groupingBy(
-                        mov -> {
-                            if (mov.getLote().getItens() != null && !mov.getLote().getItens().isEmpty()) {
-                                return mov.getLote().getItens().get(0).getProduto().getNome();
-                            }
-                            return "Produto Desconhecido";
-                        },
-                        Collectors.counting()));
-
-        return saidasPorProduto.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .map(entry -> new TopProdutoDTO(
-                        entry.getKey(),
-                        entry.getValue(),
-                        fim.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))))
-                .collect(Collectors.toList());
+    private List<MovimentacaoResumoDTO> obterUltimasMovimentacoes(int limite, LocalDateTime inicio, LocalDateTime fim) {
+        return paraResumos(movimentacaoRepository.buscarUltimasNoPeriodo(inicio, fim, PageRequest.of(0, limite)));
     }
 
-    private List<MovimentacaoResumoDTO> obterUltimasMovimentacoes(int limite, LocalDateTime inicio, LocalDateTime fim) {
-        return movimentacaoRepository.findAll().stream()
-                .filter(mov -> !mov.getDataHora().isBefore(inicio) && !mov.getDataHora().isAfter(fim))
-                .sorted((a, b) -> b.getDataHora().compareTo(a.getDataHora()))
-                .limit(limite)
-                .map(mov -> {
-                    String produtoNome = "Produto Desconhecido";
-                    if (mov.getLote().getItens() != null && !mov.getLote().getItens().isEmpty()) {
-                        produtoNome = mov.getLote().getItens().get(0).getProduto().getNome();
-                    }
-
-                    return new MovimentacaoResumoDTO(
-                            mov.getId(),
-                            mov.getDataHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")),
-                            produtoNome,
-                            mov.getTipo().name(),
-                            mov.getQuantidade(),
-                            mov.getUsuario().getNome());
-                })
+    private List<MovimentacaoResumoDTO> paraResumos(List<MovimentacaoResumo> ultimas) {
+        if (ultimas.isEmpty()) {
+            return List.of();
+        }
+
+        // Nome do primeiro produto de cada lote, resolvido em uma única consulta
+        Map<Long, String> produtoPorLote = new HashMap<>();
+        List<Long> loteIds = ultimas.stream().map(MovimentacaoResumo::loteId).distinct().toList();
+        for (LoteProdutoNome item : loteItemRepository.buscarNomesProdutosPorLotes(loteIds)) {
+            produtoPorLote.putIfAbsent(item.loteId(), item.produtoNome());
+        }
+
+        return ultimas.stream()
+                .map(mov -> new MovimentacaoResumoDTO(
+                        mov.id(),
+                        mov.dataHora().format(FORMATO_DATA_HORA),
+                        produtoPorLote.getOrDefault(mov.loteId(), "Produto Desconhecido"),
+                        mov.tipo().name(),
+                        mov.quantidade(),
+                        mov.usuarioNome()))
                 .collect(Collectors.toList());
     }
 
     private List<MovimentacaoPorDiaDTO> obterMovimentacoesPorDia(LocalDate dataInicio, LocalDate dataFim) {
         List<MovimentacaoPorDiaDTO> resultado = new ArrayList<>();
 
-        for (LocalDate dia = dataInicio; !dia.isAfter(dataFim); dia = dia.plusDays(1)) {
-            LocalDateTime inicioDia = dia.atStartOfDay();
-            LocalDateTime fimDia = dia.atTime(23, 59, 59);
-
-            List<com.ong.backend.models.Movimentacao> movsDia = movimentacaoRepository.findByDataHoraBetween(inicioDia,
-                    fimDia);
+        if (indiceTemporal.isCarregado()) {
+            for (LocalDate dia = dataInicio; !dia.isAfter(dataFim); dia = dia.plusDays(1)) {
+                resultado.add(new MovimentacaoPorDiaDTO(
+                        dia.format(FORMATO_DIA),
+                        (int) indiceTemporal.contar(dia, dia),
+                        (int) indiceTemporal.contar(TipoMovimentacao.ENTRADA, dia, dia),
+                        (int) indiceTemporal.contar(TipoMovimentacao.SAIDA, dia, dia)));
+            }
+            return resultado;
+        }
 
-            int entradas = (int) movsDia.stream()
-                    .filter(m -> m.getTipo() == TipoMovimentacao.ENTRADA)
-                    .count();
+        Map<LocalDate, MovimentacaoDiaResumo> resumoPorDia = movimentacaoRepository
+                .resumirPorDia(dataInicio.atStartOfDay(), dataFim.plusDays(1).atStartOfDay()).stream()
+                .collect(Collectors.toMap(MovimentacaoDiaResumo::dia, Function.identity()));
 
-            int saidas = (int) movsDia.stream()
-                    .filter(m -> m.getTipo() == TipoMovimentacao.SAIDA)
-                    .count();
+        for (LocalDate dia = dataInicio; !dia.isAfter(dataFim); dia = dia.plusDays(1)) {
+            MovimentacaoDiaResumo resumo = resumoPorDia.get(dia);
 
             resultado.add(new MovimentacaoPorDiaDTO(
-                    dia.format(DateTimeFormatter.ofPattern("dd/MM")),
-                    movsDia.size(),
-                    entradas,
-                    saidas));
+                    dia.format(FORMATO_DIA),
+                    resumo != null ? resumo.total().intValue() : 0,
+                    resumo != null ? resumo.entradas().intValue() : 0,
+                    resumo != null ? resumo.saidas().intValue() : 0));
         }
 
         return resultado;
     }
 
-    private List<TipoMovimentacaoCountDTO> obterMovimentacoesPorTipo(LocalDateTime inicio, LocalDateTime fim) {
-        Map<TipoMovimentacao, Long> countPorTipo = movimentacaoRepository.findAll().stream()
-                .filter(mov -> !mov.getDataHora().isBefore(inicio) && !mov.getDataHora().isAfter(fim))
-                .collect(Collectors.groupingBy(
-                        com.ong.backend.models.Movimentacao::getTipo,
-                        Collectors.counting()));
-
-        return countPorTipo.entrySet().stream()
-                .map(entry -> new TipoMovimentacaoCountDTO(
-                        entry.getKey().name(),
-                        getLabelTipoMovimentacao(entry.getKey().name()),
-                        entry.getValue()))
+    private List<TipoMovimentacaoCountDTO> obterMovimentacoesPorTipo(LocalDate dataInicio, LocalDate dataFim) {
+        if (indiceTemporal.isCarregado()) {
+            List<TipoMovimentacaoCountDTO> resultado = new ArrayList<>();
+            for (TipoMovimentacao tipo : TipoMovimentacao.values()) {
+                long total = indiceTemporal.contar(tipo, dataInicio, dataFim);
+                if (total > 0) {
+                    resultado.add(new TipoMovimentacaoCountDTO(tipo.name(), getLabelTipoMovimentacao(tipo), total));
+                }
+            }
+            return resultado;
+        }
+
+        return movimentacaoRepository
+                .contarPorTipoNoPeriodo(dataInicio.atStartOfDay(), dataFim.plusDays(1).atStartOfDay()).stream()
+                .map(total -> new TipoMovimentacaoCountDTO(
+                        total.tipo().name(),
+                        getLabelTipoMovimentacao(total.tipo()),
+                        total.total()))
                 .collect(Collectors.toList());
     }
 
-    private String getLabelTipoMovimentacao(String tipo) {
+    private String getLabelTipoMovimentacao(TipoMovimentacao tipo) {
         return switch (tipo) {
-            case "ENTRADA" -> "Entradas";
-            case "SAIDA" -> "Saídas";
-            case "AJUSTE_PERDA" -> "Perdas";
-            case "AJUSTE_GANHO" -> "Ganhos";
-            default -> tipo;
+            case ENTRADA -> "Entradas";
+            case SAIDA -> "Saídas";
+            case AJUSTE_PERDA -> "Perdas";
+            case AJUSTE_GANHO -> "Ganhos";
         };
     }
 }
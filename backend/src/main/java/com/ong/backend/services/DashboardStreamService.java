@@ -0,0 +1,197 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.DashboardAtualizacaoDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Alterações confirmadas só marcam o painel como desatualizado; a cada intervalo, no máximo uma
+// atualização é calculada, na thread própria do stream, e entra na fila de cada assinante. Cada fila é
+// esvaziada por uma tarefa no pool de envio: um cliente lento atrasa só o próprio painel.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardStreamService {
+
+    private static final int LIMITE_MOVIMENTACOES_POR_ENVIO = 50;
+    // Atualizações que um assinante pode acumular sem conseguir receber antes de ser desconectado
+    private static final int LIMITE_PENDENTES_POR_ASSINANTE = 10;
+
+    private final DashboardService dashboardService;
+    private final ExecutorService dashboardStreamExecutor;
+    private final ExecutorService dashboardEnvioExecutor;
+    private final List<Assinante> assinantes = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean envioPendente = new AtomicBoolean();
+
+    @Value("${dashboard.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private TreeSet<Long> novasMovimentacoes = new TreeSet<>();
+    private TreeSet<Long> movimentacoesRemovidas = new TreeSet<>();
+    private boolean alterado;
+
+    // Atualizações ainda não entregues a um painel, na ordem; enviando garante uma tarefa por vez
+    private static final class Assinante {
+        private final SseEmitter emitter;
+        private final Queue<DashboardAtualizacaoDTO> pendentes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private Assinante(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public SseEmitter inscrever() {
+        return inscrever(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter inscrever(SseEmitter emitter) {
+        Assinante assinante = new Assinante(emitter);
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(erro -> assinantes.remove(assinante));
+        assinantes.add(assinante);
+
+        try {
+            emitter.send(SseEmitter.event().name("conectado").data(assinantes.size()));
+        } catch (IOException e) {
+            assinantes.remove(assinante);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int contarAssinantes() {
+        return assinantes.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aoRegistrarMovimentacao(MovimentacaoRegistradaEvent event) {
+        if (event.movimentacaoId() != null) {
+            novasMovimentacoes.add(event.movimentacaoId());
+            // Em rajadas, só as mais recentes interessam à lista de últimas movimentações
+            if (novasMovimentacoes.size() > LIMITE_MOVIMENTACOES_POR_ENVIO) {
+                novasMovimentacoes.pollFirst();
+            }
+        }
+        alterado = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aoRemoverMovimentacao(MovimentacaoRemovidaEvent event) {
+        if (!novasMovimentacoes.remove(event.movimentacaoId())) {
+            movimentacoesRemovidas.add(event.movimentacaoId());
+        }
+        alterado = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        alterado = true;
+    }
+
+    // O agendador só entrega o envio à thread do stream. Enquanto o anterior não terminar, o intervalo é
+    // pulado; as alterações acumuladas saem no envio seguinte
+    @Scheduled(fixedDelayString = "${dashboard.stream.intervalo-ms:2000}")
+    public void agendarEnvio() {
+        if (!envioPendente.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dashboardStreamExecutor.execute(() -> {
+                try {
+                    enviarAtualizacoes();
+                } catch (RuntimeException e) {
+                    log.error("Erro ao enviar atualização do dashboard", e);
+                } finally {
+                    envioPendente.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            envioPendente.set(false);
+        }
+    }
+
+    public void enviarAtualizacoes() {
+        Set<Long> novas;
+        Set<Long> removidas;
+        synchronized (this) {
+            if (!alterado) {
+                return;
+            }
+            novas = novasMovimentacoes;
+            removidas = movimentacoesRemovidas;
+            novasMovimentacoes = new TreeSet<>();
+            movimentacoesRemovidas = new TreeSet<>();
+            alterado = false;
+        }
+
+        if (assinantes.isEmpty()) {
+            return;
+        }
+
+        DashboardAtualizacaoDTO atualizacao = dashboardService.obterAtualizacao(novas, removidas);
+        for (Assinante assinante : assinantes) {
+            // As atualizações são incrementais: quem ficou muito para trás é desconectado e, ao reconectar,
+            // recebe o painel completo
+            if (assinante.pendentes.size() >= LIMITE_PENDENTES_POR_ASSINANTE) {
+                log.debug("Assinante do dashboard não acompanha as atualizações; desconectando");
+                assinantes.remove(assinante);
+                assinante.emitter.complete();
+                continue;
+            }
+            assinante.pendentes.add(atualizacao);
+            agendarEnvio(assinante);
+        }
+    }
+
+    private void agendarEnvio(Assinante assinante) {
+        if (!assinante.enviando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dashboardEnvioExecutor.execute(() -> enviarPendentes(assinante));
+        } catch (RejectedExecutionException e) {
+            assinante.enviando.set(false);
+        }
+    }
+
+    private void enviarPendentes(Assinante assinante) {
+        try {
+            DashboardAtualizacaoDTO atualizacao;
+            while ((atualizacao = assinante.pendentes.poll()) != null) {
+                assinante.emitter.send(SseEmitter.event().name("atualizacao").data(atualizacao));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Assinante do dashboard desconectado: {}", e.getMessage());
+            assinantes.remove(assinante);
+            assinante.pendentes.clear();
+        } finally {
+            assinante.enviando.set(false);
+        }
+        // Atualização que chegou entre o fim da fila e a liberação da flag
+        if (!assinante.pendentes.isEmpty() && assinantes.contains(assinante)) {
+            agendarEnvio(assinante);
+        }
+    }
+}
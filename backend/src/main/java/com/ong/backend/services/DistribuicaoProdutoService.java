@@ -0,0 +1,194 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.TopProdutoDTO;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.DistribuicaoDiariaProduto;
+import com.ong.backend.models.Movimentacao;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.repositories.DistribuicaoDiariaProdutoRepository;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.repositories.projections.SaidaDiaLote;
+import com.ong.backend.repositories.projections.SaidaDiaProduto;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Acumulado diário de saídas por produto, mantido na mesma transação de cada movimentação.
+// O ranking lê dias × produtos do período, independente do tamanho do histórico de movimentações.
+// Cada saída guarda as próprias parcelas por produto; registro e estorno aplicam exatamente essas parcelas.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DistribuicaoProdutoService {
+
+    private static final int LIMITE_MAXIMO_RANKING = 100;
+    private static final int LOTES_POR_CONSULTA = 1000;
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final DistribuicaoDiariaProdutoRepository distribuicaoRepository;
+    private final LoteItemRepository loteItemRepository;
+    private final MovimentacaoRepository movimentacaoRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializar() {
+        if (distribuicaoRepository.count() == 0) {
+            reconstruirHistorico();
+        }
+    }
+
+    // Fixa em cada saída a parcela de cada produto, rateando pelos itens do lote no momento do registro.
+    // Saídas por produto já chegam com a parcela do próprio produto e não são rateadas.
+    public void ratearSaidas(Collection<Movimentacao> movimentacoes) {
+        List<Movimentacao> semParcelas = movimentacoes.stream()
+                .filter(movimentacao -> movimentacao.getTipo() == TipoMovimentacao.SAIDA)
+                .filter(movimentacao -> movimentacao.getParcelas().isEmpty())
+                .toList();
+        if (semParcelas.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<LoteItemQuantidade>> itensPorLote = buscarItensPorLote(
+                semParcelas.stream().map(movimentacao -> movimentacao.getLote().getId()).distinct().toList());
+        semParcelas.forEach(movimentacao -> movimentacao.getParcelas().putAll(ratear(movimentacao.getQuantidade(),
+                itensPorLote.getOrDefault(movimentacao.getLote().getId(), List.of()))));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Transactional
+    public void aoRegistrar(MovimentacaoRegistradaEvent event) {
+        if (event.tipo() == TipoMovimentacao.SAIDA) {
+            distribuicaoRepository.acumular(event.dataHora().toLocalDate(),
+                    parcelas(event.loteId(), event.quantidade(), event.parcelas()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Transactional
+    public void aoRemover(MovimentacaoRemovidaEvent event) {
+        if (event.tipo() == TipoMovimentacao.SAIDA) {
+            Map<Long, Long> estorno = new HashMap<>(parcelas(event.loteId(), event.quantidade(), event.parcelas()));
+            estorno.replaceAll((produtoId, parcela) -> -parcela);
+            distribuicaoRepository.acumular(event.dataHora().toLocalDate(), estorno);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<TopProdutoDTO> rankear(LocalDate dataInicio, LocalDate dataFim, Long categoriaId, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_RANKING) {
+            throw new BusinessException("O limite do ranking deve estar entre 1 e " + LIMITE_MAXIMO_RANKING);
+        }
+
+        return distribuicaoRepository.rankear(dataInicio, dataFim, categoriaId, PageRequest.of(0, limite)).stream()
+                .map(total -> new TopProdutoDTO(
+                        total.produtoNome(),
+                        total.quantidade(),
+                        total.ultimaSaida().format(FORMATO_DATA)))
+                .collect(Collectors.toList());
+    }
+
+    // Saídas gravadas antes das parcelas existirem caem no rateio pelos itens atuais do lote
+    private Map<Long, Long> parcelas(Long loteId, long quantidade, Map<Long, Long> parcelas) {
+        return !parcelas.isEmpty() ? parcelas
+                : ratear(quantidade, loteItemRepository.buscarQuantidadesPorLotes(List.of(loteId)));
+    }
+
+    // A saída é registrada no lote: divide a quantidade entre os produtos na proporção dos itens,
+    // distribuindo as sobras da divisão inteira pelos maiores restos para manter a soma exata
+    static Map<Long, Long> ratear(long quantidade, List<LoteItemQuantidade> itens) {
+        Map<Long, Long> pesos = new LinkedHashMap<>();
+        itens.forEach(item -> pesos.merge(item.produtoId(), (long) item.quantidade(), Long::sum));
+        if (pesos.isEmpty()) {
+            return Map.of();
+        }
+
+        long pesoTotal = pesos.values().stream().mapToLong(Long::longValue).sum();
+        if (pesoTotal == 0) {
+            pesos.replaceAll((produtoId, peso) -> 1L);
+            pesoTotal = pesos.size();
+        }
+
+        long absoluta = Math.abs(quantidade);
+        Map<Long, Long> parcelas = new LinkedHashMap<>();
+        Map<Long, Long> restos = new HashMap<>();
+        long distribuido = 0;
+        for (Map.Entry<Long, Long> peso : pesos.entrySet()) {
+            long parcela = absoluta * peso.getValue() / pesoTotal;
+            parcelas.put(peso.getKey(), parcela);
+            restos.put(peso.getKey(), absoluta * peso.getValue() % pesoTotal);
+            distribuido += parcela;
+        }
+
+        List<Long> porMaiorResto = new ArrayList<>(pesos.keySet());
+        porMaiorResto.sort(Comparator.comparing(restos::get).reversed());
+        for (int i = 0; i < absoluta - distribuido; i++) {
+            parcelas.merge(porMaiorResto.get(i), 1L, Long::sum);
+        }
+
+        long sinal = Long.signum(quantidade);
+        parcelas.replaceAll((produtoId, parcela) -> sinal * parcela);
+        parcelas.values().removeIf(parcela -> parcela == 0);
+        return parcelas;
+    }
+
+    // Primeira execução: reconstrói o acumulado a partir das saídas já registradas
+    private void reconstruirHistorico() {
+        Map<LocalDate, Map<Long, Long>> porDia = new HashMap<>();
+        for (SaidaDiaProduto parcela : movimentacaoRepository.totalizarParcelasPorDiaEProduto()) {
+            porDia.computeIfAbsent(parcela.dia(), dia -> new HashMap<>())
+                    .merge(parcela.produtoId(), parcela.quantidade(), Long::sum);
+        }
+
+        List<SaidaDiaLote> saidas = movimentacaoRepository.totalizarSaidasSemParcelasPorDiaELote();
+        Map<Long, List<LoteItemQuantidade>> itensPorLote = saidas.isEmpty() ? Map.of()
+                : buscarItensPorLote(saidas.stream().map(SaidaDiaLote::loteId).distinct().toList());
+        for (SaidaDiaLote saida : saidas) {
+            Map<Long, Long> doDia = porDia.computeIfAbsent(saida.dia(), dia -> new HashMap<>());
+            ratear(saida.quantidade(), itensPorLote.getOrDefault(saida.loteId(), List.of()))
+                    .forEach((produtoId, parcela) -> doDia.merge(produtoId, parcela, Long::sum));
+        }
+
+        if (porDia.isEmpty()) {
+            return;
+        }
+
+        List<DistribuicaoDiariaProduto> historico = new ArrayList<>();
+        porDia.forEach((dia, doDia) -> doDia.forEach(
+                (produtoId, quantidade) -> historico.add(new DistribuicaoDiariaProduto(dia, produtoId, quantidade))));
+        distribuicaoRepository.saveAll(historico);
+        log.info("Distribuição diária por produto reconstruída: {} registros", historico.size());
+    }
+
+    private Map<Long, List<LoteItemQuantidade>> buscarItensPorLote(List<Long> loteIds) {
+        Map<Long, List<LoteItemQuantidade>> itensPorLote = new HashMap<>();
+        for (int i = 0; i < loteIds.size(); i += LOTES_POR_CONSULTA) {
+            loteItemRepository.buscarQuantidadesPorLotes(
+                    loteIds.subList(i, Math.min(i + LOTES_POR_CONSULTA, loteIds.size())))
+                    .forEach(item -> itensPorLote.computeIfAbsent(item.loteId(), id -> new ArrayList<>()).add(item));
+        }
+        return itensPorLote;
+    }
+}
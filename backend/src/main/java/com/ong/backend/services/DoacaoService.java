@@ -18,9 +18,10 @@ public class DoacaoService {
 
     private final LoteService loteService;
 
+    // Um lote por item da doação, todos criados de uma vez pelo LoteService.criarEmLote
     @Transactional
     public List<LoteResponseDTO> processarEntradaMista(EntradaDoacaoDTO dto, String usuarioEmail) {
-        List<LoteResponseDTO> lotesCriados = new ArrayList<>();
+        List<LoteRequestDTO> lotes = new ArrayList<>(dto.itens().size());
 
         for (var item : dto.itens()) {
             LoteItemRequestDTO itemRequest = new LoteItemRequestDTO(
@@ -46,10 +47,9 @@ public class DoacaoService {
                     unidade,
                     obsFinal);
 
-            LoteResponseDTO loteCriado = loteService.criar(loteIndividual, usuarioEmail);
-            lotesCriados.add(loteCriado);
+            lotes.add(loteIndividual);
         }
 
-        return lotesCriados;
+        return loteService.criarEmLote(lotes, usuarioEmail);
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.EvolucaoEstoqueDTO;
+import com.ong.backend.models.EstoqueDiario;
+import com.ong.backend.models.EstoqueDiarioProduto;
+import com.ong.backend.repositories.EstoqueDiarioProdutoRepository;
+import com.ong.backend.repositories.EstoqueDiarioRepository;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.MovimentacaoDiaResumo;
+import com.ong.backend.repositories.projections.ProdutoEstoqueTotal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EstoqueDiarioService {
+
+    private static final DateTimeFormatter FORMATO_DIA = DateTimeFormatter.ofPattern("dd/MM");
+
+    private final EstoqueDiarioRepository estoqueDiarioRepository;
+    private final EstoqueDiarioProdutoRepository estoqueDiarioProdutoRepository;
+    private final LoteRepository loteRepository;
+    private final LoteItemRepository loteItemRepository;
+    private final MovimentacaoRepository movimentacaoRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    // Variações do total ainda não gravadas, por dia. O total do dia é uma linha só: atualizá-la dentro
+    // de cada movimentação faria todas esperarem pela mesma trava de linha.
+    private final Map<LocalDate, Long> variacoesPendentes = new ConcurrentHashMap<>();
+
+    // Idem por produto: a linha (dia, produto) de um item muito movimentado seria disputada do mesmo jeito
+    private final Map<ChaveProduto, Long> variacoesProdutoPendentes = new ConcurrentHashMap<>();
+
+    // Transações com variação confirmam sob a trava de leitura e só a soltam depois de entrar na fila
+    private final ReentrantReadWriteLock confirmacoes = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializar() {
+        if (estoqueDiarioRepository.count() == 0) {
+            reconstruirHistorico();
+        }
+        abrirDia(LocalDate.now());
+    }
+
+    // O fechamento e a abertura são recalculados do estoque atual. A leitura e a limpeza da fila correm sob a
+    // trava de escrita das confirmações: toda variação já confirmada está na fila (e é descartada, pois a
+    // leitura a contém) ou só é confirmada depois da leitura (e entra na fila de hoje).
+    @Scheduled(cron = "${estoque.snapshot.cron:0 0 0 * * *}")
+    @Transactional
+    public void registrarFechamentoDiario() {
+        LocalDate hoje = LocalDate.now();
+        LocalDate ontem = hoje.minusDays(1);
+
+        synchronized (variacoesPendentes) {
+            long estoqueAtual;
+            long saldoHoje;
+            List<ProdutoEstoqueTotal> porProduto;
+            confirmacoes.writeLock().lock();
+            try {
+                variacoesPendentes.clear();
+                variacoesProdutoPendentes.clear();
+                estoqueAtual = loteRepository.somarEstoqueTotal();
+                saldoHoje = movimentacaoRepository.calcularSaldoDesde(hoje.atStartOfDay());
+                porProduto = loteItemRepository.calcularEstoquePorProduto();
+            } finally {
+                confirmacoes.writeLock().unlock();
+            }
+
+            // Fechamento de ontem = estoque atual menos o saldo do que já foi movimentado hoje
+            long fechamentoOntem = estoqueAtual - saldoHoje;
+            salvarTotal(ontem, fechamentoOntem);
+            salvarPorProduto(ontem, porProduto);
+
+            salvarTotal(hoje, estoqueAtual);
+            salvarPorProduto(hoje, porProduto);
+            log.info("Fechamento de estoque de {} registrado: {}", ontem, fechamentoOntem);
+        }
+    }
+
+    // Só entra na fila depois do commit da movimentação; aplicarVariacoes grava o acumulado
+    public void registrarVariacao(int delta) {
+        if (delta != 0) {
+            aposCommit(() -> variacoesPendentes.merge(LocalDate.now(), (long) delta, Long::sum));
+        }
+    }
+
+    public void registrarVariacaoProduto(Long produtoId, int delta) {
+        if (delta != 0) {
+            aposCommit(() -> variacoesProdutoPendentes.merge(new ChaveProduto(LocalDate.now(), produtoId),
+                    (long) delta, Long::sum));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${estoque.diario.aplicacao-ms:1000}")
+    public void aplicarVariacoes() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        synchronized (variacoesPendentes) {
+            for (LocalDate dia : List.copyOf(variacoesPendentes.keySet())) {
+                Long delta = variacoesPendentes.remove(dia);
+                if (delta == null || delta == 0) {
+                    continue;
+                }
+                try {
+                    transacao.executeWithoutResult(status -> aplicar(dia, delta));
+                } catch (RuntimeException e) {
+                    log.warn("Falha ao gravar variação de estoque de {}; nova tentativa na próxima rodada", dia, e);
+                    variacoesPendentes.merge(dia, delta, Long::sum);
+                }
+            }
+            aplicarVariacoesProduto(transacao);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<EvolucaoEstoqueDTO> obterEvolucao(LocalDate dataInicio, LocalDate dataFim) {
+        Map<LocalDate, Long> fechamentos = new HashMap<>();
+        estoqueDiarioRepository.findByDataBetweenOrderByData(dataInicio, dataFim)
+                .forEach(e -> fechamentos.put(e.getData(), e.getQuantidade()));
+
+        long anterior = estoqueDiarioRepository.findFirstByDataLessThanOrderByDataDesc(dataInicio)
+                .map(EstoqueDiario::getQuantidade)
+                .orElse(0L);
+
+        return preencherPeriodo(dataInicio, dataFim, fechamentos, anterior);
+    }
+
+    @Transactional(readOnly = true)
+    public List<EvolucaoEstoqueDTO> obterEvolucaoProduto(Long produtoId, LocalDate dataInicio, LocalDate dataFim) {
+        Map<LocalDate, Long> fechamentos = new HashMap<>();
+        estoqueDiarioProdutoRepository.findByProdutoIdAndDataBetweenOrderByData(produtoId, dataInicio, dataFim)
+                .forEach(e -> fechamentos.put(e.getData(), e.getQuantidade()));
+
+        long anterior = estoqueDiarioProdutoRepository
+                .findFirstByProdutoIdAndDataLessThanOrderByDataDesc(produtoId, dataInicio)
+                .map(EstoqueDiarioProduto::getQuantidade)
+                .orElse(0L);
+
+        return preencherPeriodo(dataInicio, dataFim, fechamentos, anterior);
+    }
+
+    // Dias sem fechamento (ex.: aplicação parada) repetem o último valor conhecido
+    private List<EvolucaoEstoqueDTO> preencherPeriodo(LocalDate dataInicio, LocalDate dataFim,
+            Map<LocalDate, Long> fechamentos, long anterior) {
+        List<EvolucaoEstoqueDTO> evolucao = new ArrayList<>();
+        long estoque = anterior;
+        for (LocalDate dia = dataInicio; !dia.isAfter(dataFim); dia = dia.plusDays(1)) {
+            estoque = fechamentos.getOrDefault(dia, estoque);
+            evolucao.add(new EvolucaoEstoqueDTO(dia.format(FORMATO_DIA), estoque));
+        }
+        return evolucao;
+    }
+
+    private void aposCommit(Runnable acumular) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean travada;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    confirmacoes.readLock().lock();
+                    travada = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    acumular.run();
+                    liberar();
+                }
+
+                // Rollback depois do beforeCommit (ex.: falha no flush)
+                @Override
+                public void afterCompletion(int status) {
+                    liberar();
+                }
+
+                private void liberar() {
+                    if (travada) {
+                        travada = false;
+                        confirmacoes.readLock().unlock();
+                    }
+                }
+            });
+        } else {
+            acumular.run();
+        }
+    }
+
+    private void aplicar(LocalDate dia, long delta) {
+        if (estoqueDiarioRepository.incrementar(dia, delta) == 0
+                && estoqueDiarioRepository.inserirSeAusente(dia, loteRepository.somarEstoqueTotal()) == 0) {
+            estoqueDiarioRepository.incrementar(dia, delta);
+        }
+    }
+
+    // Os produtos da rodada vão numa transação só; se falhar, todos voltam para a fila
+    private void aplicarVariacoesProduto(TransactionTemplate transacao) {
+        Map<ChaveProduto, Long> rodada = new HashMap<>();
+        for (ChaveProduto chave : List.copyOf(variacoesProdutoPendentes.keySet())) {
+            Long delta = variacoesProdutoPendentes.remove(chave);
+            if (delta != null && delta != 0) {
+                rodada.put(chave, delta);
+            }
+        }
+        if (rodada.isEmpty()) {
+            return;
+        }
+        try {
+            transacao.executeWithoutResult(status -> rodada.forEach(this::aplicarProduto));
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar variações de estoque por produto; nova tentativa na próxima rodada", e);
+            rodada.forEach((chave, delta) -> variacoesProdutoPendentes.merge(chave, delta, Long::sum));
+        }
+    }
+
+    // Produto sem linha no dia (a virada só abre os que têm estoque): a variação já foi confirmada, então o
+    // total atual já a inclui. Se a virada abrir a linha antes, a variação é somada sobre a dela.
+    private void aplicarProduto(ChaveProduto chave, long delta) {
+        if (estoqueDiarioProdutoRepository.incrementar(chave.dia(), chave.produtoId(), delta) == 0) {
+            long atual = loteItemRepository.calcularEstoqueTotalPorProduto(chave.produtoId());
+            if (estoqueDiarioProdutoRepository.inserirSeAusente(chave.dia(), chave.produtoId(), atual) == 0) {
+                estoqueDiarioProdutoRepository.incrementar(chave.dia(), chave.produtoId(), delta);
+            }
+        }
+    }
+
+    private void abrirDia(LocalDate dia) {
+        salvarTotal(dia, loteRepository.somarEstoqueTotal());
+        salvarPorProduto(dia, loteItemRepository.calcularEstoquePorProduto());
+    }
+
+    private void salvarTotal(LocalDate dia, long quantidade) {
+        EstoqueDiario estoqueDiario = estoqueDiarioRepository.findByData(dia)
+                .orElseGet(() -> new EstoqueDiario(dia, 0L));
+        estoqueDiario.setQuantidade(quantidade);
+        estoqueDiarioRepository.save(estoqueDiario);
+    }
+
+    private void salvarPorProduto(LocalDate dia, List<ProdutoEstoqueTotal> porProduto) {
+        estoqueDiarioProdutoRepository.deleteByData(dia);
+        estoqueDiarioProdutoRepository.saveAll(porProduto.stream()
+                .map(total -> new EstoqueDiarioProduto(dia, total.produtoId(), total.quantidade()))
+                .toList());
+    }
+
+    // Primeira execução: reconstrói o total diário a partir do histórico de movimentações
+    private void reconstruirHistorico() {
+        LocalDateTime primeira = movimentacaoRepository.buscarPrimeiraDataHora().orElse(null);
+        if (primeira == null) {
+            return;
+        }
+
+        LocalDate hoje = LocalDate.now();
+        LocalDate primeiroDia = primeira.toLocalDate();
+        Map<LocalDate, Long> saldoPorDia = new HashMap<>();
+        for (MovimentacaoDiaResumo resumo : movimentacaoRepository.resumirPorDia(primeiroDia.atStartOfDay(),
+                hoje.plusDays(1).atStartOfDay())) {
+            saldoPorDia.put(resumo.dia(), resumo.saldo());
+        }
+
+        List<EstoqueDiario> historico = new ArrayList<>();
+        long estoque = loteRepository.somarEstoqueTotal();
+        for (LocalDate dia = hoje; !dia.isBefore(primeiroDia); dia = dia.minusDays(1)) {
+            historico.add(new EstoqueDiario(dia, estoque));
+            estoque -= saldoPorDia.getOrDefault(dia, 0L);
+        }
+        estoqueDiarioRepository.saveAll(historico);
+        log.info("Histórico de estoque diário reconstruído: {} dias", historico.size());
+    }
+
+    private record ChaveProduto(LocalDate dia, Long produtoId) {
+    }
+}
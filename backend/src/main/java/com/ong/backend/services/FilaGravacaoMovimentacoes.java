@@ -0,0 +1,216 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.services.MovimentacaoService.ResultadoGrupo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// Gravação agrupada das movimentações (opcional): os pedidos entram numa fila limitada e uma única
+// thread grava a cada poucos milissegundos, ou ao juntar N pedidos, todos no mesmo commit. Quem pediu
+// só recebe a resposta depois do commit do seu grupo. Desligada, cada pedido é o criar de sempre.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FilaGravacaoMovimentacoes {
+
+    private final MovimentacaoService movimentacaoService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${movimentacoes.gravacao.agrupar:false}")
+    private boolean agrupar;
+
+    @Value("${movimentacoes.gravacao.espera-ms:5}")
+    private long esperaMs;
+
+    @Value("${movimentacoes.gravacao.tamanho-grupo:100}")
+    private int tamanhoGrupo;
+
+    @Value("${movimentacoes.gravacao.capacidade-fila:2000}")
+    private int capacidadeFila;
+
+    @Value("${movimentacoes.gravacao.espera-vaga-ms:1000}")
+    private long esperaVagaMs;
+
+    private BlockingQueue<Pedido> fila;
+    private Thread gravador;
+    private volatile boolean ativa;
+
+    private Timer tempoDireta;
+    private Timer tempoAgrupada;
+    private DistributionSummary tamanhoGrupos;
+
+    private record Pedido(MovimentacaoRequestDTO dto, String email,
+            CompletableFuture<MovimentacaoResponseDTO> resposta) {
+    }
+
+    @PostConstruct
+    void registrarMetricas() {
+        tempoDireta = tempo("direta");
+        tempoAgrupada = tempo("agrupada");
+        tamanhoGrupos = DistributionSummary.builder("movimentacoes.gravacao.grupo")
+                .description("Pedidos gravados por commit da fila")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Timer tempo(String modo) {
+        return Timer.builder("movimentacoes.gravacao")
+                .description("Tempo até a movimentação estar gravada, do pedido ao commit")
+                .tag("modo", modo)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!agrupar) {
+            return;
+        }
+        fila = new ArrayBlockingQueue<>(capacidadeFila);
+        meterRegistry.gaugeCollectionSize("movimentacoes.gravacao.fila", Tags.empty(), fila);
+        ativa = true;
+        gravador = Thread.ofPlatform().name("gravacao-movimentacoes").daemon().start(this::gravarEmGrupos);
+        log.info("Gravação agrupada de movimentações ativa: até {} pedido(s) ou {} ms por commit",
+                tamanhoGrupo, esperaMs);
+    }
+
+    @PreDestroy
+    public void parar() throws InterruptedException {
+        if (gravador == null) {
+            return;
+        }
+        // O gravador esvazia a fila antes de sair
+        ativa = false;
+        gravador.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public MovimentacaoResponseDTO registrar(MovimentacaoRequestDTO dto, String emailUsuarioAutenticado) {
+        long inicio = System.nanoTime();
+        if (!ativa) {
+            try {
+                return movimentacaoService.criar(dto, emailUsuarioAutenticado);
+            } finally {
+                tempoDireta.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        try {
+            return enfileirar(new Pedido(dto, emailUsuarioAutenticado, new CompletableFuture<>()));
+        } finally {
+            tempoAgrupada.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private MovimentacaoResponseDTO enfileirar(Pedido pedido) {
+        try {
+            if (!fila.offer(pedido, esperaVagaMs, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException("Fila de gravação de movimentações cheia. Tente novamente em instantes.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Gravação da movimentação interrompida.");
+        }
+        // Entrou na fila depois que o gravador saiu: ninguém mais vai tirá-lo de lá
+        if (!ativa && fila.remove(pedido)) {
+            return movimentacaoService.criar(pedido.dto(), pedido.email());
+        }
+
+        try {
+            return pedido.resposta().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private void gravarEmGrupos() {
+        List<Pedido> grupo = new ArrayList<>(tamanhoGrupo);
+        while (ativa || !fila.isEmpty()) {
+            try {
+                Pedido primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                grupo.add(primeiro);
+                long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+                while (grupo.size() < tamanhoGrupo) {
+                    fila.drainTo(grupo, tamanhoGrupo - grupo.size());
+                    long resta = prazo - System.nanoTime();
+                    if (grupo.size() >= tamanhoGrupo || resta <= 0) {
+                        break;
+                    }
+                    Pedido proximo = fila.poll(resta, TimeUnit.NANOSECONDS);
+                    if (proximo == null) {
+                        break;
+                    }
+                    grupo.add(proximo);
+                }
+            } catch (InterruptedException e) {
+                // Ninguém interrompe o gravador: ele só sai com a fila desligada e vazia
+            }
+            if (!grupo.isEmpty()) {
+                gravar(grupo);
+                grupo.clear();
+            }
+        }
+    }
+
+    private void gravar(List<Pedido> grupo) {
+        tamanhoGrupos.record(grupo.size());
+        List<ResultadoGrupo> resultados;
+        try {
+            resultados = movimentacaoService.registrarGrupo(
+                    grupo.stream().map(Pedido::dto).toList(),
+                    grupo.stream().map(Pedido::email).toList());
+        } catch (RuntimeException e) {
+            // Falha do grupo inteiro (não de um pedido): cada um é refeito sozinho para não arrastar os outros
+            log.warn("Falha ao gravar grupo de {} movimentação(ões), refazendo uma a uma: {}", grupo.size(),
+                    e.getMessage());
+            grupo.forEach(this::gravarSozinho);
+            return;
+        }
+
+        // Só depois do commit: quem recebe a resposta tem a movimentação gravada
+        for (int i = 0; i < grupo.size(); i++) {
+            ResultadoGrupo resultado = resultados.get(i);
+            if (resultado.erro() != null) {
+                grupo.get(i).resposta().completeExceptionally(resultado.erro());
+            } else {
+                grupo.get(i).resposta().complete(resultado.movimentacao());
+            }
+        }
+    }
+
+    private void gravarSozinho(Pedido pedido) {
+        try {
+            pedido.resposta().complete(movimentacaoService.criar(pedido.dto(), pedido.email()));
+        } catch (RuntimeException e) {
+            pedido.resposta().completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.produto.ImportacaoCatalogoDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.Categoria;
+import com.ong.backend.services.ProdutoService.ItemCatalogo;
+import com.ong.backend.services.ProdutoService.ResultadoCatalogo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Importação do catálogo de um parceiro: o CSV é lido linha a linha e gravado em blocos (uma transação
+// por bloco), casando com os produtos existentes pelo código de barras do fabricante. O índice
+// código -> ID e as categorias por nome são carregados uma vez. Os caches de produtos são limpos uma vez no fim,
+// mesmo se a leitura falhar no meio, sempre que algum bloco tiver sido gravado.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacaoCatalogoService {
+
+    private static final Set<String> COLUNAS_OBRIGATORIAS = Set.of("nome", "categoria");
+    private static final int MAX_ERROS = 100;
+
+    private final ProdutoService produtoService;
+    private final CategoriaService categoriaService;
+    private final CacheManager cacheManager;
+
+    @Value("${importacao.catalogo.tamanho-bloco:500}")
+    private int tamanhoBloco;
+
+    private static final class Contagem {
+        private long linhasLidas;
+        private long inseridos;
+        private long atualizados;
+        private long ignorados;
+        private final List<String> erros = new ArrayList<>();
+
+        void falha(long linha, String erro) {
+            ignorados++;
+            if (erros.size() < MAX_ERROS) {
+                erros.add("Linha " + linha + ": " + erro);
+            }
+        }
+    }
+
+    public ImportacaoCatalogoDTO importar(MultipartFile arquivo) {
+        if (arquivo.isEmpty()) {
+            throw new BusinessException("Arquivo de importação vazio.");
+        }
+        Contagem contagem = new Contagem();
+        try (BufferedReader leitor = new BufferedReader(
+                new InputStreamReader(arquivo.getInputStream(), StandardCharsets.UTF_8))) {
+            return importar(leitor, contagem);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o catálogo importado", e);
+        } finally {
+            if (contagem.inseridos + contagem.atualizados > 0) {
+                limparCaches();
+            }
+        }
+    }
+
+    // Pelo Cache do Spring: a limpeza também vai para os outros nós pelo barramento
+    private void limparCaches() {
+        cacheManager.getCache("produtos").clear();
+        cacheManager.getCache("produtos-estoque").clear();
+    }
+
+    private ImportacaoCatalogoDTO importar(BufferedReader leitor, Contagem contagem) throws IOException {
+        String cabecalho = leitor.readLine();
+        if (cabecalho == null || cabecalho.isBlank()) {
+            throw new BusinessException("Arquivo de importação sem cabeçalho.");
+        }
+        char separador = LeitorCsv.separador(cabecalho);
+        Map<String, Integer> colunas = LeitorCsv.lerColunas(cabecalho, separador, COLUNAS_OBRIGATORIAS);
+        if (!colunas.containsKey("codigobarrasfabricante") && !colunas.containsKey("codigobarras")
+                && !colunas.containsKey("ean")) {
+            throw new BusinessException("Colunas obrigatórias ausentes no cabeçalho: [codigoBarras]");
+        }
+
+        Map<String, Categoria> categorias = categoriaService.buscarEntidadesPorNome();
+        Map<String, Long> indice = produtoService.indicePorCodigoBarras();
+        Set<String> vistos = new HashSet<>();
+
+        List<ItemCatalogo> bloco = new ArrayList<>(tamanhoBloco);
+        List<Long> linhasDoBloco = new ArrayList<>(tamanhoBloco);
+        String texto;
+        long numero = 1;
+        while ((texto = leitor.readLine()) != null) {
+            numero++;
+            if (texto.isBlank()) {
+                continue;
+            }
+            contagem.linhasLidas++;
+            ItemCatalogo item;
+            try {
+                item = lerItem(LeitorCsv.separarCampos(texto, separador), colunas, categorias);
+            } catch (BusinessException e) {
+                contagem.falha(numero, e.getMessage());
+                continue;
+            }
+            if (!vistos.add(item.codigoBarras())) {
+                contagem.falha(numero, "Código de barras repetido no arquivo: " + item.codigoBarras());
+                continue;
+            }
+            bloco.add(item);
+            linhasDoBloco.add(numero);
+            if (bloco.size() == tamanhoBloco) {
+                gravarBloco(bloco, linhasDoBloco, indice, contagem);
+                bloco.clear();
+                linhasDoBloco.clear();
+            }
+        }
+        if (!bloco.isEmpty()) {
+            gravarBloco(bloco, linhasDoBloco, indice, contagem);
+        }
+
+        log.info("Catálogo importado: {} linha(s), {} inserido(s), {} atualizado(s), {} ignorado(s)",
+                contagem.linhasLidas, contagem.inseridos, contagem.atualizados, contagem.ignorados);
+        return new ImportacaoCatalogoDTO(contagem.linhasLidas, contagem.inseridos, contagem.atualizados,
+                contagem.ignorados, contagem.erros);
+    }
+
+    // Bloco recusado pelo banco volta inteiro: as linhas dele entram como ignoradas e a importação segue
+    private void gravarBloco(List<ItemCatalogo> bloco, List<Long> linhas, Map<String, Long> indice,
+            Contagem contagem) {
+        try {
+            ResultadoCatalogo resultado = produtoService.gravarCatalogo(List.copyOf(bloco), indice);
+            contagem.inseridos += resultado.inseridos();
+            contagem.atualizados += resultado.atualizados();
+            contagem.ignorados += resultado.inalterados();
+        } catch (RuntimeException e) {
+            log.warn("Bloco de {} produto(s) do catálogo recusado: {}", bloco.size(), e.getMessage());
+            contagem.ignorados += bloco.size();
+            if (contagem.erros.size() < MAX_ERROS) {
+                contagem.erros.add("Linhas " + linhas.get(0) + " a " + linhas.get(linhas.size() - 1)
+                        + " não gravadas: " + e.getMessage());
+            }
+        }
+    }
+
+    private ItemCatalogo lerItem(List<String> campos, Map<String, Integer> colunas,
+            Map<String, Categoria> categorias) {
+        String codigoBarras = LeitorCsv.campo(campos, colunas, "codigobarrasfabricante", "codigobarras", "ean");
+        String nome = LeitorCsv.campo(campos, colunas, "nome");
+        String nomeCategoria = LeitorCsv.campo(campos, colunas, "categoria");
+        if (codigoBarras == null || nome == null || nomeCategoria == null) {
+            throw new BusinessException("Código de barras, nome e categoria são obrigatórios.");
+        }
+        if (codigoBarras.length() > 50) {
+            throw new BusinessException("Código de barras deve ter no máximo 50 caracteres");
+        }
+        if (nome.length() > 200) {
+            throw new BusinessException("Nome deve ter no máximo 200 caracteres");
+        }
+        String descricao = LeitorCsv.campo(campos, colunas, "descricao");
+        if (descricao != null && descricao.length() > 500) {
+            throw new BusinessException("Descrição deve ter no máximo 500 caracteres");
+        }
+        Categoria categoria = categorias.get(CategoriaService.chaveNome(nomeCategoria));
+        if (categoria == null) {
+            throw new BusinessException("Categoria não encontrada: '" + nomeCategoria + "'.");
+        }
+
+        String estoqueMinimoTexto = LeitorCsv.campo(campos, colunas, "estoqueminimo");
+        Integer estoqueMinimo = null;
+        if (estoqueMinimoTexto != null) {
+            try {
+                estoqueMinimo = Integer.parseInt(estoqueMinimoTexto);
+            } catch (NumberFormatException e) {
+                throw new BusinessException("Estoque mínimo inválido: '" + estoqueMinimoTexto + "'.");
+            }
+            if (estoqueMinimo < 0) {
+                throw new BusinessException("Estoque mínimo deve ser maior ou igual a zero");
+            }
+        }
+        return new ItemCatalogo(codigoBarras, nome, descricao, categoria, estoqueMinimo);
+    }
+}
@@ -0,0 +1,368 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.doacao.EntradaDoacaoDTO;
+import com.ong.backend.dto.doacao.ImportacaoDoacaoDTO;
+import com.ong.backend.dto.doacao.ItemDoacaoDTO;
+import com.ong.backend.dto.doacao.StatusImportacao;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.Produto;
+import com.ong.backend.models.UnidadeMedida;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// Importação de planilhas de doação (CSV) em segundo plano: o arquivo vai para o disco, é lido linha a
+// linha e gravado em blocos, um bloco por transação, pelo mesmo caminho da entrada rápida (um lote por
+// linha). Linhas recusadas vão para um relatório em CSV, também em disco; em memória só ficam contadores.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacaoDoacaoService {
+
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final Set<String> COLUNAS_OBRIGATORIAS = Set.of("produtoid", "quantidade");
+
+    private final DoacaoService doacaoService;
+    private final ProdutoService produtoService;
+    private final ExecutorService importacaoExecutor;
+
+    private final Map<UUID, Importacao> importacoes = new ConcurrentHashMap<>();
+
+    @Value("${importacao.doacoes.tamanho-bloco:500}")
+    private int tamanhoBloco;
+
+    @Value("${importacao.doacoes.retencao-ms:3600000}")
+    private long retencaoMs;
+
+    // Contadores escritos só pela thread da importação e lidos pela consulta de progresso
+    private static final class Importacao {
+        private final UUID id = UUID.randomUUID();
+        private final LocalDateTime criadaEm = LocalDateTime.now();
+        private final String email;
+        private final String arquivo;
+        private final Path entrada;
+        private final Path falhas;
+        private final long tamanho;
+        private final LocalDate dataEntrada;
+        private final String observacoesGerais;
+        private final char separador;
+        private final Map<String, Integer> colunas;
+        private volatile StatusImportacao status = StatusImportacao.NA_FILA;
+        private volatile long bytesLidos;
+        private volatile long linhasLidas;
+        private volatile long linhasImportadas;
+        private volatile long linhasComFalha;
+        private volatile LocalDateTime iniciadaEm;
+        private volatile LocalDateTime concluidaEm;
+        private volatile String erro;
+
+        Importacao(String email, String arquivo, Path entrada, Path falhas, LocalDate dataEntrada,
+                String observacoesGerais, char separador, Map<String, Integer> colunas) throws IOException {
+            this.email = email;
+            this.arquivo = arquivo;
+            this.entrada = entrada;
+            this.falhas = falhas;
+            this.tamanho = Files.size(entrada);
+            this.dataEntrada = dataEntrada;
+            this.observacoesGerais = observacoesGerais;
+            this.separador = separador;
+            this.colunas = colunas;
+        }
+    }
+
+    private record Linha(long numero, String texto, ItemDoacaoDTO item) {
+    }
+
+    // O cabeçalho é conferido antes do 202: arquivo sem as colunas obrigatórias nem entra na fila
+    public ImportacaoDoacaoDTO iniciar(MultipartFile arquivo, LocalDate dataEntrada, String observacoesGerais,
+            String emailUsuarioAutenticado) {
+        if (arquivo.isEmpty()) {
+            throw new BusinessException("Arquivo de importação vazio.");
+        }
+
+        Path entrada = null;
+        Path falhas = null;
+        try {
+            entrada = Files.createTempFile("importacao-doacao-", ".csv");
+            arquivo.transferTo(entrada);
+            String cabecalho;
+            try (BufferedReader leitor = Files.newBufferedReader(entrada, StandardCharsets.UTF_8)) {
+                cabecalho = leitor.readLine();
+            }
+            if (cabecalho == null || cabecalho.isBlank()) {
+                throw new BusinessException("Arquivo de importação sem cabeçalho.");
+            }
+            char separador = LeitorCsv.separador(cabecalho);
+            Map<String, Integer> colunas = LeitorCsv.lerColunas(cabecalho, separador, COLUNAS_OBRIGATORIAS);
+
+            falhas = Files.createTempFile("importacao-doacao-falhas-", ".csv");
+            Importacao importacao = new Importacao(emailUsuarioAutenticado, arquivo.getOriginalFilename(), entrada,
+                    falhas, dataEntrada != null ? dataEntrada : LocalDate.now(), observacoesGerais, separador,
+                    colunas);
+            importacoes.put(importacao.id, importacao);
+            // A resposta é montada antes de entregar ao executor, que pode começar a alterar a importação na hora
+            ImportacaoDoacaoDTO naFila = paraDTO(importacao);
+            try {
+                importacaoExecutor.execute(() -> processar(importacao));
+            } catch (RejectedExecutionException e) {
+                importacoes.remove(importacao.id);
+                throw new BusinessException("Limite de importações em andamento atingido. Tente novamente em instantes.");
+            }
+            log.info("Importação {} do arquivo '{}' ({} bytes) na fila, enviada por {}", importacao.id,
+                    importacao.arquivo, importacao.tamanho, emailUsuarioAutenticado);
+            return naFila;
+        } catch (IOException e) {
+            apagar(entrada);
+            apagar(falhas);
+            throw new UncheckedIOException("Falha ao receber o arquivo de importação", e);
+        } catch (RuntimeException e) {
+            apagar(entrada);
+            apagar(falhas);
+            throw e;
+        }
+    }
+
+    public ImportacaoDoacaoDTO buscar(UUID id, String emailUsuarioAutenticado) {
+        return paraDTO(buscarImportacao(id, emailUsuarioAutenticado));
+    }
+
+    // Relatório das linhas recusadas; disponível depois que a importação termina
+    public Path buscarRelatorioFalhas(UUID id, String emailUsuarioAutenticado) {
+        Importacao importacao = buscarImportacao(id, emailUsuarioAutenticado);
+        if (importacao.concluidaEm == null) {
+            throw new BusinessException("Importação ainda em andamento. Situação atual: " + importacao.status);
+        }
+        return importacao.falhas;
+    }
+
+    @Scheduled(fixedDelayString = "${importacao.doacoes.limpeza-ms:600000}")
+    public void descartarConcluidas() {
+        LocalDateTime limite = LocalDateTime.now().minusNanos(retencaoMs * 1_000_000);
+        importacoes.values().removeIf(importacao -> {
+            if (importacao.concluidaEm == null || importacao.concluidaEm.isAfter(limite)) {
+                return false;
+            }
+            apagar(importacao.falhas);
+            return true;
+        });
+    }
+
+    private void processar(Importacao importacao) {
+        importacao.iniciadaEm = LocalDateTime.now();
+        importacao.status = StatusImportacao.EM_ANDAMENTO;
+        try (BufferedReader leitor = Files.newBufferedReader(importacao.entrada, StandardCharsets.UTF_8);
+                BufferedWriter falhas = Files.newBufferedWriter(importacao.falhas, StandardCharsets.UTF_8)) {
+            falhas.write("linha;erro;conteudo");
+            falhas.newLine();
+
+            String texto = leitor.readLine();
+            importacao.bytesLidos = bytes(texto);
+            long numero = 1;
+            List<Linha> bloco = new ArrayList<>(tamanhoBloco);
+            while ((texto = leitor.readLine()) != null) {
+                numero++;
+                importacao.bytesLidos += bytes(texto);
+                if (texto.isBlank()) {
+                    continue;
+                }
+                importacao.linhasLidas++;
+                try {
+                    bloco.add(new Linha(numero, texto, lerItem(texto, importacao)));
+                } catch (BusinessException e) {
+                    registrarFalha(importacao, falhas, numero, texto, e.getMessage());
+                }
+                if (bloco.size() == tamanhoBloco) {
+                    gravarBloco(importacao, bloco, falhas);
+                    bloco.clear();
+                }
+            }
+            if (!bloco.isEmpty()) {
+                gravarBloco(importacao, bloco, falhas);
+            }
+            importacao.status = StatusImportacao.CONCLUIDA;
+            log.info("Importação {} concluída: {} linha(s) importada(s), {} com falha", importacao.id,
+                    importacao.linhasImportadas, importacao.linhasComFalha);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            importacao.erro = "Importação interrompida pelo desligamento do servidor.";
+            importacao.status = StatusImportacao.FALHOU;
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha na importação {}", importacao.id, e);
+            importacao.erro = e.getMessage();
+            importacao.status = StatusImportacao.FALHOU;
+        } finally {
+            importacao.concluidaEm = LocalDateTime.now();
+            apagar(importacao.entrada);
+        }
+    }
+
+    // Produtos inexistentes são recusados antes da gravação; se mesmo assim o bloco falhar (e voltar
+    // inteiro), cada linha é refeita sozinha para separar a que causou a falha
+    private void gravarBloco(Importacao importacao, List<Linha> bloco, BufferedWriter falhas)
+            throws IOException, InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        Set<Long> produtoIds = new HashSet<>();
+        bloco.forEach(linha -> produtoIds.add(linha.item().produtoId()));
+        Map<Long, Produto> produtos = produtoService.buscarEntidadesPorIds(produtoIds);
+
+        List<Linha> validas = new ArrayList<>(bloco.size());
+        for (Linha linha : bloco) {
+            if (produtos.containsKey(linha.item().produtoId())) {
+                validas.add(linha);
+            } else {
+                registrarFalha(importacao, falhas, linha.numero(), linha.texto(),
+                        new ResourceNotFoundException("Produto", "id", linha.item().produtoId()).getMessage());
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            gravar(importacao, validas);
+        } catch (RuntimeException e) {
+            log.warn("Bloco de {} linha(s) da importação {} recusado, refazendo linha a linha: {}", validas.size(),
+                    importacao.id, e.getMessage());
+            for (Linha linha : validas) {
+                try {
+                    gravar(importacao, List.of(linha));
+                } catch (RuntimeException erroLinha) {
+                    registrarFalha(importacao, falhas, linha.numero(), linha.texto(), erroLinha.getMessage());
+                }
+            }
+        }
+    }
+
+    private void gravar(Importacao importacao, List<Linha> linhas) {
+        doacaoService.processarEntradaMista(new EntradaDoacaoDTO(linhas.stream().map(Linha::item).toList(),
+                importacao.dataEntrada, importacao.observacoesGerais), importacao.email);
+        importacao.linhasImportadas += linhas.size();
+    }
+
+    private void registrarFalha(Importacao importacao, BufferedWriter falhas, long numero, String texto,
+            String erro) throws IOException {
+        falhas.write(numero + ";" + LeitorCsv.aspas(erro) + ";" + LeitorCsv.aspas(texto));
+        falhas.newLine();
+        importacao.linhasComFalha++;
+    }
+
+    private ItemDoacaoDTO lerItem(String texto, Importacao importacao) {
+        List<String> campos = LeitorCsv.separarCampos(texto, importacao.separador);
+        Map<String, Integer> colunas = importacao.colunas;
+
+        String produto = LeitorCsv.campo(campos, colunas, "produtoid");
+        String quantidadeTexto = LeitorCsv.campo(campos, colunas, "quantidade");
+        if (produto == null || quantidadeTexto == null) {
+            throw new BusinessException("Produto e quantidade são obrigatórios.");
+        }
+        Long produtoId;
+        int quantidade;
+        try {
+            produtoId = Long.parseLong(produto);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("ID de produto inválido: '" + produto + "'.");
+        }
+        try {
+            quantidade = Integer.parseInt(quantidadeTexto);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Quantidade inválida: '" + quantidadeTexto + "'.");
+        }
+        if (quantidade <= 0) {
+            throw new BusinessException("A quantidade deve ser maior que zero");
+        }
+
+        String unidade = LeitorCsv.campo(campos, colunas, "unidademedida", "unidade");
+        UnidadeMedida unidadeMedida = null;
+        if (unidade != null) {
+            try {
+                unidadeMedida = UnidadeMedida.valueOf(unidade.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("Unidade de medida inválida: '" + unidade + "'.");
+            }
+        }
+
+        return new ItemDoacaoDTO(produtoId, quantidade, lerData(LeitorCsv.campo(campos, colunas, "validade")),
+                LeitorCsv.campo(campos, colunas, "tamanho"), LeitorCsv.campo(campos, colunas, "voltagem"),
+                LeitorCsv.campo(campos, colunas, "observacoes", "observacoesitem"), unidadeMedida);
+    }
+
+    private static LocalDate lerData(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        try {
+            return texto.contains("/") ? LocalDate.parse(texto, DATA_BR) : LocalDate.parse(texto);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("Validade inválida: '" + texto + "'. Use AAAA-MM-DD ou DD/MM/AAAA.");
+        }
+    }
+
+    // Aproximado (quebra de linha contada como um byte); só serve para o percentual
+    private static long bytes(String linha) {
+        return linha != null ? linha.getBytes(StandardCharsets.UTF_8).length + 1 : 0;
+    }
+
+    private static void apagar(Path arquivo) {
+        if (arquivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível apagar o arquivo temporário {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    // Importação de outro usuário é tratada como inexistente
+    private Importacao buscarImportacao(UUID id, String emailUsuarioAutenticado) {
+        Importacao importacao = importacoes.get(id);
+        if (importacao == null || !importacao.email.equals(emailUsuarioAutenticado)) {
+            throw new ResourceNotFoundException("Importação", "id", id);
+        }
+        return importacao;
+    }
+
+    private ImportacaoDoacaoDTO paraDTO(Importacao importacao) {
+        int percentual;
+        if (importacao.concluidaEm != null) {
+            percentual = 100;
+        } else if (importacao.tamanho == 0) {
+            percentual = 0;
+        } else {
+            percentual = (int) Math.min(99, importacao.bytesLidos * 100 / importacao.tamanho);
+        }
+        return new ImportacaoDoacaoDTO(importacao.id, importacao.arquivo, importacao.status, percentual,
+                importacao.linhasLidas, importacao.linhasImportadas, importacao.linhasComFalha,
+                importacao.criadaEm, importacao.iniciadaEm, importacao.concluidaEm, importacao.erro);
+    }
+}
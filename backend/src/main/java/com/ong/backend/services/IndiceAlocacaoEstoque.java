@@ -0,0 +1,159 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.projections.LoteItemAlocavel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Itens de lote com saldo, por produto, na ordem em que devem sair: validade mais próxima primeiro
+// (sem validade por último) e, no empate, o lote mais antigo. Um plano para k lotes custa O(k + log n).
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceAlocacaoEstoque {
+
+    static final Comparator<LoteItemAlocavel> ORDEM_SAIDA = Comparator
+            .comparing(LoteItemAlocavel::dataValidade, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(LoteItemAlocavel::dataEntrada)
+            .thenComparing(LoteItemAlocavel::loteItemId);
+
+    private final LoteItemRepository loteItemRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, TreeSet<LoteItemAlocavel>> porProduto = new HashMap<>();
+    private final Map<Long, List<LoteItemAlocavel>> porLote = new HashMap<>();
+    private volatile boolean carregado;
+
+    // Cada leitura do banco recebe uma versão antes de consultar; por lote, só vale a de versão mais alta
+    private final AtomicLong versoes = new AtomicLong();
+    private final Map<Long, Long> versaoPorLote = new HashMap<>();
+    private long versaoCarga;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void carregar() {
+        long versao = versoes.incrementAndGet();
+        List<LoteItemAlocavel> itens = loteItemRepository.buscarAlocaveis();
+
+        lock.writeLock().lock();
+        try {
+            porProduto.clear();
+            porLote.clear();
+            versaoPorLote.clear();
+            versaoCarga = versao;
+            itens.forEach(this::adicionar);
+            carregado = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de alocação de estoque carregado: {} itens de lote com saldo", itens.size());
+    }
+
+    // Releitura dos lotes na conexão da transação recém-confirmada: com REQUIRES_NEW, cada commit de
+    // estoque prendia duas conexões ao mesmo tempo e, sob carga, o pool inteiro ficava esperando
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        if (!carregado || event.loteIds().isEmpty()) {
+            return;
+        }
+        // Consulta fora do lock, para não parar os planejamentos nem enfileirar os commits atrás dela. A
+        // versão é tirada antes da leitura: uma leitura mais antiga que termine depois não desfaz a mais nova
+        long versao = versoes.incrementAndGet();
+        atualizarLotes(event.loteIds(), loteItemRepository.buscarAlocaveisPorLotes(event.loteIds()), versao);
+    }
+
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    public List<LoteItemAlocavel> planejar(Long produtoId, int quantidade) {
+        return planejar(produtoId, quantidade, Set.of());
+    }
+
+    public List<LoteItemAlocavel> planejar(Long produtoId, int quantidade, Set<Long> lotesIgnorados) {
+        lock.readLock().lock();
+        try {
+            TreeSet<LoteItemAlocavel> itens = porProduto.get(produtoId);
+            return itens == null ? List.of() : cobrir(itens, quantidade, lotesIgnorados);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Menor prefixo da ordem de saída que cobre a quantidade; se o saldo não bastar, devolve todos
+    static List<LoteItemAlocavel> cobrir(Iterable<LoteItemAlocavel> itens, int quantidade, Set<Long> lotesIgnorados) {
+        List<LoteItemAlocavel> plano = new ArrayList<>();
+        int coberto = 0;
+        for (LoteItemAlocavel item : itens) {
+            if (coberto >= quantidade) {
+                break;
+            }
+            if (!lotesIgnorados.contains(item.loteId())) {
+                plano.add(item);
+                coberto += item.disponivel();
+            }
+        }
+        return plano;
+    }
+
+    // Substitui os itens dos lotes informados pelo estado lido do banco (lotes ausentes saem do índice);
+    // lotes já atualizados por uma leitura de versão mais alta ficam como estão
+    void atualizarLotes(Collection<Long> loteIds, List<LoteItemAlocavel> itens, long versao) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> atualizados = new HashSet<>();
+            for (Long loteId : loteIds) {
+                if (versaoPorLote.getOrDefault(loteId, versaoCarga) >= versao) {
+                    continue;
+                }
+                versaoPorLote.put(loteId, versao);
+                atualizados.add(loteId);
+                List<LoteItemAlocavel> anteriores = porLote.remove(loteId);
+                if (anteriores != null) {
+                    anteriores.forEach(this::remover);
+                }
+            }
+            itens.stream().filter(item -> atualizados.contains(item.loteId())).forEach(this::adicionar);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void adicionar(LoteItemAlocavel item) {
+        if (item.disponivel() <= 0) {
+            return;
+        }
+        porProduto.computeIfAbsent(item.produtoId(), id -> new TreeSet<>(ORDEM_SAIDA)).add(item);
+        porLote.computeIfAbsent(item.loteId(), id -> new ArrayList<>()).add(item);
+    }
+
+    private void remover(LoteItemAlocavel item) {
+        TreeSet<LoteItemAlocavel> itens = porProduto.get(item.produtoId());
+        if (itens != null) {
+            itens.remove(item);
+            if (itens.isEmpty()) {
+                porProduto.remove(item.produtoId());
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.MovimentacaoDiaTipoTotal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Somas de prefixo (árvores de Fenwick) por dia × tipo: contagem e quantidade de movimentações.
+// Consultas por intervalo de datas custam O(log n) e não tocam o banco nem alocam memória.
+// Eventos que chegam durante a carga ficam guardados e são aplicados ao fim dela, descontados os que
+// a consulta inicial já enxergou.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceTemporalMovimentacoes {
+
+    private static final int TIPOS = TipoMovimentacao.values().length;
+    private static final int CAPACIDADE_MINIMA = 1024;
+    private static final int MARGEM_FUTURO_DIAS = 366;
+
+    private final MovimentacaoRepository movimentacaoRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Posição 1 das árvores corresponde a diaBase (epoch day)
+    private long diaBase;
+    private int capacidade;
+    private long[][] contagens = new long[TIPOS][1];
+    private long[][] quantidades = new long[TIPOS][1];
+    private volatile boolean carregado;
+    // Não nulo só durante a carga; acessado com a trava de escrita
+    private List<EventoPendente> pendentes;
+
+    private record EventoPendente(Long movimentacaoId, boolean remocao, LocalDate dia, TipoMovimentacao tipo,
+            long deltaContagem, long deltaQuantidade) {
+    }
+
+    // REPEATABLE_READ: a conferência dos eventos guardados enxerga o mesmo retrato da consulta inicial
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void carregar() {
+        trocarPendentes(new ArrayList<>());
+        try {
+            List<MovimentacaoDiaTipoTotal> totais = movimentacaoRepository.totalizarPorDiaETipo();
+
+            long hoje = LocalDate.now().toEpochDay();
+            long primeiroDia = totais.stream().mapToLong(t -> t.dia().toEpochDay()).min().orElse(hoje);
+
+            lock.writeLock().lock();
+            try {
+                redimensionar(Math.min(primeiroDia, hoje), hoje + MARGEM_FUTURO_DIAS, false);
+                for (MovimentacaoDiaTipoTotal total : totais) {
+                    int posicao = (int) (total.dia().toEpochDay() - diaBase) + 1;
+                    adicionar(contagens[total.tipo().ordinal()], posicao, total.total());
+                    adicionar(quantidades[total.tipo().ordinal()], posicao, total.quantidade());
+                }
+                int aplicados = aplicarPendentes();
+                carregado = true;
+                log.info("Índice temporal de movimentações carregado: {} grupos dia/tipo, {} evento(s) da carga",
+                        totais.size(), aplicados);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            trocarPendentes(null);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRegistrar(MovimentacaoRegistradaEvent event) {
+        registrar(new EventoPendente(event.movimentacaoId(), false, event.dataHora().toLocalDate(), event.tipo(),
+                1, event.quantidade()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRemover(MovimentacaoRemovidaEvent event) {
+        registrar(new EventoPendente(event.movimentacaoId(), true, event.dataHora().toLocalDate(), event.tipo(),
+                -1, -event.quantidade()));
+    }
+
+    private void registrar(EventoPendente evento) {
+        lock.writeLock().lock();
+        try {
+            if (pendentes != null) {
+                pendentes.add(evento);
+            } else if (carregado) {
+                aplicar(evento.dia(), evento.tipo(), evento.deltaContagem(), evento.deltaQuantidade());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void trocarPendentes(List<EventoPendente> novos) {
+        lock.writeLock().lock();
+        try {
+            pendentes = novos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A consulta inicial já contou o registro cuja movimentação ela enxergou e já descontou a remoção da que
+    // ela não enxergou mais. Registro e remoção da mesma movimentação durante a carga se anulam.
+    private int aplicarPendentes() {
+        if (pendentes.isEmpty()) {
+            return 0;
+        }
+        Set<Long> ids = pendentes.stream().map(EventoPendente::movimentacaoId).collect(Collectors.toSet());
+        Set<Long> enxergados = new HashSet<>(movimentacaoRepository.buscarIdsExistentes(ids));
+        Set<Long> removidos = pendentes.stream().filter(EventoPendente::remocao)
+                .map(EventoPendente::movimentacaoId).collect(Collectors.toSet());
+
+        int aplicados = 0;
+        for (EventoPendente evento : pendentes) {
+            boolean aplicar = evento.remocao()
+                    ? enxergados.contains(evento.movimentacaoId())
+                    : !enxergados.contains(evento.movimentacaoId()) && !removidos.contains(evento.movimentacaoId());
+            if (aplicar) {
+                aplicar(evento.dia(), evento.tipo(), evento.deltaContagem(), evento.deltaQuantidade());
+                aplicados++;
+            }
+        }
+        return aplicados;
+    }
+
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    public void registrar(LocalDate dia, TipoMovimentacao tipo, long deltaContagem, long deltaQuantidade) {
+        if (!carregado) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            aplicar(dia, tipo, deltaContagem, deltaQuantidade);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Exige a trava de escrita
+    private void aplicar(LocalDate dia, TipoMovimentacao tipo, long deltaContagem, long deltaQuantidade) {
+        long epochDay = dia.toEpochDay();
+        if (epochDay < diaBase || epochDay >= diaBase + capacidade) {
+            redimensionar(Math.min(epochDay, diaBase), Math.max(epochDay, diaBase + capacidade - 1), true);
+        }
+        int posicao = (int) (epochDay - diaBase) + 1;
+        adicionar(contagens[tipo.ordinal()], posicao, deltaContagem);
+        adicionar(quantidades[tipo.ordinal()], posicao, deltaQuantidade);
+    }
+
+    public long contar(LocalDate inicio, LocalDate fim) {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int tipo = 0; tipo < TIPOS; tipo++) {
+                total += somarIntervalo(contagens[tipo], inicio, fim);
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long contar(TipoMovimentacao tipo, LocalDate inicio, LocalDate fim) {
+        lock.readLock().lock();
+        try {
+            return somarIntervalo(contagens[tipo.ordinal()], inicio, fim);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long somarQuantidade(TipoMovimentacao tipo, LocalDate inicio, LocalDate fim) {
+        lock.readLock().lock();
+        try {
+            return somarIntervalo(quantidades[tipo.ordinal()], inicio, fim);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long somarIntervalo(long[] arvore, LocalDate inicio, LocalDate fim) {
+        long de = Math.max(inicio.toEpochDay() - diaBase + 1, 1);
+        long ate = Math.min(fim.toEpochDay() - diaBase + 1, capacidade);
+        if (de > ate) {
+            return 0;
+        }
+        return prefixo(arvore, (int) ate) - prefixo(arvore, (int) de - 1);
+    }
+
+    // Recria as árvores cobrindo [primeiroDia, ultimoDia], preservando os valores atuais se pedido
+    private void redimensionar(long primeiroDia, long ultimoDia, boolean preservar) {
+        int novaCapacidade = Math.max(CAPACIDADE_MINIMA, Integer.highestOneBit((int) (ultimoDia - primeiroDia + 1)) << 1);
+        long[][] novasContagens = new long[TIPOS][novaCapacidade + 1];
+        long[][] novasQuantidades = new long[TIPOS][novaCapacidade + 1];
+
+        if (preservar) {
+            int deslocamento = (int) (diaBase - primeiroDia);
+            for (int tipo = 0; tipo < TIPOS; tipo++) {
+                for (int posicao = 1; posicao <= capacidade; posicao++) {
+                    novasContagens[tipo][posicao + deslocamento] = valorPontual(contagens[tipo], posicao);
+                    novasQuantidades[tipo][posicao + deslocamento] = valorPontual(quantidades[tipo], posicao);
+                }
+                construir(novasContagens[tipo]);
+                construir(novasQuantidades[tipo]);
+            }
+        }
+
+        diaBase = primeiroDia;
+        capacidade = novaCapacidade;
+        contagens = novasContagens;
+        quantidades = novasQuantidades;
+    }
+
+    private static void adicionar(long[] arvore, int posicao, long delta) {
+        for (int i = posicao; i < arvore.length; i += i & -i) {
+            arvore[i] += delta;
+        }
+    }
+
+    private static long prefixo(long[] arvore, int posicao) {
+        long soma = 0;
+        for (int i = posicao; i > 0; i -= i & -i) {
+            soma += arvore[i];
+        }
+        return soma;
+    }
+
+    private static long valorPontual(long[] arvore, int posicao) {
+        return prefixo(arvore, posicao) - prefixo(arvore, posicao - 1);
+    }
+
+    // Converte, em O(n), um vetor de valores pontuais na árvore de Fenwick correspondente
+    private static void construir(long[] valores) {
+        for (int i = 1; i < valores.length; i++) {
+            int pai = i + (i & -i);
+            if (pai < valores.length) {
+                valores[pai] += valores[i];
+            }
+        }
+    }
+}
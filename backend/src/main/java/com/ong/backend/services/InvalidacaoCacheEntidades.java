@@ -0,0 +1,200 @@
+package com.ong.backend.services;
+
+import com.ong.backend.services.MensagemInvalidacaoCache.Tipo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// O cache de segundo nível é de cada nó: o Hibernate mantém o daqui a cada gravação, mas os outros nós
+// só ficam sabendo pelo barramento. As entidades e coleções gravadas numa transação saem numa mensagem só,
+// após o commit, com os IDs e as tabelas tocadas; quem recebe remove só esses IDs e invalida só as
+// consultas em cache que leem essas tabelas
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvalidacaoCacheEntidades implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+        PostCollectionRemoveEventListener {
+
+    private static final Object ALTERACOES_DA_TRANSACAO = new Object();
+
+    // A fábrica de sessões depende deste listener: só é buscada ao receber a primeira mensagem
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final SincronizacaoCaches sincronizacao;
+
+    @PostConstruct
+    public void assinarOutrosNos() {
+        sincronizacao.aoReceber(Tipo.ENTIDADES, this::remover);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        registrar(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        registrar(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        registrar(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        registrar(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        registrar(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        registrar(event);
+    }
+
+    private void registrar(EntityPersister persister, Object id) {
+        if (persister.canWriteToCache()) {
+            registrar(persister.getEntityName(), id, persister.getPropertySpaces());
+        }
+    }
+
+    // A coleção fica no cache pelo ID do dono (ex.: os componentes de um kit)
+    private void registrar(AbstractCollectionEvent event) {
+        CollectionPersister persister = persister(event);
+        if (persister != null && persister.hasCache()) {
+            registrar(persister.getRole(), event.getAffectedOwnerIdOrNull(), persister.getCollectionSpaces());
+        }
+    }
+
+    // Coleção nova só recebe o papel no fim do flush; até lá ele está na entrada do contexto de persistência
+    private static CollectionPersister persister(AbstractCollectionEvent event) {
+        String papel = event.getCollection().getRole();
+        if (papel != null) {
+            return event.getSession().getFactory().getMappingMetamodel().getCollectionDescriptor(papel);
+        }
+        CollectionEntry entrada = event.getSession().getPersistenceContextInternal()
+                .getCollectionEntry(event.getCollection());
+        return entrada != null ? entrada.getLoadedPersister() : null;
+    }
+
+    // Chamado no flush, ainda dentro da transação
+    private void registrar(String nome, Object id, String[] espacos) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Alteracoes alteracoes = new Alteracoes();
+            alteracoes.adicionar(nome, id, espacos);
+            sincronizacao.publicar(alteracoes.mensagem());
+            return;
+        }
+        Alteracoes alteracoes = (Alteracoes) TransactionSynchronizationManager.getResource(ALTERACOES_DA_TRANSACAO);
+        if (alteracoes == null) {
+            Alteracoes novas = new Alteracoes();
+            TransactionSynchronizationManager.bindResource(ALTERACOES_DA_TRANSACAO, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ALTERACOES_DA_TRANSACAO);
+                    if (status == STATUS_COMMITTED) {
+                        sincronizacao.publicar(novas.mensagem());
+                    }
+                }
+            });
+            alteracoes = novas;
+        }
+        alteracoes.adicionar(nome, id, espacos);
+    }
+
+    // Conjunto de IDs vazio (mensagem resumida) remove a entidade ou coleção inteira
+    private void remover(MensagemInvalidacaoCache mensagem) {
+        SessionFactoryImplementor fabrica = entityManagerFactory.getObject().unwrap(SessionFactoryImplementor.class);
+        CacheImplementor cache = fabrica.getCache();
+        mensagem.entidades().forEach((nome, ids) -> {
+            boolean entidade = fabrica.getMappingMetamodel().findEntityDescriptor(nome) != null;
+            if (ids.isEmpty()) {
+                if (entidade) {
+                    cache.evictEntityData(nome);
+                } else {
+                    cache.evictCollectionData(nome);
+                }
+            }
+            for (Long id : ids) {
+                if (entidade) {
+                    cache.evictEntityData(nome, id);
+                } else {
+                    cache.evictCollectionData(nome, id);
+                }
+            }
+        });
+        if (!mensagem.espacos().isEmpty()) {
+            try (StatelessSession sessao = fabrica.openStatelessSession()) {
+                cache.getTimestampsCache().invalidate(mensagem.espacos().toArray(String[]::new),
+                        (SharedSessionContractImplementor) sessao);
+            }
+        }
+        log.debug("Cache de segundo nível atualizado por outro nó: {} (tabelas {})",
+                mensagem.entidades(), mensagem.espacos());
+    }
+
+    // Sem ID utilizável (dono da coleção desconhecido) a entidade ou coleção vai inteira
+    private static final class Alteracoes {
+        private final Map<String, Set<Long>> entidades = new HashMap<>();
+        private final Set<String> inteiras = new HashSet<>();
+        private final Set<String> espacos = new HashSet<>();
+
+        void adicionar(String nome, Object id, String[] tabelas) {
+            if (id instanceof Long valor) {
+                entidades.computeIfAbsent(nome, n -> new HashSet<>()).add(valor);
+            } else {
+                inteiras.add(nome);
+            }
+            espacos.addAll(List.of(tabelas));
+        }
+
+        MensagemInvalidacaoCache mensagem() {
+            inteiras.forEach(nome -> entidades.put(nome, Set.of()));
+            return MensagemInvalidacaoCache.entidades(entidades, espacos);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ong.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.projections.ProdutoNomeCategoria;
+import com.ong.backend.services.MensagemInvalidacaoCache.Tipo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Invalidação das listagens de produtos em cache, chave a chave. "produtos" (só cadastro) muda quando um
+// produto ou categoria muda; "produtos-estoque" (filtros de estoque) também muda a cada alteração de
+// estoque. Em ambos sai só a página cujos filtros de nome e categoria alcançam um produto afetado.
+// Depois de aplicada aqui, a invalidação vai pelo barramento para os outros nós, que aplicam a mesma regra.
+// As de estoque (uma por movimentação) são juntadas e publicadas numa só mensagem a cada janela curta
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvalidacaoCacheProdutos {
+
+    private final CacheManager cacheManager;
+    private final ProdutoRepository produtoRepository;
+    private final SincronizacaoCaches sincronizacao;
+
+    // Lotes e produtos com estoque alterado desde a última publicação; protegidos pelo monitor de lotesPendentes
+    private final Set<Long> lotesPendentes = new HashSet<>();
+    private final Set<Long> produtosPendentes = new HashSet<>();
+
+    @PostConstruct
+    public void assinarOutrosNos() {
+        sincronizacao.aoReceber(Tipo.PRODUTOS, mensagem -> removerProdutos(mensagem.produtos()));
+        sincronizacao.aoReceber(Tipo.ESTOQUE, mensagem -> removerEstoque(mensagem.loteIds(), mensagem.produtoIds()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarProduto(ProdutoAlteradoEvent event) {
+        removerProdutos(event.produtos());
+        sincronizacao.publicar(MensagemInvalidacaoCache.produtos(event.produtos()));
+    }
+
+    // Sem transação própria: após o commit, a leitura reaproveita a conexão da transação que terminou.
+    // Publica mesmo sem páginas em cache aqui (os outros nós podem ter as suas), mas só na próxima janela
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        removerEstoque(event.loteIds(), event.produtoIds());
+        synchronized (lotesPendentes) {
+            lotesPendentes.addAll(event.loteIds());
+            produtosPendentes.addAll(event.produtoIds());
+        }
+    }
+
+    // Uma mensagem por janela, com todos os lotes e produtos alterados nela. Os outros nós ficam com as
+    // páginas de estoque desatualizadas por até uma janela a mais; lista grande demais vira LIMPAR no envio
+    @Scheduled(fixedDelayString = "${cache.barramento.estoque-janela-ms:500}")
+    @PreDestroy
+    public void publicarEstoquePendente() {
+        MensagemInvalidacaoCache mensagem;
+        synchronized (lotesPendentes) {
+            if (lotesPendentes.isEmpty() && produtosPendentes.isEmpty()) {
+                return;
+            }
+            mensagem = MensagemInvalidacaoCache.estoque(Set.copyOf(lotesPendentes), Set.copyOf(produtosPendentes));
+            lotesPendentes.clear();
+            produtosPendentes.clear();
+        }
+        sincronizacao.publicar(mensagem);
+    }
+
+    private void removerProdutos(Set<ProdutoListado> alterados) {
+        Map<Object, Object> cadastro = entradas("produtos");
+        cadastro.remove("todos");
+        cadastro.remove("simples");
+        Predicate<ChaveListagemProdutos> afetada = chave -> alterados.stream()
+                .anyMatch(produto -> chave.alcanca(produto.nome(), produto.categoriaId()));
+        int removidas = remover(cadastro, afetada) + remover(entradas("produtos-estoque"), afetada);
+        log.debug("Produtos alterados {}: {} página(s) removida(s) do cache", alterados, removidas);
+    }
+
+    private void removerEstoque(Set<Long> loteIds, Set<Long> produtoIds) {
+        Map<Object, Object> paginas = entradas("produtos-estoque");
+        if (paginas.isEmpty()) {
+            return;
+        }
+        List<ProdutoNomeCategoria> produtos = new ArrayList<>();
+        if (!produtoIds.isEmpty()) {
+            produtos.addAll(produtoRepository.buscarNomeECategoria(produtoIds));
+        }
+        if (!loteIds.isEmpty()) {
+            produtos.addAll(produtoRepository.buscarNomeECategoriaPorLotes(loteIds));
+        }
+        int removidas = remover(paginas, chave -> produtos.stream()
+                .anyMatch(produto -> chave.alcanca(produto.nome(), produto.categoriaId())));
+        log.debug("Estoque alterado (lotes {}, produtos {}): {} página(s) removida(s) do cache", loteIds,
+                produtoIds, removidas);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> entradas(String cache) {
+        return ((Cache<Object, Object>) cacheManager.getCache(cache).getNativeCache()).asMap();
+    }
+
+    private int remover(Map<Object, Object> entradas, Predicate<ChaveListagemProdutos> afetada) {
+        int antes = entradas.size();
+        entradas.keySet().removeIf(chave -> chave instanceof ChaveListagemProdutos listagem && afetada.test(listagem));
+        return antes - entradas.size();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ong.backend.services;
+
+import com.ong.backend.exceptions.BusinessException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Leitura das planilhas CSV importadas (doações e catálogo): uma linha por registro, separador ';' ou ','
+// escolhido pelo cabeçalho, aspas protegem o separador e "" vira uma aspa
+final class LeitorCsv {
+
+    private LeitorCsv() {
+    }
+
+    static char separador(String cabecalho) {
+        return cabecalho.indexOf(';') >= 0 ? ';' : ',';
+    }
+
+    // Nome normalizado da coluna -> posição; o BOM do Excel é descartado
+    static Map<String, Integer> lerColunas(String cabecalho, char separador, Set<String> obrigatorias) {
+        Map<String, Integer> colunas = new HashMap<>();
+        List<String> nomes = separarCampos(cabecalho.replace("\uFEFF", ""), separador);
+        for (int i = 0; i < nomes.size(); i++) {
+            colunas.putIfAbsent(normalizarColuna(nomes.get(i)), i);
+        }
+        List<String> faltando = obrigatorias.stream().filter(coluna -> !colunas.containsKey(coluna))
+                .sorted().toList();
+        if (!faltando.isEmpty()) {
+            throw new BusinessException("Colunas obrigatórias ausentes no cabeçalho: " + faltando);
+        }
+        return colunas;
+    }
+
+    // "produtoId", "produto_id" e "Produto ID" valem o mesmo
+    static String normalizarColuna(String nome) {
+        return nome.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+    }
+
+    static List<String> separarCampos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    atual.append(c);
+                } else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString().trim());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString().trim());
+        return campos;
+    }
+
+    // Primeira das colunas presente e preenchida; nulo se nenhuma
+    static String campo(List<String> campos, Map<String, Integer> colunas, String... nomes) {
+        for (String nome : nomes) {
+            Integer indice = colunas.get(nome);
+            if (indice != null && indice < campos.size() && !campos.get(indice).isBlank()) {
+                return campos.get(indice);
+            }
+        }
+        return null;
+    }
+
+    static String aspas(String texto) {
+        return "\"" + (texto != null ? texto.replace("\"", "\"\"") : "") + "\"";
+    }
+}
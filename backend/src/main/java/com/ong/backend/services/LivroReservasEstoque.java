@@ -0,0 +1,404 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ReservasFinalizadasEvent;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.StatusReserva;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ReservaRepository;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.repositories.projections.ReservaAtivaTotal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+// Saldo em estoque x reservado por lote e por produto, em memória. Cada chave cai em uma de N faixas
+// de trava, então reservas de chaves diferentes não disputam entre si. O estoque de uma chave é lido
+// do banco na primeira reserva e relido após cada alteração confirmada; o reservado vem das reservas
+// ativas gravadas no banco na subida e é mantido a cada reserva, confirmação, cancelamento ou expiração.
+// Lote e produto são o mesmo estoque: a reserva de um lote conta, rateada pelos itens, contra o saldo
+// de cada produto dele, e só cabe se esses produtos ainda tiverem a parte livre. Operações de lote
+// travam a faixa do lote e as de todos os seus produtos, sempre em ordem crescente de faixa.
+// As baixas de estoque (saídas, perdas, montagem de kit) também passam pelo livro e não tocam no reservado.
+// O livro vale para uma instância só: com réplicas, cada nó teria o próprio reservado e prometeria as
+// mesmas unidades. Rodar mais de um nó exige conferir as reservas no banco.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LivroReservasEstoque {
+
+    private static final int FAIXAS = 64;
+
+    private final LoteRepository loteRepository;
+    private final LoteItemRepository loteItemRepository;
+    private final ReservaRepository reservaRepository;
+
+    private final ReentrantLock[] faixas = criarFaixas();
+    private final Map<Chave, Saldo> saldos = new ConcurrentHashMap<>();
+    // Produto -> lotes conhecidos que o contêm; alterado só com a faixa do produto travada
+    private final Map<Long, Set<Long>> lotesPorProduto = new ConcurrentHashMap<>();
+
+    public record Chave(Long loteId, Long produtoId) {
+
+        public static Chave doLote(Long loteId) {
+            return new Chave(loteId, null);
+        }
+
+        public static Chave doProduto(Long produtoId) {
+            return new Chave(null, produtoId);
+        }
+    }
+
+    // No lote, o reservado inclui o que as reservas de produto já tomaram do saldo dele
+    public record Posicao(int estoque, int reservado) {
+
+        public int disponivel() {
+            return Math.max(estoque - reservado, 0);
+        }
+    }
+
+    // Só alterado com a trava da faixa da chave; estoque nulo = ainda não lido ou invalidado
+    private static final class Saldo {
+        private Integer estoque;
+        private int reservado;
+        // Só lotes: itens que ratearam a reserva entre os produtos; lido sem trava para escolher as faixas
+        private volatile List<LoteItemQuantidade> itens;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void carregar() {
+        List<ReservaAtivaTotal> ativas = reservaRepository.somarAtivas();
+        List<Long> loteIds = ativas.stream().map(ReservaAtivaTotal::loteId).filter(Objects::nonNull).toList();
+        Map<Long, List<LoteItemQuantidade>> itensPorLote = loteIds.isEmpty() ? Map.of()
+                : loteItemRepository.buscarQuantidadesPorLotes(loteIds).stream()
+                        .collect(Collectors.groupingBy(LoteItemQuantidade::loteId));
+        for (ReservaAtivaTotal ativa : ativas) {
+            int reservado = ativa.quantidade().intValue();
+            if (ativa.loteId() != null) {
+                comTravaDoLote(ativa.loteId(), itensPorLote.getOrDefault(ativa.loteId(), List.of()),
+                        lote -> lote.reservado = reservado);
+            } else {
+                comTrava(Chave.doProduto(ativa.produtoId()), saldo -> saldo.reservado = reservado);
+            }
+        }
+        log.info("Livro de reservas carregado: {} lote(s)/produto(s) com reservas ativas", ativas.size());
+    }
+
+    // Separa a quantidade se houver saldo livre; senão lança BusinessException com o disponível
+    public void reservar(Chave chave, int quantidade) {
+        separar(chave, quantidade, LivroReservasEstoque::indisponivel);
+    }
+
+    // Toda baixa de estoque passa por aqui: só cabe no que está livre das reservas, conferido como uma
+    // reserva. A folga é o que a operação já tem separado (a própria reserva, na confirmação, ou entradas
+    // anteriores do mesmo registro) e não é conferida de novo. O restante fica seguro no livro até o fim
+    // da transação, para que nenhuma reserva feita antes do commit conte com ele.
+    public void reservarSaida(Chave chave, int quantidade, int folga) {
+        int conferida = quantidade - folga;
+        if (conferida <= 0) {
+            return;
+        }
+        separar(chave, conferida, disponivel -> new BusinessException(
+                "Quantidade insuficiente em estoque fora das reservas. Disponível: " + Math.max(disponivel + folga, 0)));
+        segurarAteOFim(chave, conferida);
+    }
+
+    // Baixa por produto num lote já travado no banco: o chamador conferiu a quantidade com reservadoNoLote,
+    // e aqui ela só fica segura até o fim da transação
+    public void segurarSaida(Long loteId, int quantidade) {
+        comTravaDoLote(loteId, null, lote -> lote.reservado += quantidade);
+        segurarAteOFim(Chave.doLote(loteId), quantidade);
+    }
+
+    // Reservas e saídas em curso do próprio lote, sem a parte das reservas de produto
+    public int reservadoNoLote(Long loteId) {
+        Chave chave = Chave.doLote(loteId);
+        ReentrantLock faixa = faixas[faixa(chave)];
+        faixa.lock();
+        try {
+            Saldo lote = saldos.get(chave);
+            return lote != null ? lote.reservado : 0;
+        } finally {
+            faixa.unlock();
+        }
+    }
+
+    public void liberar(Chave chave, int quantidade) {
+        if (chave.loteId() != null) {
+            comTravaDoLote(chave.loteId(), null, lote -> lote.reservado = Math.max(lote.reservado - quantidade, 0));
+        } else {
+            comTrava(chave, saldo -> saldo.reservado = Math.max(saldo.reservado - quantidade, 0));
+        }
+    }
+
+    public Posicao consultar(Chave chave) {
+        Posicao[] posicao = new Posicao[1];
+        if (chave.loteId() != null) {
+            comTravaDoLote(chave.loteId(), null, lote -> {
+                int estoque = estoque(chave, lote);
+                posicao[0] = new Posicao(estoque, estoque - disponivelNoLote(chave, lote));
+            });
+        } else {
+            comTrava(chave, saldo -> {
+                int estoque = estoque(chave, saldo);
+                posicao[0] = new Posicao(estoque, (int) (estoque - livreNoProduto(chave.produtoId(), null)));
+            });
+        }
+        return posicao[0];
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoFinalizarReservas(ReservasFinalizadasEvent event) {
+        boolean confirmadas = event.status() == StatusReserva.CONFIRMADA;
+        for (ReservasFinalizadasEvent.ReservaFinalizada reserva : event.reservas()) {
+            devolver(reserva.loteId() != null ? Chave.doLote(reserva.loteId()) : Chave.doProduto(reserva.produtoId()),
+                    reserva.quantidade(), confirmadas);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueAlteradoEvent event) {
+        // Os itens do lote podem ter mudado junto: relidos fora da trava e trocados com ela
+        event.loteIds().stream()
+                .filter(id -> saldos.containsKey(Chave.doLote(id)))
+                .forEach(id -> comTravaDoLote(id, loteItemRepository.buscarQuantidadesPorLotes(List.of(id)),
+                        lote -> lote.estoque = null));
+        event.produtoIds().forEach(id -> invalidar(Chave.doProduto(id)));
+    }
+
+    // Depois de uma baixa, liberar e reler juntos evita um disponível inflado pelo reservado devolvido
+    // sobre o estoque antigo
+    private void devolver(Chave chave, int quantidade, boolean baixou) {
+        if (chave.loteId() != null) {
+            comTravaDoLote(chave.loteId(), null, lote -> {
+                lote.reservado = Math.max(lote.reservado - quantidade, 0);
+                if (baixou) {
+                    lote.estoque = null;
+                    produtos(lote.itens).forEach(produtoId -> invalidarTravado(Chave.doProduto(produtoId)));
+                }
+            });
+        } else {
+            comTrava(chave, saldo -> {
+                saldo.reservado = Math.max(saldo.reservado - quantidade, 0);
+                if (baixou) {
+                    saldo.estoque = null;
+                }
+            });
+        }
+    }
+
+    // Sem transação não há fim a esperar: vale só a conferência, e a releitura fica com o evento de estoque
+    private void segurarAteOFim(Chave chave, int quantidade) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            devolver(chave, quantidade, false);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                devolver(chave, quantidade, status != STATUS_ROLLED_BACK);
+            }
+        });
+    }
+
+    private void separar(Chave chave, int quantidade, LongFunction<BusinessException> erro) {
+        if (chave.loteId() != null) {
+            comTravaDoLote(chave.loteId(), null, lote -> {
+                if (!cabeNoLote(chave, lote, quantidade)) {
+                    throw erro.apply(disponivelNoLote(chave, lote));
+                }
+                lote.reservado += quantidade;
+            });
+        } else {
+            comTrava(chave, saldo -> {
+                long disponivel = livreNoProduto(chave.produtoId(), null);
+                if (quantidade > disponivel) {
+                    throw erro.apply(disponivel);
+                }
+                saldo.reservado += quantidade;
+            });
+        }
+    }
+
+    private void invalidar(Chave chave) {
+        if (saldos.containsKey(chave)) {
+            comTrava(chave, saldo -> saldo.estoque = null);
+        }
+    }
+
+    private void invalidarTravado(Chave chave) {
+        Saldo saldo = saldos.get(chave);
+        if (saldo != null) {
+            saldo.estoque = null;
+        }
+    }
+
+    // Estoque do produto menos as reservas dele e a parte dele nas reservas de cada lote que o contém.
+    // Exige a faixa do produto travada; o lote ignorado é o que está sendo conferido pelo chamador.
+    private long livreNoProduto(Long produtoId, Long loteIgnorado) {
+        Chave chave = Chave.doProduto(produtoId);
+        Saldo saldo = saldos.computeIfAbsent(chave, c -> new Saldo());
+        long livre = estoque(chave, saldo) - saldo.reservado;
+        for (Long loteId : lotesPorProduto.getOrDefault(produtoId, Set.of())) {
+            Saldo lote = saldos.get(Chave.doLote(loteId));
+            if (!loteId.equals(loteIgnorado) && lote != null) {
+                livre -= parcela(lote, lote.reservado, produtoId);
+            }
+        }
+        return livre;
+    }
+
+    private boolean cabeNoLote(Chave chave, Saldo lote, int quantidade) {
+        if (quantidade > estoque(chave, lote) - lote.reservado) {
+            return false;
+        }
+        return DistribuicaoProdutoService.ratear(lote.reservado + quantidade, lote.itens).entrySet().stream()
+                .allMatch(parcela -> parcela.getValue() <= livreNoProduto(parcela.getKey(), chave.loteId()));
+    }
+
+    // Maior reserva que ainda cabe no lote e nos produtos dele (busca binária sobre o rateio)
+    private int disponivelNoLote(Chave chave, Saldo lote) {
+        int minimo = 0;
+        int maximo = Math.max(estoque(chave, lote) - lote.reservado, 0);
+        while (minimo < maximo) {
+            int meio = (minimo + maximo + 1) >>> 1;
+            if (cabeNoLote(chave, lote, meio)) {
+                minimo = meio;
+            } else {
+                maximo = meio - 1;
+            }
+        }
+        return minimo;
+    }
+
+    private static long parcela(Saldo lote, int reservado, Long produtoId) {
+        List<LoteItemQuantidade> itens = lote.itens;
+        return itens == null ? 0 : DistribuicaoProdutoService.ratear(reservado, itens).getOrDefault(produtoId, 0L);
+    }
+
+    private static BusinessException indisponivel(long disponivel) {
+        return new BusinessException("Quantidade indisponível para reserva. Disponível: " + Math.max(disponivel, 0));
+    }
+
+    // A leitura do banco acontece com a faixa travada, mas só na primeira reserva após cada alteração
+    private int estoque(Chave chave, Saldo saldo) {
+        if (saldo.estoque == null) {
+            if (chave.loteId() == null) {
+                saldo.estoque = loteItemRepository.calcularEstoqueTotalPorProduto(chave.produtoId());
+            } else {
+                // Lote inexistente não deixa entrada para trás
+                saldo.estoque = loteRepository.buscarQuantidadeAtual(chave.loteId()).orElseThrow(() -> {
+                    trocarItens(chave.loteId(), saldo, List.of());
+                    saldos.remove(chave);
+                    return new ResourceNotFoundException("Lote", "id", chave.loteId());
+                });
+            }
+        }
+        return saldo.estoque;
+    }
+
+    private void comTrava(Chave chave, Consumer<Saldo> operacao) {
+        ReentrantLock faixa = faixas[faixa(chave)];
+        faixa.lock();
+        try {
+            operacao.accept(saldos.computeIfAbsent(chave, c -> new Saldo()));
+        } finally {
+            faixa.unlock();
+        }
+    }
+
+    // Trava o lote e os produtos dos itens atuais (e dos novos, se vierem). Se os itens mudarem entre a
+    // escolha das faixas e a trava, solta tudo e tenta de novo.
+    private void comTravaDoLote(Long loteId, List<LoteItemQuantidade> novosItens, Consumer<Saldo> operacao) {
+        Chave chave = Chave.doLote(loteId);
+        while (true) {
+            Saldo saldo = saldos.computeIfAbsent(chave, c -> new Saldo());
+            List<LoteItemQuantidade> atuais = saldo.itens;
+            List<LoteItemQuantidade> itens = novosItens != null ? novosItens
+                    : atuais != null ? atuais
+                    : loteItemRepository.buscarQuantidadesPorLotes(List.of(loteId));
+
+            Set<Integer> indices = new TreeSet<>();
+            indices.add(faixa(chave));
+            produtos(atuais).forEach(produtoId -> indices.add(faixa(Chave.doProduto(produtoId))));
+            produtos(itens).forEach(produtoId -> indices.add(faixa(Chave.doProduto(produtoId))));
+            List<ReentrantLock> travadas = new ArrayList<>(indices.size());
+            try {
+                for (int indice : indices) {
+                    faixas[indice].lock();
+                    travadas.add(faixas[indice]);
+                }
+                if (saldos.get(chave) != saldo || saldo.itens != atuais) {
+                    continue;
+                }
+                if (itens != atuais) {
+                    trocarItens(loteId, saldo, itens);
+                }
+                operacao.accept(saldo);
+                return;
+            } finally {
+                for (int i = travadas.size() - 1; i >= 0; i--) {
+                    travadas.get(i).unlock();
+                }
+            }
+        }
+    }
+
+    // Exige as faixas dos produtos antigos e novos travadas
+    private void trocarItens(Long loteId, Saldo lote, List<LoteItemQuantidade> itens) {
+        Set<Long> novos = produtos(itens);
+        for (Long produtoId : produtos(lote.itens)) {
+            if (!novos.contains(produtoId)) {
+                lotesPorProduto.computeIfPresent(produtoId, (id, lotes) -> {
+                    lotes.remove(loteId);
+                    return lotes.isEmpty() ? null : lotes;
+                });
+            }
+        }
+        novos.forEach(produtoId -> lotesPorProduto.computeIfAbsent(produtoId, id -> ConcurrentHashMap.newKeySet())
+                .add(loteId));
+        lote.itens = itens;
+    }
+
+    private static Set<Long> produtos(List<LoteItemQuantidade> itens) {
+        if (itens == null) {
+            return Set.of();
+        }
+        return itens.stream().map(LoteItemQuantidade::produtoId).collect(Collectors.toSet());
+    }
+
+    private int faixa(Chave chave) {
+        return Math.floorMod(chave.hashCode(), FAIXAS);
+    }
+
+    private static ReentrantLock[] criarFaixas() {
+        ReentrantLock[] faixas = new ReentrantLock[FAIXAS];
+        for (int i = 0; i < FAIXAS; i++) {
+            faixas[i] = new ReentrantLock();
+        }
+        return faixas;
+    }
+}
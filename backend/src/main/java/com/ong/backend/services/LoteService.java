@@ -1,9 +1,12 @@
 package com.ong.backend.services;
 
+import com.ong.backend.dto.lote.LoteItemRequestDTO;
 import com.ong.backend.dto.lote.LoteRequestDTO;
 import com.ong.backend.dto.lote.LoteResponseDTO;
 import com.ong.backend.dto.lote.LoteSimplesDTO;
 import com.ong.backend.dto.lote.LoteDetalhesDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
 import com.ong.backend.exceptions.BusinessException;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Lote;
@@ -15,29 +18,53 @@ import com.ong.backend.models.TipoMovimentacao;
 import com.ong.backend.repositories.LoteRepository;
 import com.ong.backend.repositories.LoteItemRepository;
 import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.LoteItemAlocavel;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
 import com.ong.backend.specifications.LoteSpecs;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LoteService {
 
+    private static final int RODADAS_SEM_ESPERA = 5;
+
     private final LoteRepository loteRepository;
     private final LoteItemRepository loteItemRepository;
     private final MovimentacaoRepository movimentacaoRepository;
     private final ProdutoService produtoService;
     private final UsuarioService usuarioService;
+    private final EstoqueDiarioService estoqueDiarioService;
+    private final IndiceAlocacaoEstoque indiceAlocacao;
+    private final LivroReservasEstoque livroReservas;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${estoque.alocacao.pular-lotes-travados:false}")
+    private boolean pularLotesTravados;
 
     @Transactional(readOnly = true)
     public List<LoteResponseDTO> listarTodos() {
@@ -154,27 +181,94 @@ public class LoteService {
         lote = loteRepository.save(lote);
 
         Lote finalLote = lote;
-        dto.itens().forEach(itemDto -> {
-            Produto produto = produtoService.buscarEntidadePorId(itemDto.produtoId());
-
-            LoteItem item = new LoteItem();
-            item.setLote(finalLote);
-            item.setProduto(produto);
-            item.setQuantidade(itemDto.quantidade());
-            item.setDataValidade(itemDto.dataValidade());
-            item.setTamanho(itemDto.tamanho());
-            item.setVoltagem(itemDto.voltagem());
-
-            finalLote.getItens().add(item);
-        });
+        dto.itens().forEach(itemDto -> finalLote.getItens()
+                .add(novoItem(finalLote, produtoService.buscarEntidadePorId(itemDto.produtoId()), itemDto)));
 
         lote = loteRepository.save(lote);
 
         criarMovimentacaoEntrada(lote, emailUsuarioAutenticado);
+        registrarEstoqueDiario(lote, 1);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(lote));
 
         return new LoteResponseDTO(lote);
     }
 
+    // Vários lotes numa transação (entrada de doação): produtos e usuário resolvidos uma vez só, e lotes,
+    // itens e movimentações de entrada gravados com saveAll, em lotes JDBC. Cada lote fica igual ao do criar.
+    @Transactional
+    public List<LoteResponseDTO> criarEmLote(List<LoteRequestDTO> dtos, String emailUsuarioAutenticado) {
+        Set<Long> produtoIds = new HashSet<>();
+        for (LoteRequestDTO dto : dtos) {
+            if (dto.itens().stream().mapToInt(item -> item.quantidade()).sum() <= 0) {
+                throw new BusinessException("Quantidade total deve ser maior que zero");
+            }
+            dto.itens().forEach(item -> produtoIds.add(item.produtoId()));
+        }
+
+        Map<Long, Produto> produtos = produtoService.buscarEntidadesPorIds(produtoIds);
+        for (Long produtoId : produtoIds) {
+            if (!produtos.containsKey(produtoId)) {
+                throw new ResourceNotFoundException("Produto", "id", produtoId);
+            }
+        }
+        Usuario usuario = usuarioService.buscarEntidadePorEmail(emailUsuarioAutenticado);
+
+        List<Lote> lotes = new ArrayList<>(dtos.size());
+        List<Movimentacao> entradas = new ArrayList<>(dtos.size());
+        Map<Long, Integer> variacaoPorProduto = new HashMap<>();
+        int total = 0;
+        LocalDateTime dataHora = LocalDateTime.now();
+        for (LoteRequestDTO dto : dtos) {
+            int quantidadeTotal = dto.itens().stream().mapToInt(item -> item.quantidade()).sum();
+            Lote lote = new Lote();
+            lote.setQuantidadeInicial(quantidadeTotal);
+            lote.setQuantidadeAtual(quantidadeTotal);
+            lote.setDataEntrada(dto.dataEntrada());
+            lote.setUnidadeMedida(dto.unidadeMedida());
+            lote.setObservacoes(dto.observacoes());
+            dto.itens().forEach(itemDto -> {
+                lote.getItens().add(novoItem(lote, produtos.get(itemDto.produtoId()), itemDto));
+                variacaoPorProduto.merge(itemDto.produtoId(), itemDto.quantidade(), Integer::sum);
+            });
+            lotes.add(lote);
+            total += quantidadeTotal;
+
+            Movimentacao movimentacao = new Movimentacao();
+            movimentacao.setLote(lote);
+            movimentacao.setUsuario(usuario);
+            movimentacao.setTipo(TipoMovimentacao.ENTRADA);
+            movimentacao.setQuantidade(quantidadeTotal);
+            movimentacao.setDataHora(dataHora);
+            entradas.add(movimentacao);
+        }
+
+        // Itens vão junto com o lote (cascade)
+        loteRepository.saveAll(lotes);
+        movimentacaoRepository.saveAll(entradas);
+
+        // Estoque diário somado por produto e um único evento para todos os lotes
+        estoqueDiarioService.registrarVariacao(total);
+        variacaoPorProduto.forEach(estoqueDiarioService::registrarVariacaoProduto);
+        entradas.forEach(movimentacao -> eventPublisher.publishEvent(new MovimentacaoRegistradaEvent(movimentacao)));
+        Set<Long> loteIds = new HashSet<>();
+        lotes.forEach(lote -> loteIds.add(lote.getId()));
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(loteIds, produtoIds));
+
+        log.info("{} lote(s) criado(s) em lote com {} produto(s) distinto(s)", lotes.size(), produtoIds.size());
+        return lotes.stream().map(LoteResponseDTO::new).toList();
+    }
+
+    private LoteItem novoItem(Lote lote, Produto produto, LoteItemRequestDTO itemDto) {
+        LoteItem item = new LoteItem();
+        item.setLote(lote);
+        item.setProduto(produto);
+        item.setQuantidade(itemDto.quantidade());
+        item.setDataValidade(itemDto.dataValidade());
+        item.setTamanho(itemDto.tamanho());
+        item.setVoltagem(itemDto.voltagem());
+        return item;
+    }
+
     private void criarMovimentacaoEntrada(Lote lote, String emailUsuarioAutenticado) {
         Usuario usuario = usuarioService.buscarEntidadePorEmail(emailUsuarioAutenticado);
 
@@ -186,6 +280,7 @@ public class LoteService {
         movimentacao.setDataHora(java.time.LocalDateTime.now());
 
         movimentacaoRepository.save(movimentacao);
+        eventPublisher.publishEvent(new MovimentacaoRegistradaEvent(movimentacao));
     }
 
     @Transactional
@@ -201,6 +296,9 @@ public class LoteService {
                 .mapToInt(item -> item.quantidade())
                 .sum();
 
+        registrarEstoqueDiario(lote, -1);
+        Set<Long> produtosAnteriores = new EstoqueAlteradoEvent(lote).produtoIds();
+
         lote.setQuantidadeInicial(quantidadeTotal);
         lote.setQuantidadeAtual(quantidadeTotal);
         lote.setDataEntrada(dto.dataEntrada());
@@ -225,6 +323,12 @@ public class LoteService {
         });
 
         lote = loteRepository.save(lote);
+        registrarEstoqueDiario(lote, 1);
+
+        // Produtos que saíram do lote também precisam ser reavaliados
+        Set<Long> produtosAfetados = new HashSet<>(produtosAnteriores);
+        produtosAfetados.addAll(new EstoqueAlteradoEvent(lote).produtoIds());
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(lote.getId()), produtosAfetados));
         return new LoteResponseDTO(lote);
     }
 
@@ -238,25 +342,67 @@ public class LoteService {
         }
 
         loteRepository.delete(lote);
+        registrarEstoqueDiario(lote, -1);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(lote));
+    }
+
+    // Só é aplicado após o commit: na edição, a linha do dia que faltar já é aberta com os itens novos
+    private void registrarEstoqueDiario(Lote lote, int sinal) {
+        estoqueDiarioService.registrarVariacao(sinal * lote.getQuantidadeAtual());
+        lote.getItens().forEach(item -> estoqueDiarioService
+                .registrarVariacaoProduto(item.getProduto().getId(), sinal * item.getQuantidade()));
     }
 
+    // Devolve o novo saldo, lido no próprio UPDATE; um lote já carregado na transação também passa a vê-lo
     @Transactional
-    public void atualizarQuantidade(Long loteId, int delta) {
-        Lote lote = loteRepository.findByIdWithLock(loteId)
-                .orElseThrow(() -> new ResourceNotFoundException("Lote", "id", loteId));
+    public int atualizarQuantidade(Long loteId, int delta) {
+        int novaQuantidade = loteRepository.aplicarDelta(loteId, delta).orElseThrow(() -> {
+            // Nenhuma linha afetada: o lote não existe ou o saldo ficaria negativo
+            int disponivel = loteRepository.buscarQuantidadeAtual(loteId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Lote", "id", loteId));
+            log.warn("Tentativa de atualizar quantidade do lote {} para valor negativo. Disponível: {}, Delta: {}",
+                    loteId, disponivel, delta);
+            return new BusinessException("Quantidade insuficiente em estoque. Disponível: " + disponivel);
+        });
 
-        int quantidadeAnterior = lote.getQuantidadeAtual();
-        int novaQuantidade = quantidadeAnterior + delta;
+        estoqueDiarioService.registrarVariacao(delta);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(loteId), Set.of()));
+        log.debug("Quantidade do lote {} atualizada: {} -> {}", loteId, novaQuantidade - delta, novaQuantidade);
+        return novaQuantidade;
+    }
 
-        if (novaQuantidade < 0) {
-            log.warn("Tentativa de atualizar quantidade do lote {} para valor negativo. Disponível: {}, Delta: {}",
-                    loteId, quantidadeAnterior, delta);
-            throw new BusinessException("Quantidade insuficiente em estoque. Disponível: " + quantidadeAnterior);
-        }
+    // Trava de uma vez, em ordem de ID, os lotes que vão receber vários deltas na mesma transação.
+    // Lotes inexistentes não aparecem no mapa.
+    @Transactional
+    public Map<Long, Lote> travarLotes(Collection<Long> loteIds) {
+        Map<Long, Lote> lotes = new LinkedHashMap<>();
+        loteRepository.travarPorIds(loteIds).forEach(lote -> lotes.put(lote.getId(), lote));
+        return lotes;
+    }
 
-        lote.setQuantidadeAtual(novaQuantidade);
-        loteRepository.save(lote);
-        log.debug("Quantidade do lote {} atualizada: {} -> {}", loteId, quantidadeAnterior, novaQuantidade);
+    // Aplica o saldo líquido de cada lote já travado por travarLotes: um UPDATE por lote, em lote no flush
+    @Transactional
+    public void aplicarDeltas(Map<Long, Lote> lotesTravados, Map<Long, Integer> deltasPorLote) {
+        Set<Long> alterados = new HashSet<>();
+        int total = 0;
+        for (Map.Entry<Long, Integer> delta : deltasPorLote.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            Lote lote = lotesTravados.get(delta.getKey());
+            int novaQuantidade = lote.getQuantidadeAtual() + delta.getValue();
+            if (novaQuantidade < 0) {
+                throw new BusinessException("Quantidade insuficiente em estoque. Disponível: " + lote.getQuantidadeAtual());
+            }
+            lote.setQuantidadeAtual(novaQuantidade);
+            alterados.add(lote.getId());
+            total += delta.getValue();
+        }
+        if (alterados.isEmpty()) {
+            return;
+        }
+        estoqueDiarioService.registrarVariacao(total);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(alterados, Set.of()));
     }
 
     @Transactional(readOnly = true)
@@ -265,55 +411,216 @@ public class LoteService {
                 .orElseThrow(() -> new ResourceNotFoundException("Lote", "id", id));
     }
 
+    // Baixa a quantidade nos lotes do produto pela ordem FEFO/FIFO e devolve o consumido por lote
     @Transactional
-    public void consumirEstoquePorProduto(Long produtoId, int quantidadeNecessaria) {
-        log.info("Consumindo estoque do produto {}: quantidade necessária = {}", produtoId, quantidadeNecessaria);
+    public Map<Long, Integer> consumirEstoquePorProduto(Long produtoId, int quantidadeNecessaria) {
+        return consumirEstoquePorProduto(produtoId, quantidadeNecessaria, 0);
+    }
 
-        List<Lote> lotesComProduto = loteRepository.findAll().stream()
-                .filter(l -> l.getItens().stream()
-                        .anyMatch(i -> i.getProduto().getId().equals(produtoId) && i.getQuantidade() > 0))
-                .sorted((l1, l2) -> l1.getDataEntrada().compareTo(l2.getDataEntrada()))
-                .toList();
+    // Reservado: o que uma reserva do produto já separou no livro para esta saída
+    @Transactional
+    public Map<Long, Integer> consumirEstoquePorProduto(Long produtoId, int quantidadeNecessaria, int reservado) {
+        return consumirEstoquePorProdutos(Map.of(produtoId, quantidadeNecessaria), Map.of(produtoId, reservado))
+                .getOrDefault(produtoId, Map.of());
+    }
 
-        int qtdRestanteParaBaixar = quantidadeNecessaria;
+    // Consome vários produtos de uma vez (componentes de um kit): planeja tudo antes, trava todos os
+    // lotes envolvidos em uma única consulta ordenada por ID e deixa as baixas para o flush em lote
+    @Transactional
+    public Map<Long, Map<Long, Integer>> consumirEstoquePorProdutos(Map<Long, Integer> necessidades) {
+        return consumirEstoquePorProdutos(necessidades, Map.of());
+    }
 
-        for (Lote lote : lotesComProduto) {
-            if (qtdRestanteParaBaixar <= 0)
-                break;
+    // O livre de cada produto é conferido no livro de reservas antes de planejar; nos lotes, as unidades
+    // reservadas no próprio lote ficam de fora da baixa
+    private Map<Long, Map<Long, Integer>> consumirEstoquePorProdutos(Map<Long, Integer> necessidades,
+            Map<Long, Integer> reservados) {
+        log.info("Consumindo estoque de {} produto(s): {}", necessidades.size(), necessidades);
+        necessidades.forEach((produtoId, quantidade) -> livroReservas.reservarSaida(Chave.doProduto(produtoId),
+                quantidade, reservados.getOrDefault(produtoId, 0)));
+
+        boolean usouIndice = indiceAlocacao.isCarregado();
+        Alocacao alocacao = new Alocacao(necessidades);
+
+        // Com SKIP LOCKED, lotes travados por outra transação são pulados e o plano segue para os próximos
+        if (pularLotesTravados) {
+            Set<Long> pulados = new HashSet<>();
+            for (int rodada = 0; rodada < RODADAS_SEM_ESPERA && !alocacao.faltando.isEmpty(); rodada++) {
+                Map<Long, List<LoteItemAlocavel>> planos = planejar(alocacao, pulados, usouIndice);
+                Set<Long> novos = lotesDosPlanos(planos, alocacao.lotes.keySet());
+                if (novos.isEmpty()) {
+                    break;
+                }
+                loteRepository.travarDisponiveisComItens(novos).forEach(lote -> alocacao.lotes.put(lote.getId(), lote));
+                novos.stream().filter(id -> !alocacao.lotes.containsKey(id)).forEach(pulados::add);
+                aplicarPlanos(planos, alocacao);
+            }
+        }
 
-            Lote loteComLock = loteRepository.findByIdWithLock(lote.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Lote", "id", lote.getId()));
+        // Modo padrão, ou saldo restante só em lotes travados por outras transações: aí espera por eles
+        if (!alocacao.faltando.isEmpty()) {
+            Map<Long, List<LoteItemAlocavel>> planos = planejar(alocacao, Set.of(), usouIndice);
+            travarLotes(planos, alocacao);
+            aplicarPlanos(planos, alocacao);
+        }
 
-            LoteItem item = loteComLock.getItens().stream()
-                    .filter(i -> i.getProduto().getId().equals(produtoId))
-                    .findFirst()
-                    .orElseThrow();
-
-            int disponivelNoLote = item.getQuantidade();
-
-            if (disponivelNoLote >= qtdRestanteParaBaixar) {
-                item.setQuantidade(disponivelNoLote - qtdRestanteParaBaixar);
-                loteComLock.setQuantidadeAtual(loteComLock.getQuantidadeAtual() - qtdRestanteParaBaixar);
-                qtdRestanteParaBaixar = 0;
-            } else {
-                item.setQuantidade(0);
-                loteComLock.setQuantidadeAtual(loteComLock.getQuantidadeAtual() - disponivelNoLote);
-                qtdRestanteParaBaixar -= disponivelNoLote;
+        // Índice defasado, ou lote esvaziado por outra transação enquanto esperávamos a trava: completa
+        // pela ordem consultada no banco, sem os lotes já usados, até cobrir ou acabar o saldo
+        while (!alocacao.faltando.isEmpty()) {
+            Map<Long, List<LoteItemAlocavel>> complemento = planejar(alocacao, Set.of(), false);
+            if (complemento.values().stream().allMatch(List::isEmpty)) {
+                break;
             }
+            travarLotes(complemento, alocacao);
+            aplicarPlanos(complemento, alocacao);
+            // Lote planejado que sumiu antes da trava também sai dos próximos planos, para a repetição terminar
+            complemento.forEach((produtoId, plano) -> plano.forEach(item -> alocacao.lotesUsadosPorProduto
+                    .computeIfAbsent(produtoId, id -> new HashSet<>()).add(item.loteId())));
+        }
 
-            loteItemRepository.save(item);
-            loteRepository.save(loteComLock);
-            log.debug("Consumido {} do lote {} para produto {}", disponivelNoLote - item.getQuantidade(),
-                    loteComLock.getId(), produtoId);
+        // Faltou só porque um lote fora de ordem estava com outra transação: falha a operação inteira, que
+        // pode ser repetida do zero, em vez de esperar por ele e arriscar um deadlock
+        if (!alocacao.faltando.isEmpty() && !alocacao.adiados.isEmpty()) {
+            log.warn("Lotes {} em uso por outra transação e fora da ordem de trava; operação deve ser repetida",
+                    alocacao.adiados);
+            throw new PessimisticLockingFailureException(
+                    "Lotes necessários estão em uso por outra operação. Tente novamente.");
         }
 
-        if (qtdRestanteParaBaixar > 0) {
+        if (!alocacao.faltando.isEmpty()) {
+            Map.Entry<Long, Integer> falta = alocacao.faltando.entrySet().iterator().next();
             log.error("Estoque insuficiente para produto {}. Necessário: {}, Faltam: {}",
-                    produtoId, quantidadeNecessaria, qtdRestanteParaBaixar);
+                    falta.getKey(), necessidades.get(falta.getKey()), falta.getValue());
             throw new BusinessException(
-                    "Estoque insuficiente para o produto ID: " + produtoId + ". Faltam: " + qtdRestanteParaBaixar);
+                    "Estoque insuficiente para o produto ID: " + falta.getKey() + ". Faltam: " + falta.getValue());
         }
 
-        log.info("Estoque consumido com sucesso para produto {}", produtoId);
+        Set<Long> lotesAlterados = new HashSet<>();
+        int totalConsumido = 0;
+        for (Map.Entry<Long, Map<Long, Integer>> porProduto : alocacao.consumido.entrySet()) {
+            int doProduto = porProduto.getValue().values().stream().mapToInt(Integer::intValue).sum();
+            estoqueDiarioService.registrarVariacaoProduto(porProduto.getKey(), -doProduto);
+            lotesAlterados.addAll(porProduto.getValue().keySet());
+            totalConsumido += doProduto;
+        }
+        estoqueDiarioService.registrarVariacao(-totalConsumido);
+
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(lotesAlterados, Set.copyOf(necessidades.keySet())));
+        log.info("Estoque consumido com sucesso em {} lote(s)", lotesAlterados.size());
+        return alocacao.consumido;
+    }
+
+    // Estado de uma alocação entre as rodadas de planejamento e trava
+    private static class Alocacao {
+        private final Map<Long, Integer> faltando;
+        private final Map<Long, Lote> lotes = new HashMap<>();
+        private final Map<Long, Set<Long>> lotesUsadosPorProduto = new HashMap<>();
+        private final Map<Long, Map<Long, Integer>> consumido = new LinkedHashMap<>();
+        // Baixas desta alocação já seguras no livro, por lote
+        private final Map<Long, Integer> seguradoPorLote = new HashMap<>();
+        private final Set<Long> adiados = new TreeSet<>();
+
+        Alocacao(Map<Long, Integer> necessidades) {
+            this.faltando = new LinkedHashMap<>(necessidades);
+        }
+
+        Set<Long> lotesUsados(Long produtoId) {
+            return lotesUsadosPorProduto.getOrDefault(produtoId, Set.of());
+        }
+    }
+
+    // Planeja só o que falta; lotes já aproveitados para o produto e lotes pulados ficam de fora
+    private Map<Long, List<LoteItemAlocavel>> planejar(Alocacao alocacao, Set<Long> pulados, boolean usarIndice) {
+        Map<Long, List<LoteItemAlocavel>> planos = new HashMap<>();
+        Map<Long, List<LoteItemAlocavel>> doBanco = new HashMap<>();
+        if (!usarIndice) {
+            loteItemRepository.buscarAlocaveisPorProdutos(alocacao.faltando.keySet())
+                    .forEach(item -> doBanco.computeIfAbsent(item.produtoId(), id -> new ArrayList<>()).add(item));
+        }
+
+        alocacao.faltando.forEach((produtoId, quantidade) -> {
+            Set<Long> ignorados = new HashSet<>(pulados);
+            ignorados.addAll(alocacao.lotesUsados(produtoId));
+            planos.put(produtoId, usarIndice
+                    ? indiceAlocacao.planejar(produtoId, quantidade, ignorados)
+                    : IndiceAlocacaoEstoque.cobrir(doBanco.getOrDefault(produtoId, List.of()), quantidade, ignorados));
+        });
+        return planos;
+    }
+
+    private static Set<Long> lotesDosPlanos(Map<Long, List<LoteItemAlocavel>> planos, Set<Long> jaTravados) {
+        Set<Long> loteIds = new TreeSet<>();
+        planos.values().forEach(plano -> plano.forEach(item -> loteIds.add(item.loteId())));
+        loteIds.removeAll(jaTravados);
+        return loteIds;
+    }
+
+    // Só espera por lotes acima do maior já travado, mantendo a ordem por ID de todas as transações. Os de
+    // ID menor (índice defasado, replanejamento) vêm com SKIP LOCKED: esperar por eles poderia fechar um
+    // deadlock com quem já os travou e espera pelos nossos. Os que não vierem ficam de fora dos próximos planos
+    private void travarLotes(Map<Long, List<LoteItemAlocavel>> planos, Alocacao alocacao) {
+        TreeSet<Long> loteIds = new TreeSet<>(lotesDosPlanos(planos, alocacao.lotes.keySet()));
+        if (loteIds.isEmpty()) {
+            return;
+        }
+        Set<Long> foraDeOrdem = alocacao.lotes.isEmpty()
+                ? Set.of()
+                : new TreeSet<>(loteIds.headSet(Collections.max(alocacao.lotes.keySet())));
+        if (!foraDeOrdem.isEmpty()) {
+            loteRepository.travarDisponiveisComItens(foraDeOrdem)
+                    .forEach(lote -> alocacao.lotes.put(lote.getId(), lote));
+            foraDeOrdem.stream().filter(id -> !alocacao.lotes.containsKey(id)).forEach(alocacao.adiados::add);
+            loteIds.removeAll(foraDeOrdem);
+        }
+        if (!loteIds.isEmpty()) {
+            loteRepository.travarComItens(loteIds).forEach(lote -> alocacao.lotes.put(lote.getId(), lote));
+        }
+    }
+
+    private void aplicarPlanos(Map<Long, List<LoteItemAlocavel>> planos, Alocacao alocacao) {
+        alocacao.faltando.replaceAll((produtoId, restante) -> aplicarPlano(produtoId,
+                planos.getOrDefault(produtoId, List.of()), restante, alocacao));
+        alocacao.faltando.values().removeIf(restante -> restante == 0);
+    }
+
+    // Aplica as baixas nas entidades travadas, conferindo de novo o saldo; devolve o que faltou.
+    // Lotes e itens já estão gerenciados: as alterações saem como UPDATEs em lote no flush.
+    private int aplicarPlano(Long produtoId, List<LoteItemAlocavel> plano, int quantidade, Alocacao alocacao) {
+        int qtdRestanteParaBaixar = quantidade;
+
+        for (LoteItemAlocavel candidato : plano) {
+            if (qtdRestanteParaBaixar <= 0)
+                break;
+
+            Lote lote = alocacao.lotes.get(candidato.loteId());
+            if (lote == null)
+                continue;
+            alocacao.lotesUsadosPorProduto.computeIfAbsent(produtoId, id -> new HashSet<>()).add(lote.getId());
+
+            LoteItem item = lote.getItens().stream()
+                    .filter(i -> i.getId().equals(candidato.loteItemId()))
+                    .findFirst()
+                    .orElse(null);
+            if (item == null)
+                continue;
+
+            // O reservado no lote (sem as baixas desta alocação, já descontadas do saldo) não sai por produto
+            int livreNoLote = lote.getQuantidadeAtual() - livroReservas.reservadoNoLote(lote.getId())
+                    + alocacao.seguradoPorLote.getOrDefault(lote.getId(), 0);
+            int baixa = Math.min(qtdRestanteParaBaixar, Math.min(item.getQuantidade(), livreNoLote));
+            if (baixa <= 0)
+                continue;
+            livroReservas.segurarSaida(lote.getId(), baixa);
+            alocacao.seguradoPorLote.merge(lote.getId(), baixa, Integer::sum);
+
+            item.setQuantidade(item.getQuantidade() - baixa);
+            lote.setQuantidadeAtual(lote.getQuantidadeAtual() - baixa);
+            qtdRestanteParaBaixar -= baixa;
+
+            alocacao.consumido.computeIfAbsent(produtoId, id -> new LinkedHashMap<>())
+                    .merge(lote.getId(), baixa, Integer::sum);
+            log.debug("Consumido {} do lote {} para produto {}", baixa, lote.getId(), produtoId);
+        }
+        return qtdRestanteParaBaixar;
     }
 }
@@ -0,0 +1,66 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// O que um nó avisa aos outros pelo barramento. LIMPAR esvazia caches inteiros (vem de @CacheEvict);
+// PRODUTOS e ESTOQUE repetem nos outros nós a invalidação chave a chave das listagens de produtos;
+// ENTIDADES remove do cache de segundo nível do Hibernate as entidades gravadas (entidades: nome da entidade,
+// ou papel da coleção, para os IDs) e invalida as consultas em cache que leem as tabelas de espacos.
+// origem + versao identificam a mensagem: cada nó numera as suas em ordem crescente
+public record MensagemInvalidacaoCache(
+    String origem,
+    long versao,
+    Tipo tipo,
+    Set<String> caches,
+    Set<ProdutoListado> produtos,
+    Set<Long> loteIds,
+    Set<Long> produtoIds,
+    Map<String, Set<Long>> entidades,
+    Set<String> espacos
+) {
+    public enum Tipo {
+        LIMPAR, PRODUTOS, ESTOQUE, ENTIDADES
+    }
+
+    public static MensagemInvalidacaoCache limpar(String cache) {
+        return new MensagemInvalidacaoCache(null, 0, Tipo.LIMPAR, Set.of(cache), null, null, null, null, null);
+    }
+
+    public static MensagemInvalidacaoCache produtos(Set<ProdutoListado> produtos) {
+        return new MensagemInvalidacaoCache(null, 0, Tipo.PRODUTOS, null, produtos, null, null, null, null);
+    }
+
+    public static MensagemInvalidacaoCache estoque(Set<Long> loteIds, Set<Long> produtoIds) {
+        return new MensagemInvalidacaoCache(null, 0, Tipo.ESTOQUE, null, null, loteIds, produtoIds, null, null);
+    }
+
+    public static MensagemInvalidacaoCache entidades(Map<String, Set<Long>> entidades, Set<String> espacos) {
+        return new MensagemInvalidacaoCache(null, 0, Tipo.ENTIDADES, null, null, null, null, entidades, espacos);
+    }
+
+    public MensagemInvalidacaoCache comOrigem(String origem, long versao) {
+        return new MensagemInvalidacaoCache(origem, versao, tipo, caches, produtos, loteIds, produtoIds, entidades,
+                espacos);
+    }
+
+    // Mesma origem e versão, mas limpando por inteiro os caches que a mensagem afetaria: usada quando a
+    // lista de produtos, lotes ou IDs não cabe no transporte (o NOTIFY aceita menos de 8000 bytes).
+    // Em ENTIDADES, conjunto de IDs vazio quer dizer todas as entidades daquele nome
+    public MensagemInvalidacaoCache resumida() {
+        if (tipo == Tipo.ENTIDADES) {
+            Map<String, Set<Long>> todas = new HashMap<>();
+            entidades.keySet().forEach(nome -> todas.put(nome, Set.of()));
+            return new MensagemInvalidacaoCache(origem, versao, tipo, null, null, null, null, todas, espacos);
+        }
+        Set<String> afetados = switch (tipo) {
+            case LIMPAR, ENTIDADES -> caches;
+            case PRODUTOS -> Set.of("produtos", "produtos-estoque");
+            case ESTOQUE -> Set.of("produtos-estoque");
+        };
+        return new MensagemInvalidacaoCache(origem, versao, Tipo.LIMPAR, afetados, null, null, null, null, null);
+    }
+}
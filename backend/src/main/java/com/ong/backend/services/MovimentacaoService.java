@@ -5,8 +5,13 @@ import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
 import com.ong.backend.dto.movimentacao.MovimentacaoSimplesDTO;
 import com.ong.backend.dto.movimentacao.MovimentacaoDetalhesDTO;
 import com.ong.backend.dto.movimentacao.MontagemKitRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO.ResultadoItem;
+import com.ong.backend.dto.movimentacao.SaidaProdutoRequestDTO;
 import com.ong.backend.dto.lote.LoteItemRequestDTO;
 import com.ong.backend.dto.lote.LoteRequestDTO;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
 import com.ong.backend.exceptions.BusinessException;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.ComposicaoProduto;
@@ -17,11 +22,13 @@ import com.ong.backend.models.TipoMovimentacao;
 import com.ong.backend.models.Usuario;
 import com.ong.backend.models.UnidadeMedida;
 import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
 import com.ong.backend.specifications.MovimentacaoSpecs;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -29,8 +36,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
@@ -41,6 +57,9 @@ public class MovimentacaoService {
     private final LoteService loteService;
     private final UsuarioService usuarioService;
     private final ProdutoService produtoService;
+    private final DistribuicaoProdutoService distribuicaoProdutoService;
+    private final LivroReservasEstoque livroReservas;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public List<MovimentacaoResponseDTO> listarTodas() {
@@ -129,11 +148,15 @@ public class MovimentacaoService {
 
     @Transactional
     public MovimentacaoResponseDTO criar(MovimentacaoRequestDTO dto, String emailUsuarioAutenticado) {
+        return criar(dto, emailUsuarioAutenticado, 0);
+    }
+
+    // Na confirmação de uma reserva, a quantidade já separada no livro não é conferida de novo
+    @Transactional
+    public MovimentacaoResponseDTO criar(MovimentacaoRequestDTO dto, String emailUsuarioAutenticado, int reservado) {
         log.info("Criando movimentação: tipo={}, loteId={}, quantidade={}",
                 dto.tipo(), dto.loteId(), dto.quantidade());
 
-        Lote lote = loteService.buscarEntidadePorId(dto.loteId());
-
         Usuario usuario;
         if (dto.usuarioId() != null) {
             usuario = usuarioService.buscarEntidadePorId(dto.usuarioId());
@@ -143,6 +166,11 @@ public class MovimentacaoService {
 
         int delta = calcularDelta(dto.tipo(), dto.quantidade());
 
+        // O UPDATE já devolve o novo saldo para o lote carregado, sem reler a linha
+        Lote lote = loteService.buscarEntidadePorId(dto.loteId());
+        if (delta < 0) {
+            livroReservas.reservarSaida(Chave.doLote(dto.loteId()), -delta, reservado);
+        }
         loteService.atualizarQuantidade(dto.loteId(), delta);
 
         Movimentacao movimentacao = new Movimentacao();
@@ -151,18 +179,210 @@ public class MovimentacaoService {
         movimentacao.setTipo(dto.tipo());
         movimentacao.setQuantidade(dto.quantidade());
         movimentacao.setDataHora(LocalDateTime.now());
+        distribuicaoProdutoService.ratearSaidas(List.of(movimentacao));
 
         movimentacao = movimentacaoRepository.save(movimentacao);
+        eventPublisher.publishEvent(new MovimentacaoRegistradaEvent(movimentacao));
         log.info("Movimentação criada com sucesso. ID: {}", movimentacao.getId());
         return new MovimentacaoResponseDTO(movimentacao);
     }
 
+    // Saída de N unidades de um produto: os lotes são escolhidos pela ordem FEFO/FIFO,
+    // gerando uma movimentação de saída por lote atingido
+    @Transactional
+    public List<MovimentacaoResponseDTO> registrarSaidaPorProduto(SaidaProdutoRequestDTO dto,
+            String emailUsuarioAutenticado) {
+        return registrarSaidaPorProduto(dto, emailUsuarioAutenticado, 0);
+    }
+
+    @Transactional
+    public List<MovimentacaoResponseDTO> registrarSaidaPorProduto(SaidaProdutoRequestDTO dto,
+            String emailUsuarioAutenticado, int reservado) {
+        log.info("Registrando saída por produto: produtoId={}, quantidade={}", dto.produtoId(), dto.quantidade());
+
+        produtoService.buscarEntidadePorId(dto.produtoId());
+
+        Usuario usuario;
+        if (dto.usuarioId() != null) {
+            usuario = usuarioService.buscarEntidadePorId(dto.usuarioId());
+        } else {
+            usuario = usuarioService.buscarEntidadePorEmail(emailUsuarioAutenticado);
+        }
+
+        Map<Long, Integer> consumidoPorLote = loteService.consumirEstoquePorProduto(dto.produtoId(), dto.quantidade(),
+                reservado);
+        LocalDateTime dataHora = LocalDateTime.now();
+
+        List<MovimentacaoResponseDTO> movimentacoes = new ArrayList<>();
+        consumidoPorLote.forEach((loteId, quantidade) -> {
+            Movimentacao movimentacao = new Movimentacao();
+            movimentacao.setLote(loteService.buscarEntidadePorId(loteId));
+            movimentacao.setUsuario(usuario);
+            movimentacao.setTipo(TipoMovimentacao.SAIDA);
+            movimentacao.setQuantidade(quantidade);
+            movimentacao.setDataHora(dataHora);
+            // Só o produto pedido saiu, mesmo que o lote tenha outros itens
+            movimentacao.getParcelas().put(dto.produtoId(), (long) quantidade);
+
+            movimentacao = movimentacaoRepository.save(movimentacao);
+            eventPublisher.publishEvent(new MovimentacaoRegistradaEvent(movimentacao));
+            movimentacoes.add(new MovimentacaoResponseDTO(movimentacao));
+        });
+
+        log.info("Saída do produto {} registrada em {} lote(s)", dto.produtoId(), movimentacoes.size());
+        return movimentacoes;
+    }
+
+    // Várias movimentações em uma transação: cada lote é travado uma única vez (todos na mesma consulta,
+    // em ordem de ID) e os itens são aplicados na ordem recebida sobre o saldo em memória. Só o item que
+    // deixaria o saldo negativo, ou aponta para lote/usuário inexistente, é rejeitado; os demais seguem.
+    @Transactional
+    public MovimentacaoMassaResponseDTO registrarEmMassa(List<MovimentacaoRequestDTO> itens,
+            String emailUsuarioAutenticado) {
+        log.info("Registrando {} movimentação(ões) em massa", itens.size());
+
+        Map<String, Usuario> autenticados = itens.stream().anyMatch(item -> item.usuarioId() == null)
+                ? Map.of(emailUsuarioAutenticado, usuarioService.buscarEntidadePorEmail(emailUsuarioAutenticado))
+                : Map.of();
+        ItensAplicados aplicados = aplicarItens(itens, Collections.nCopies(itens.size(), emailUsuarioAutenticado),
+                autenticados);
+
+        ResultadoItem[] resultados = new ResultadoItem[itens.size()];
+        for (int i = 0; i < itens.size(); i++) {
+            Movimentacao movimentacao = aplicados.movimentacoes()[i];
+            resultados[i] = movimentacao != null
+                    ? new ResultadoItem(i, movimentacao.getLote().getId(), true, movimentacao.getId(), null)
+                    : new ResultadoItem(i, itens.get(i).loteId(), false, null, aplicados.erros()[i].getMessage());
+        }
+
+        MovimentacaoMassaResponseDTO resposta = new MovimentacaoMassaResponseDTO(List.of(resultados));
+        log.info("Movimentações em massa: {} registrada(s), {} rejeitada(s) em {} lote(s)",
+                resposta.registradas(), resposta.rejeitadas(), aplicados.lotes());
+        return resposta;
+    }
+
+    public record ResultadoGrupo(MovimentacaoResponseDTO movimentacao, RuntimeException erro) {
+    }
+
+    // Pedidos de vários usuários gravados juntos (FilaGravacaoMovimentacoes), pelo mesmo caminho do registro
+    // em massa. Cada pedido recebe a própria resposta ou a exceção que o criar lançaria; o saldo do lote na
+    // resposta já inclui o grupo inteiro.
+    @Transactional
+    public List<ResultadoGrupo> registrarGrupo(List<MovimentacaoRequestDTO> itens, List<String> emails) {
+        Set<String> emailsSemUsuario = new HashSet<>();
+        for (int i = 0; i < itens.size(); i++) {
+            if (itens.get(i).usuarioId() == null) {
+                emailsSemUsuario.add(emails.get(i));
+            }
+        }
+        Map<String, Usuario> autenticados = emailsSemUsuario.isEmpty() ? Map.of()
+                : usuarioService.buscarEntidadesPorEmails(emailsSemUsuario);
+        ItensAplicados aplicados = aplicarItens(itens, emails, autenticados);
+
+        List<ResultadoGrupo> resultados = new ArrayList<>(itens.size());
+        for (int i = 0; i < itens.size(); i++) {
+            Movimentacao movimentacao = aplicados.movimentacoes()[i];
+            resultados.add(movimentacao != null
+                    ? new ResultadoGrupo(new MovimentacaoResponseDTO(movimentacao), null)
+                    : new ResultadoGrupo(null, aplicados.erros()[i]));
+        }
+        log.debug("Grupo de {} movimentação(ões) aplicado em {} lote(s)", itens.size(), aplicados.lotes());
+        return resultados;
+    }
+
+    // Por índice: a movimentação gravada ou o motivo da rejeição
+    private record ItensAplicados(Movimentacao[] movimentacoes, RuntimeException[] erros, int lotes) {
+    }
+
+    // Núcleo do registro em massa; o e-mail de cada item só é usado quando ele não traz usuarioId
+    private ItensAplicados aplicarItens(List<MovimentacaoRequestDTO> itens, List<String> emails,
+            Map<String, Usuario> autenticados) {
+        Set<Long> loteIds = new TreeSet<>();
+        Set<Long> usuarioIds = new HashSet<>();
+        for (MovimentacaoRequestDTO item : itens) {
+            loteIds.add(item.loteId());
+            if (item.usuarioId() != null) {
+                usuarioIds.add(item.usuarioId());
+            }
+        }
+
+        Map<Long, Lote> lotes = loteService.travarLotes(loteIds);
+        Map<Long, Usuario> usuarios = usuarioIds.isEmpty() ? Map.of() : usuarioService.buscarEntidadesPorIds(usuarioIds);
+
+        Map<Long, Integer> saldos = new HashMap<>();
+        lotes.forEach((loteId, lote) -> saldos.put(loteId, lote.getQuantidadeAtual()));
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<Long, Integer> folgas = new HashMap<>();
+        Movimentacao[] movimentacoes = new Movimentacao[itens.size()];
+        RuntimeException[] erros = new RuntimeException[itens.size()];
+        LocalDateTime dataHora = LocalDateTime.now();
+
+        for (int i = 0; i < itens.size(); i++) {
+            MovimentacaoRequestDTO item = itens.get(i);
+            Lote lote = lotes.get(item.loteId());
+            Usuario usuario = item.usuarioId() != null ? usuarios.get(item.usuarioId())
+                    : autenticados.get(emails.get(i));
+
+            if (lote == null) {
+                erros[i] = new ResourceNotFoundException("Lote", "id", item.loteId());
+            } else if (usuario == null) {
+                erros[i] = item.usuarioId() != null
+                        ? new ResourceNotFoundException("Usuário", "id", item.usuarioId())
+                        : new ResourceNotFoundException("Usuário", "email", emails.get(i));
+            } else {
+                int saldo = saldos.get(lote.getId());
+                int delta = calcularDelta(item.tipo(), item.quantidade());
+                if (saldo + delta < 0) {
+                    erros[i] = new BusinessException("Quantidade insuficiente em estoque. Disponível: " + saldo);
+                } else {
+                    try {
+                        reservarSaida(lote.getId(), delta, folgas);
+                        saldos.put(lote.getId(), saldo + delta);
+                        deltas.merge(lote.getId(), delta, Integer::sum);
+                    } catch (BusinessException e) {
+                        erros[i] = e;
+                    }
+                }
+            }
+            if (erros[i] != null) {
+                continue;
+            }
+
+            Movimentacao movimentacao = new Movimentacao();
+            movimentacao.setLote(lote);
+            movimentacao.setUsuario(usuario);
+            movimentacao.setTipo(item.tipo());
+            movimentacao.setQuantidade(item.quantidade());
+            movimentacao.setDataHora(dataHora);
+            movimentacoes[i] = movimentacao;
+        }
+
+        // Saldo líquido por lote: um UPDATE por lote em vez de um por item
+        loteService.aplicarDeltas(lotes, deltas);
+        List<Movimentacao> aceitas = Arrays.stream(movimentacoes).filter(Objects::nonNull).toList();
+        distribuicaoProdutoService.ratearSaidas(aceitas);
+        movimentacaoRepository.saveAll(aceitas);
+        aceitas.forEach(movimentacao -> eventPublisher.publishEvent(new MovimentacaoRegistradaEvent(movimentacao)));
+        return new ItensAplicados(movimentacoes, erros, lotes.size());
+    }
+
+    // Entradas anteriores do mesmo registro são folga para as saídas seguintes do lote: só o que passar
+    // delas é conferido contra as reservas
+    private void reservarSaida(Long loteId, int delta, Map<Long, Integer> folgas) {
+        int folga = folgas.getOrDefault(loteId, 0);
+        if (delta < 0) {
+            livroReservas.reservarSaida(Chave.doLote(loteId), -delta, folga);
+        }
+        folgas.put(loteId, Math.max(folga + delta, 0));
+    }
+
     @Transactional
     public void deletar(Long id) {
         Movimentacao movimentacao = movimentacaoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimentação", "id", id));
 
         movimentacaoRepository.delete(movimentacao);
+        eventPublisher.publishEvent(new MovimentacaoRemovidaEvent(movimentacao));
     }
 
     private int calcularDelta(TipoMovimentacao tipo, int quantidade) {
@@ -194,13 +414,15 @@ public class MovimentacaoService {
             throw new BusinessException("Este kit não possui componentes definidos na sua 'receita'.");
         }
 
-        log.debug("Consumindo estoque de {} componentes para montar kit", kit.getComponentes().size());
+        // Componentes repetidos na receita são somados: uma única baixa por produto
+        Map<Long, Integer> necessidades = new LinkedHashMap<>();
         for (ComposicaoProduto itemReceita : kit.getComponentes()) {
-            int qtdTotalNecessaria = itemReceita.getQuantidade() * dto.quantidade();
-            log.debug("Consumindo {} unidades do componente {}", qtdTotalNecessaria,
-                    itemReceita.getComponente().getId());
-            loteService.consumirEstoquePorProduto(itemReceita.getComponente().getId(), qtdTotalNecessaria);
+            necessidades.merge(itemReceita.getComponente().getId(), itemReceita.getQuantidade() * dto.quantidade(),
+                    Integer::sum);
         }
+        log.debug("Consumindo estoque de {} componentes para montar kit: {}", necessidades.size(), necessidades);
+        loteService.consumirEstoquePorProdutos(necessidades);
+
         LoteItemRequestDTO itemKit = new LoteItemRequestDTO(
                 kit.getId(),
                 dto.quantidade(),
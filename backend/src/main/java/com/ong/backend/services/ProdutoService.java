@@ -4,6 +4,9 @@ import com.ong.backend.dto.produto.ProdutoRequestDTO;
 import com.ong.backend.dto.produto.ProdutoResponseDTO;
 import com.ong.backend.dto.produto.ProdutoSimplesDTO;
 import com.ong.backend.dto.produto.ProdutoDetalhesDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Categoria;
 import com.ong.backend.models.Produto;
@@ -13,15 +16,26 @@ import com.ong.backend.repositories.ProdutoRepository;
 import com.ong.backend.repositories.ComposicaoProdutoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import com.ong.backend.specifications.ProdutoSpecs;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,30 +43,34 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ProdutoService {
 
-    private static final int ESTOQUE_CRITICO_PADRAO = 10;
-
     private final ProdutoRepository produtoRepository;
     private final LoteItemRepository loteItemRepository;
     private final CategoriaService categoriaService;
     private final ComposicaoProdutoRepository composicaoProdutoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${alertas.estoque-minimo-padrao:10}")
+    private int estoqueMinimoPadrao;
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "produtos", key = "{#nome, #categoriaId, #estoqueCritico, #estoqueAte, #somenteComEstoque, #pageable}")
+    // Páginas com filtro de estoque vão para o cache "produtos-estoque" (ver CacheConfig), invalidado a cada
+    // movimentação; as demais ficam em "produtos", que só muda quando o cadastro muda
+    @Cacheable(cacheResolver = "listagemProdutosCacheResolver", key = "new com.ong.backend.services."
+            + "ChaveListagemProdutos(#nome, #categoriaId, #estoqueCritico, #estoqueAte, #somenteComEstoque, #pageable)",
+            sync = true)
     public Page<ProdutoResponseDTO> listarComFiltros(String nome,
             Long categoriaId,
             Boolean estoqueCritico,
             Integer estoqueAte,
             Boolean somenteComEstoque,
             Pageable pageable) {
-        Integer limite = estoqueAte;
-        if (limite == null && Boolean.TRUE.equals(estoqueCritico)) {
-            limite = ESTOQUE_CRITICO_PADRAO;
-        }
+        // Sem limite explícito, o estoque crítico usa o estoque mínimo de cada produto
+        Integer minimoPadrao = estoqueAte == null && Boolean.TRUE.equals(estoqueCritico) ? estoqueMinimoPadrao : null;
 
         boolean apenasComEstoque = Boolean.TRUE.equals(estoqueCritico) || Boolean.TRUE.equals(somenteComEstoque);
 
         return produtoRepository
-                .findAll(ProdutoSpecs.comFiltros(nome, categoriaId, limite, apenasComEstoque),
+                .findAll(ProdutoSpecs.comFiltros(nome, categoriaId, estoqueAte, minimoPadrao, apenasComEstoque),
                         pageable)
                 .map(ProdutoResponseDTO::new);
     }
@@ -70,7 +88,7 @@ public class ProdutoService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "produtos")
+    @Cacheable(value = "produtos", key = "'todos'", sync = true)
     public List<ProdutoResponseDTO> listarTodos() {
         return produtoRepository.findAll()
                 .stream()
@@ -79,7 +97,7 @@ public class ProdutoService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "produtos")
+    @Cacheable(value = "produtos", key = "'simples'", sync = true)
     public List<ProdutoSimplesDTO> listarTodosSimples() {
         return produtoRepository.findAll()
                 .stream()
@@ -121,7 +139,6 @@ public class ProdutoService {
     }
 
     @Transactional
-    @CacheEvict(value = "produtos", allEntries = true)
     public ProdutoResponseDTO criar(ProdutoRequestDTO dto) {
         log.info("Criando novo produto: {}", dto.nome());
         Categoria categoria = categoriaService.buscarEntidadePorId(dto.categoriaId());
@@ -133,6 +150,7 @@ public class ProdutoService {
         produto.setCategoria(categoria);
 
         produto.setKit(dto.isKit() != null && dto.isKit());
+        produto.setEstoqueMinimo(dto.estoqueMinimo());
 
         produto = produtoRepository.save(produto);
 
@@ -151,43 +169,155 @@ public class ProdutoService {
             }
         }
 
+        eventPublisher.publishEvent(
+                new ProdutoAlteradoEvent(Set.of(new ProdutoListado(produto.getNome(), categoria.getId()))));
         log.info("Produto criado com sucesso. ID: {}", produto.getId());
         return new ProdutoResponseDTO(produto);
     }
 
     @Transactional
-    @CacheEvict(value = "produtos", allEntries = true)
     public ProdutoResponseDTO atualizar(Long id, ProdutoRequestDTO dto) {
         log.info("Atualizando produto ID: {}", id);
         Produto produto = produtoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto", "id", id));
 
         Categoria categoria = categoriaService.buscarEntidadePorId(dto.categoriaId());
+        String nomeAnterior = produto.getNome();
+        Long categoriaAnteriorId = produto.getCategoria().getId();
 
         produto.setNome(dto.nome());
         produto.setDescricao(dto.descricao());
         produto.setCodigoBarrasFabricante(dto.codigoBarrasFabricante());
         produto.setCategoria(categoria);
+        produto.setEstoqueMinimo(dto.estoqueMinimo());
 
         produto = produtoRepository.save(produto);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(), Set.of(produto.getId())));
+        eventPublisher.publishEvent(alteracao(produto, nomeAnterior, categoriaAnteriorId));
         log.info("Produto atualizado com sucesso. ID: {}", produto.getId());
         return new ProdutoResponseDTO(produto);
     }
 
     @Transactional
-    @CacheEvict(value = "produtos", allEntries = true)
     public void deletar(Long id) {
         log.info("Deletando produto ID: {}", id);
         Produto produto = produtoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto", "id", id));
 
+        ProdutoAlteradoEvent alteracao = alteracao(produto, produto.getNome(), produto.getCategoria().getId());
         produtoRepository.delete(produto);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(), Set.of(id)));
+        eventPublisher.publishEvent(alteracao);
         log.info("Produto deletado com sucesso. ID: {}", id);
     }
 
+    // Listagens afetadas: as que filtram pelo nome/categoria de antes ou de depois, e as dos kits que
+    // mostram o produto entre os componentes
+    private ProdutoAlteradoEvent alteracao(Produto produto, String nomeAnterior, Long categoriaAnteriorId) {
+        Set<ProdutoListado> afetados = new HashSet<>();
+        afetados.add(new ProdutoListado(nomeAnterior, categoriaAnteriorId));
+        afetados.add(new ProdutoListado(produto.getNome(), produto.getCategoria().getId()));
+        for (ComposicaoProduto composicao : composicaoProdutoRepository.findByComponenteId(produto.getId())) {
+            Produto kit = composicao.getProdutoPai();
+            afetados.add(new ProdutoListado(kit.getNome(), kit.getCategoria().getId()));
+        }
+        return new ProdutoAlteradoEvent(afetados);
+    }
+
     @Transactional(readOnly = true)
     public Produto buscarEntidadePorId(Long id) {
         return produtoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto", "id", id));
     }
+
+    // Produtos inexistentes não aparecem no mapa
+    @Transactional(readOnly = true)
+    public Map<Long, Produto> buscarEntidadesPorIds(Collection<Long> ids) {
+        return produtoRepository.buscarPorIds(ids).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+    }
+
+    // Código de barras -> ID dos produtos que têm código, numa consulta só; em código repetido vale o mais antigo
+    @Transactional(readOnly = true)
+    public Map<String, Long> indicePorCodigoBarras() {
+        Map<String, Long> indice = new HashMap<>();
+        produtoRepository.buscarCodigosBarras()
+                .forEach(produto -> indice.putIfAbsent(produto.codigoBarras(), produto.produtoId()));
+        return indice;
+    }
+
+    public record ItemCatalogo(String codigoBarras, String nome, String descricao, Categoria categoria,
+            Integer estoqueMinimo) {
+    }
+
+    public record ResultadoCatalogo(int inseridos, int atualizados, int inalterados) {
+    }
+
+    // Um bloco da importação de catálogo numa transação: quem já está no índice é atualizado (se mudou),
+    // o resto é inserido em lote. Os produtos novos só entram no índice depois do commit: bloco desfeito não
+    // deixa IDs inexistentes nele. Sem evento de cache: quem importa limpa o cache uma vez no fim
+    @Transactional
+    public ResultadoCatalogo gravarCatalogo(List<ItemCatalogo> itens, Map<String, Long> indice) {
+        Map<Long, Produto> existentes = buscarEntidadesPorIds(itens.stream()
+                .map(item -> indice.get(item.codigoBarras()))
+                .filter(Objects::nonNull)
+                .toList());
+
+        List<Produto> novos = new ArrayList<>();
+        Set<Long> atualizados = new HashSet<>();
+        int inalterados = 0;
+        for (ItemCatalogo item : itens) {
+            Produto produto = existentes.get(indice.get(item.codigoBarras()));
+            if (produto == null) {
+                produto = new Produto();
+                produto.setCodigoBarrasFabricante(item.codigoBarras());
+                aplicarCatalogo(produto, item);
+                novos.add(produto);
+            } else if (aplicarCatalogo(produto, item)) {
+                atualizados.add(produto.getId());
+            } else {
+                inalterados++;
+            }
+        }
+
+        Map<String, Long> inseridos = new HashMap<>();
+        produtoRepository.saveAll(novos)
+                .forEach(produto -> inseridos.put(produto.getCodigoBarrasFabricante(), produto.getId()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indice.putAll(inseridos);
+                }
+            });
+        } else {
+            indice.putAll(inseridos);
+        }
+        if (!atualizados.isEmpty()) {
+            eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(), atualizados));
+        }
+        return new ResultadoCatalogo(novos.size(), atualizados.size(), inalterados);
+    }
+
+    // Descrição e estoque mínimo em branco mantêm o valor atual; devolve se algo mudou
+    private boolean aplicarCatalogo(Produto produto, ItemCatalogo item) {
+        boolean mudou = false;
+        if (!item.nome().equals(produto.getNome())) {
+            produto.setNome(item.nome());
+            mudou = true;
+        }
+        if (produto.getCategoria() == null || !item.categoria().getId().equals(produto.getCategoria().getId())) {
+            produto.setCategoria(item.categoria());
+            mudou = true;
+        }
+        if (item.descricao() != null && !item.descricao().equals(produto.getDescricao())) {
+            produto.setDescricao(item.descricao());
+            mudou = true;
+        }
+        if (item.estoqueMinimo() != null && !item.estoqueMinimo().equals(produto.getEstoqueMinimo())) {
+            produto.setEstoqueMinimo(item.estoqueMinimo());
+            mudou = true;
+        }
+        return mudou;
+    }
 }
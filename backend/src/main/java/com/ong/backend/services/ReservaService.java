@@ -0,0 +1,202 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
+import com.ong.backend.dto.movimentacao.SaidaProdutoRequestDTO;
+import com.ong.backend.dto.reserva.ReservaRequestDTO;
+import com.ong.backend.dto.reserva.ReservaResponseDTO;
+import com.ong.backend.dto.reserva.SaldoReservaDTO;
+import com.ong.backend.events.ReservasFinalizadasEvent;
+import com.ong.backend.events.ReservasFinalizadasEvent.ReservaFinalizada;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.Reserva;
+import com.ong.backend.models.StatusReserva;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.models.Usuario;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.ReservaRepository;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reservas com prazo: a quantidade é separada no livro em memória e gravada como reserva ativa, sem
+// travar o lote. A confirmação vira a saída de fato; cancelamento e expiração só devolvem o saldo.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservaService {
+
+    private final ReservaRepository reservaRepository;
+    private final LoteRepository loteRepository;
+    private final ProdutoRepository produtoRepository;
+    private final UsuarioService usuarioService;
+    private final MovimentacaoService movimentacaoService;
+    private final LivroReservasEstoque livroReservas;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${estoque.reservas.ttl-padrao-segundos:300}")
+    private int ttlPadraoSegundos;
+
+    @Value("${estoque.reservas.ttl-maximo-segundos:3600}")
+    private int ttlMaximoSegundos;
+
+    @Value("${estoque.reservas.varredura-lote:500}")
+    private int tamanhoLoteVarredura;
+
+    // Sem transação em volta: o saldo é separado antes do INSERT e devolvido se ele falhar
+    public ReservaResponseDTO reservar(ReservaRequestDTO dto, String emailUsuarioAutenticado) {
+        if ((dto.loteId() == null) == (dto.produtoId() == null)) {
+            throw new BusinessException("Informe o lote ou o produto da reserva (apenas um dos dois).");
+        }
+        int ttlSegundos = dto.ttlSegundos() != null ? dto.ttlSegundos() : ttlPadraoSegundos;
+        if (ttlSegundos > ttlMaximoSegundos) {
+            throw new BusinessException("Validade da reserva não pode passar de " + ttlMaximoSegundos + " segundos.");
+        }
+
+        Usuario usuario;
+        if (dto.usuarioId() != null) {
+            usuario = usuarioService.buscarEntidadePorId(dto.usuarioId());
+        } else {
+            usuario = usuarioService.buscarEntidadePorEmail(emailUsuarioAutenticado);
+        }
+
+        Chave chave = dto.loteId() != null ? Chave.doLote(dto.loteId()) : Chave.doProduto(dto.produtoId());
+        livroReservas.reservar(chave, dto.quantidade());
+
+        try {
+            LocalDateTime agora = LocalDateTime.now();
+            Reserva reserva = new Reserva();
+            // O livro já conferiu o lote (ou o saldo do produto): só a referência vai para o INSERT
+            reserva.setLote(dto.loteId() != null ? loteRepository.getReferenceById(dto.loteId()) : null);
+            reserva.setProduto(dto.produtoId() != null ? produtoRepository.getReferenceById(dto.produtoId()) : null);
+            reserva.setUsuario(usuario);
+            reserva.setQuantidade(dto.quantidade());
+            reserva.setStatus(StatusReserva.ATIVA);
+            reserva.setCriadaEm(agora);
+            reserva.setExpiraEm(agora.plusSeconds(ttlSegundos));
+
+            reserva = reservaRepository.save(reserva);
+            log.debug("Reserva {} criada: {} unidade(s) de {} até {}", reserva.getId(), dto.quantidade(), chave,
+                    reserva.getExpiraEm());
+            return new ReservaResponseDTO(reserva);
+        } catch (RuntimeException e) {
+            livroReservas.liberar(chave, dto.quantidade());
+            throw e;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ReservaResponseDTO buscarPorId(Long id) {
+        return new ReservaResponseDTO(buscarEntidadePorId(id));
+    }
+
+    public SaldoReservaDTO consultarSaldo(Long loteId, Long produtoId) {
+        if ((loteId == null) == (produtoId == null)) {
+            throw new BusinessException("Informe o lote ou o produto (apenas um dos dois).");
+        }
+        LivroReservasEstoque.Posicao posicao = livroReservas
+                .consultar(loteId != null ? Chave.doLote(loteId) : Chave.doProduto(produtoId));
+        return new SaldoReservaDTO(loteId, produtoId, posicao.estoque(), posicao.reservado(), posicao.disponivel());
+    }
+
+    // Converte a reserva em saída: do lote reservado ou, para produto, dos lotes na ordem FEFO/FIFO. A saída
+    // usa o que a própria reserva separou no livro, que só é devolvido após o commit
+    @Transactional
+    public List<MovimentacaoResponseDTO> confirmar(Long id, String emailUsuarioAutenticado) {
+        LocalDateTime agora = LocalDateTime.now();
+        if (reservaRepository.confirmarSeAtiva(id, agora) == 0) {
+            throw reservaNaoAtiva(id, agora);
+        }
+        Reserva reserva = buscarEntidadePorId(id);
+        Long usuarioId = reserva.getUsuario().getId();
+
+        List<MovimentacaoResponseDTO> movimentacoes;
+        if (reserva.getLote() != null) {
+            movimentacoes = List.of(movimentacaoService.criar(new MovimentacaoRequestDTO(
+                    reserva.getLote().getId(), usuarioId, TipoMovimentacao.SAIDA, reserva.getQuantidade()),
+                    emailUsuarioAutenticado, reserva.getQuantidade()));
+        } else {
+            movimentacoes = movimentacaoService.registrarSaidaPorProduto(new SaidaProdutoRequestDTO(
+                    reserva.getProduto().getId(), usuarioId, reserva.getQuantidade()), emailUsuarioAutenticado,
+                    reserva.getQuantidade());
+        }
+
+        eventPublisher.publishEvent(
+                new ReservasFinalizadasEvent(StatusReserva.CONFIRMADA, List.of(new ReservaFinalizada(reserva))));
+        log.info("Reserva {} confirmada em {} movimentação(ões)", id, movimentacoes.size());
+        return movimentacoes;
+    }
+
+    @Transactional
+    public ReservaResponseDTO cancelar(Long id) {
+        LocalDateTime agora = LocalDateTime.now();
+        if (reservaRepository.cancelarSeAtiva(id, agora) == 0) {
+            throw reservaNaoAtiva(id, agora);
+        }
+        Reserva reserva = buscarEntidadePorId(id);
+        eventPublisher.publishEvent(
+                new ReservasFinalizadasEvent(StatusReserva.CANCELADA, List.of(new ReservaFinalizada(reserva))));
+        log.info("Reserva {} cancelada", id);
+        return new ReservaResponseDTO(reserva);
+    }
+
+    // Libera as reservas vencidas em lotes, cada lote na sua transação
+    @Scheduled(fixedDelayString = "${estoque.reservas.varredura-ms:5000}")
+    public void expirarVencidas() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        int total = 0;
+        Integer expiradas;
+        do {
+            expiradas = transacao.execute(status -> expirarLote(LocalDateTime.now()));
+            total += expiradas;
+        } while (expiradas == tamanhoLoteVarredura);
+
+        if (total > 0) {
+            log.info("{} reserva(s) expirada(s) e devolvida(s) ao estoque", total);
+        }
+    }
+
+    private int expirarLote(LocalDateTime agora) {
+        List<Reserva> vencidas = reservaRepository.travarVencidas(agora, Limit.of(tamanhoLoteVarredura));
+        if (vencidas.isEmpty()) {
+            return 0;
+        }
+        // Entidades travadas: as mudanças saem como UPDATEs em lote no commit
+        vencidas.forEach(reserva -> {
+            reserva.setStatus(StatusReserva.EXPIRADA);
+            reserva.setFinalizadaEm(agora);
+        });
+        eventPublisher.publishEvent(new ReservasFinalizadasEvent(StatusReserva.EXPIRADA,
+                vencidas.stream().map(ReservaFinalizada::new).toList()));
+        return vencidas.size();
+    }
+
+    private Reserva buscarEntidadePorId(Long id) {
+        return reservaRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva", "id", id));
+    }
+
+    private RuntimeException reservaNaoAtiva(Long id, LocalDateTime agora) {
+        Reserva reserva = buscarEntidadePorId(id);
+        if (reserva.getStatus() == StatusReserva.ATIVA && !reserva.getExpiraEm().isAfter(agora)) {
+            return new BusinessException("Reserva expirada em " + reserva.getExpiraEm() + ".");
+        }
+        return new BusinessException("Reserva não está ativa. Situação atual: " + reserva.getStatus());
+    }
+}
@@ -0,0 +1,231 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.leitura.ItemLeituraDTO;
+import com.ong.backend.dto.leitura.LeituraRequestDTO;
+import com.ong.backend.dto.leitura.ReciboLeituraDTO;
+import com.ong.backend.dto.leitura.SessaoLeituraDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO.ResultadoItem;
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Sessões de leitura de etiquetas no balcão de distribuição: as leituras ficam em memória, somadas
+// por lote, e só a confirmação grava (uma saída por lote com o total, no registro em massa). Lotes
+// recusados na gravação continuam na sessão, que segue aberta só com eles.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessaoLeituraService {
+
+    private final LivroReservasEstoque livroReservas;
+    private final MovimentacaoService movimentacaoService;
+
+    private final Map<UUID, Sessao> sessoes = new ConcurrentHashMap<>();
+
+    @Value("${leitura.sessao.inatividade-ms:900000}")
+    private long inatividadeMs;
+
+    @Value("${leitura.sessao.max-abertas:1000}")
+    private int maxAbertas;
+
+    // Alterada só com o monitor da própria sessão
+    private static final class Sessao {
+        private final UUID id = UUID.randomUUID();
+        private final LocalDateTime abertaEm = LocalDateTime.now();
+        private final String email;
+        private final Map<Long, Item> itens = new LinkedHashMap<>();
+        private int leituras;
+        private boolean fechada;
+        private volatile long ultimoUso = System.nanoTime();
+
+        Sessao(String email) {
+            this.email = email;
+        }
+    }
+
+    private static final class Item {
+        private final String codigoBarras;
+        private final int disponivel;
+        private int quantidade;
+        private int leituras;
+
+        Item(String codigoBarras, int disponivel) {
+            this.codigoBarras = codigoBarras;
+            this.disponivel = disponivel;
+        }
+    }
+
+    public SessaoLeituraDTO abrir(String emailUsuarioAutenticado) {
+        if (sessoes.size() >= maxAbertas) {
+            throw new BusinessException("Limite de sessões de leitura abertas atingido. Tente novamente em instantes.");
+        }
+        Sessao sessao = new Sessao(emailUsuarioAutenticado);
+        sessoes.put(sessao.id, sessao);
+        log.debug("Sessão de leitura {} aberta por {}", sessao.id, emailUsuarioAutenticado);
+        return paraDTO(sessao);
+    }
+
+    public SessaoLeituraDTO buscar(UUID id, String emailUsuarioAutenticado) {
+        Sessao sessao = buscarSessao(id, emailUsuarioAutenticado);
+        synchronized (sessao) {
+            return paraDTO(sessao);
+        }
+    }
+
+    // O livre do lote (saldo menos reservas) é lido no livro só na primeira leitura dele, fora do monitor
+    // da sessão; a confirmação valida de novo com o lote travado
+    public SessaoLeituraDTO ler(UUID id, LeituraRequestDTO dto, String emailUsuarioAutenticado) {
+        Long loteId = Lote.extrairIdDoCodigoBarras(dto.codigoBarras().trim());
+        if (loteId == null) {
+            throw new BusinessException("Código de barras não corresponde a um lote: " + dto.codigoBarras());
+        }
+        int quantidade = dto.quantidade() != null ? dto.quantidade() : 1;
+
+        Sessao sessao = buscarSessao(id, emailUsuarioAutenticado);
+        Integer disponivel = null;
+        while (true) {
+            synchronized (sessao) {
+                if (sessao.fechada) {
+                    throw new ResourceNotFoundException("Sessão de leitura", "id", id);
+                }
+                Item item = sessao.itens.get(loteId);
+                if (item == null && disponivel != null) {
+                    item = new Item(dto.codigoBarras().trim(), disponivel);
+                }
+                if (item != null) {
+                    if (item.quantidade + quantidade > item.disponivel) {
+                        throw new BusinessException(
+                                "Quantidade insuficiente em estoque. Disponível: " + item.disponivel);
+                    }
+                    item.quantidade += quantidade;
+                    item.leituras++;
+                    sessao.itens.putIfAbsent(loteId, item);
+                    sessao.leituras++;
+                    return paraDTO(sessao);
+                }
+            }
+            disponivel = livroReservas.consultar(Chave.doLote(loteId)).disponivel();
+        }
+    }
+
+    public ReciboLeituraDTO confirmar(UUID id, String emailUsuarioAutenticado) {
+        Sessao sessao = buscarSessao(id, emailUsuarioAutenticado);
+        List<MovimentacaoRequestDTO> saidas;
+        List<ItemLeituraDTO> enviados;
+        synchronized (sessao) {
+            if (sessao.fechada) {
+                throw new ResourceNotFoundException("Sessão de leitura", "id", id);
+            }
+            if (sessao.itens.isEmpty()) {
+                throw new BusinessException("Nenhuma leitura registrada nesta sessão.");
+            }
+            // Fechada antes de gravar: leituras que chegarem agora não se perdem em silêncio
+            sessao.fechada = true;
+            saidas = sessao.itens.entrySet().stream()
+                    .map(e -> new MovimentacaoRequestDTO(e.getKey(), null, TipoMovimentacao.SAIDA,
+                            e.getValue().quantidade))
+                    .toList();
+            enviados = itens(sessao);
+        }
+
+        MovimentacaoMassaResponseDTO movimentacoes;
+        try {
+            movimentacoes = movimentacaoService.registrarEmMassa(saidas, emailUsuarioAutenticado);
+        } catch (RuntimeException e) {
+            synchronized (sessao) {
+                sessao.fechada = false;
+            }
+            throw e;
+        }
+
+        // O recibo lista só os lotes com saída gravada; os recusados ficam na sessão para nova tentativa
+        List<ItemLeituraDTO> entregues = movimentacoes.resultados().stream()
+                .filter(ResultadoItem::sucesso)
+                .map(resultado -> enviados.get(resultado.indice()))
+                .toList();
+        int leituras = entregues.stream().mapToInt(ItemLeituraDTO::leituras).sum();
+        boolean concluida;
+        synchronized (sessao) {
+            entregues.forEach(item -> sessao.itens.remove(item.loteId()));
+            sessao.leituras -= leituras;
+            concluida = sessao.itens.isEmpty();
+            sessao.fechada = concluida;
+        }
+        if (concluida) {
+            sessoes.remove(id, sessao);
+        }
+
+        log.info("Sessão de leitura {} confirmada: {} leitura(s) em {} lote(s), {} saída(s) registrada(s), "
+                + "{} recusada(s)", id, leituras, saidas.size(), movimentacoes.registradas(),
+                movimentacoes.rejeitadas());
+        return new ReciboLeituraDTO(sessao.id, sessao.abertaEm, LocalDateTime.now(), leituras, entregues,
+                movimentacoes);
+    }
+
+    public void cancelar(UUID id, String emailUsuarioAutenticado) {
+        Sessao sessao = buscarSessao(id, emailUsuarioAutenticado);
+        synchronized (sessao) {
+            if (sessao.fechada) {
+                throw new ResourceNotFoundException("Sessão de leitura", "id", id);
+            }
+            sessao.fechada = true;
+        }
+        sessoes.remove(id, sessao);
+    }
+
+    @Scheduled(fixedDelayString = "${leitura.sessao.verificacao-ms:60000}")
+    public void descartarInativas() {
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(inatividadeMs);
+        sessoes.values().removeIf(sessao -> {
+            synchronized (sessao) {
+                if (sessao.fechada || sessao.ultimoUso - limite > 0) {
+                    return false;
+                }
+                sessao.fechada = true;
+                log.info("Sessão de leitura {} descartada por inatividade com {} leitura(s)", sessao.id,
+                        sessao.leituras);
+                return true;
+            }
+        });
+    }
+
+    // Sessão de outro usuário é tratada como inexistente
+    private Sessao buscarSessao(UUID id, String emailUsuarioAutenticado) {
+        Sessao sessao = sessoes.get(id);
+        if (sessao == null || !sessao.email.equals(emailUsuarioAutenticado)) {
+            throw new ResourceNotFoundException("Sessão de leitura", "id", id);
+        }
+        sessao.ultimoUso = System.nanoTime();
+        return sessao;
+    }
+
+    private SessaoLeituraDTO paraDTO(Sessao sessao) {
+        return new SessaoLeituraDTO(sessao.id, sessao.abertaEm, sessao.leituras, itens(sessao));
+    }
+
+    private List<ItemLeituraDTO> itens(Sessao sessao) {
+        return sessao.itens.entrySet().stream()
+                .map(e -> new ItemLeituraDTO(e.getKey(), e.getValue().codigoBarras, e.getValue().quantidade,
+                        e.getValue().leituras))
+                .toList();
+    }
+}
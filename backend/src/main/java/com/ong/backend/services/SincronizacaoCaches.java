@@ -0,0 +1,94 @@
+package com.ong.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.ong.backend.services.MensagemInvalidacaoCache.Tipo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Mantém os caches das réplicas coerentes: o que um nó invalida é repetido nos outros pelo barramento.
+// Cada nó numera o que publica; o vetor de versões (última versão aplicada por nó de origem) descarta
+// mensagens já vistas, como as relidas pela varredura da tabela, sem esvaziar o cache à toa de novo
+@Service
+@Slf4j
+public class SincronizacaoCaches {
+
+    private final BarramentoInvalidacaoCache barramento;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final String no = UUID.randomUUID().toString();
+    private final Map<String, Long> versoes = new ConcurrentHashMap<>();
+    private final Map<Tipo, List<Consumer<MensagemInvalidacaoCache>>> tratadores = new EnumMap<>(Tipo.class);
+    private long ultimaVersao;
+
+    public SincronizacaoCaches(BarramentoInvalidacaoCache barramento, CacheManager cacheManager,
+            MeterRegistry meterRegistry) {
+        this.barramento = barramento;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+        for (Tipo tipo : Tipo.values()) {
+            tratadores.put(tipo, new CopyOnWriteArrayList<>());
+        }
+        aoReceber(Tipo.LIMPAR, this::limpar);
+        barramento.assinar(this::receber);
+    }
+
+    public void aoReceber(Tipo tipo, Consumer<MensagemInvalidacaoCache> tratador) {
+        tratadores.get(tipo).add(tratador);
+    }
+
+    // Numeração e entrega ao barramento na mesma ordem: as versões de um nó chegam crescentes
+    public synchronized void publicar(MensagemInvalidacaoCache mensagem) {
+        barramento.publicar(mensagem.comOrigem(no, ++ultimaVersao));
+    }
+
+    void receber(MensagemInvalidacaoCache mensagem) {
+        if (no.equals(mensagem.origem())) {
+            return;
+        }
+        AtomicBoolean nova = new AtomicBoolean();
+        versoes.compute(mensagem.origem(), (origem, ultima) -> {
+            if (ultima != null && mensagem.versao() <= ultima) {
+                return ultima;
+            }
+            nova.set(true);
+            return mensagem.versao();
+        });
+        meterRegistry.counter("cache.invalidacao.recebida", "tipo", mensagem.tipo().name(),
+                "resultado", nova.get() ? "aplicada" : "repetida").increment();
+        if (!nova.get()) {
+            return;
+        }
+        for (Consumer<MensagemInvalidacaoCache> tratador : tratadores.get(mensagem.tipo())) {
+            try {
+                tratador.accept(mensagem);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao aplicar invalidação de cache {} de {}: {}", mensagem.tipo(), mensagem.origem(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    // Direto no cache nativo: limpar pelo Cache do Spring publicaria de novo para os outros nós
+    @SuppressWarnings("unchecked")
+    private void limpar(MensagemInvalidacaoCache mensagem) {
+        for (String nome : mensagem.caches()) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(nome);
+            if (cache != null) {
+                ((Cache<Object, Object>) cache.getNativeCache()).invalidateAll();
+            }
+        }
+    }
+}
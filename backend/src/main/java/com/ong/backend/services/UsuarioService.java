@@ -11,13 +11,18 @@ import com.ong.backend.specifications.UsuarioSpecs;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -64,6 +69,7 @@ public class UsuarioService {
     }
 
     @Transactional
+    @CacheEvict(value = "usuarios-sessao", allEntries = true)
     public UsuarioResponseDTO criar(UsuarioRequestDTO dto) {
         if (usuarioRepository.existsByEmail(dto.email())) {
             throw new BusinessException("Já existe um usuário com o email: " + dto.email());
@@ -84,6 +90,7 @@ public class UsuarioService {
     }
 
     @Transactional
+    @CacheEvict(value = "usuarios-sessao", allEntries = true)
     public UsuarioResponseDTO atualizar(Long id, UsuarioRequestDTO dto) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuário", "id", id));
@@ -106,6 +113,7 @@ public class UsuarioService {
     }
 
     @Transactional
+    @CacheEvict(value = "usuarios-sessao", allEntries = true)
     public void deletar(Long id) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuário", "id", id));
@@ -124,4 +132,17 @@ public class UsuarioService {
         return usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuário", "email", email));
     }
+
+    // Usuários inexistentes simplesmente não aparecem no mapa: quem chama decide o que fazer
+    @Transactional(readOnly = true)
+    public Map<Long, Usuario> buscarEntidadesPorIds(Collection<Long> ids) {
+        return usuarioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Usuario> buscarEntidadesPorEmails(Collection<String> emails) {
+        return usuarioRepository.findByEmailIn(emails).stream()
+                .collect(Collectors.toMap(Usuario::getEmail, Function.identity()));
+    }
 }
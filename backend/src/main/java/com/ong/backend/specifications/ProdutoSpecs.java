@@ -2,6 +2,7 @@ package com.ong.backend.specifications;
 
 import com.ong.backend.models.LoteItem;
 import com.ong.backend.models.Produto;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
@@ -15,6 +16,7 @@ public class ProdutoSpecs {
     public static Specification<Produto> comFiltros(String nome,
             Long categoriaId,
             Integer estoqueAte,
+            Integer estoqueMinimoPadrao,
             boolean somenteComEstoque) {
         return (root, query, builder) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -27,7 +29,7 @@ public class ProdutoSpecs {
                 predicates.add(builder.equal(root.get("categoria").get("id"), categoriaId));
             }
 
-            if (estoqueAte != null || somenteComEstoque) {
+            if (estoqueAte != null || estoqueMinimoPadrao != null || somenteComEstoque) {
                 Subquery<Long> estoqueSubquery = query.subquery(Long.class);
                 Root<LoteItem> itemRoot = estoqueSubquery.from(LoteItem.class);
                 estoqueSubquery.select(builder.coalesce(builder.sum(itemRoot.get("quantidade")), 0L));
@@ -40,6 +42,12 @@ public class ProdutoSpecs {
                 if (estoqueAte != null) {
                     predicates.add(builder.lessThan(estoqueSubquery, estoqueAte.longValue()));
                 }
+
+                if (estoqueMinimoPadrao != null) {
+                    Expression<Long> minimo = builder.coalesce(root.<Integer>get("estoqueMinimo"), estoqueMinimoPadrao)
+                            .as(Long.class);
+                    predicates.add(builder.lessThan(estoqueSubquery, minimo));
+                }
             }
 
             return builder.and(predicates.toArray(new Predicate[0]));
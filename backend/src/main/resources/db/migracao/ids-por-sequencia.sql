@@ -0,0 +1,35 @@
+-- Troca os IDs IDENTITY por sequências próprias (<tabela>_seq), usadas pelo otimizador pooled do
+-- Hibernate com allocationSize = 50. Rodar uma vez, com a aplicação parada, em bases criadas antes
+-- da troca (ddl-auto=update não cria a sequência já depois dos IDs existentes).
+--
+--   psql -U admin -d ong_db -f ids-por-sequencia.sql
+--
+-- No pooled, o valor lido da sequência é o topo do bloco: o bloco entregue é [valor - 49, valor].
+-- Por isso a sequência começa em MAX(id) + 50, e o primeiro ID novo é MAX(id) + 1.
+
+BEGIN;
+
+DO $$
+DECLARE
+    tabela TEXT;
+    maior_id BIGINT;
+BEGIN
+    FOREACH tabela IN ARRAY ARRAY[
+        'categorias', 'produtos', 'composicao_produtos', 'usuarios', 'refresh_tokens',
+        'lotes', 'lote_itens', 'movimentacoes', 'reservas',
+        'estoque_diario', 'estoque_diario_produto', 'distribuicao_diaria_produto'
+    ]
+    LOOP
+        IF to_regclass(tabela) IS NULL THEN
+            CONTINUE;
+        END IF;
+
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', tabela);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', tabela);
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', tabela || '_seq');
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', tabela) INTO maior_id;
+        PERFORM setval(tabela || '_seq', maior_id + 50, false);
+    END LOOP;
+END $$;
+
+COMMIT;
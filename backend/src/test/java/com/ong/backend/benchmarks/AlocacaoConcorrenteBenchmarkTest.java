@@ -0,0 +1,183 @@
+package com.ong.backend.benchmarks;
+
+import com.ong.backend.models.Categoria;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.LoteItem;
+import com.ong.backend.models.Produto;
+import com.ong.backend.models.UnidadeMedida;
+import com.ong.backend.repositories.CategoriaRepository;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.services.IndiceAlocacaoEstoque;
+import com.ong.backend.services.LoteService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contenção na saída por produto: 50 consumidores tirando do mesmo produto ao mesmo tempo,
+// esperando pelo lote mais antigo (padrão) x pulando lotes travados (SKIP LOCKED).
+// Roda só sob demanda: mvn test -Dtest=AlocacaoConcorrenteBenchmarkTest -Dbenchmark=true
+// O H2 não tem SKIP LOCKED e ignora a dica (gera FOR UPDATE simples); o ganho real só aparece no PostgreSQL.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark;LOCK_TIMEOUT=60000")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Benchmark de alocação concorrente de estoque")
+class AlocacaoConcorrenteBenchmarkTest {
+
+    private static final int CONSUMIDORES = 50;
+    private static final int SAIDAS_POR_CONSUMIDOR = 20;
+    private static final int QUANTIDADE_POR_SAIDA = 5;
+    private static final int LOTES = 100;
+    private static final int QUANTIDADE_POR_LOTE = 500;
+
+    @Autowired
+    private LoteService loteService;
+
+    @Autowired
+    private IndiceAlocacaoEstoque indiceAlocacao;
+
+    @Autowired
+    private LoteRepository loteRepository;
+
+    @Autowired
+    private LoteItemRepository loteItemRepository;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Test
+    @DisplayName("Deve comparar a vazão esperando x pulando lotes travados")
+    void deveCompararVazao() throws Exception {
+        // Aquecimento: JIT, pool de conexões e caches do Hibernate
+        medir(false, 10);
+
+        Resultado esperando = medir(false, CONSUMIDORES);
+        Resultado pulando = medir(true, CONSUMIDORES);
+
+        System.out.printf("%n%-22s %12s %12s %10s %8s%n", "modo", "saídas/s", "p99 (ms)", "lotes", "erros");
+        System.out.println(esperando);
+        System.out.println(pulando);
+
+        int saidas = CONSUMIDORES * SAIDAS_POR_CONSUMIDOR;
+        assertEquals(saidas, esperando.concluidas());
+        assertEquals(saidas, pulando.concluidas());
+        // Nenhuma unidade a mais ou a menos, mesmo com os consumidores espalhados pelos lotes
+        assertEquals((long) saidas * QUANTIDADE_POR_SAIDA, esperando.consumido());
+        assertEquals((long) saidas * QUANTIDADE_POR_SAIDA, pulando.consumido());
+    }
+
+    private Resultado medir(boolean pularLotesTravados, int consumidores) throws Exception {
+        LoteService alvo = AopTestUtils.getTargetObject(loteService);
+        ReflectionTestUtils.setField(alvo, "pularLotesTravados", pularLotesTravados);
+        Long produtoId = criarProdutoComLotes();
+        indiceAlocacao.carregar();
+
+        List<Long> latenciasNanos = new ArrayList<>();
+        AtomicInteger erros = new AtomicInteger();
+        AtomicInteger concluidas = new AtomicInteger();
+        var lotesAtingidos = ConcurrentHashMap.<Long>newKeySet();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        long inicio;
+        try (ExecutorService executor = Executors.newFixedThreadPool(consumidores)) {
+            List<Future<List<Long>>> consumidoresFuturos = new ArrayList<>();
+            for (int c = 0; c < consumidores; c++) {
+                consumidoresFuturos.add(executor.submit(() -> {
+                    largada.await();
+                    List<Long> latencias = new ArrayList<>();
+                    for (int i = 0; i < SAIDAS_POR_CONSUMIDOR; i++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            lotesAtingidos.addAll(
+                                    loteService.consumirEstoquePorProduto(produtoId, QUANTIDADE_POR_SAIDA).keySet());
+                            concluidas.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            erros.incrementAndGet();
+                        }
+                        latencias.add(System.nanoTime() - t0);
+                    }
+                    return latencias;
+                }));
+            }
+            inicio = System.nanoTime();
+            largada.countDown();
+            for (Future<List<Long>> futuro : consumidoresFuturos) {
+                latenciasNanos.addAll(futuro.get());
+            }
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+
+        latenciasNanos.sort(null);
+        long p99 = latenciasNanos.get((int) Math.ceil(latenciasNanos.size() * 0.99) - 1);
+        long restante = loteItemRepository.calcularEstoqueTotalPorProduto(produtoId);
+        return new Resultado(
+                pularLotesTravados ? "pular travados" : "esperar (padrão)",
+                concluidas.get() * 1e9 / duracaoNanos,
+                p99 / 1e6,
+                lotesAtingidos.size(),
+                erros.get(),
+                concluidas.get(),
+                (long) LOTES * QUANTIDADE_POR_LOTE - restante);
+    }
+
+    private Long criarProdutoComLotes() {
+        Categoria categoria = categoriaRepository.findByNome("Benchmark").orElseGet(() -> {
+            Categoria nova = new Categoria();
+            nova.setNome("Benchmark");
+            return categoriaRepository.save(nova);
+        });
+
+        Produto produto = new Produto();
+        produto.setNome("Arroz benchmark " + System.nanoTime());
+        produto.setCategoria(categoria);
+        produto = produtoRepository.save(produto);
+
+        List<Lote> lotes = new ArrayList<>();
+        for (int i = 0; i < LOTES; i++) {
+            Lote lote = new Lote();
+            lote.setQuantidadeInicial(QUANTIDADE_POR_LOTE);
+            lote.setQuantidadeAtual(QUANTIDADE_POR_LOTE);
+            lote.setDataEntrada(LocalDate.now().minusDays(LOTES - i));
+            lote.setUnidadeMedida(UnidadeMedida.UNIDADE);
+
+            LoteItem item = new LoteItem();
+            item.setLote(lote);
+            item.setProduto(produto);
+            item.setQuantidade(QUANTIDADE_POR_LOTE);
+            lote.getItens().add(item);
+            lotes.add(lote);
+        }
+        loteRepository.saveAll(lotes);
+        return produto.getId();
+    }
+
+    private record Resultado(String modo, double saidasPorSegundo, double p99Ms, int lotesAtingidos, int erros,
+            int concluidas, long consumido) {
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %12.1f %12.1f %10d %8d", modo, saidasPorSegundo, p99Ms, lotesAtingidos, erros);
+        }
+    }
+}
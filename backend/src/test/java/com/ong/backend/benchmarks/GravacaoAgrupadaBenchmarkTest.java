@@ -0,0 +1,152 @@
+package com.ong.backend.benchmarks;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.models.UnidadeMedida;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.services.FilaGravacaoMovimentacoes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pico de leituras no balcão: 50 voluntários registrando saídas de 1 unidade ao mesmo tempo,
+// um commit por movimentação (padrão) x gravação agrupada pela fila.
+// Roda só sob demanda: mvn test -Dtest=GravacaoAgrupadaBenchmarkTest -Dbenchmark=true
+// O H2 em memória não faz fsync no commit; no PostgreSQL a diferença por commit é maior.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark-gravacao;LOCK_TIMEOUT=60000")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Benchmark da gravação agrupada de movimentações")
+class GravacaoAgrupadaBenchmarkTest {
+
+    private static final int VOLUNTARIOS = 50;
+    private static final int SAIDAS_POR_VOLUNTARIO = 40;
+    private static final int LOTES = 20;
+    private static final int QUANTIDADE_POR_LOTE = 10_000;
+    private static final String EMAIL = "admin@ong.com";
+
+    @Autowired
+    private FilaGravacaoMovimentacoes filaGravacao;
+
+    @Autowired
+    private LoteRepository loteRepository;
+
+    @Test
+    @DisplayName("Deve comparar a latência com um commit por movimentação x commits agrupados")
+    void deveCompararLatencia() throws Exception {
+        // Aquecimento: JIT, pool de conexões e caches do Hibernate
+        medir(false, 10);
+        medir(true, 10);
+
+        Resultado direta = medir(false, VOLUNTARIOS);
+        Resultado agrupada = medir(true, VOLUNTARIOS);
+
+        System.out.printf("%n%-12s %10s %10s %10s %10s %12s %8s%n", "modo", "saídas/s", "p50 (ms)", "p95 (ms)",
+                "p99 (ms)", "máx (ms)", "erros");
+        System.out.println(direta);
+        System.out.println(agrupada);
+
+        int saidas = VOLUNTARIOS * SAIDAS_POR_VOLUNTARIO;
+        assertEquals(0, direta.erros());
+        assertEquals(0, agrupada.erros());
+        // Cada saída confirmada saiu do estoque exatamente uma vez
+        assertEquals(saidas, direta.consumido());
+        assertEquals(saidas, agrupada.consumido());
+    }
+
+    private Resultado medir(boolean agrupar, int voluntarios) throws Exception {
+        ReflectionTestUtils.setField(filaGravacao, "agrupar", agrupar);
+        filaGravacao.iniciar();
+        List<Long> loteIds = criarLotes();
+
+        List<Long> latenciasNanos = new ArrayList<>();
+        AtomicInteger erros = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        long inicio;
+        try (ExecutorService executor = Executors.newFixedThreadPool(voluntarios)) {
+            List<Future<List<Long>>> voluntariosFuturos = new ArrayList<>();
+            for (int v = 0; v < voluntarios; v++) {
+                int voluntario = v;
+                voluntariosFuturos.add(executor.submit(() -> {
+                    largada.await();
+                    List<Long> latencias = new ArrayList<>();
+                    for (int i = 0; i < SAIDAS_POR_VOLUNTARIO; i++) {
+                        Long loteId = loteIds.get((voluntario + i) % LOTES);
+                        long t0 = System.nanoTime();
+                        try {
+                            filaGravacao.registrar(
+                                    new MovimentacaoRequestDTO(loteId, null, TipoMovimentacao.SAIDA, 1), EMAIL);
+                        } catch (RuntimeException e) {
+                            erros.incrementAndGet();
+                        }
+                        latencias.add(System.nanoTime() - t0);
+                    }
+                    return latencias;
+                }));
+            }
+            inicio = System.nanoTime();
+            largada.countDown();
+            for (Future<List<Long>> futuro : voluntariosFuturos) {
+                latenciasNanos.addAll(futuro.get());
+            }
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+        filaGravacao.parar();
+
+        latenciasNanos.sort(null);
+        long restante = loteRepository.findAllById(loteIds).stream().mapToLong(Lote::getQuantidadeAtual).sum();
+        return new Resultado(
+                agrupar ? "agrupada" : "direta",
+                latenciasNanos.size() * 1e9 / duracaoNanos,
+                percentil(latenciasNanos, 0.50),
+                percentil(latenciasNanos, 0.95),
+                percentil(latenciasNanos, 0.99),
+                latenciasNanos.get(latenciasNanos.size() - 1) / 1e6,
+                erros.get(),
+                (long) LOTES * QUANTIDADE_POR_LOTE - restante);
+    }
+
+    private double percentil(List<Long> ordenadas, double p) {
+        return ordenadas.get((int) Math.ceil(ordenadas.size() * p) - 1) / 1e6;
+    }
+
+    private List<Long> criarLotes() {
+        List<Lote> lotes = new ArrayList<>();
+        for (int i = 0; i < LOTES; i++) {
+            Lote lote = new Lote();
+            lote.setQuantidadeInicial(QUANTIDADE_POR_LOTE);
+            lote.setQuantidadeAtual(QUANTIDADE_POR_LOTE);
+            lote.setDataEntrada(LocalDate.now());
+            lote.setUnidadeMedida(UnidadeMedida.UNIDADE);
+            lotes.add(lote);
+        }
+        return loteRepository.saveAll(lotes).stream().map(Lote::getId).toList();
+    }
+
+    private record Resultado(String modo, double saidasPorSegundo, double p50Ms, double p95Ms, double p99Ms,
+            double maximoMs, int erros, long consumido) {
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %10.1f %10.1f %10.1f %10.1f %12.1f %8d", modo, saidasPorSegundo, p50Ms,
+                    p95Ms, p99Ms, maximoMs, erros);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ong.backend.benchmarks;
+
+import com.ong.backend.config.DataInitializer;
+import com.ong.backend.dto.doacao.EntradaDoacaoDTO;
+import com.ong.backend.dto.doacao.ItemDoacaoDTO;
+import com.ong.backend.dto.lote.LoteItemRequestDTO;
+import com.ong.backend.dto.lote.LoteRequestDTO;
+import com.ong.backend.models.Categoria;
+import com.ong.backend.models.Produto;
+import com.ong.backend.models.UnidadeMedida;
+import com.ong.backend.repositories.CategoriaRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.services.DoacaoService;
+import com.ong.backend.services.LoteService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Vazão de INSERT nos caminhos que mais gravam: lote com vários itens, doação mista e a carga inicial.
+// Conta, pelas estatísticas do Hibernate, quantos comandos JDBC cada operação prepara.
+// Roda só sob demanda: mvn test -Dtest=InsercaoEmLoteBenchmarkTest -Dbenchmark=true
+// O H2 em memória não tem ida e volta de rede; no PostgreSQL cada comando a menos pesa mais.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmark-insercao",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Benchmark de inserção em lote")
+class InsercaoEmLoteBenchmarkTest {
+
+    private static final int ITENS_POR_OPERACAO = 20;
+    private static final int REPETICOES = 50;
+    private static final int CARGAS_INICIAIS = 10;
+    private static final String EMAIL = "admin@ong.com";
+
+    @Autowired
+    private LoteService loteService;
+
+    @Autowired
+    private DoacaoService doacaoService;
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve medir a vazão de inserção dos caminhos de entrada")
+    void deveMedirVazaoDeInsercao() {
+        List<Long> produtoIds = criarProdutos();
+        LoteRequestDTO lote = new LoteRequestDTO(
+                produtoIds.stream().map(id -> new LoteItemRequestDTO(id, 10, LocalDate.now().plusMonths(6), null, null))
+                        .toList(),
+                LocalDate.now(), UnidadeMedida.UNIDADE, "Benchmark");
+        EntradaDoacaoDTO doacao = new EntradaDoacaoDTO(
+                produtoIds.stream().map(id -> new ItemDoacaoDTO(id, 10, null, null, null, null, null)).toList(),
+                LocalDate.now(), "Benchmark");
+
+        // Aquecimento: JIT, pool de conexões e caches do Hibernate
+        for (int i = 0; i < 5; i++) {
+            loteService.criar(lote, EMAIL);
+            doacaoService.processarEntradaMista(doacao, EMAIL);
+            dataInitializer.run();
+        }
+
+        List<Resultado> resultados = List.of(
+                medir("LoteService.criar", REPETICOES, () -> loteService.criar(lote, EMAIL)),
+                medir("Doacao.entradaMista", REPETICOES, () -> doacaoService.processarEntradaMista(doacao, EMAIL)),
+                medir("DataInitializer.run", CARGAS_INICIAIS, () -> dataInitializer.run()));
+
+        System.out.printf("%n%-22s %10s %12s %14s %14s%n", "operação", "ms/op", "inserts/op", "comandos/op",
+                "inserts/s");
+        resultados.forEach(System.out::println);
+        resultados.forEach(resultado -> assertTrue(resultado.insertsPorOperacao() > 0));
+    }
+
+    private Resultado medir(String nome, int repeticoes, Runnable operacao) {
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < repeticoes; i++) {
+            operacao.run();
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+        long inserts = estatisticas.getEntityInsertCount();
+        return new Resultado(nome,
+                duracaoNanos / 1e6 / repeticoes,
+                (double) inserts / repeticoes,
+                (double) estatisticas.getPrepareStatementCount() / repeticoes,
+                inserts * 1e9 / duracaoNanos);
+    }
+
+    private List<Long> criarProdutos() {
+        Categoria categoria = new Categoria();
+        categoria.setNome("Benchmark inserção");
+        categoria = categoriaRepository.save(categoria);
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < ITENS_POR_OPERACAO; i++) {
+            Produto produto = new Produto();
+            produto.setNome("Produto benchmark " + i);
+            produto.setCategoria(categoria);
+            produtos.add(produto);
+        }
+        return produtoRepository.saveAll(produtos).stream().map(Produto::getId).toList();
+    }
+
+    private record Resultado(String operacao, double msPorOperacao, double insertsPorOperacao,
+            double comandosPorOperacao, double insertsPorSegundo) {
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %10.2f %12.1f %14.1f %14.0f", operacao, msPorOperacao, insertsPorOperacao,
+                    comandosPorOperacao, insertsPorSegundo);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ong.backend.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do JwtAuthenticationFilter")
+class JwtAuthenticationFilterTest {
+
+    private static final String EMAIL = "voluntario@ong.com";
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    private JwtUtil jwtUtil;
+    private JwtAuthenticationFilter filtro;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret-key-for-testing-purposes-only-minimum-256-bits");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshTokenExpiration", 60_000L);
+        filtro = new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        ReflectionTestUtils.setField(filtro, "stateless", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Deve autenticar pelas claims do token sem ler o usuário do banco")
+    void deveAutenticarPelasClaims() throws Exception {
+        // Given
+        when(userDetailsService.buscarAutenticado(EMAIL))
+                .thenReturn(Optional.of(new UsuarioAutenticado(7L, EMAIL, "VOLUNTARIO")));
+
+        // When
+        Authentication autenticacao = filtrar(jwtUtil.generateAccessToken(EMAIL, 7L, "Ana", "VOLUNTARIO"));
+
+        // Then
+        assertNotNull(autenticacao);
+        assertEquals(EMAIL, ((UserDetails) autenticacao.getPrincipal()).getUsername());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_VOLUNTARIO")),
+                List.copyOf(autenticacao.getAuthorities()));
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    @DisplayName("Não deve autenticar token de usuário removido ou com perfil alterado")
+    void naoDeveAutenticarUsuarioRemovidoOuComPerfilAlterado() throws Exception {
+        // Given
+        String token = jwtUtil.generateAccessToken(EMAIL, 7L, "Ana", "ADMIN");
+        when(userDetailsService.buscarAutenticado(EMAIL))
+                .thenReturn(Optional.of(new UsuarioAutenticado(7L, EMAIL, "VOLUNTARIO")))
+                .thenReturn(Optional.empty());
+
+        // When / Then
+        assertNull(filtrar(token));
+        assertNull(filtrar(token));
+    }
+
+    @Test
+    @DisplayName("Não deve autenticar requisição com refresh token")
+    void naoDeveAutenticarComRefreshToken() throws Exception {
+        // When
+        Authentication autenticacao = filtrar(jwtUtil.generateRefreshToken(7L));
+
+        // Then
+        assertNull(autenticacao);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Deve ler o usuário do banco quando o modo sem estado está desligado")
+    void deveLerDoBancoQuandoDesligado() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filtro, "stateless", false);
+        when(userDetailsService.loadUserByUsername(EMAIL)).thenReturn(User.withUsername(EMAIL)
+                .password("hash")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                .build());
+
+        // When
+        Authentication autenticacao = filtrar(jwtUtil.generateAccessToken(EMAIL, 7L, "Ana", "ADMIN"));
+
+        // Then
+        assertNotNull(autenticacao);
+        verify(userDetailsService, never()).buscarAutenticado(any());
+    }
+
+    private Authentication filtrar(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/produtos");
+        request.addHeader("Authorization", "Bearer " + token);
+        filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,192 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.alerta.AlertasDTO;
+import com.ong.backend.dto.dashboard.AlertasCriticosDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.projections.LoteValidade;
+import com.ong.backend.repositories.projections.ProdutoEstoqueMinimo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do AlertaService")
+class AlertaServiceTest {
+
+    @Mock
+    private LoteRepository loteRepository;
+
+    @Mock
+    private LoteItemRepository loteItemRepository;
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @InjectMocks
+    private AlertaService alertaService;
+
+    private final LocalDate hoje = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(alertaService, "estoqueMinimoPadrao", 10);
+    }
+
+    @Test
+    @DisplayName("Deve calcular contadores e IDs na carga inicial")
+    void deveCalcularContadoresNaCarga() {
+        // Given
+        carregar();
+
+        // When
+        AlertasDTO alertas = alertaService.obterAlertas();
+
+        // Then
+        assertTrue(alertaService.isCarregado());
+        assertEquals(1L, alertas.lotesVencendo());
+        assertEquals(List.of(1L), alertas.lotesVencendoIds());
+        assertEquals(List.of(3L), alertas.lotesSemEstoqueIds());
+        // Produto 1 usa o padrão (5 < 10); produto 2 tem mínimo próprio (8 >= 3)
+        assertEquals(List.of(1L), alertas.produtosEstoqueBaixoIds());
+        verify(loteRepository, never()).contarSemEstoque();
+    }
+
+    @Test
+    @DisplayName("Deve reavaliar apenas os lotes e produtos afetados pela alteração")
+    void deveReavaliarApenasAfetados() {
+        // Given
+        carregar();
+        when(loteRepository.buscarValidadesPorLotes(Set.of(1L)))
+                .thenReturn(List.of(new LoteValidade(1L, 0, hoje.plusDays(10))));
+        when(produtoRepository.buscarEstoqueEMinimoPorProdutos(Set.of(2L)))
+                .thenReturn(List.of(new ProdutoEstoqueMinimo(2L, 3, 2L)));
+
+        // When
+        alertaService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of(2L)));
+
+        // Then
+        AlertasDTO alertas = alertaService.obterAlertas();
+        assertEquals(0L, alertas.lotesVencendo());
+        assertEquals(List.of(1L, 3L), alertas.lotesSemEstoqueIds());
+        assertEquals(List.of(1L, 2L), alertas.produtosEstoqueBaixoIds());
+        verify(loteRepository, times(1)).buscarValidades();
+        verify(produtoRepository, times(1)).buscarEstoqueEMinimo();
+    }
+
+    @Test
+    @DisplayName("Deve remover dos alertas um lote excluído")
+    void deveRemoverLoteExcluido() {
+        // Given
+        carregar();
+        when(loteRepository.buscarValidadesPorLotes(Set.of(3L))).thenReturn(List.of());
+
+        // When
+        alertaService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(3L), Set.of()));
+
+        // Then
+        assertEquals(0L, alertaService.obterResumo().lotesSemEstoque());
+        verify(produtoRepository, never()).buscarEstoqueEMinimoPorProdutos(any());
+    }
+
+    @Test
+    @DisplayName("Deve avançar a janela de vencimento no tick diário sem consultar o banco")
+    void deveAvancarJanelaDeVencimento() {
+        // Given
+        carregar();
+        // Simula o estado calculado na véspera, quando nenhum lote estava na janela
+        ((Set<?>) ReflectionTestUtils.getField(alertaService, "lotesVencendo")).clear();
+
+        // When
+        alertaService.atualizarVencimentos();
+
+        // Then
+        assertEquals(List.of(1L), alertaService.obterAlertas().lotesVencendoIds());
+        verify(loteRepository, times(1)).buscarValidades();
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco enquanto os alertas não foram carregados")
+    void deveConsultarBancoAntesDaCarga() {
+        // Given
+        when(loteRepository.contarComEstoqueVencendoEntre(hoje, hoje.plusDays(30))).thenReturn(2L);
+        when(loteItemRepository.contarProdutosComEstoqueAbaixoDoMinimo(10)).thenReturn(4L);
+        when(loteRepository.contarSemEstoque()).thenReturn(1L);
+
+        // When
+        AlertasCriticosDTO resumo = alertaService.obterResumo();
+
+        // Then
+        assertFalse(alertaService.isCarregado());
+        assertEquals(new AlertasCriticosDTO(2L, 4L, 1L), resumo);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco fora do monitor dos alertas")
+    void deveConsultarForaDoMonitor() {
+        // Given
+        carregar();
+        when(loteRepository.buscarValidadesPorLotes(Set.of(3L))).thenAnswer(invocacao -> {
+            assertFalse(Thread.holdsLock(alertaService));
+            return List.of(new LoteValidade(3L, 5, null));
+        });
+
+        // When
+        alertaService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(3L), Set.of()));
+
+        // Then
+        assertEquals(0L, alertaService.obterResumo().lotesSemEstoque());
+    }
+
+    @Test
+    @DisplayName("Não deve sobrescrever um lote com uma leitura mais antiga que termina depois")
+    void naoDeveAplicarLeituraMaisAntiga() {
+        // Given
+        carregar();
+        // A primeira alteração lê o lote 3 ainda sem estoque, mas só termina depois da segunda, que já
+        // vê o lote reposto
+        when(loteRepository.buscarValidadesPorLotes(Set.of(3L)))
+                .thenAnswer(invocacao -> {
+                    alertaService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(3L), Set.of()));
+                    return List.of(new LoteValidade(3L, 0, null));
+                })
+                .thenReturn(List.of(new LoteValidade(3L, 5, null)));
+
+        // When
+        alertaService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(3L), Set.of()));
+
+        // Then
+        assertEquals(0L, alertaService.obterResumo().lotesSemEstoque());
+        assertTrue(alertaService.obterAlertas().lotesSemEstoqueIds().isEmpty());
+    }
+
+    private void carregar() {
+        when(loteRepository.buscarValidades()).thenReturn(Arrays.asList(
+                new LoteValidade(1L, 20, hoje.plusDays(10)),
+                new LoteValidade(1L, 20, hoje.plusDays(90)),
+                new LoteValidade(2L, 15, hoje.plusDays(60)),
+                new LoteValidade(3L, 0, hoje.plusDays(5)),
+                new LoteValidade(4L, 10, null)));
+        when(produtoRepository.buscarEstoqueEMinimo()).thenReturn(Arrays.asList(
+                new ProdutoEstoqueMinimo(1L, null, 5L),
+                new ProdutoEstoqueMinimo(2L, 3, 8L),
+                new ProdutoEstoqueMinimo(3L, null, 0L)));
+        alertaService.carregar();
+    }
+}
@@ -2,6 +2,7 @@ package com.ong.backend.services;
 
 import com.ong.backend.dto.categoria.CategoriaRequestDTO;
 import com.ong.backend.dto.categoria.CategoriaResponseDTO;
+import com.ong.backend.events.ProdutoAlteradoEvent;
 import com.ong.backend.exceptions.BusinessException;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Categoria;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.List;
@@ -29,6 +31,9 @@ class CategoriaServiceTest {
     @Mock
     private CategoriaRepository categoriaRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CategoriaService categoriaService;
 
@@ -149,6 +154,7 @@ class CategoriaServiceTest {
         assertNotNull(resultado);
         verify(categoriaRepository, times(1)).findById(1L);
         verify(categoriaRepository, times(1)).save(any(Categoria.class));
+        verify(eventPublisher).publishEvent(ProdutoAlteradoEvent.daCategoria(1L));
     }
 
     @Test
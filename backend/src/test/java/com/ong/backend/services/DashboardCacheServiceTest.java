@@ -0,0 +1,190 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.AlertasCriticosDTO;
+import com.ong.backend.dto.dashboard.DashboardMetricsDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do DashboardCacheService")
+class DashboardCacheServiceTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private ExecutorService executor;
+    private SimpleMeterRegistry meterRegistry;
+    private DashboardCacheService cache;
+
+    private final LocalDate inicio = LocalDate.of(2025, 3, 1);
+    private final LocalDate fim = LocalDate.of(2025, 3, 31);
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DashboardCacheService(dashboardService, executor, meterRegistry);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "antecedenciaMs", 15_000L);
+        ReflectionTestUtils.setField(cache, "maxDesatualizadoMs", 600_000L);
+        ReflectionTestUtils.setField(cache, "maxEntradas", 50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Deve servir do cache enquanto o valor está válido")
+    void deveServirDoCache() {
+        // Given
+        when(dashboardService.obterMetricas(inicio, fim)).thenReturn(metricas(1L, false));
+
+        // When
+        cache.obterMetricas(inicio, fim);
+        DashboardMetricsDTO resultado = cache.obterMetricas(inicio, fim);
+
+        // Then
+        assertEquals(1L, resultado.totalLotes());
+        verify(dashboardService, times(1)).obterMetricas(inicio, fim);
+        assertEquals(1.0, contador("hit"));
+        assertEquals(1.0, contador("miss"));
+        assertEquals(1L, meterRegistry.get("dashboard.cache.recalculo").timer().count());
+    }
+
+    @Test
+    @DisplayName("Deve juntar faltas concorrentes em um único cálculo")
+    void deveJuntarFaltasConcorrentes() throws Exception {
+        // Given
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(dashboardService.obterMetricas(inicio, fim)).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return metricas(1L, false);
+        });
+
+        // When
+        List<Future<DashboardMetricsDTO>> pedidos = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pedidos.add(executor.submit(() -> cache.obterMetricas(inicio, fim)));
+        }
+        while (contador("miss") < 10) {
+            Thread.sleep(5);
+        }
+        liberar.countDown();
+
+        // Then
+        for (Future<DashboardMetricsDTO> pedido : pedidos) {
+            assertEquals(1L, pedido.get(5, TimeUnit.SECONDS).totalLotes());
+        }
+        verify(dashboardService, times(1)).obterMetricas(inicio, fim);
+    }
+
+    @Test
+    @DisplayName("Deve servir o valor antigo enquanto recalcula após uma alteração")
+    void deveServirValorAntigoEnquantoRecalcula() throws Exception {
+        // Given
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(dashboardService.obterMetricas(inicio, fim))
+                .thenReturn(metricas(1L, false))
+                .thenAnswer(inv -> {
+                    liberar.await(5, TimeUnit.SECONDS);
+                    return metricas(2L, false);
+                });
+        cache.obterMetricas(inicio, fim);
+        cache.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+
+        // When
+        DashboardMetricsDTO durante = cache.obterMetricas(inicio, fim);
+        DashboardMetricsDTO aindaDurante = cache.obterMetricas(inicio, fim);
+        liberar.countDown();
+
+        // Then
+        assertEquals(1L, durante.totalLotes());
+        assertEquals(1L, aindaDurante.totalLotes());
+        assertEquals(2.0, contador("stale"));
+        verify(dashboardService, timeout(2000).times(2)).obterMetricas(inicio, fim);
+        aguardarValor(2L);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar resultado parcial")
+    void naoDeveGuardarResultadoParcial() {
+        // Given
+        when(dashboardService.obterMetricas(inicio, fim)).thenReturn(metricas(1L, true));
+
+        // When
+        cache.obterMetricas(inicio, fim);
+        cache.obterMetricas(inicio, fim);
+
+        // Then
+        verify(dashboardService, times(2)).obterMetricas(inicio, fim);
+    }
+
+    @Test
+    @DisplayName("Deve recalcular o período padrão antes de vencer")
+    void deveRecalcularPeriodoPadraoAntesDeVencer() {
+        // Given
+        when(dashboardService.obterMetricas(any(), any())).thenReturn(metricas(1L, false));
+        cache.obterMetricas(null, null);
+        cache.obterMetricas(inicio, fim);
+        ReflectionTestUtils.setField(cache, "antecedenciaMs", 60_000L);
+
+        // When
+        cache.atualizarAntecipadamente();
+
+        // Then
+        LocalDate hoje = LocalDate.now();
+        verify(dashboardService, timeout(2000).times(2)).obterMetricas(hoje.withDayOfMonth(1), hoje);
+        verify(dashboardService, times(1)).obterMetricas(inicio, fim);
+    }
+
+    @Test
+    @DisplayName("Deve repassar o erro do cálculo quando não há valor em cache")
+    void deveRepassarErroSemValorEmCache() {
+        // Given
+        when(dashboardService.obterMetricas(inicio, fim)).thenThrow(new IllegalStateException("falha"));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> cache.obterMetricas(inicio, fim));
+    }
+
+    private void aguardarValor(long esperado) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 2000;
+        while (cache.obterMetricas(inicio, fim).totalLotes() != esperado) {
+            assertTrue(System.currentTimeMillis() < limite, "Valor recalculado não chegou ao cache");
+            Thread.sleep(10);
+        }
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.counter("dashboard.cache.requisicoes", "resultado", resultado).count();
+    }
+
+    private DashboardMetricsDTO metricas(Long totalLotes, boolean parcial) {
+        return new DashboardMetricsDTO(0L, 0L, totalLotes, 0L, 0, new AlertasCriticosDTO(0L, 0L, 0L),
+                List.of(), List.of(), List.of(), List.of(), List.of(), parcial, List.of());
+    }
+}
@@ -1,8 +1,17 @@
 package com.ong.backend.services;
 
+import com.ong.backend.config.DashboardConfig;
+import com.ong.backend.dto.dashboard.AlertasCriticosDTO;
+import com.ong.backend.dto.dashboard.DashboardAtualizacaoDTO;
 import com.ong.backend.dto.dashboard.DashboardMetricsDTO;
+import com.ong.backend.dto.dashboard.EvolucaoEstoqueDTO;
+import com.ong.backend.dto.dashboard.TopProdutoDTO;
 import com.ong.backend.models.*;
 import com.ong.backend.repositories.*;
+import com.ong.backend.repositories.projections.LoteProdutoNome;
+import com.ong.backend.repositories.projections.MovimentacaoDiaResumo;
+import com.ong.backend.repositories.projections.MovimentacaoResumo;
+import com.ong.backend.repositories.projections.TipoMovimentacaoTotal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,16 +19,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
 @DisplayName("Testes do DashboardService")
 class DashboardServiceTest {
 
@@ -38,52 +62,43 @@ class DashboardServiceTest {
     @Mock
     private MovimentacaoRepository movimentacaoRepository;
 
+    @Mock
+    private EstoqueDiarioService estoqueDiarioService;
+
+    @Mock
+    private IndiceTemporalMovimentacoes indiceTemporal;
+
+    @Mock
+    private AlertaService alertaService;
+
+    @Mock
+    private DistribuicaoProdutoService distribuicaoProdutoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private DashboardService dashboardService;
 
-    private Categoria categoria;
-    private Produto produto;
-    private Lote lote;
-    private LoteItem loteItem;
-    private Movimentacao movimentacao;
-    private Usuario usuario;
-
     @BeforeEach
     void setUp() {
-        categoria = new Categoria();
-        categoria.setId(1L);
-        categoria.setNome("Alimentos");
-
-        produto = new Produto();
-        produto.setId(1L);
-        produto.setNome("Arroz");
-        produto.setCategoria(categoria);
-
-        usuario = new Usuario();
-        usuario.setId(1L);
-        usuario.setNome("Test User");
-        usuario.setEmail("test@test.com");
-
-        loteItem = new LoteItem();
-        loteItem.setId(1L);
-        loteItem.setProduto(produto);
-        loteItem.setQuantidade(10);
-        loteItem.setDataValidade(LocalDate.now().plusDays(10));
-
-        lote = new Lote();
-        lote.setId(1L);
-        lote.setQuantidadeInicial(100);
-        lote.setQuantidadeAtual(50);
-        lote.setDataEntrada(LocalDate.now());
-        lote.setItens(new ArrayList<>(Arrays.asList(loteItem)));
-
-        movimentacao = new Movimentacao();
-        movimentacao.setId(1L);
-        movimentacao.setLote(lote);
-        movimentacao.setUsuario(usuario);
-        movimentacao.setTipo(TipoMovimentacao.SAIDA);
-        movimentacao.setQuantidade(10);
-        movimentacao.setDataHora(LocalDateTime.now());
+        when(categoriaRepository.count()).thenReturn(0L);
+        when(produtoRepository.count()).thenReturn(0L);
+        when(loteRepository.count()).thenReturn(0L);
+        when(loteRepository.somarEstoqueTotal()).thenReturn(0L);
+        when(movimentacaoRepository.contarNoPeriodo(any(), any())).thenReturn(0L);
+        when(movimentacaoRepository.resumirPorDia(any(), any())).thenReturn(new ArrayList<>());
+        when(estoqueDiarioService.obterEvolucao(any(), any())).thenAnswer(inv -> {
+            LocalDate inicio = inv.getArgument(0);
+            LocalDate fim = inv.getArgument(1);
+            return inicio.datesUntil(fim.plusDays(1))
+                    .map(dia -> new EvolucaoEstoqueDTO(dia.toString(), 0L))
+                    .toList();
+        });
+        when(distribuicaoProdutoService.rankear(any(), any(), any(), anyInt())).thenReturn(new ArrayList<>());
+        when(movimentacaoRepository.buscarUltimasNoPeriodo(any(), any(), any())).thenReturn(new ArrayList<>());
+        when(movimentacaoRepository.contarPorTipoNoPeriodo(any(), any())).thenReturn(new ArrayList<>());
+        when(alertaService.obterResumo()).thenReturn(new AlertasCriticosDTO(0L, 0L, 0L));
     }
 
     @Test
@@ -93,10 +108,16 @@ class DashboardServiceTest {
         when(categoriaRepository.count()).thenReturn(5L);
         when(produtoRepository.count()).thenReturn(20L);
         when(loteRepository.count()).thenReturn(15L);
-        when(loteRepository.findAll()).thenReturn(Arrays.asList(lote));
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(Arrays.asList(movimentacao));
-        when(movimentacaoRepository.findAll()).thenReturn(Arrays.asList(movimentacao));
+        when(loteRepository.somarEstoqueTotal()).thenReturn(50L);
+        when(distribuicaoProdutoService.rankear(any(), any(), isNull(), eq(5)))
+                .thenReturn(List.of(new TopProdutoDTO("Arroz", 10L, "01/01/2025")));
+        when(movimentacaoRepository.buscarUltimasNoPeriodo(any(), any(), any()))
+                .thenReturn(List.of(new MovimentacaoResumo(1L, 1L, LocalDateTime.now(), TipoMovimentacao.SAIDA, 10,
+                        "Test User")));
+        when(loteItemRepository.buscarNomesProdutosPorLotes(any()))
+                .thenReturn(List.of(new LoteProdutoNome(1L, "Arroz")));
+        when(movimentacaoRepository.contarPorTipoNoPeriodo(any(), any()))
+                .thenReturn(List.of(new TipoMovimentacaoTotal(TipoMovimentacao.SAIDA, 1L)));
 
         // Act
         DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
@@ -109,10 +130,11 @@ class DashboardServiceTest {
         assertEquals(50L, result.estoqueTotal());
         assertNotNull(result.alertasCriticos());
         assertNotNull(result.evolucaoEstoque());
-        assertNotNull(result.top5ProdutosMaisDistribuidos());
-        assertNotNull(result.ultimasMovimentacoes());
+        assertEquals("Arroz", result.top5ProdutosMaisDistribuidos().get(0).produtoNome());
+        assertEquals(10L, result.top5ProdutosMaisDistribuidos().get(0).totalSaidas());
+        assertEquals("Arroz", result.ultimasMovimentacoes().get(0).produtoNome());
         assertNotNull(result.movimentacoesPorDia());
-        assertNotNull(result.movimentacoesPorTipo());
+        assertEquals("Saídas", result.movimentacoesPorTipo().get(0).label());
 
         verify(categoriaRepository, times(1)).count();
         verify(produtoRepository, times(1)).count();
@@ -120,51 +142,216 @@ class DashboardServiceTest {
     }
 
     @Test
-    @DisplayName("Deve calcular estoque total corretamente")
-    void deveCalcularEstoqueTotalCorretamente() {
+    @DisplayName("Não deve carregar lotes nem movimentações inteiros na memória")
+    void naoDeveCarregarTabelasInteiras() {
+        // Act
+        dashboardService.obterMetricas(LocalDate.now().minusDays(365), LocalDate.now());
+
+        // Assert
+        verify(loteRepository, never()).findAll();
+        verify(produtoRepository, never()).findAll();
+        verify(movimentacaoRepository, never()).findAll();
+        verify(movimentacaoRepository, never()).findByDataHoraBetween(any(), any());
+        verify(loteItemRepository, never()).calcularEstoqueTotalPorProduto(anyLong());
+        verify(movimentacaoRepository, times(1)).resumirPorDia(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve agrupar movimentações por dia dentro do período")
+    void deveAgruparMovimentacoesPorDia() {
         // Arrange
-        Lote lote1 = new Lote();
-        lote1.setQuantidadeAtual(100);
-        Lote lote2 = new Lote();
-        lote2.setQuantidadeAtual(50);
-        Lote lote3 = new Lote();
-        lote3.setQuantidadeAtual(null);
-
-        when(categoriaRepository.count()).thenReturn(1L);
-        when(produtoRepository.count()).thenReturn(1L);
-        when(loteRepository.count()).thenReturn(3L);
-        when(loteRepository.findAll()).thenReturn(Arrays.asList(lote1, lote2, lote3));
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findAll()).thenReturn(new ArrayList<>());
+        LocalDate hoje = LocalDate.now();
+        when(movimentacaoRepository.resumirPorDia(any(), any())).thenReturn(Arrays.asList(
+                new MovimentacaoDiaResumo(hoje.minusDays(1), 1L, 1L, 0L, 30L),
+                new MovimentacaoDiaResumo(hoje, 1L, 0L, 1L, -10L)));
 
         // Act
-        DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
+        DashboardMetricsDTO result = dashboardService.obterMetricas(hoje.minusDays(2), hoje);
+
+        // Assert
+        assertEquals(3, result.movimentacoesPorDia().size());
+        assertEquals(0, result.movimentacoesPorDia().get(0).quantidade());
+        assertEquals(1, result.movimentacoesPorDia().get(1).entradas());
+        assertEquals(1, result.movimentacoesPorDia().get(2).saidas());
+        verify(estoqueDiarioService, times(1)).obterEvolucao(hoje.minusDays(2), hoje);
+    }
+
+    @Test
+    @DisplayName("Deve usar o índice temporal em memória quando carregado")
+    void deveUsarIndiceTemporalQuandoCarregado() {
+        // Arrange
+        LocalDate hoje = LocalDate.now();
+        when(indiceTemporal.isCarregado()).thenReturn(true);
+        when(indiceTemporal.contar(hoje.minusDays(1), hoje)).thenReturn(4L);
+        when(indiceTemporal.contar(hoje, hoje)).thenReturn(3L);
+        when(indiceTemporal.contar(TipoMovimentacao.SAIDA, hoje, hoje)).thenReturn(2L);
+        when(indiceTemporal.contar(TipoMovimentacao.SAIDA, hoje.minusDays(1), hoje)).thenReturn(2L);
+
+        // Act
+        DashboardMetricsDTO result = dashboardService.obterMetricas(hoje.minusDays(1), hoje);
+
+        // Assert
+        assertEquals(4, result.movimentacoesHoje());
+        assertEquals(3, result.movimentacoesPorDia().get(1).quantidade());
+        assertEquals(2, result.movimentacoesPorDia().get(1).saidas());
+        assertEquals(1, result.movimentacoesPorTipo().size());
+        assertEquals("SAIDA", result.movimentacoesPorTipo().get(0).tipo());
+        verify(movimentacaoRepository, never()).contarNoPeriodo(any(), any());
+        verify(movimentacaoRepository, never()).resumirPorDia(any(), any());
+        verify(movimentacaoRepository, never()).contarPorTipoNoPeriodo(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve calcular as seções em paralelo, com as contagens simples em uma só transação")
+    void deveCalcularSecoesEmParalelo() {
+        // Arrange
+        when(categoriaRepository.count()).thenReturn(5L);
+        when(loteRepository.somarEstoqueTotal()).thenReturn(50L);
+        when(distribuicaoProdutoService.rankear(any(), any(), isNull(), eq(5)))
+                .thenReturn(List.of(new TopProdutoDTO("Arroz", 10L, "01/01/2025")));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            habilitarExecucaoParalela(executor, 5000);
+
+            // Act
+            DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
+
+            // Assert
+            assertFalse(result.parcial());
+            assertTrue(result.secoesIncompletas().isEmpty());
+            assertEquals(5L, result.totalCategorias());
+            assertEquals(50L, result.estoqueTotal());
+            assertEquals("Arroz", result.top5ProdutosMaisDistribuidos().get(0).produtoNome());
+            verify(transactionManager, times(8)).getTransaction(any());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve devolver dados parciais quando uma seção excede o prazo")
+    void deveDevolverDadosParciaisQuandoSecaoExcedePrazo() {
+        // Arrange
+        when(categoriaRepository.count()).thenReturn(5L);
+        when(distribuicaoProdutoService.rankear(any(), any(), any(), anyInt())).thenAnswer(inv -> {
+            Thread.sleep(5000);
+            return List.of();
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            habilitarExecucaoParalela(executor, 200);
+
+            // Act
+            DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
+
+            // Assert
+            assertTrue(result.parcial());
+            assertEquals(List.of("top5ProdutosMaisDistribuidos"), result.secoesIncompletas());
+            assertTrue(result.top5ProdutosMaisDistribuidos().isEmpty());
+            assertEquals(5L, result.totalCategorias());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve marcar como incompleta a seção que falhar")
+    void deveMarcarSecaoComErroComoIncompleta() {
+        // Arrange
+        when(alertaService.obterResumo()).thenThrow(new IllegalStateException("falha"));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            habilitarExecucaoParalela(executor, 5000);
+
+            // Act
+            DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
+
+            // Assert
+            assertTrue(result.parcial());
+            assertEquals(List.of("alertasCriticos"), result.secoesIncompletas());
+            assertNull(result.alertasCriticos().lotesSemEstoque());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve marcar todas as contagens como incompletas quando a consulta delas falhar")
+    void deveMarcarContagensComErroComoIncompletas() {
+        // Arrange
+        when(loteRepository.count()).thenThrow(new IllegalStateException("falha"));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            habilitarExecucaoParalela(executor, 5000);
+
+            // Act
+            DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
+
+            // Assert
+            assertEquals(List.of("totalCategorias", "totalProdutos", "totalLotes", "estoqueTotal"),
+                    result.secoesIncompletas());
+            assertNull(result.totalCategorias());
+            assertNull(result.estoqueTotal());
+        }
+    }
+
+    @Test
+    @DisplayName("Não deve calcular mais seções ao mesmo tempo do que as threads do executor")
+    void deveLimitarSecoesSimultaneas() {
+        // Arrange
+        AtomicInteger emAndamento = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        when(alertaService.obterResumo()).thenAnswer(inv -> {
+            maximo.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            emAndamento.decrementAndGet();
+            return new AlertasCriticosDTO(0L, 0L, 0L);
+        });
+        ExecutorService executor = new DashboardConfig().dashboardSecoesExecutor(2);
+        habilitarExecucaoParalela(executor, 5000);
+
+        try {
+            // Act: três pedidos concorrentes disputam as mesmas duas threads
+            try (ExecutorService pedidos = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 3; i++) {
+                    pedidos.execute(() -> dashboardService.obterMetricas(null, null));
+                }
+            }
+
+            // Assert
+            verify(alertaService, times(3)).obterResumo();
+            assertTrue(maximo.get() <= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void habilitarExecucaoParalela(ExecutorService executor, long timeoutSecaoMs) {
+        ReflectionTestUtils.setField(dashboardService, "dashboardSecoesExecutor", executor);
+        ReflectionTestUtils.setField(dashboardService, "execucaoParalela", true);
+        ReflectionTestUtils.setField(dashboardService, "timeoutSecaoMs", timeoutSecaoMs);
+    }
+
+    @Test
+    @DisplayName("Deve montar o delta das movimentações novas para os painéis conectados")
+    void deveMontarAtualizacaoDasNovasMovimentacoes() {
+        // Arrange
+        when(loteRepository.somarEstoqueTotal()).thenReturn(40L);
+        when(movimentacaoRepository.buscarResumosPorIds(Set.of(3L)))
+                .thenReturn(List.of(new MovimentacaoResumo(3L, 1L, LocalDateTime.now(), TipoMovimentacao.SAIDA, 10,
+                        "Test User")));
+        when(loteItemRepository.buscarNomesProdutosPorLotes(any()))
+                .thenReturn(List.of(new LoteProdutoNome(1L, "Arroz")));
+
+        // Act
+        DashboardAtualizacaoDTO result = dashboardService.obterAtualizacao(Set.of(3L), Set.of(2L));
 
         // Assert
-        assertEquals(150L, result.estoqueTotal());
+        assertEquals(40L, result.estoqueTotal());
+        assertEquals("Arroz", result.novasMovimentacoes().get(0).produtoNome());
+        assertEquals(List.of(2L), result.movimentacoesRemovidas());
+        assertNotNull(result.alertasCriticos());
     }
 
     @Test
     @DisplayName("Deve identificar lotes vencendo em 30 dias")
     void deveIdentificarLotesVencendo() {
         // Arrange
-        LoteItem itemVencendo = new LoteItem();
-        itemVencendo.setDataValidade(LocalDate.now().plusDays(25));
-        itemVencendo.setQuantidade(10);
-
-        Lote loteVencendo = new Lote();
-        loteVencendo.setId(1L);
-        loteVencendo.setQuantidadeAtual(10);
-        loteVencendo.setItens(new ArrayList<>(Arrays.asList(itemVencendo)));
-
-        when(categoriaRepository.count()).thenReturn(1L);
-        when(produtoRepository.count()).thenReturn(1L);
-        when(loteRepository.count()).thenReturn(1L);
-        when(loteRepository.findAll()).thenReturn(Arrays.asList(loteVencendo));
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findAll()).thenReturn(new ArrayList<>());
+        when(alertaService.obterResumo()).thenReturn(new AlertasCriticosDTO(1L, 0L, 0L));
 
         // Act
         DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
@@ -177,17 +364,7 @@ class DashboardServiceTest {
     @DisplayName("Deve identificar lotes sem estoque")
     void deveIdentificarLotesSemEstoque() {
         // Arrange
-        Lote loteSemEstoque = new Lote();
-        loteSemEstoque.setId(1L);
-        loteSemEstoque.setQuantidadeAtual(0);
-
-        when(categoriaRepository.count()).thenReturn(1L);
-        when(produtoRepository.count()).thenReturn(1L);
-        when(loteRepository.count()).thenReturn(1L);
-        when(loteRepository.findAll()).thenReturn(Arrays.asList(loteSemEstoque));
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findAll()).thenReturn(new ArrayList<>());
+        when(alertaService.obterResumo()).thenReturn(new AlertasCriticosDTO(0L, 0L, 1L));
 
         // Act
         DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
@@ -200,18 +377,7 @@ class DashboardServiceTest {
     @DisplayName("Deve retornar movimentações do período corretamente")
     void deveRetornarMovimentacoesNoPeriodo() {
         // Arrange
-        Movimentacao movNoPeriodo = new Movimentacao();
-        movNoPeriodo.setDataHora(LocalDateTime.now());
-        movNoPeriodo.setTipo(TipoMovimentacao.ENTRADA);
-        movNoPeriodo.setQuantidade(10);
-
-        when(categoriaRepository.count()).thenReturn(1L);
-        when(produtoRepository.count()).thenReturn(1L);
-        when(loteRepository.count()).thenReturn(1L);
-        when(loteRepository.findAll()).thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(Arrays.asList(movNoPeriodo, movNoPeriodo, movNoPeriodo));
-        when(movimentacaoRepository.findAll()).thenReturn(new ArrayList<>());
+        when(movimentacaoRepository.contarNoPeriodo(any(), any())).thenReturn(3L);
 
         // Act
         DashboardMetricsDTO result = dashboardService.obterMetricas(null, null);
@@ -227,14 +393,6 @@ class DashboardServiceTest {
         LocalDate inicio = LocalDate.now().minusDays(7);
         LocalDate fim = LocalDate.now();
 
-        when(categoriaRepository.count()).thenReturn(0L);
-        when(produtoRepository.count()).thenReturn(0L);
-        when(loteRepository.count()).thenReturn(0L);
-        when(loteRepository.findAll()).thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(new ArrayList<>());
-        when(movimentacaoRepository.findAll()).thenReturn(new ArrayList<>());
-
         // Act
         DashboardMetricsDTO result = dashboardService.obterMetricas(inicio, fim);
 
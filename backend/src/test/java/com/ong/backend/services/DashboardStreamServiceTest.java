@@ -0,0 +1,217 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.AlertasCriticosDTO;
+import com.ong.backend.dto.dashboard.DashboardAtualizacaoDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+import com.ong.backend.models.TipoMovimentacao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do DashboardStreamService")
+class DashboardStreamServiceTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private ExecutorService dashboardStreamExecutor;
+
+    @Mock
+    private ExecutorService dashboardEnvioExecutor;
+
+    @InjectMocks
+    private DashboardStreamService dashboardStreamService;
+
+    private final DashboardAtualizacaoDTO atualizacao = new DashboardAtualizacaoDTO(
+            List.of(), List.of(), 1L, 10L, 1, new AlertasCriticosDTO(0L, 0L, 0L), "01/01/2025 10:00");
+
+    @BeforeEach
+    void setUp() {
+        // Dois executores do mesmo tipo: a injeção por construtor não os distingue pelo nome
+        ReflectionTestUtils.setField(dashboardStreamService, "dashboardStreamExecutor", dashboardStreamExecutor);
+        ReflectionTestUtils.setField(dashboardStreamService, "dashboardEnvioExecutor", dashboardEnvioExecutor);
+    }
+
+    @Test
+    @DisplayName("Deve agrupar uma rajada de alterações em um único envio")
+    void deveAgruparRajadaEmUmEnvio() {
+        // Given
+        dashboardStreamService.inscrever();
+        dashboardStreamService.inscrever();
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+
+        dashboardStreamService.aoRegistrarMovimentacao(registrada(1L));
+        dashboardStreamService.aoRegistrarMovimentacao(registrada(2L));
+        dashboardStreamService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+
+        // When
+        dashboardStreamService.enviarAtualizacoes();
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        verify(dashboardService, times(1)).obterAtualizacao(Set.of(1L, 2L), Set.of());
+        assertEquals(2, dashboardStreamService.contarAssinantes());
+    }
+
+    @Test
+    @DisplayName("Deve enviar na thread do stream e pular o intervalo enquanto o envio anterior não termina")
+    void deveEnviarForaDoAgendador() {
+        // Given
+        dashboardStreamService.inscrever();
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+        dashboardStreamService.aoRegistrarMovimentacao(registrada(1L));
+        ArgumentCaptor<Runnable> envio = ArgumentCaptor.forClass(Runnable.class);
+
+        // When
+        dashboardStreamService.agendarEnvio();
+        dashboardStreamService.agendarEnvio();
+
+        // Then
+        verify(dashboardStreamExecutor, times(1)).execute(envio.capture());
+        verifyNoInteractions(dashboardService);
+        envio.getValue().run();
+        verify(dashboardService).obterAtualizacao(Set.of(1L), Set.of());
+        dashboardStreamService.agendarEnvio();
+        verify(dashboardStreamExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    @DisplayName("Não deve enviar quando nada mudou")
+    void naoDeveEnviarSemAlteracoes() {
+        // Given
+        dashboardStreamService.inscrever();
+
+        // When
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        verify(dashboardService, never()).obterAtualizacao(any(), any());
+    }
+
+    @Test
+    @DisplayName("Não deve calcular atualização sem assinantes")
+    void naoDeveCalcularSemAssinantes() {
+        // Given
+        dashboardStreamService.aoRegistrarMovimentacao(registrada(1L));
+
+        // When
+        dashboardStreamService.enviarAtualizacoes();
+        dashboardStreamService.inscrever();
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        verify(dashboardService, never()).obterAtualizacao(any(), any());
+    }
+
+    @Test
+    @DisplayName("Movimentação removida antes do envio não deve aparecer como nova")
+    void deveDescartarMovimentacaoRemovidaAntesDoEnvio() {
+        // Given
+        dashboardStreamService.inscrever();
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+        dashboardStreamService.aoRegistrarMovimentacao(registrada(1L));
+        dashboardStreamService.aoRemoverMovimentacao(
+                new MovimentacaoRemovidaEvent(1L, 1L, TipoMovimentacao.SAIDA, 5, LocalDateTime.now(), Map.of()));
+        dashboardStreamService.aoRemoverMovimentacao(
+                new MovimentacaoRemovidaEvent(7L, 1L, TipoMovimentacao.SAIDA, 5, LocalDateTime.now(), Map.of()));
+
+        // When
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        verify(dashboardService).obterAtualizacao(Set.of(), Set.of(7L));
+    }
+
+    @Test
+    @DisplayName("Deve entregar a cada assinante em tarefa própria, sem esperar pelos mais lentos")
+    void deveEnviarPorAssinante() throws IOException {
+        // Given
+        SseEmitter lento = mock(SseEmitter.class);
+        SseEmitter rapido = mock(SseEmitter.class);
+        dashboardStreamService.inscrever(lento);
+        dashboardStreamService.inscrever(rapido);
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+        ArgumentCaptor<Runnable> envios = ArgumentCaptor.forClass(Runnable.class);
+
+        // When
+        dashboardStreamService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+        dashboardStreamService.enviarAtualizacoes();
+        dashboardStreamService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        // Uma tarefa por assinante, mesmo com duas atualizações na fila de cada um
+        verify(dashboardEnvioExecutor, times(2)).execute(envios.capture());
+        envios.getAllValues().get(1).run();
+        verify(rapido, times(3)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(lento, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    @DisplayName("Deve desconectar o assinante que acumula atualizações sem receber")
+    void deveDesconectarAssinanteQueNaoAcompanha() {
+        // Given
+        SseEmitter parado = mock(SseEmitter.class);
+        dashboardStreamService.inscrever(parado);
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+
+        // When
+        for (int i = 0; i < 11; i++) {
+            dashboardStreamService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+            dashboardStreamService.enviarAtualizacoes();
+        }
+
+        // Then
+        verify(parado).complete();
+        assertEquals(0, dashboardStreamService.contarAssinantes());
+    }
+
+    @Test
+    @DisplayName("Deve remover assinante cuja conexão falhou")
+    void deveRemoverAssinanteDesconectado() throws IOException {
+        // Given
+        doAnswer(invocacao -> {
+            invocacao.<Runnable>getArgument(0).run();
+            return null;
+        }).when(dashboardEnvioExecutor).execute(any());
+        SseEmitter desconectado = mock(SseEmitter.class);
+        doNothing().doThrow(new IOException("Broken pipe"))
+                .when(desconectado).send(any(SseEmitter.SseEventBuilder.class));
+        dashboardStreamService.inscrever(desconectado);
+        dashboardStreamService.inscrever();
+        when(dashboardService.obterAtualizacao(any(), any())).thenReturn(atualizacao);
+        dashboardStreamService.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+
+        // When
+        dashboardStreamService.enviarAtualizacoes();
+
+        // Then
+        assertEquals(1, dashboardStreamService.contarAssinantes());
+    }
+
+    private MovimentacaoRegistradaEvent registrada(Long id) {
+        return new MovimentacaoRegistradaEvent(id, 1L, TipoMovimentacao.SAIDA, 5, LocalDateTime.now(), Map.of());
+    }
+}
@@ -0,0 +1,229 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.TopProdutoDTO;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.DistribuicaoDiariaProduto;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.Movimentacao;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.repositories.DistribuicaoDiariaProdutoRepository;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.repositories.projections.ProdutoDistribuidoTotal;
+import com.ong.backend.repositories.projections.SaidaDiaLote;
+import com.ong.backend.repositories.projections.SaidaDiaProduto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do DistribuicaoProdutoService")
+class DistribuicaoProdutoServiceTest {
+
+    @Mock
+    private DistribuicaoDiariaProdutoRepository distribuicaoRepository;
+
+    @Mock
+    private LoteItemRepository loteItemRepository;
+
+    @Mock
+    private MovimentacaoRepository movimentacaoRepository;
+
+    @InjectMocks
+    private DistribuicaoProdutoService distribuicaoProdutoService;
+
+    @Test
+    @DisplayName("Deve ratear a saída entre os produtos do lote mantendo a soma exata")
+    void deveRatearSaidaEntreProdutos() {
+        // Given
+        List<LoteItemQuantidade> itens = List.of(
+                new LoteItemQuantidade(1L, 10L, 1),
+                new LoteItemQuantidade(1L, 20L, 1),
+                new LoteItemQuantidade(1L, 30L, 1));
+
+        // When
+        Map<Long, Long> parcelas = DistribuicaoProdutoService.ratear(10, itens);
+        Map<Long, Long> estorno = DistribuicaoProdutoService.ratear(-10, itens);
+
+        // Then
+        assertEquals(10L, parcelas.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(Map.of(10L, 4L, 20L, 3L, 30L, 3L), parcelas);
+        assertEquals(Map.of(10L, -4L, 20L, -3L, 30L, -3L), estorno);
+    }
+
+    @Test
+    @DisplayName("Deve atribuir toda a saída ao único produto e somar itens do mesmo produto")
+    void deveAtribuirSaidaAoProdutoDoLote() {
+        // Given
+        List<LoteItemQuantidade> itens = List.of(
+                new LoteItemQuantidade(1L, 10L, 30),
+                new LoteItemQuantidade(1L, 10L, 10),
+                new LoteItemQuantidade(1L, 20L, 0));
+
+        // When
+        Map<Long, Long> parcelas = DistribuicaoProdutoService.ratear(8, itens);
+
+        // Then
+        assertEquals(Map.of(10L, 8L), parcelas);
+    }
+
+    @Test
+    @DisplayName("Deve acumular apenas saídas e estornar exatamente as parcelas gravadas")
+    void deveAcumularApenasSaidas() {
+        // Given
+        LocalDateTime dataHora = LocalDateTime.of(2025, 3, 10, 14, 0);
+        Map<Long, Long> parcelas = Map.of(10L, 4L, 20L, 3L);
+
+        // When
+        distribuicaoProdutoService.aoRegistrar(
+                new MovimentacaoRegistradaEvent(1L, 1L, TipoMovimentacao.ENTRADA, 50, dataHora, Map.of()));
+        distribuicaoProdutoService.aoRegistrar(
+                new MovimentacaoRegistradaEvent(2L, 1L, TipoMovimentacao.SAIDA, 7, dataHora, parcelas));
+        distribuicaoProdutoService.aoRemover(
+                new MovimentacaoRemovidaEvent(2L, 1L, TipoMovimentacao.SAIDA, 7, dataHora, parcelas));
+
+        // Then
+        verify(distribuicaoRepository).acumular(LocalDate.of(2025, 3, 10), parcelas);
+        verify(distribuicaoRepository).acumular(LocalDate.of(2025, 3, 10), Map.of(10L, -4L, 20L, -3L));
+        verifyNoMoreInteractions(distribuicaoRepository);
+        // Os itens atuais do lote não entram: o estorno não pode ser rateado com outros pesos
+        verifyNoInteractions(loteItemRepository);
+    }
+
+    @Test
+    @DisplayName("Deve ratear pelos itens do lote a saída gravada sem parcelas")
+    void deveRatearSaidaSemParcelas() {
+        // Given
+        LocalDateTime dataHora = LocalDateTime.of(2025, 3, 10, 14, 0);
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L)))
+                .thenReturn(List.of(new LoteItemQuantidade(1L, 10L, 5)));
+
+        // When
+        distribuicaoProdutoService.aoRegistrar(
+                new MovimentacaoRegistradaEvent(2L, 1L, TipoMovimentacao.SAIDA, 7, dataHora, Map.of()));
+
+        // Then
+        verify(distribuicaoRepository).acumular(LocalDate.of(2025, 3, 10), Map.of(10L, 7L));
+    }
+
+    @Test
+    @DisplayName("Deve fixar parcelas só nas saídas que ainda não as têm, com uma consulta de itens")
+    void deveFixarParcelasDasSaidas() {
+        // Given
+        Lote lote = new Lote();
+        lote.setId(1L);
+        Movimentacao saidaDoLote = new Movimentacao(lote, null, TipoMovimentacao.SAIDA, 9);
+        Movimentacao saidaDoProduto = new Movimentacao(lote, null, TipoMovimentacao.SAIDA, 4);
+        saidaDoProduto.getParcelas().put(30L, 4L);
+        Movimentacao entrada = new Movimentacao(lote, null, TipoMovimentacao.ENTRADA, 20);
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L))).thenReturn(List.of(
+                new LoteItemQuantidade(1L, 10L, 2),
+                new LoteItemQuantidade(1L, 30L, 1)));
+
+        // When
+        distribuicaoProdutoService.ratearSaidas(List.of(saidaDoLote, saidaDoProduto, entrada));
+
+        // Then
+        assertEquals(Map.of(10L, 6L, 30L, 3L), saidaDoLote.getParcelas());
+        assertEquals(Map.of(30L, 4L), saidaDoProduto.getParcelas());
+        assertTrue(entrada.getParcelas().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve rankear com o limite e a categoria informados")
+    void deveRankearComLimiteECategoria() {
+        // Given
+        LocalDate inicio = LocalDate.of(2025, 3, 1);
+        LocalDate fim = LocalDate.of(2025, 3, 31);
+        when(distribuicaoRepository.rankear(inicio, fim, 2L, PageRequest.of(0, 20)))
+                .thenReturn(List.of(new ProdutoDistribuidoTotal(10L, "Arroz", 42L, LocalDate.of(2025, 3, 15))));
+
+        // When
+        List<TopProdutoDTO> ranking = distribuicaoProdutoService.rankear(inicio, fim, 2L, 20);
+
+        // Then
+        assertEquals(1, ranking.size());
+        assertEquals(42L, ranking.get(0).totalSaidas());
+        assertEquals("15/03/2025", ranking.get(0).ultimaSaida());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar limite de ranking inválido")
+    void deveRejeitarLimiteInvalido() {
+        LocalDate hoje = LocalDate.now();
+        assertThrows(BusinessException.class, () -> distribuicaoProdutoService.rankear(hoje, hoje, null, 0));
+        assertThrows(BusinessException.class, () -> distribuicaoProdutoService.rankear(hoje, hoje, null, 101));
+        verify(distribuicaoRepository, never()).rankear(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o acumulado a partir das saídas existentes")
+    @SuppressWarnings("unchecked")
+    void deveReconstruirHistorico() {
+        // Given
+        LocalDate dia = LocalDate.of(2025, 3, 10);
+        when(distribuicaoRepository.count()).thenReturn(0L);
+        when(movimentacaoRepository.totalizarParcelasPorDiaEProduto()).thenReturn(List.of(
+                new SaidaDiaProduto(dia, 10L, 5L)));
+        when(movimentacaoRepository.totalizarSaidasSemParcelasPorDiaELote()).thenReturn(List.of(
+                new SaidaDiaLote(dia, 1L, 6L),
+                new SaidaDiaLote(dia, 2L, 4L)));
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L, 2L))).thenReturn(List.of(
+                new LoteItemQuantidade(1L, 10L, 5),
+                new LoteItemQuantidade(2L, 10L, 3)));
+
+        // When
+        distribuicaoProdutoService.inicializar();
+
+        // Then
+        ArgumentCaptor<List<DistribuicaoDiariaProduto>> captor = ArgumentCaptor.captor();
+        verify(distribuicaoRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(15L, captor.getValue().get(0).getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Deve creditar a cada produto de um lote com vários itens só a sua parte da saída")
+    @SuppressWarnings("unchecked")
+    void deveCreditarCadaProdutoDoLoteComVariosItensSoASuaParte() {
+        // Given: saída de 4 gravada com parcelas e saída antiga de 9 sem parcelas, no mesmo lote de dois produtos
+        LocalDate dia = LocalDate.of(2025, 3, 10);
+        when(distribuicaoRepository.count()).thenReturn(0L);
+        when(movimentacaoRepository.totalizarParcelasPorDiaEProduto()).thenReturn(List.of(
+                new SaidaDiaProduto(dia, 10L, 3L),
+                new SaidaDiaProduto(dia, 20L, 1L)));
+        when(movimentacaoRepository.totalizarSaidasSemParcelasPorDiaELote()).thenReturn(List.of(
+                new SaidaDiaLote(dia, 1L, 9L)));
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L))).thenReturn(List.of(
+                new LoteItemQuantidade(1L, 10L, 20),
+                new LoteItemQuantidade(1L, 20L, 10)));
+
+        // When
+        distribuicaoProdutoService.inicializar();
+
+        // Then: a soma por produto é a quantidade que saiu do lote (13), não 13 para cada produto
+        ArgumentCaptor<List<DistribuicaoDiariaProduto>> captor = ArgumentCaptor.captor();
+        verify(distribuicaoRepository).saveAll(captor.capture());
+        Map<Long, Long> porProduto = captor.getValue().stream().collect(Collectors.toMap(
+                DistribuicaoDiariaProduto::getProdutoId, DistribuicaoDiariaProduto::getQuantidade));
+        assertEquals(Map.of(10L, 9L, 20L, 4L), porProduto);
+    }
+}
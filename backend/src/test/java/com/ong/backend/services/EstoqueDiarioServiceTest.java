@@ -0,0 +1,255 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.dashboard.EvolucaoEstoqueDTO;
+import com.ong.backend.models.EstoqueDiario;
+import com.ong.backend.repositories.EstoqueDiarioProdutoRepository;
+import com.ong.backend.repositories.EstoqueDiarioRepository;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do EstoqueDiarioService")
+class EstoqueDiarioServiceTest {
+
+    @Mock
+    private EstoqueDiarioRepository estoqueDiarioRepository;
+
+    @Mock
+    private EstoqueDiarioProdutoRepository estoqueDiarioProdutoRepository;
+
+    @Mock
+    private LoteRepository loteRepository;
+
+    @Mock
+    private LoteItemRepository loteItemRepository;
+
+    @Mock
+    private MovimentacaoRepository movimentacaoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private EstoqueDiarioService estoqueDiarioService;
+
+    @Test
+    @DisplayName("Deve acumular as variações e gravar o total do dia fora da movimentação")
+    void deveIncrementarFechamentoDoDia() {
+        // Given
+        when(estoqueDiarioRepository.incrementar(LocalDate.now(), -2L)).thenReturn(1);
+
+        // When
+        estoqueDiarioService.registrarVariacao(-5);
+        estoqueDiarioService.registrarVariacao(3);
+
+        // Then
+        verifyNoInteractions(estoqueDiarioRepository);
+
+        // When
+        estoqueDiarioService.aplicarVariacoes();
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then
+        verify(estoqueDiarioRepository, times(1)).incrementar(LocalDate.now(), -2L);
+        verify(estoqueDiarioRepository, never()).inserirSeAusente(any(), anyLong());
+        verify(loteRepository, never()).somarEstoqueTotal();
+    }
+
+    @Test
+    @DisplayName("Deve abrir o dia com o estoque atual quando ainda não existe fechamento")
+    void deveAbrirDiaQuandoNaoExisteFechamento() {
+        // Given
+        when(estoqueDiarioRepository.incrementar(LocalDate.now(), 10L)).thenReturn(0);
+        when(loteRepository.somarEstoqueTotal()).thenReturn(110L);
+        when(estoqueDiarioRepository.inserirSeAusente(LocalDate.now(), 110L)).thenReturn(1);
+
+        // When
+        estoqueDiarioService.registrarVariacao(10);
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then
+        verify(estoqueDiarioRepository, times(1)).incrementar(LocalDate.now(), 10L);
+        verify(estoqueDiarioRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Deve somar a variação do produto na linha aberta pela virada do dia")
+    void deveSomarVariacaoNaLinhaAbertaPorOutraTransacao() {
+        // Given
+        LocalDate hoje = LocalDate.now();
+        when(estoqueDiarioProdutoRepository.incrementar(hoje, 7L, 4L)).thenReturn(0, 1);
+        when(loteItemRepository.calcularEstoqueTotalPorProduto(7L)).thenReturn(40);
+        when(estoqueDiarioProdutoRepository.inserirSeAusente(hoje, 7L, 40L)).thenReturn(0);
+
+        // When
+        estoqueDiarioService.registrarVariacaoProduto(7L, 4);
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then
+        verify(estoqueDiarioProdutoRepository, times(2)).incrementar(hoje, 7L, 4L);
+        verify(estoqueDiarioProdutoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Deve acumular as variações do produto após o commit, sem gravar na movimentação")
+    void deveAcumularVariacaoProdutoAposCommit() {
+        // Given
+        LocalDate hoje = LocalDate.now();
+        when(estoqueDiarioProdutoRepository.incrementar(hoje, 7L, 1L)).thenReturn(1);
+        when(estoqueDiarioProdutoRepository.incrementar(hoje, 8L, -2L)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // When
+            estoqueDiarioService.registrarVariacaoProduto(7L, 3);
+            estoqueDiarioService.registrarVariacaoProduto(7L, -2);
+            estoqueDiarioService.registrarVariacaoProduto(8L, -2);
+            estoqueDiarioService.aplicarVariacoes();
+
+            // Then
+            verifyNoInteractions(estoqueDiarioProdutoRepository);
+
+            // When
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        estoqueDiarioService.aplicarVariacoes();
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then
+        verify(estoqueDiarioProdutoRepository, times(1)).incrementar(hoje, 7L, 1L);
+        verify(estoqueDiarioProdutoRepository, times(1)).incrementar(hoje, 8L, -2L);
+        verify(estoqueDiarioProdutoRepository, never()).inserirSeAusente(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve abrir a linha do produto com os itens novos ao editar lote sem linha no dia")
+    void deveAbrirLinhaComItensNovosAoEditarLote() {
+        // Given
+        LocalDate hoje = LocalDate.now();
+        when(estoqueDiarioProdutoRepository.incrementar(hoje, 7L, -6L)).thenReturn(0);
+        when(loteItemRepository.calcularEstoqueTotalPorProduto(7L)).thenReturn(4);
+        when(estoqueDiarioProdutoRepository.inserirSeAusente(hoje, 7L, 4L)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // When: a edição tira os 10 itens antigos antes de trocá-los pelos 4 novos
+            estoqueDiarioService.registrarVariacaoProduto(7L, -10);
+            estoqueDiarioService.registrarVariacaoProduto(7L, 4);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then
+        verify(estoqueDiarioProdutoRepository).inserirSeAusente(hoje, 7L, 4L);
+        verify(estoqueDiarioProdutoRepository, times(1)).incrementar(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve montar a evolução com uma leitura por período, repetindo dias sem fechamento")
+    void deveMontarEvolucaoRepetindoDiasSemFechamento() {
+        // Given
+        LocalDate inicio = LocalDate.of(2025, 1, 1);
+        LocalDate fim = LocalDate.of(2025, 1, 4);
+        when(estoqueDiarioRepository.findByDataBetweenOrderByData(inicio, fim)).thenReturn(Arrays.asList(
+                new EstoqueDiario(LocalDate.of(2025, 1, 2), 80L),
+                new EstoqueDiario(LocalDate.of(2025, 1, 4), 60L)));
+        when(estoqueDiarioRepository.findFirstByDataLessThanOrderByDataDesc(inicio))
+                .thenReturn(Optional.of(new EstoqueDiario(LocalDate.of(2024, 12, 31), 100L)));
+
+        // When
+        List<EvolucaoEstoqueDTO> evolucao = estoqueDiarioService.obterEvolucao(inicio, fim);
+
+        // Then
+        assertEquals(4, evolucao.size());
+        assertEquals(100L, evolucao.get(0).estoque());
+        assertEquals(80L, evolucao.get(1).estoque());
+        assertEquals(80L, evolucao.get(2).estoque());
+        assertEquals(60L, evolucao.get(3).estoque());
+        assertEquals("01/01", evolucao.get(0).dia());
+    }
+
+    @Test
+    @DisplayName("Deve registrar fechamento de ontem descontando o saldo movimentado hoje")
+    void deveRegistrarFechamentoDeOntem() {
+        // Given
+        LocalDate hoje = LocalDate.now();
+        when(loteRepository.somarEstoqueTotal()).thenReturn(200L);
+        when(movimentacaoRepository.calcularSaldoDesde(hoje.atStartOfDay())).thenReturn(15L);
+        when(estoqueDiarioRepository.findByData(any())).thenReturn(Optional.empty());
+        when(loteItemRepository.calcularEstoquePorProduto()).thenReturn(List.of());
+
+        // When
+        estoqueDiarioService.registrarFechamentoDiario();
+
+        // Then
+        ArgumentCaptor<EstoqueDiario> captor = ArgumentCaptor.forClass(EstoqueDiario.class);
+        verify(estoqueDiarioRepository, times(2)).save(captor.capture());
+        assertEquals(hoje.minusDays(1), captor.getAllValues().get(0).getData());
+        assertEquals(185L, captor.getAllValues().get(0).getQuantidade());
+        assertEquals(hoje, captor.getAllValues().get(1).getData());
+        assertEquals(200L, captor.getAllValues().get(1).getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Não deve contar de novo no dia a variação confirmada antes da leitura do fechamento")
+    void naoDeveContarDuasVezesVariacaoConfirmadaAntesDoFechamento() throws Exception {
+        // Given
+        LocalDate hoje = LocalDate.now();
+        when(loteRepository.somarEstoqueTotal()).thenReturn(200L);
+        when(movimentacaoRepository.calcularSaldoDesde(hoje.atStartOfDay())).thenReturn(15L);
+        when(estoqueDiarioRepository.findByData(any())).thenReturn(Optional.empty());
+        when(loteItemRepository.calcularEstoquePorProduto()).thenReturn(List.of());
+        when(estoqueDiarioRepository.incrementar(hoje, 3L)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        CompletableFuture<Void> fechamento;
+        try {
+            // When: a movimentação entra no commit e o fechamento começa antes de ela chegar à fila
+            estoqueDiarioService.registrarVariacao(-5);
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+            fechamento = CompletableFuture.runAsync(estoqueDiarioService::registrarFechamentoDiario);
+
+            // Then
+            verify(loteRepository, after(200).never()).somarEstoqueTotal();
+
+            // When
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        fechamento.get(5, TimeUnit.SECONDS);
+        estoqueDiarioService.registrarVariacao(3);
+        estoqueDiarioService.aplicarVariacoes();
+
+        // Then: a leitura já contém a saída; só a variação posterior vai para a linha de hoje
+        verify(estoqueDiarioRepository, times(1)).incrementar(any(), anyLong());
+        verify(estoqueDiarioRepository).incrementar(hoje, 3L);
+    }
+}
@@ -0,0 +1,174 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.services.MovimentacaoService.ResultadoGrupo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes da FilaGravacaoMovimentacoes")
+class FilaGravacaoMovimentacoesTest {
+
+    @Mock
+    private MovimentacaoService movimentacaoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FilaGravacaoMovimentacoes fila;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        fila = new FilaGravacaoMovimentacoes(movimentacaoService, meterRegistry);
+        // Grupo fecha por tamanho: a espera longa deixa o teste determinístico
+        ReflectionTestUtils.setField(fila, "esperaMs", 5_000L);
+        ReflectionTestUtils.setField(fila, "tamanhoGrupo", 3);
+        ReflectionTestUtils.setField(fila, "capacidadeFila", 10);
+        ReflectionTestUtils.setField(fila, "esperaVagaMs", 1_000L);
+        fila.registrarMetricas();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        fila.parar();
+    }
+
+    @Test
+    @DisplayName("Deve gravar direto quando o agrupamento está desligado")
+    void deveGravarDiretoQuandoDesligado() {
+        // Given
+        MovimentacaoRequestDTO dto = pedido(1L, 1);
+        when(movimentacaoService.criar(dto, "a@ong.com")).thenReturn(resposta(1L, 1));
+
+        // When
+        fila.iniciar();
+        MovimentacaoResponseDTO resposta = fila.registrar(dto, "a@ong.com");
+
+        // Then
+        assertEquals(1L, resposta.id());
+        verify(movimentacaoService, never()).registrarGrupo(anyList(), anyList());
+        assertEquals(1, meterRegistry.get("movimentacoes.gravacao").tag("modo", "direta").timer().count());
+    }
+
+    @Test
+    @DisplayName("Deve gravar os pedidos simultâneos num commit só, cada um com a sua resposta")
+    void deveAgruparPedidosSimultaneos() throws Exception {
+        // Given
+        when(movimentacaoService.registrarGrupo(anyList(), anyList())).thenAnswer(inv -> {
+            List<MovimentacaoRequestDTO> itens = inv.getArgument(0);
+            return itens.stream()
+                    .map(item -> new ResultadoGrupo(resposta(item.loteId(), item.quantidade()), null))
+                    .toList();
+        });
+        ativar();
+
+        // When
+        List<Future<MovimentacaoResponseDTO>> respostas = registrarEmParalelo(
+                List.of(pedido(1L, 1), pedido(2L, 2), pedido(3L, 3)));
+
+        // Then
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, respostas.get(i).get().quantidade());
+        }
+        verify(movimentacaoService, times(1)).registrarGrupo(anyList(), anyList());
+        verify(movimentacaoService, never()).criar(any(), any());
+        assertEquals(3, meterRegistry.get("movimentacoes.gravacao").tag("modo", "agrupada").timer().count());
+        assertEquals(3.0, meterRegistry.get("movimentacoes.gravacao.grupo").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Deve devolver a quem pediu a exceção do seu próprio pedido")
+    void deveDevolverErroDoProprioPedido() throws Exception {
+        // Given
+        BusinessException semSaldo = new BusinessException("Quantidade insuficiente em estoque. Disponível: 0");
+        when(movimentacaoService.registrarGrupo(anyList(), anyList())).thenAnswer(inv -> {
+            List<MovimentacaoRequestDTO> itens = inv.getArgument(0);
+            return itens.stream()
+                    .map(item -> item.loteId() == 2L
+                            ? new ResultadoGrupo(null, semSaldo)
+                            : new ResultadoGrupo(resposta(item.loteId(), item.quantidade()), null))
+                    .toList();
+        });
+        ativar();
+
+        // When
+        List<Future<MovimentacaoResponseDTO>> respostas = registrarEmParalelo(
+                List.of(pedido(1L, 1), pedido(2L, 2), pedido(3L, 3)));
+
+        // Then
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> respostas.get(1).get());
+        assertSame(semSaldo, erro.getCause());
+        assertEquals(1, respostas.get(0).get().quantidade());
+        assertEquals(3, respostas.get(2).get().quantidade());
+    }
+
+    @Test
+    @DisplayName("Deve refazer cada pedido sozinho quando o grupo inteiro falha")
+    void deveRefazerPedidosQuandoGrupoFalha() throws Exception {
+        // Given
+        when(movimentacaoService.registrarGrupo(anyList(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("falha"));
+        when(movimentacaoService.criar(any(), any())).thenAnswer(inv -> {
+            MovimentacaoRequestDTO dto = inv.getArgument(0);
+            return resposta(dto.loteId(), dto.quantidade());
+        });
+        ativar();
+
+        // When
+        List<Future<MovimentacaoResponseDTO>> respostas = registrarEmParalelo(
+                List.of(pedido(1L, 1), pedido(2L, 2), pedido(3L, 3)));
+
+        // Then
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, respostas.get(i).get().quantidade());
+        }
+        verify(movimentacaoService, times(3)).criar(any(), any());
+    }
+
+    private void ativar() {
+        ReflectionTestUtils.setField(fila, "agrupar", true);
+        fila.iniciar();
+    }
+
+    private List<Future<MovimentacaoResponseDTO>> registrarEmParalelo(List<MovimentacaoRequestDTO> pedidos)
+            throws InterruptedException {
+        List<Future<MovimentacaoResponseDTO>> respostas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(pedidos.size())) {
+            for (MovimentacaoRequestDTO pedido : pedidos) {
+                respostas.add(executor.submit(() -> fila.registrar(pedido, "voluntario@ong.com")));
+            }
+        }
+        return respostas;
+    }
+
+    private MovimentacaoRequestDTO pedido(Long loteId, int quantidade) {
+        return new MovimentacaoRequestDTO(loteId, null, TipoMovimentacao.SAIDA, quantidade);
+    }
+
+    private MovimentacaoResponseDTO resposta(Long id, int quantidade) {
+        return new MovimentacaoResponseDTO(id, null, null, TipoMovimentacao.SAIDA, quantidade, LocalDateTime.now());
+    }
+}
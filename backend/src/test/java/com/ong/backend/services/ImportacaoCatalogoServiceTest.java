@@ -0,0 +1,189 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.produto.ImportacaoCatalogoDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.Categoria;
+import com.ong.backend.services.ProdutoService.ItemCatalogo;
+import com.ong.backend.services.ProdutoService.ResultadoCatalogo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do ImportacaoCatalogoService")
+class ImportacaoCatalogoServiceTest {
+
+    @Mock
+    private ProdutoService produtoService;
+
+    @Mock
+    private CategoriaService categoriaService;
+
+    private ImportacaoCatalogoService service;
+    private Categoria alimentos;
+    private Cache produtos;
+
+    @BeforeEach
+    void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("produtos", "produtos-estoque");
+        produtos = cacheManager.getCache("produtos");
+        produtos.put("todos", List.of());
+        service = new ImportacaoCatalogoService(produtoService, categoriaService, cacheManager);
+        ReflectionTestUtils.setField(service, "tamanhoBloco", 2);
+        alimentos = new Categoria();
+        alimentos.setId(1L);
+        alimentos.setNome("Alimentos");
+    }
+
+    @Test
+    @DisplayName("Deve gravar o catálogo em blocos, carregando categorias e índice uma vez só")
+    void deveGravarEmBlocos() {
+        // Given
+        Map<String, Long> indice = new HashMap<>(Map.of("789001", 10L));
+        when(categoriaService.buscarEntidadesPorNome()).thenReturn(Map.of("alimentos", alimentos));
+        when(produtoService.indicePorCodigoBarras()).thenReturn(indice);
+        when(produtoService.gravarCatalogo(anyList(), anyMap()))
+                .thenReturn(new ResultadoCatalogo(1, 1, 0), new ResultadoCatalogo(0, 0, 1));
+        String csv = """
+                EAN;Nome;Categoria;Estoque Minimo
+                789001;Arroz 5kg;alimentos;20
+                789002;Feijão 1kg;Alimentos;
+                789003;Óleo 900ml;ALIMENTOS;
+                """;
+
+        // When
+        ImportacaoCatalogoDTO resultado = service.importar(arquivo(csv));
+
+        // Then
+        assertEquals(3, resultado.linhasLidas());
+        assertEquals(1, resultado.inseridos());
+        assertEquals(1, resultado.atualizados());
+        assertEquals(1, resultado.ignorados());
+        assertTrue(resultado.erros().isEmpty());
+        verify(categoriaService, times(1)).buscarEntidadesPorNome();
+        verify(produtoService, times(1)).indicePorCodigoBarras();
+
+        ArgumentCaptor<List<ItemCatalogo>> blocos = ArgumentCaptor.captor();
+        verify(produtoService, times(2)).gravarCatalogo(blocos.capture(), same(indice));
+        ItemCatalogo arroz = blocos.getAllValues().get(0).get(0);
+        assertEquals("789001", arroz.codigoBarras());
+        assertSame(alimentos, arroz.categoria());
+        assertEquals(20, arroz.estoqueMinimo());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar linhas inválidas, categorias desconhecidas e códigos repetidos no arquivo")
+    void deveIgnorarLinhasInvalidas() {
+        // Given
+        when(categoriaService.buscarEntidadesPorNome()).thenReturn(Map.of("alimentos", alimentos));
+        when(produtoService.indicePorCodigoBarras()).thenReturn(new HashMap<>());
+        when(produtoService.gravarCatalogo(anyList(), anyMap())).thenReturn(new ResultadoCatalogo(1, 0, 0));
+        String csv = """
+                codigoBarrasFabricante,nome,categoria,estoqueMinimo
+                789001,Arroz,Alimentos,
+                789001,Arroz de novo,Alimentos,
+                ,Sem código,Alimentos,
+                789004,Sabonete,Higiene,
+                789005,Macarrão,Alimentos,-1
+                """;
+
+        // When
+        ImportacaoCatalogoDTO resultado = service.importar(arquivo(csv));
+
+        // Then
+        assertEquals(5, resultado.linhasLidas());
+        assertEquals(1, resultado.inseridos());
+        assertEquals(4, resultado.ignorados());
+        assertEquals(List.of(
+                "Linha 3: Código de barras repetido no arquivo: 789001",
+                "Linha 4: Código de barras, nome e categoria são obrigatórios.",
+                "Linha 5: Categoria não encontrada: 'Higiene'.",
+                "Linha 6: Estoque mínimo deve ser maior ou igual a zero"), resultado.erros());
+    }
+
+    @Test
+    @DisplayName("Deve seguir importando quando um bloco é recusado pelo banco")
+    void deveSeguirQuandoBlocoFalha() {
+        // Given
+        when(categoriaService.buscarEntidadesPorNome()).thenReturn(Map.of("alimentos", alimentos));
+        when(produtoService.indicePorCodigoBarras()).thenReturn(new HashMap<>());
+        when(produtoService.gravarCatalogo(anyList(), anyMap()))
+                .thenThrow(new RuntimeException("violação de chave"))
+                .thenReturn(new ResultadoCatalogo(1, 0, 0));
+        String csv = "ean;nome;categoria\n1;A;Alimentos\n2;B;Alimentos\n3;C;Alimentos\n";
+
+        // When
+        ImportacaoCatalogoDTO resultado = service.importar(arquivo(csv));
+
+        // Then
+        assertEquals(1, resultado.inseridos());
+        assertEquals(2, resultado.ignorados());
+        assertEquals(List.of("Linhas 2 a 3 não gravadas: violação de chave"), resultado.erros());
+    }
+
+    @Test
+    @DisplayName("Deve recusar o arquivo sem coluna de código de barras")
+    void deveRecusarSemCodigoBarras() {
+        // When & Then
+        assertThrows(BusinessException.class, () -> service.importar(arquivo("nome;categoria\nArroz;Alimentos\n")));
+        verify(produtoService, never()).gravarCatalogo(any(), any());
+        // Nada gravado: o cache fica como estava
+        assertNotNull(produtos.get("todos"));
+    }
+
+    @Test
+    @DisplayName("Deve limpar os caches de produtos quando a leitura falha depois de um bloco gravado")
+    void deveLimparCachesQuandoLeituraFalhaAposBlocoGravado() throws IOException {
+        // Given
+        when(categoriaService.buscarEntidadesPorNome()).thenReturn(Map.of("alimentos", alimentos));
+        when(produtoService.indicePorCodigoBarras()).thenReturn(new HashMap<>());
+        when(produtoService.gravarCatalogo(anyList(), anyMap())).thenReturn(new ResultadoCatalogo(2, 0, 0));
+        byte[] inicio = "ean;nome;categoria\n1;A;Alimentos\n2;B;Alimentos\n3;C;Alimentos\n"
+                .getBytes(StandardCharsets.UTF_8);
+        InputStream conexaoCaida = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("conexão encerrada");
+            }
+        };
+        MultipartFile arquivo = mock(MultipartFile.class);
+        when(arquivo.getInputStream())
+                .thenReturn(new SequenceInputStream(new ByteArrayInputStream(inicio), conexaoCaida));
+
+        // When
+        assertThrows(UncheckedIOException.class, () -> service.importar(arquivo));
+
+        // Then
+        verify(produtoService, times(1)).gravarCatalogo(anyList(), anyMap());
+        assertNull(produtos.get("todos"));
+    }
+
+    private MockMultipartFile arquivo(String conteudo) {
+        return new MockMultipartFile("arquivo", "catalogo.csv", "text/csv", conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,194 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.doacao.EntradaDoacaoDTO;
+import com.ong.backend.dto.doacao.ImportacaoDoacaoDTO;
+import com.ong.backend.dto.doacao.StatusImportacao;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.Produto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do ImportacaoDoacaoService")
+class ImportacaoDoacaoServiceTest {
+
+    private static final String EMAIL = "admin@ong.com";
+
+    @Mock
+    private DoacaoService doacaoService;
+
+    @Mock
+    private ProdutoService produtoService;
+
+    private ExecutorService executor;
+    private ImportacaoDoacaoService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        service = new ImportacaoDoacaoService(doacaoService, produtoService, executor);
+        ReflectionTestUtils.setField(service, "tamanhoBloco", 2);
+        ReflectionTestUtils.setField(service, "retencaoMs", 3_600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve importar as linhas válidas em blocos, uma entrada por bloco")
+    void deveImportarEmBlocos() throws Exception {
+        // Given
+        produtosExistentes(1L, 2L);
+        String csv = """
+                produtoId;quantidade;validade;unidadeMedida
+                1;10;2027-01-31;UNIDADE
+                2;5;31/12/2026;
+                1;3;;
+                """;
+
+        // When
+        ImportacaoDoacaoDTO iniciada = service.iniciar(arquivo(csv), LocalDate.of(2026, 10, 1), "Campanha", EMAIL);
+        ImportacaoDoacaoDTO concluida = aguardar(iniciada);
+
+        // Then
+        assertEquals(StatusImportacao.NA_FILA, iniciada.status());
+        assertEquals(StatusImportacao.CONCLUIDA, concluida.status());
+        assertEquals(100, concluida.percentual());
+        assertEquals(3, concluida.linhasLidas());
+        assertEquals(3, concluida.linhasImportadas());
+        assertEquals(0, concluida.linhasComFalha());
+
+        ArgumentCaptor<EntradaDoacaoDTO> entradas = ArgumentCaptor.forClass(EntradaDoacaoDTO.class);
+        verify(doacaoService, times(2)).processarEntradaMista(entradas.capture(), eq(EMAIL));
+        assertEquals(2, entradas.getAllValues().get(0).itens().size());
+        assertEquals(1, entradas.getAllValues().get(1).itens().size());
+        assertEquals(LocalDate.of(2026, 12, 31), entradas.getAllValues().get(0).itens().get(1).validade());
+        assertEquals("Campanha", entradas.getAllValues().get(0).observacoesGerais());
+    }
+
+    @Test
+    @DisplayName("Deve registrar no relatório as linhas inválidas e os produtos inexistentes")
+    void deveRegistrarFalhasNoRelatorio() throws Exception {
+        // Given
+        produtosExistentes(1L);
+        String csv = """
+                produto_id,quantidade
+                1,10
+                abc,5
+                1,0
+                99,4
+                """;
+
+        // When
+        ImportacaoDoacaoDTO concluida = aguardar(service.iniciar(arquivo(csv), null, null, EMAIL));
+
+        // Then
+        assertEquals(StatusImportacao.CONCLUIDA, concluida.status());
+        assertEquals(1, concluida.linhasImportadas());
+        assertEquals(3, concluida.linhasComFalha());
+        List<String> relatorio = Files.readAllLines(service.buscarRelatorioFalhas(concluida.id(), EMAIL));
+        assertEquals("linha;erro;conteudo", relatorio.get(0));
+        assertTrue(relatorio.get(1).startsWith("3;\"ID de produto inválido"));
+        assertTrue(relatorio.get(2).startsWith("4;\"A quantidade deve ser maior que zero"));
+        assertTrue(relatorio.get(3).startsWith("5;\"Produto não encontrado(a) com id: 99"));
+    }
+
+    @Test
+    @DisplayName("Deve refazer linha a linha o bloco recusado pelo banco")
+    void deveRefazerBlocoRecusado() throws Exception {
+        // Given
+        produtosExistentes(1L, 2L);
+        when(doacaoService.processarEntradaMista(any(), eq(EMAIL))).thenAnswer(inv -> {
+            EntradaDoacaoDTO entrada = inv.getArgument(0);
+            if (entrada.itens().stream().anyMatch(item -> item.produtoId() == 2L)) {
+                throw new BusinessException("Produto inativo");
+            }
+            return List.of();
+        });
+
+        // When
+        ImportacaoDoacaoDTO concluida = aguardar(service.iniciar(arquivo("produtoId;quantidade\n1;1\n2;1\n"),
+                null, null, EMAIL));
+
+        // Then
+        assertEquals(1, concluida.linhasImportadas());
+        assertEquals(1, concluida.linhasComFalha());
+        verify(doacaoService, times(3)).processarEntradaMista(any(), eq(EMAIL));
+    }
+
+    @Test
+    @DisplayName("Deve recusar na hora o arquivo sem as colunas obrigatórias")
+    void deveRecusarCabecalhoInvalido() {
+        // When & Then
+        BusinessException erro = assertThrows(BusinessException.class,
+                () -> service.iniciar(arquivo("produtoId;validade\n1;2027-01-01\n"), null, null, EMAIL));
+        assertTrue(erro.getMessage().contains("quantidade"));
+        verifyNoInteractions(doacaoService);
+    }
+
+    @Test
+    @DisplayName("Deve tratar como inexistente a importação de outro usuário")
+    void deveEsconderImportacaoDeOutroUsuario() throws Exception {
+        // Given
+        produtosExistentes(1L);
+        ImportacaoDoacaoDTO importacao = aguardar(service.iniciar(arquivo("produtoId;quantidade\n1;1\n"),
+                null, null, EMAIL));
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> service.buscar(importacao.id(), "outro@ong.com"));
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.buscarRelatorioFalhas(importacao.id(), "outro@ong.com"));
+    }
+
+    private void produtosExistentes(Long... ids) {
+        Map<Long, Produto> produtos = List.of(ids).stream().collect(Collectors.toMap(Function.identity(), id -> {
+            Produto produto = new Produto();
+            produto.setId(id);
+            return produto;
+        }));
+        when(produtoService.buscarEntidadesPorIds(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> pedidos = inv.getArgument(0);
+            return produtos.entrySet().stream().filter(e -> pedidos.contains(e.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        });
+    }
+
+    private MockMultipartFile arquivo(String conteudo) {
+        return new MockMultipartFile("arquivo", "doacoes.csv", "text/csv", conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // O executor tem uma thread só: quando a tarefa seguinte roda, a importação já terminou
+    private ImportacaoDoacaoDTO aguardar(ImportacaoDoacaoDTO importacao) throws Exception {
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        return service.buscar(importacao.id(), EMAIL);
+    }
+}
@@ -0,0 +1,152 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.projections.LoteItemAlocavel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do IndiceAlocacaoEstoque")
+class IndiceAlocacaoEstoqueTest {
+
+    @Mock
+    private LoteItemRepository loteItemRepository;
+
+    @InjectMocks
+    private IndiceAlocacaoEstoque indice;
+
+    private final LocalDate hoje = LocalDate.now();
+
+    @Test
+    @DisplayName("Deve planejar pela validade mais próxima e, no empate, pelo lote mais antigo")
+    void devePlanejarPorValidadeEEntrada() {
+        // Given
+        carregar();
+
+        // When
+        List<LoteItemAlocavel> plano = indice.planejar(1L, 25);
+
+        // Then
+        // Lote 3 vence antes; lotes 1 e 2 vencem juntos e o 2 entrou primeiro; o 4 não tem validade
+        assertEquals(List.of(3L, 2L, 1L), plano.stream().map(LoteItemAlocavel::loteId).toList());
+        verify(loteItemRepository, times(1)).buscarAlocaveis();
+    }
+
+    @Test
+    @DisplayName("Deve considerar o saldo do lote quando menor que o do item")
+    void deveConsiderarSaldoDoLote() {
+        // Given
+        when(loteItemRepository.buscarAlocaveis()).thenReturn(Arrays.asList(
+                new LoteItemAlocavel(1L, 1L, 1L, 20, 5, hoje.plusDays(5), hoje.minusDays(2)),
+                new LoteItemAlocavel(2L, 2L, 1L, 20, 20, hoje.plusDays(9), hoje.minusDays(1))));
+        indice.carregar();
+
+        // When
+        List<LoteItemAlocavel> plano = indice.planejar(1L, 10);
+
+        // Then
+        assertEquals(List.of(1L, 2L), plano.stream().map(LoteItemAlocavel::loteId).toList());
+    }
+
+    @Test
+    @DisplayName("Deve devolver todos os itens quando o saldo não basta")
+    void deveDevolverTodosQuandoSaldoInsuficiente() {
+        // Given
+        carregar();
+
+        // When / Then
+        assertEquals(4, indice.planejar(1L, 1000).size());
+        assertTrue(indice.planejar(99L, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve recarregar do banco apenas os lotes alterados")
+    void deveRecarregarLotesAlterados() {
+        // Given
+        carregar();
+        // Lote 3 esgotou e o lote 2 passou a vencer amanhã
+        when(loteItemRepository.buscarAlocaveisPorLotes(Set.of(2L, 3L))).thenReturn(List.of(
+                new LoteItemAlocavel(2L, 2L, 1L, 10, 10, hoje.plusDays(1), hoje.minusDays(20))));
+
+        // When
+        indice.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(2L, 3L), Set.of(1L)));
+
+        // Then
+        assertEquals(List.of(2L, 1L), indice.planejar(1L, 15).stream().map(LoteItemAlocavel::loteId).toList());
+        verify(loteItemRepository, times(1)).buscarAlocaveis();
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco sem bloquear os planejamentos")
+    void deveConsultarSemBloquearPlanejamentos() {
+        // Given
+        carregar();
+        when(loteItemRepository.buscarAlocaveisPorLotes(Set.of(3L))).thenAnswer(invocacao -> {
+            // Outra thread planeja enquanto a consulta está em andamento
+            List<LoteItemAlocavel> plano = CompletableFuture.supplyAsync(() -> indice.planejar(1L, 5))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(3L), plano.stream().map(LoteItemAlocavel::loteId).toList());
+            return List.of();
+        });
+
+        // When
+        indice.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(3L), Set.of(1L)));
+
+        // Then
+        assertEquals(List.of(2L), indice.planejar(1L, 5).stream().map(LoteItemAlocavel::loteId).toList());
+    }
+
+    @Test
+    @DisplayName("Não deve sobrescrever um lote com uma leitura mais antiga que termina depois")
+    void naoDeveAplicarLeituraMaisAntiga() {
+        // Given
+        carregar();
+        LoteItemAlocavel atual = new LoteItemAlocavel(3L, 3L, 1L, 2, 2, hoje.plusDays(3), hoje);
+        LoteItemAlocavel antigo = new LoteItemAlocavel(3L, 3L, 1L, 8, 8, hoje.plusDays(3), hoje);
+
+        // When
+        indice.atualizarLotes(Set.of(3L), List.of(atual), 11);
+        indice.atualizarLotes(Set.of(3L), List.of(antigo), 10);
+
+        // Then
+        List<LoteItemAlocavel> plano = indice.planejar(1L, 1);
+        assertEquals(List.of(atual), plano);
+        assertEquals(2, plano.get(0).disponivel());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar alterações antes da carga inicial")
+    void deveIgnorarAlteracoesAntesDaCarga() {
+        // When
+        indice.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+
+        // Then
+        assertFalse(indice.isCarregado());
+        verifyNoInteractions(loteItemRepository);
+    }
+
+    private void carregar() {
+        when(loteItemRepository.buscarAlocaveis()).thenReturn(Arrays.asList(
+                new LoteItemAlocavel(1L, 1L, 1L, 10, 10, hoje.plusDays(30), hoje.minusDays(5)),
+                new LoteItemAlocavel(2L, 2L, 1L, 10, 10, hoje.plusDays(30), hoje.minusDays(20)),
+                new LoteItemAlocavel(3L, 3L, 1L, 10, 30, hoje.plusDays(3), hoje),
+                new LoteItemAlocavel(4L, 4L, 1L, 10, 10, null, hoje.minusDays(90)),
+                new LoteItemAlocavel(5L, 4L, 2L, 10, 10, null, hoje.minusDays(90))));
+        indice.carregar();
+    }
+}
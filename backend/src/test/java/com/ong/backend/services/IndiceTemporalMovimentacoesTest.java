@@ -0,0 +1,136 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
+import com.ong.backend.events.MovimentacaoRemovidaEvent;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.MovimentacaoDiaTipoTotal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do IndiceTemporalMovimentacoes")
+class IndiceTemporalMovimentacoesTest {
+
+    @Mock
+    private MovimentacaoRepository movimentacaoRepository;
+
+    @InjectMocks
+    private IndiceTemporalMovimentacoes indice;
+
+    private final LocalDate hoje = LocalDate.now();
+
+    @Test
+    @DisplayName("Deve responder consultas por intervalo a partir da carga inicial")
+    void deveResponderConsultasPorIntervalo() {
+        // Given
+        when(movimentacaoRepository.totalizarPorDiaETipo()).thenReturn(Arrays.asList(
+                new MovimentacaoDiaTipoTotal(hoje.minusDays(10), TipoMovimentacao.ENTRADA, 2L, 50L),
+                new MovimentacaoDiaTipoTotal(hoje.minusDays(5), TipoMovimentacao.SAIDA, 3L, 12L),
+                new MovimentacaoDiaTipoTotal(hoje, TipoMovimentacao.SAIDA, 1L, 4L)));
+
+        // When
+        indice.carregar();
+
+        // Then
+        assertTrue(indice.isCarregado());
+        assertEquals(6, indice.contar(hoje.minusDays(30), hoje));
+        assertEquals(4, indice.contar(hoje.minusDays(5), hoje));
+        assertEquals(4, indice.contar(TipoMovimentacao.SAIDA, hoje.minusDays(10), hoje));
+        assertEquals(16, indice.somarQuantidade(TipoMovimentacao.SAIDA, hoje.minusDays(10), hoje));
+        assertEquals(0, indice.contar(hoje.minusDays(4), hoje.minusDays(1)));
+        assertEquals(0, indice.contar(hoje, hoje.minusDays(1)));
+    }
+
+    @Test
+    @DisplayName("Deve aplicar movimentações registradas e removidas")
+    void deveAplicarEventos() {
+        // Given
+        when(movimentacaoRepository.totalizarPorDiaETipo()).thenReturn(List.of());
+        indice.carregar();
+
+        // When
+        indice.aoRegistrar(
+                new MovimentacaoRegistradaEvent(1L, 1L, TipoMovimentacao.SAIDA, 7, hoje.atTime(10, 0), Map.of()));
+        indice.aoRegistrar(
+                new MovimentacaoRegistradaEvent(2L, 1L, TipoMovimentacao.SAIDA, 3, hoje.atTime(11, 0), Map.of()));
+        indice.aoRemover(
+                new MovimentacaoRemovidaEvent(1L, 1L, TipoMovimentacao.SAIDA, 7, hoje.atTime(10, 0), Map.of()));
+
+        // Then
+        assertEquals(1, indice.contar(TipoMovimentacao.SAIDA, hoje, hoje));
+        assertEquals(3, indice.somarQuantidade(TipoMovimentacao.SAIDA, hoje, hoje));
+    }
+
+    @Test
+    @DisplayName("Deve crescer o intervalo coberto preservando os valores existentes")
+    void deveCrescerPreservandoValores() {
+        // Given
+        when(movimentacaoRepository.totalizarPorDiaETipo()).thenReturn(List.of(
+                new MovimentacaoDiaTipoTotal(hoje, TipoMovimentacao.ENTRADA, 1L, 10L)));
+        indice.carregar();
+
+        // When
+        indice.registrar(hoje.minusYears(5), TipoMovimentacao.ENTRADA, 1, 20);
+        indice.registrar(hoje.plusYears(5), TipoMovimentacao.ENTRADA, 1, 30);
+
+        // Then
+        assertEquals(3, indice.contar(hoje.minusYears(6), hoje.plusYears(6)));
+        assertEquals(10, indice.somarQuantidade(TipoMovimentacao.ENTRADA, hoje, hoje));
+        assertEquals(20, indice.somarQuantidade(TipoMovimentacao.ENTRADA, hoje.minusYears(5), hoje.minusYears(5)));
+        assertEquals(60, indice.somarQuantidade(TipoMovimentacao.ENTRADA, hoje.minusYears(6), hoje.plusYears(6)));
+    }
+
+    @Test
+    @DisplayName("Deve aplicar os eventos da carga sem contar de novo o que a consulta já viu")
+    void deveAplicarEventosRecebidosDuranteACarga() {
+        // Given
+        when(movimentacaoRepository.totalizarPorDiaETipo()).thenAnswer(invocacao -> {
+            // 1 e 3 foram gravadas antes da consulta; 2 depois; 4 foi registrada e removida antes dela
+            indice.aoRegistrar(saida(1L, 7));
+            indice.aoRegistrar(saida(2L, 3));
+            indice.aoRemover(new MovimentacaoRemovidaEvent(3L, 1L, TipoMovimentacao.SAIDA, 5, hoje.atTime(9, 0),
+                    Map.of()));
+            indice.aoRegistrar(saida(4L, 4));
+            indice.aoRemover(new MovimentacaoRemovidaEvent(4L, 1L, TipoMovimentacao.SAIDA, 4, hoje.atTime(9, 0),
+                    Map.of()));
+            return List.of(new MovimentacaoDiaTipoTotal(hoje, TipoMovimentacao.SAIDA, 2L, 12L));
+        });
+        when(movimentacaoRepository.buscarIdsExistentes(Set.of(1L, 2L, 3L, 4L))).thenReturn(List.of(1L, 3L));
+
+        // When
+        indice.carregar();
+
+        // Then
+        assertEquals(2, indice.contar(TipoMovimentacao.SAIDA, hoje, hoje));
+        assertEquals(10, indice.somarQuantidade(TipoMovimentacao.SAIDA, hoje, hoje));
+    }
+
+    @Test
+    @DisplayName("Não deve responder nem registrar antes da carga")
+    void naoDeveRegistrarAntesDaCarga() {
+        // When
+        indice.registrar(hoje, TipoMovimentacao.SAIDA, 1, 5);
+
+        // Then
+        assertFalse(indice.isCarregado());
+        assertEquals(0, indice.contar(hoje, hoje));
+    }
+
+    private MovimentacaoRegistradaEvent saida(Long id, int quantidade) {
+        return new MovimentacaoRegistradaEvent(id, 1L, TipoMovimentacao.SAIDA, quantidade, hoje.atTime(9, 0), Map.of());
+    }
+}
@@ -0,0 +1,198 @@
+package com.ong.backend.services;
+
+import com.ong.backend.services.MensagemInvalidacaoCache.Tipo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes da InvalidacaoCacheEntidades")
+class InvalidacaoCacheEntidadesTest {
+
+    @Mock
+    private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    @Mock
+    private SincronizacaoCaches sincronizacao;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private EntityPersister produto;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private EntityPersister categoria;
+
+    private InvalidacaoCacheEntidades invalidacao;
+
+    @BeforeEach
+    void setUp() {
+        invalidacao = new InvalidacaoCacheEntidades(entityManagerFactory, sincronizacao);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve publicar numa mensagem só, após o commit, os IDs e tabelas gravados na transação")
+    void devePublicarIdsDaTransacaoAposCommit() {
+        // Given
+        entidade(produto, "Produto", "produtos");
+        entidade(categoria, "Categoria", "categorias");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        invalidacao.onPostInsert(new PostInsertEvent(new Object(), 1L, new Object[0], produto, null));
+        invalidacao.onPostInsert(new PostInsertEvent(new Object(), 2L, new Object[0], produto, null));
+        invalidacao.onPostUpdate(new PostUpdateEvent(new Object(), 3L, null, null, null, categoria, null));
+        verify(sincronizacao, never()).publicar(any());
+        concluir(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Then
+        verify(sincronizacao).publicar(MensagemInvalidacaoCache.entidades(
+                Map.of("Produto", Set.of(1L, 2L), "Categoria", Set.of(3L)), Set.of("produtos", "categorias")));
+    }
+
+    @Test
+    @DisplayName("Não deve publicar quando a transação é desfeita")
+    void naoDevePublicarAposRollback() {
+        // Given
+        entidade(produto, "Produto", "produtos");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        invalidacao.onPostInsert(new PostInsertEvent(new Object(), 1L, new Object[0], produto, null));
+        concluir(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Then
+        verify(sincronizacao, never()).publicar(any());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar gravações de entidades fora do cache")
+    void deveIgnorarEntidadesSemCache() {
+        // Given
+        when(produto.canWriteToCache()).thenReturn(false);
+
+        // When
+        invalidacao.onPostInsert(new PostInsertEvent(new Object(), 1L, new Object[0], produto, null));
+
+        // Then
+        verifyNoInteractions(sincronizacao);
+    }
+
+    @Test
+    @DisplayName("Deve publicar a coleção em cache pelo ID do dono")
+    void devePublicarColecaoPeloDono() {
+        // Given
+        PostCollectionUpdateEvent evento = mock(PostCollectionUpdateEvent.class, Answers.RETURNS_DEEP_STUBS);
+        CollectionPersister componentes = mock(CollectionPersister.class);
+        PersistentCollection<?> colecao = mock(PersistentCollection.class);
+        doReturn(colecao).when(evento).getCollection();
+        when(colecao.getRole()).thenReturn("Produto.componentes");
+        when(evento.getSession().getFactory().getMappingMetamodel().getCollectionDescriptor("Produto.componentes"))
+                .thenReturn(componentes);
+        when(componentes.hasCache()).thenReturn(true);
+        when(componentes.getRole()).thenReturn("Produto.componentes");
+        when(componentes.getCollectionSpaces()).thenReturn(new String[]{"composicao_produto"});
+        when(evento.getAffectedOwnerIdOrNull()).thenReturn(7L);
+
+        // When
+        invalidacao.onPostUpdateCollection(evento);
+
+        // Then
+        verify(sincronizacao).publicar(MensagemInvalidacaoCache.entidades(
+                Map.of("Produto.componentes", Set.of(7L)), Set.of("composicao_produto")));
+    }
+
+    @Test
+    @DisplayName("Deve remover só os IDs recebidos de outro nó e invalidar só as tabelas tocadas")
+    void deveRemoverSoIdsRecebidos() {
+        // Given
+        ArgumentCaptor<Consumer<MensagemInvalidacaoCache>> tratador = ArgumentCaptor.captor();
+        invalidacao.assinarOutrosNos();
+        verify(sincronizacao).aoReceber(eq(Tipo.ENTIDADES), tratador.capture());
+        EntityManagerFactory fabricaJpa = mock(EntityManagerFactory.class);
+        SessionFactoryImplementor fabrica = mock(SessionFactoryImplementor.class, Answers.RETURNS_DEEP_STUBS);
+        CacheImplementor cache = mock(CacheImplementor.class, Answers.RETURNS_DEEP_STUBS);
+        StatelessSession sessao = mock(StatelessSession.class,
+                withSettings().extraInterfaces(SharedSessionContractImplementor.class));
+        when(entityManagerFactory.getObject()).thenReturn(fabricaJpa);
+        when(fabricaJpa.unwrap(SessionFactoryImplementor.class)).thenReturn(fabrica);
+        when(fabrica.getCache()).thenReturn(cache);
+        when(fabrica.getMappingMetamodel().findEntityDescriptor("Usuario")).thenReturn(produto);
+        when(fabrica.getMappingMetamodel().findEntityDescriptor("Produto.componentes")).thenReturn(null);
+        when(fabrica.openStatelessSession()).thenReturn(sessao);
+
+        // When
+        tratador.getValue().accept(MensagemInvalidacaoCache.entidades(
+                Map.of("Usuario", Set.of(5L), "Produto.componentes", Set.of(7L)), Set.of("usuarios")));
+
+        // Then
+        verify(cache).evictEntityData("Usuario", 5L);
+        verify(cache).evictCollectionData("Produto.componentes", 7L);
+        verify(cache, never()).evictEntityData("Usuario");
+        verify(cache, never()).evictQueryRegions();
+        verify(cache.getTimestampsCache())
+                .invalidate(new String[]{"usuarios"}, (SharedSessionContractImplementor) sessao);
+        verify(sessao).close();
+    }
+
+    @Test
+    @DisplayName("Mensagem resumida deve remover as entidades recebidas por inteiro")
+    void mensagemResumidaDeveRemoverEntidadesInteiras() {
+        // Given
+        MensagemInvalidacaoCache mensagem = MensagemInvalidacaoCache.entidades(
+                Map.of("Usuario", Set.of(5L, 6L)), Set.of("usuarios")).comOrigem("no-a", 3);
+
+        // When
+        MensagemInvalidacaoCache resumida = mensagem.resumida();
+
+        // Then
+        assertEquals(Map.of("Usuario", Set.of()), resumida.entidades());
+        assertEquals(Set.of("usuarios"), resumida.espacos());
+        assertEquals(3, resumida.versao());
+    }
+
+    private void concluir(int status) {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(transacao -> transacao.afterCompletion(status));
+    }
+
+    private void entidade(EntityPersister persister, String nome, String tabela) {
+        when(persister.canWriteToCache()).thenReturn(true);
+        when(persister.getEntityName()).thenReturn(nome);
+        when(persister.getPropertySpaces()).thenReturn(new String[]{tabela});
+    }
+}
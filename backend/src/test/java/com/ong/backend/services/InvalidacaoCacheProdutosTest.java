@@ -0,0 +1,175 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.projections.ProdutoNomeCategoria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes da InvalidacaoCacheProdutos")
+class InvalidacaoCacheProdutosTest {
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private SincronizacaoCaches sincronizacao;
+
+    private Cache produtos;
+    private Cache produtosEstoque;
+    private InvalidacaoCacheProdutos invalidacao;
+
+    @BeforeEach
+    void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("produtos", "produtos-estoque");
+        produtos = cacheManager.getCache("produtos");
+        produtosEstoque = cacheManager.getCache("produtos-estoque");
+        invalidacao = new InvalidacaoCacheProdutos(cacheManager, produtoRepository, sincronizacao);
+    }
+
+    @Test
+    @DisplayName("Deve remover só as páginas cujos filtros alcançam o produto alterado")
+    void deveRemoverPaginasAlcancadasPeloProduto() {
+        // Given
+        produtos.put("todos", List.of());
+        produtos.put("simples", List.of());
+        ChaveListagemProdutos semFiltro = chave(null, null, null);
+        ChaveListagemProdutos arroz = chave("arr", null, null);
+        ChaveListagemProdutos feijao = chave("feij", null, null);
+        ChaveListagemProdutos outraCategoria = chave(null, 2L, null);
+        ChaveListagemProdutos criticoAlimentos = chave(null, 1L, true);
+        ChaveListagemProdutos criticoHigiene = chave(null, 2L, true);
+        List.of(semFiltro, arroz, feijao, outraCategoria).forEach(chave -> produtos.put(chave, List.of()));
+        List.of(criticoAlimentos, criticoHigiene).forEach(chave -> produtosEstoque.put(chave, List.of()));
+
+        // When
+        invalidacao.aoAlterarProduto(new ProdutoAlteradoEvent(Set.of(new ProdutoListado("Arroz Integral", 1L))));
+
+        // Then
+        assertNull(produtos.get("todos"));
+        assertNull(produtos.get("simples"));
+        assertNull(produtos.get(semFiltro));
+        assertNull(produtos.get(arroz));
+        assertNotNull(produtos.get(feijao));
+        assertNotNull(produtos.get(outraCategoria));
+        assertNull(produtosEstoque.get(criticoAlimentos));
+        assertNotNull(produtosEstoque.get(criticoHigiene));
+        verify(sincronizacao)
+                .publicar(MensagemInvalidacaoCache.produtos(Set.of(new ProdutoListado("Arroz Integral", 1L))));
+    }
+
+    @Test
+    @DisplayName("Deve remover a categoria inteira quando a categoria muda")
+    void deveRemoverCategoriaInteira() {
+        // Given
+        ChaveListagemProdutos arroz = chave("arroz", 1L, null);
+        ChaveListagemProdutos sabonete = chave("sabonete", 2L, null);
+        produtos.put(arroz, List.of());
+        produtos.put(sabonete, List.of());
+
+        // When
+        invalidacao.aoAlterarProduto(ProdutoAlteradoEvent.daCategoria(1L));
+
+        // Then
+        assertNull(produtos.get(arroz));
+        assertNotNull(produtos.get(sabonete));
+    }
+
+    @Test
+    @DisplayName("Deve remover só páginas com filtro de estoque dos produtos movimentados")
+    void deveRemoverPaginasDeEstoqueDosProdutosMovimentados() {
+        // Given
+        ChaveListagemProdutos cadastro = chave(null, 1L, null);
+        ChaveListagemProdutos criticoAlimentos = chave(null, 1L, true);
+        ChaveListagemProdutos criticoHigiene = chave(null, 2L, true);
+        produtos.put(cadastro, List.of());
+        produtosEstoque.put(criticoAlimentos, List.of());
+        produtosEstoque.put(criticoHigiene, List.of());
+        when(produtoRepository.buscarNomeECategoriaPorLotes(Set.of(10L)))
+                .thenReturn(List.of(new ProdutoNomeCategoria(5L, "Arroz", 1L)));
+
+        // When
+        invalidacao.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(10L), Set.of()));
+
+        // Then
+        assertNotNull(produtos.get(cadastro));
+        assertNull(produtosEstoque.get(criticoAlimentos));
+        assertNotNull(produtosEstoque.get(criticoHigiene));
+        verify(produtoRepository, never()).buscarNomeECategoria(any());
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco quando não há páginas com filtro de estoque em cache")
+    void naoDeveConsultarSemPaginasDeEstoque() {
+        // When
+        invalidacao.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(10L), Set.of(5L)));
+        invalidacao.publicarEstoquePendente();
+
+        // Then
+        verifyNoInteractions(produtoRepository);
+        verify(sincronizacao).publicar(MensagemInvalidacaoCache.estoque(Set.of(10L), Set.of(5L)));
+    }
+
+    @Test
+    @DisplayName("Deve publicar as alterações de estoque da janela numa só mensagem")
+    void devePublicarAlteracoesDeEstoqueJuntas() {
+        // Given
+        invalidacao.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(10L), Set.of()));
+        invalidacao.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(10L, 11L), Set.of()));
+        invalidacao.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(), Set.of(5L)));
+        verify(sincronizacao, never()).publicar(any());
+
+        // When
+        invalidacao.publicarEstoquePendente();
+        invalidacao.publicarEstoquePendente();
+
+        // Then
+        verify(sincronizacao, times(1)).publicar(any());
+        verify(sincronizacao).publicar(MensagemInvalidacaoCache.estoque(Set.of(10L, 11L), Set.of(5L)));
+    }
+
+    @Test
+    @DisplayName("Deve aplicar as invalidações recebidas de outros nós")
+    void deveAplicarInvalidacoesDeOutrosNos() {
+        // Given
+        ArgumentCaptor<Consumer<MensagemInvalidacaoCache>> tratador = ArgumentCaptor.captor();
+        invalidacao.assinarOutrosNos();
+        verify(sincronizacao).aoReceber(eq(MensagemInvalidacaoCache.Tipo.PRODUTOS), tratador.capture());
+        ChaveListagemProdutos arroz = chave("arroz", 1L, null);
+        ChaveListagemProdutos sabonete = chave("sabonete", 2L, null);
+        produtos.put(arroz, List.of());
+        produtos.put(sabonete, List.of());
+
+        // When
+        tratador.getValue().accept(MensagemInvalidacaoCache.produtos(Set.of(new ProdutoListado(null, 1L))));
+
+        // Then
+        assertNull(produtos.get(arroz));
+        assertNotNull(produtos.get(sabonete));
+        verify(sincronizacao, never()).publicar(any());
+    }
+
+    private ChaveListagemProdutos chave(String nome, Long categoriaId, Boolean estoqueCritico) {
+        return new ChaveListagemProdutos(nome, categoriaId, estoqueCritico, null, null, PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,226 @@
+package com.ong.backend.services;
+
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ReservasFinalizadasEvent;
+import com.ong.backend.events.ReservasFinalizadasEvent.ReservaFinalizada;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.StatusReserva;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ReservaRepository;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.repositories.projections.ReservaAtivaTotal;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do LivroReservasEstoque")
+class LivroReservasEstoqueTest {
+
+    @Mock
+    private LoteRepository loteRepository;
+
+    @Mock
+    private LoteItemRepository loteItemRepository;
+
+    @Mock
+    private ReservaRepository reservaRepository;
+
+    @InjectMocks
+    private LivroReservasEstoque livro;
+
+    @Test
+    @DisplayName("Deve reservar até o saldo do lote, lendo o estoque do banco uma única vez")
+    void deveReservarAteOSaldoDoLote() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10));
+
+        // When
+        livro.reservar(Chave.doLote(1L), 6);
+        BusinessException erro = assertThrows(BusinessException.class, () -> livro.reservar(Chave.doLote(1L), 5));
+        livro.reservar(Chave.doLote(1L), 4);
+
+        // Then
+        assertEquals("Quantidade indisponível para reserva. Disponível: 4", erro.getMessage());
+        assertEquals(new LivroReservasEstoque.Posicao(10, 10), livro.consultar(Chave.doLote(1L)));
+        verify(loteRepository, times(1)).buscarQuantidadeAtual(1L);
+    }
+
+    @Test
+    @DisplayName("Deve descontar as reservas de lote do produto e as de produto do lote")
+    void deveCompartilharSaldoEntreLoteEProduto() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10));
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L)))
+                .thenReturn(List.of(new LoteItemQuantidade(1L, 10L, 10)));
+        when(loteItemRepository.calcularEstoqueTotalPorProduto(10L)).thenReturn(10);
+
+        // When
+        livro.reservar(Chave.doLote(1L), 6);
+        BusinessException produtoSemSaldo = assertThrows(BusinessException.class,
+                () -> livro.reservar(Chave.doProduto(10L), 5));
+        livro.reservar(Chave.doProduto(10L), 4);
+        BusinessException loteSemSaldo = assertThrows(BusinessException.class,
+                () -> livro.reservar(Chave.doLote(1L), 1));
+
+        // Then
+        assertEquals("Quantidade indisponível para reserva. Disponível: 4", produtoSemSaldo.getMessage());
+        assertEquals("Quantidade indisponível para reserva. Disponível: 0", loteSemSaldo.getMessage());
+        assertEquals(new LivroReservasEstoque.Posicao(10, 10), livro.consultar(Chave.doProduto(10L)));
+        assertEquals(0, livro.consultar(Chave.doLote(1L)).disponivel());
+
+        // When
+        livro.liberar(Chave.doLote(1L), 6);
+
+        // Then
+        assertEquals(6, livro.consultar(Chave.doProduto(10L)).disponivel());
+        assertEquals(6, livro.consultar(Chave.doLote(1L)).disponivel());
+    }
+
+    @Test
+    @DisplayName("Não deve reservar além do saldo sob concorrência")
+    void naoDeveReservarAlemDoSaldoSobConcorrencia() throws Exception {
+        // Given
+        when(loteItemRepository.calcularEstoqueTotalPorProduto(1L)).thenReturn(100);
+        AtomicInteger aceitas = new AtomicInteger();
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> pedidos = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                pedidos.add(executor.submit(() -> {
+                    try {
+                        livro.reservar(Chave.doProduto(1L), 1);
+                        aceitas.incrementAndGet();
+                    } catch (BusinessException e) {
+                        // sem saldo
+                    }
+                }));
+            }
+            for (Future<?> pedido : pedidos) {
+                pedido.get();
+            }
+        }
+
+        // Then
+        assertEquals(100, aceitas.get());
+        assertEquals(0, livro.consultar(Chave.doProduto(1L)).disponivel());
+    }
+
+    @Test
+    @DisplayName("Deve considerar as reservas ativas gravadas no banco")
+    void deveCarregarReservasAtivas() {
+        // Given
+        when(reservaRepository.somarAtivas()).thenReturn(List.of(
+                new ReservaAtivaTotal(1L, null, 7L),
+                new ReservaAtivaTotal(null, 2L, 3L)));
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10));
+
+        // When
+        livro.carregar();
+
+        // Then
+        assertEquals(3, livro.consultar(Chave.doLote(1L)).disponivel());
+        assertEquals(3, livro.consultar(Chave.doProduto(2L)).reservado());
+    }
+
+    @Test
+    @DisplayName("Deve reler o estoque após alteração e devolver o reservado ao finalizar")
+    void deveRelerEstoqueEDevolverReservado() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10)).thenReturn(Optional.of(6));
+        livro.reservar(Chave.doLote(1L), 4);
+        livro.reservar(Chave.doLote(1L), 2);
+
+        // When
+        // A reserva de 4 virou saída (estoque 10 -> 6) e a de 2 expirou
+        livro.aoFinalizarReservas(new ReservasFinalizadasEvent(StatusReserva.CONFIRMADA,
+                List.of(new ReservaFinalizada(1L, 1L, null, 4))));
+        livro.aoFinalizarReservas(new ReservasFinalizadasEvent(StatusReserva.EXPIRADA,
+                List.of(new ReservaFinalizada(2L, 1L, null, 2))));
+        livro.aoAlterarEstoque(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
+
+        // Then
+        assertEquals(new LivroReservasEstoque.Posicao(6, 0), livro.consultar(Chave.doLote(1L)));
+    }
+
+    @Test
+    @DisplayName("Deve recusar a saída que consumiria unidades reservadas do lote ou do produto")
+    void deveRecusarSaidaSobreReservado() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10));
+        when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L)))
+                .thenReturn(List.of(new LoteItemQuantidade(1L, 10L, 10)));
+        when(loteItemRepository.calcularEstoqueTotalPorProduto(10L)).thenReturn(10);
+        livro.reservar(Chave.doLote(1L), 6);
+
+        // When
+        BusinessException doLote = assertThrows(BusinessException.class,
+                () -> livro.reservarSaida(Chave.doLote(1L), 5, 0));
+        BusinessException doProduto = assertThrows(BusinessException.class,
+                () -> livro.reservarSaida(Chave.doProduto(10L), 5, 0));
+        // Confirmação da própria reserva: só o que passa dela é conferido
+        livro.reservarSaida(Chave.doLote(1L), 8, 6);
+
+        // Then
+        assertEquals("Quantidade insuficiente em estoque fora das reservas. Disponível: 4", doLote.getMessage());
+        assertEquals("Quantidade insuficiente em estoque fora das reservas. Disponível: 4", doProduto.getMessage());
+        assertEquals(new LivroReservasEstoque.Posicao(10, 6), livro.consultar(Chave.doLote(1L)));
+    }
+
+    @Test
+    @DisplayName("Deve segurar a saída até o fim da transação e reler o estoque no commit")
+    void deveSegurarSaidaAteOCommit() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10)).thenReturn(Optional.of(6));
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // When
+            livro.reservarSaida(Chave.doLote(1L), 4, 0);
+
+            // Then: antes do commit o estoque lido ainda é 10, mas as 4 unidades já não estão livres
+            assertThrows(BusinessException.class, () -> livro.reservar(Chave.doLote(1L), 7));
+            assertEquals(6, livro.consultar(Chave.doLote(1L)).disponivel());
+
+            // When
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertEquals(new LivroReservasEstoque.Posicao(6, 0), livro.consultar(Chave.doLote(1L)));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção ao reservar lote inexistente")
+    void deveLancarExcecaoParaLoteInexistente() {
+        // Given
+        when(loteRepository.buscarQuantidadeAtual(99L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> livro.reservar(Chave.doLote(99L), 1));
+    }
+}
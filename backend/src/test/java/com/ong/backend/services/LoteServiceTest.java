@@ -2,7 +2,10 @@ package com.ong.backend.services;
 
 import com.ong.backend.dto.lote.LoteRequestDTO;
 import com.ong.backend.dto.lote.LoteItemRequestDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
 import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Lote;
 import com.ong.backend.models.LoteItem;
 import com.ong.backend.models.Produto;
@@ -10,21 +13,33 @@ import com.ong.backend.models.UnidadeMedida;
 import com.ong.backend.repositories.LoteItemRepository;
 import com.ong.backend.repositories.LoteRepository;
 import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.projections.LoteItemAlocavel;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -47,6 +62,18 @@ class LoteServiceTest {
   @Mock
   private UsuarioService usuarioService;
 
+  @Mock
+  private EstoqueDiarioService estoqueDiarioService;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private IndiceAlocacaoEstoque indiceAlocacao;
+
+  @Mock
+  private LivroReservasEstoque livroReservas;
+
   @InjectMocks
   private LoteService loteService;
 
@@ -93,78 +120,333 @@ class LoteServiceTest {
   }
 
   @Test
-  @DisplayName("Deve atualizar quantidade com lock pessimista")
-  void deveAtualizarQuantidadeComLock() {
+  @DisplayName("Deve atualizar quantidade com um único UPDATE condicional")
+  void deveAtualizarQuantidadeComUpdateCondicional() {
     // Given
-    when(loteRepository.findByIdWithLock(1L)).thenReturn(Optional.of(lote));
-    when(loteRepository.save(any(Lote.class))).thenReturn(lote);
+    when(loteRepository.aplicarDelta(1L, -50)).thenReturn(Optional.of(50));
 
     // When
-    loteService.atualizarQuantidade(1L, -50);
+    int novaQuantidade = loteService.atualizarQuantidade(1L, -50);
 
     // Then
-    assertEquals(50, lote.getQuantidadeAtual());
-    // Verifica que foi usado o método com lock
-    verify(loteRepository, times(1)).findByIdWithLock(1L);
-    verify(loteRepository, times(1)).save(lote);
+    assertEquals(50, novaQuantidade);
+    // O saldo vem do próprio UPDATE: sem releitura, leitura com lock nem save da entidade
+    verify(loteRepository, never()).buscarQuantidadeAtual(anyLong());
+    verify(loteRepository, never()).findById(anyLong());
+    verify(loteRepository, never()).save(any());
+    verify(estoqueDiarioService).registrarVariacao(-50);
+    verify(eventPublisher).publishEvent(new EstoqueAlteradoEvent(Set.of(1L), Set.of()));
   }
 
   @Test
   @DisplayName("Deve lançar exceção quando quantidade ficar negativa")
   void deveLancarExcecaoQuandoQuantidadeFicarNegativa() {
     // Given
-    when(loteRepository.findByIdWithLock(1L)).thenReturn(Optional.of(lote));
+    when(loteRepository.aplicarDelta(1L, -150)).thenReturn(Optional.empty());
+    when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(100));
 
     // When & Then
-    assertThrows(BusinessException.class, () -> {
+    BusinessException erro = assertThrows(BusinessException.class, () -> {
       loteService.atualizarQuantidade(1L, -150);
     });
-    verify(loteRepository, never()).save(any());
+    assertTrue(erro.getMessage().contains("Disponível: 100"));
+    verify(estoqueDiarioService, never()).registrarVariacao(anyInt());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  @DisplayName("Deve lançar exceção ao atualizar quantidade de lote inexistente")
+  void deveLancarExcecaoAoAtualizarQuantidadeDeLoteInexistente() {
+    // Given
+    when(loteRepository.aplicarDelta(99L, 10)).thenReturn(Optional.empty());
+    when(loteRepository.buscarQuantidadeAtual(99L)).thenReturn(Optional.empty());
+
+    // When & Then
+    assertThrows(ResourceNotFoundException.class, () -> loteService.atualizarQuantidade(99L, 10));
   }
 
   @Test
   @DisplayName("Deve consumir estoque por produto usando FIFO")
   void deveConsumirEstoquePorProdutoFIFO() {
     // Given
-    Lote lote2 = new Lote();
-    lote2.setId(2L);
-    lote2.setQuantidadeAtual(50);
+    Lote lote2 = novoLote(2L, 50);
     lote2.setDataEntrada(LocalDate.now().plusDays(1));
-    lote2.setItens(new ArrayList<>());
-
-    LoteItem item2 = new LoteItem();
-    item2.setLote(lote2);
-    item2.setProduto(produto);
-    item2.setQuantidade(50);
-    lote2.getItens().add(item2);
-
-    when(loteRepository.findAll()).thenReturn(Arrays.asList(lote, lote2));
-    when(loteRepository.findByIdWithLock(1L)).thenReturn(Optional.of(lote));
-    when(loteRepository.findByIdWithLock(2L)).thenReturn(Optional.of(lote2));
-    when(loteItemRepository.save(any(LoteItem.class))).thenReturn(loteItem);
-    when(loteRepository.save(any(Lote.class))).thenReturn(lote);
+
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L))).thenReturn(Arrays.asList(
+        new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada()),
+        new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, lote2.getDataEntrada())));
+    when(loteRepository.travarComItens(Set.of(1L, 2L))).thenReturn(List.of(lote, lote2));
 
     // When
-    loteService.consumirEstoquePorProduto(1L, 120);
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 120);
 
     // Then
     // Deve consumir primeiro do lote mais antigo (lote 1)
     assertEquals(0, lote.getQuantidadeAtual());
     assertEquals(30, lote2.getQuantidadeAtual());
-    verify(loteRepository, times(2)).findByIdWithLock(anyLong());
+    assertEquals(Map.of(1L, 100, 2L, 20), consumido);
+    verify(loteRepository, times(1)).travarComItens(any());
+    verify(loteRepository, never()).findAll();
+  }
+
+  @Test
+  @DisplayName("Deve deixar no lote as unidades reservadas nele ao consumir por produto")
+  void deveDeixarReservadoNoLoteAoConsumirPorProduto() {
+    // Given
+    Lote lote2 = novoLote(2L, 50);
+    lote2.setDataEntrada(LocalDate.now().plusDays(1));
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L))).thenReturn(Arrays.asList(
+        new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada()),
+        new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, lote2.getDataEntrada())));
+    // O plano só vê o lote 1; as 20 unidades que ficam nele reservadas saem do lote 2 no complemento
+    when(loteRepository.travarComItens(Set.of(1L))).thenReturn(List.of(lote));
+    when(loteRepository.travarComItens(Set.of(2L))).thenReturn(List.of(lote2));
+    when(livroReservas.reservadoNoLote(1L)).thenReturn(90);
+    when(livroReservas.reservadoNoLote(2L)).thenReturn(0);
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(1L, 10, 2L, 20), consumido);
+    assertEquals(90, lote.getQuantidadeAtual());
+    verify(livroReservas).reservarSaida(Chave.doProduto(1L), 30, 0);
+    verify(livroReservas).segurarSaida(1L, 10);
+    verify(livroReservas).segurarSaida(2L, 20);
+  }
+
+  @Test
+  @DisplayName("Não deve travar lotes quando o produto não tem saldo fora das reservas")
+  void naoDeveConsumirProdutoReservado() {
+    // Given
+    doThrow(new BusinessException("Quantidade insuficiente em estoque fora das reservas. Disponível: 4"))
+        .when(livroReservas).reservarSaida(Chave.doProduto(1L), 30, 0);
+
+    // When & Then
+    assertThrows(BusinessException.class, () -> loteService.consumirEstoquePorProduto(1L, 30));
+    verify(loteRepository, never()).travarComItens(any());
+    assertEquals(100, lote.getQuantidadeAtual());
+  }
+
+  @Test
+  @DisplayName("Deve travar apenas os lotes do plano do índice de alocação")
+  void deveTravarApenasLotesDoPlano() {
+    // Given
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())));
+    when(loteRepository.travarComItens(Set.of(1L))).thenReturn(List.of(lote));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(1L, 30), consumido);
+    assertEquals(70, loteItem.getQuantidade());
+    verify(loteItemRepository, never()).buscarAlocaveisPorProdutos(any());
+    verify(eventPublisher).publishEvent(new EstoqueAlteradoEvent(Set.of(1L), Set.of(1L)));
+  }
+
+  @Test
+  @DisplayName("Deve completar pelo banco quando o índice estiver defasado")
+  void deveCompletarPeloBancoQuandoIndiceDefasado() {
+    // Given
+    // O índice ainda vê 100 no lote 1, mas uma saída concorrente deixou só 10
+    lote.setQuantidadeAtual(10);
+    Lote lote2 = novoLote(2L, 50);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())));
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, LocalDate.now())));
+    when(loteRepository.travarComItens(Set.of(1L))).thenReturn(List.of(lote));
+    when(loteRepository.travarComItens(Set.of(2L))).thenReturn(List.of(lote2));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(1L, 10, 2L, 20), consumido);
+    assertEquals(0, lote.getQuantidadeAtual());
+    assertEquals(30, lote2.getQuantidadeAtual());
+  }
+
+  @Test
+  @DisplayName("Não deve esperar por lote de ID menor que um já travado ao completar pelo banco")
+  void naoDeveEsperarLoteForaDeOrdem() {
+    // Given
+    // O índice indicou só o lote 2, mas ele tem 10; o complemento vem do lote 1, de ID menor
+    Lote lote2 = novoLote(2L, 10);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, LocalDate.now())));
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())));
+    when(loteRepository.travarComItens(Set.of(2L))).thenReturn(List.of(lote2));
+    when(loteRepository.travarDisponiveisComItens(Set.of(1L))).thenReturn(List.of(lote));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(2L, 10, 1L, 20), consumido);
+    assertEquals(80, lote.getQuantidadeAtual());
+    verify(loteRepository, never()).travarComItens(Set.of(1L));
+  }
+
+  @Test
+  @DisplayName("Deve falhar para repetir a operação quando o lote fora de ordem está com outra transação")
+  void deveFalharQuandoLoteForaDeOrdemEstaTravado() {
+    // Given
+    Lote lote2 = novoLote(2L, 10);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, LocalDate.now())));
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())));
+    when(loteRepository.travarComItens(Set.of(2L))).thenReturn(List.of(lote2));
+    when(loteRepository.travarDisponiveisComItens(Set.of(1L))).thenReturn(List.of());
+
+    // When & Then
+    assertThrows(PessimisticLockingFailureException.class, () -> loteService.consumirEstoquePorProduto(1L, 30));
+    verify(loteRepository, never()).travarComItens(Set.of(1L));
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  @DisplayName("Deve replanejar pelo banco quando o lote esvazia enquanto espera a trava")
+  void deveReplanejarQuandoLoteEsvaziaDuranteEspera() {
+    // Given
+    // A consulta viu 100 no lote 1, mas ao conseguir a trava outra saída já tinha deixado só 10
+    lote.setQuantidadeAtual(10);
+    Lote lote2 = novoLote(2L, 50);
+
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())))
+        .thenReturn(Arrays.asList(
+            new LoteItemAlocavel(1L, 1L, 1L, 10, 10, null, lote.getDataEntrada()),
+            new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, LocalDate.now())));
+    when(loteRepository.travarComItens(Set.of(1L))).thenReturn(List.of(lote));
+    when(loteRepository.travarComItens(Set.of(2L))).thenReturn(List.of(lote2));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(1L, 10, 2L, 20), consumido);
+    assertEquals(30, lote2.getQuantidadeAtual());
+  }
+
+  @Test
+  @DisplayName("Deve travar os lotes de todos os componentes em uma única consulta ordenada")
+  void deveTravarLotesDeTodosOsComponentesDeUmaVez() {
+    // Given
+    Produto feijao = new Produto();
+    feijao.setId(2L);
+    Lote lote2 = novoLote(2L, 40);
+    lote2.getItens().get(0).setProduto(feijao);
+    // Lote 3 tem arroz e feijão: as duas baixas atingem a mesma entidade travada
+    Lote lote3 = novoLote(3L, 30);
+    LoteItem feijaoNoLote3 = new LoteItem();
+    feijaoNoLote3.setId(4L);
+    feijaoNoLote3.setLote(lote3);
+    feijaoNoLote3.setProduto(feijao);
+    feijaoNoLote3.setQuantidade(20);
+    lote3.getItens().get(0).setQuantidade(10);
+    lote3.getItens().add(feijaoNoLote3);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 105, Set.of())).thenReturn(List.of(
+        new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, LocalDate.now()),
+        new LoteItemAlocavel(3L, 3L, 1L, 10, 30, null, LocalDate.now())));
+    when(indiceAlocacao.planejar(2L, 50, Set.of())).thenReturn(List.of(
+        new LoteItemAlocavel(4L, 3L, 2L, 20, 30, null, LocalDate.now()),
+        new LoteItemAlocavel(2L, 2L, 2L, 40, 40, null, LocalDate.now())));
+    when(loteRepository.travarComItens(Set.of(1L, 2L, 3L))).thenReturn(List.of(lote, lote2, lote3));
+
+    Map<Long, Integer> necessidades = new LinkedHashMap<>();
+    necessidades.put(1L, 105);
+    necessidades.put(2L, 50);
+
+    // When
+    Map<Long, Map<Long, Integer>> consumido = loteService.consumirEstoquePorProdutos(necessidades);
+
+    // Then
+    assertEquals(Map.of(1L, 100, 3L, 5), consumido.get(1L));
+    assertEquals(Map.of(3L, 20, 2L, 30), consumido.get(2L));
+    assertEquals(5, lote3.getQuantidadeAtual());
+    assertEquals(10, lote2.getQuantidadeAtual());
+    ArgumentCaptor<Collection<Long>> travados = ArgumentCaptor.captor();
+    verify(loteRepository, times(1)).travarComItens(travados.capture());
+    assertEquals(List.of(1L, 2L, 3L), List.copyOf(travados.getValue()));
+    verify(loteRepository, never()).save(any());
+    verify(estoqueDiarioService, times(1)).registrarVariacao(-155);
+    verify(estoqueDiarioService).registrarVariacaoProduto(1L, -105);
+    verify(estoqueDiarioService).registrarVariacaoProduto(2L, -50);
+  }
+
+  @Test
+  @DisplayName("Deve pular lote travado por outra transação e seguir para o próximo")
+  void devePularLoteTravado() {
+    // Given
+    ReflectionTestUtils.setField(loteService, "pularLotesTravados", true);
+    Lote lote2 = novoLote(2L, 50);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, LocalDate.now())));
+    when(indiceAlocacao.planejar(1L, 30, Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(2L, 2L, 1L, 50, 50, null, LocalDate.now())));
+    // Lote 1 está travado por outra saída: o SKIP LOCKED não o devolve
+    when(loteRepository.travarDisponiveisComItens(Set.of(1L))).thenReturn(List.of());
+    when(loteRepository.travarDisponiveisComItens(Set.of(2L))).thenReturn(List.of(lote2));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(2L, 30), consumido);
+    assertEquals(100, lote.getQuantidadeAtual());
+    verify(loteRepository, never()).travarComItens(any());
+  }
+
+  @Test
+  @DisplayName("Deve esperar pelo lote travado quando ele é a única fonte de estoque")
+  void deveEsperarLoteTravadoQuandoUnicaFonte() {
+    // Given
+    ReflectionTestUtils.setField(loteService, "pularLotesTravados", true);
+
+    when(indiceAlocacao.isCarregado()).thenReturn(true);
+    when(indiceAlocacao.planejar(1L, 30, Set.of()))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, LocalDate.now())));
+    when(indiceAlocacao.planejar(1L, 30, Set.of(1L))).thenReturn(List.of());
+    when(loteRepository.travarDisponiveisComItens(Set.of(1L))).thenReturn(List.of());
+    when(loteRepository.travarComItens(Set.of(1L))).thenReturn(List.of(lote));
+
+    // When
+    Map<Long, Integer> consumido = loteService.consumirEstoquePorProduto(1L, 30);
+
+    // Then
+    assertEquals(Map.of(1L, 30), consumido);
+    assertEquals(70, lote.getQuantidadeAtual());
   }
 
   @Test
   @DisplayName("Deve lançar exceção quando estoque insuficiente")
   void deveLancarExcecaoQuandoEstoqueInsuficiente() {
     // Given
-    when(loteRepository.findAll()).thenReturn(Arrays.asList(lote));
-    when(loteRepository.findByIdWithLock(1L)).thenReturn(Optional.of(lote));
+    when(loteItemRepository.buscarAlocaveisPorProdutos(Set.of(1L)))
+        .thenReturn(List.of(new LoteItemAlocavel(1L, 1L, 1L, 100, 100, null, lote.getDataEntrada())));
+    when(loteRepository.travarComItens(any())).thenReturn(List.of(lote));
 
     // When & Then
     assertThrows(BusinessException.class, () -> {
       loteService.consumirEstoquePorProduto(1L, 200);
     });
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -195,6 +477,9 @@ class LoteServiceTest {
     // Then
     assertNotNull(resultado);
     verify(loteRepository, times(2)).save(any(Lote.class)); // Uma vez para criar, outra para adicionar itens
+    verify(estoqueDiarioService).registrarVariacao(100);
+    verify(eventPublisher).publishEvent(any(MovimentacaoRegistradaEvent.class));
+    verify(eventPublisher).publishEvent(any(EstoqueAlteradoEvent.class));
   }
 
   @Test
@@ -221,6 +506,58 @@ class LoteServiceTest {
     verify(loteRepository, never()).save(any());
   }
 
+  @Test
+  @DisplayName("Deve criar vários lotes resolvendo produtos e usuário uma única vez")
+  void deveCriarLotesEmLote() {
+    // Given
+    Produto feijao = new Produto();
+    feijao.setId(2L);
+    feijao.setNome("Feijão");
+    List<LoteRequestDTO> dtos = List.of(
+        new LoteRequestDTO(List.of(new LoteItemRequestDTO(1L, 10, null, null, null)), LocalDate.now(),
+            UnidadeMedida.UNIDADE, "Doação"),
+        new LoteRequestDTO(List.of(new LoteItemRequestDTO(2L, 5, null, null, null)), LocalDate.now(),
+            UnidadeMedida.UNIDADE, "Doação"),
+        new LoteRequestDTO(List.of(new LoteItemRequestDTO(1L, 3, null, null, null)), LocalDate.now(),
+            UnidadeMedida.UNIDADE, "Doação"));
+
+    when(produtoService.buscarEntidadesPorIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, produto, 2L, feijao));
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(null);
+
+    // When
+    var resultado = loteService.criarEmLote(dtos, "test@test.com");
+
+    // Then
+    assertEquals(List.of(10, 5, 3), resultado.stream().map(r -> r.quantidadeAtual()).toList());
+    verify(produtoService, never()).buscarEntidadePorId(anyLong());
+    verify(usuarioService, times(1)).buscarEntidadePorEmail("test@test.com");
+    verify(loteRepository, times(1)).saveAll(any());
+    verify(loteRepository, never()).save(any());
+    verify(movimentacaoRepository, times(1)).saveAll(any());
+    verify(estoqueDiarioService).registrarVariacao(18);
+    verify(estoqueDiarioService).registrarVariacaoProduto(1L, 13);
+    verify(estoqueDiarioService).registrarVariacaoProduto(2L, 5);
+    verify(eventPublisher, times(3)).publishEvent(any(MovimentacaoRegistradaEvent.class));
+    verify(eventPublisher, times(1)).publishEvent(any(EstoqueAlteradoEvent.class));
+  }
+
+  @Test
+  @DisplayName("Não deve gravar nenhum lote quando um produto da entrada não existe")
+  void naoDeveCriarLotesComProdutoInexistente() {
+    // Given
+    List<LoteRequestDTO> dtos = List.of(
+        new LoteRequestDTO(List.of(new LoteItemRequestDTO(1L, 10, null, null, null)), LocalDate.now(),
+            UnidadeMedida.UNIDADE, "Doação"),
+        new LoteRequestDTO(List.of(new LoteItemRequestDTO(99L, 5, null, null, null)), LocalDate.now(),
+            UnidadeMedida.UNIDADE, "Doação"));
+    when(produtoService.buscarEntidadesPorIds(Set.of(1L, 99L))).thenReturn(Map.of(1L, produto));
+
+    // When & Then
+    assertThrows(ResourceNotFoundException.class, () -> loteService.criarEmLote(dtos, "test@test.com"));
+    verify(loteRepository, never()).saveAll(any());
+    verify(movimentacaoRepository, never()).saveAll(any());
+  }
+
   @Test
   @DisplayName("Deve deletar lote sem movimentações")
   void deveDeletarLoteSemMovimentacoes() {
@@ -250,4 +587,20 @@ class LoteServiceTest {
     });
     verify(loteRepository, never()).delete(any(Lote.class));
   }
+
+  private Lote novoLote(Long id, int quantidade) {
+    Lote novo = new Lote();
+    novo.setId(id);
+    novo.setQuantidadeAtual(quantidade);
+    novo.setDataEntrada(LocalDate.now());
+    novo.setItens(new ArrayList<>());
+
+    LoteItem item = new LoteItem();
+    item.setId(id);
+    item.setLote(novo);
+    item.setProduto(produto);
+    item.setQuantidade(quantidade);
+    novo.getItens().add(item);
+    return novo;
+  }
 }
@@ -2,22 +2,36 @@ package com.ong.backend.services;
 
 import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
 import com.ong.backend.dto.movimentacao.MontagemKitRequestDTO;
+import com.ong.backend.dto.movimentacao.SaidaProdutoRequestDTO;
+import com.ong.backend.events.MovimentacaoRegistradaEvent;
 import com.ong.backend.exceptions.BusinessException;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.*;
+import com.ong.backend.repositories.LoteItemRepository;
+import com.ong.backend.repositories.LoteRepository;
 import com.ong.backend.repositories.MovimentacaoRepository;
+import com.ong.backend.repositories.ReservaRepository;
+import com.ong.backend.repositories.projections.LoteItemQuantidade;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,6 +54,15 @@ class MovimentacaoServiceTest {
   @Mock
   private ProdutoService produtoService;
 
+  @Mock
+  private DistribuicaoProdutoService distribuicaoProdutoService;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private LivroReservasEstoque livroReservas;
+
   @InjectMocks
   private MovimentacaoService movimentacaoService;
 
@@ -84,7 +107,7 @@ class MovimentacaoServiceTest {
 
     when(loteService.buscarEntidadePorId(1L)).thenReturn(lote);
     when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
-    doNothing().when(loteService).atualizarQuantidade(1L, 50);
+    when(loteService.atualizarQuantidade(1L, 50)).thenReturn(150);
     when(movimentacaoRepository.save(any(Movimentacao.class))).thenReturn(movimentacao);
 
     // When
@@ -95,6 +118,7 @@ class MovimentacaoServiceTest {
     assertEquals(1L, resultado.id());
     verify(loteService, times(1)).atualizarQuantidade(1L, 50);
     verify(movimentacaoRepository, times(1)).save(any(Movimentacao.class));
+    verify(eventPublisher, times(1)).publishEvent(any(MovimentacaoRegistradaEvent.class));
   }
 
   @Test
@@ -109,7 +133,7 @@ class MovimentacaoServiceTest {
 
     when(loteService.buscarEntidadePorId(1L)).thenReturn(lote);
     when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
-    doNothing().when(loteService).atualizarQuantidade(1L, -30);
+    when(loteService.atualizarQuantidade(1L, -30)).thenReturn(70);
     when(movimentacaoRepository.save(any(Movimentacao.class))).thenReturn(movimentacao);
 
     // When
@@ -120,6 +144,38 @@ class MovimentacaoServiceTest {
     verify(loteService, times(1)).atualizarQuantidade(1L, -30);
   }
 
+  @Test
+  @DisplayName("Não deve deixar uma SAIDA direta consumir unidades reservadas do lote")
+  void naoDeveConsumirUnidadesReservadasEmSaidaDireta() {
+    // Given
+    LoteRepository loteRepository = mock(LoteRepository.class);
+    LoteItemRepository loteItemRepository = mock(LoteItemRepository.class);
+    when(loteRepository.buscarQuantidadeAtual(1L)).thenReturn(Optional.of(10));
+    when(loteItemRepository.buscarQuantidadesPorLotes(List.of(1L)))
+        .thenReturn(List.of(new LoteItemQuantidade(1L, 10L, 10)));
+    when(loteItemRepository.calcularEstoqueTotalPorProduto(10L)).thenReturn(10);
+    LivroReservasEstoque livro = new LivroReservasEstoque(loteRepository, loteItemRepository,
+        mock(ReservaRepository.class));
+    ReflectionTestUtils.setField(movimentacaoService, "livroReservas", livro);
+    livro.reservar(Chave.doLote(1L), 8);
+
+    when(loteService.buscarEntidadePorId(1L)).thenReturn(lote);
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
+    when(loteService.atualizarQuantidade(1L, -8)).thenReturn(2);
+    when(movimentacaoRepository.save(any(Movimentacao.class))).thenReturn(movimentacao);
+
+    // When
+    BusinessException erro = assertThrows(BusinessException.class, () -> movimentacaoService.criar(
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 5), "test@test.com"));
+    movimentacaoService.criar(new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 8), "test@test.com", 8);
+
+    // Then
+    assertEquals("Quantidade insuficiente em estoque fora das reservas. Disponível: 2", erro.getMessage());
+    verify(loteService, never()).atualizarQuantidade(1L, -5);
+    // A confirmação da própria reserva usa o que ela separou
+    verify(loteService, times(1)).atualizarQuantidade(1L, -8);
+  }
+
   @Test
   @DisplayName("Deve buscar movimentação por ID")
   void deveBuscarMovimentacaoPorId() {
@@ -177,8 +233,8 @@ class MovimentacaoServiceTest {
     MontagemKitRequestDTO dto = new MontagemKitRequestDTO(10L, 5);
 
     when(produtoService.buscarEntidadePorId(10L)).thenReturn(kit);
-    doNothing().when(loteService).consumirEstoquePorProduto(1L, 10);
-    doNothing().when(loteService).consumirEstoquePorProduto(2L, 5);
+    when(loteService.consumirEstoquePorProdutos(Map.of(1L, 10, 2L, 5)))
+        .thenReturn(Map.of(1L, Map.of(1L, 10), 2L, Map.of(2L, 5)));
 
     com.ong.backend.dto.lote.LoteResponseDTO loteResponse = new com.ong.backend.dto.lote.LoteResponseDTO(
         100L,
@@ -209,8 +265,9 @@ class MovimentacaoServiceTest {
 
     // Then
     assertNotNull(resultado);
-    verify(loteService, times(1)).consumirEstoquePorProduto(1L, 10);
-    verify(loteService, times(1)).consumirEstoquePorProduto(2L, 5);
+    // Todos os componentes são consumidos em uma única chamada
+    verify(loteService, times(1)).consumirEstoquePorProdutos(Map.of(1L, 10, 2L, 5));
+    verify(loteService, never()).consumirEstoquePorProduto(anyLong(), anyInt(), anyInt());
   }
 
   @Test
@@ -229,7 +286,7 @@ class MovimentacaoServiceTest {
     assertThrows(BusinessException.class, () -> {
       movimentacaoService.montarKit(dto, "test@test.com");
     });
-    verify(loteService, never()).consumirEstoquePorProduto(anyLong(), anyInt());
+    verify(loteService, never()).consumirEstoquePorProdutos(any());
   }
 
   @Test
@@ -280,4 +337,151 @@ class MovimentacaoServiceTest {
     verify(loteService, times(1)).atualizarQuantidade(1L, 10); // AJUSTE_GANHO
     verify(loteService, times(1)).atualizarQuantidade(1L, -5); // AJUSTE_PERDA
   }
+
+  @Test
+  @DisplayName("Deve registrar uma saída por lote ao dar saída por produto")
+  void deveRegistrarSaidaPorProduto() {
+    // Given
+    Lote lote2 = new Lote();
+    lote2.setId(2L);
+    lote2.setQuantidadeAtual(40);
+
+    Map<Long, Integer> consumidoPorLote = new LinkedHashMap<>();
+    consumidoPorLote.put(1L, 100);
+    consumidoPorLote.put(2L, 20);
+
+    when(produtoService.buscarEntidadePorId(1L)).thenReturn(produto);
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
+    when(loteService.consumirEstoquePorProduto(1L, 120, 0)).thenReturn(consumidoPorLote);
+    when(loteService.buscarEntidadePorId(1L)).thenReturn(lote);
+    when(loteService.buscarEntidadePorId(2L)).thenReturn(lote2);
+    when(movimentacaoRepository.save(any(Movimentacao.class))).thenAnswer(inv -> inv.getArgument(0));
+
+    // When
+    var resultado = movimentacaoService.registrarSaidaPorProduto(
+        new SaidaProdutoRequestDTO(1L, null, 120), "test@test.com");
+
+    // Then
+    assertEquals(2, resultado.size());
+    assertEquals(List.of(1L, 2L), resultado.stream().map(m -> m.lote().id()).toList());
+    assertEquals(List.of(100, 20), resultado.stream().map(m -> m.quantidade()).toList());
+    assertTrue(resultado.stream().allMatch(m -> m.tipo() == TipoMovimentacao.SAIDA));
+    verify(loteService, never()).atualizarQuantidade(anyLong(), anyInt());
+    ArgumentCaptor<MovimentacaoRegistradaEvent> eventos = ArgumentCaptor.forClass(MovimentacaoRegistradaEvent.class);
+    verify(eventPublisher, times(2)).publishEvent(eventos.capture());
+    // A saída inteira é do produto pedido, sem rateio pelos outros itens do lote
+    assertEquals(List.of(Map.of(1L, 100L), Map.of(1L, 20L)),
+        eventos.getAllValues().stream().map(MovimentacaoRegistradaEvent::parcelas).toList());
+  }
+
+  @Test
+  @DisplayName("Deve registrar em massa rejeitando só os itens sem saldo ou com lote inexistente")
+  void deveRegistrarEmMassaComResultadoPorItem() {
+    // Given
+    Lote lote2 = new Lote();
+    lote2.setId(2L);
+    lote2.setQuantidadeAtual(5);
+    Map<Long, Lote> travados = new LinkedHashMap<>();
+    travados.put(1L, lote);
+    travados.put(2L, lote2);
+
+    when(loteService.travarLotes(Set.of(1L, 2L, 99L))).thenReturn(travados);
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
+    when(movimentacaoRepository.saveAll(any())).thenAnswer(inv -> {
+      long id = 10;
+      for (Movimentacao nova : inv.<Iterable<Movimentacao>>getArgument(0)) {
+        nova.setId(id++);
+      }
+      return null;
+    });
+
+    // When
+    var resposta = movimentacaoService.registrarEmMassa(List.of(
+        new MovimentacaoRequestDTO(2L, null, TipoMovimentacao.SAIDA, 4),
+        new MovimentacaoRequestDTO(2L, null, TipoMovimentacao.SAIDA, 4),
+        new MovimentacaoRequestDTO(99L, null, TipoMovimentacao.SAIDA, 1),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 30),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.ENTRADA, 10)), "test@test.com");
+
+    // Then
+    assertEquals(3, resposta.registradas());
+    assertEquals(List.of(true, false, false, true, true),
+        resposta.resultados().stream().map(r -> r.sucesso()).toList());
+    assertEquals("Quantidade insuficiente em estoque. Disponível: 1", resposta.resultados().get(1).erro());
+    assertEquals(11L, resposta.resultados().get(3).movimentacaoId());
+    // Saldo líquido por lote, aplicado uma única vez
+    verify(loteService).aplicarDeltas(travados, Map.of(1L, -20, 2L, -4));
+    verify(loteService, never()).atualizarQuantidade(anyLong(), anyInt());
+    verify(eventPublisher, times(3)).publishEvent(any(MovimentacaoRegistradaEvent.class));
+  }
+
+  @Test
+  @DisplayName("Deve rejeitar em massa a saída sobre unidades reservadas, usando entradas anteriores como folga")
+  void deveRejeitarEmMassaSaidaSobreReservado() {
+    // Given
+    Map<Long, Lote> travados = new LinkedHashMap<>();
+    travados.put(1L, lote);
+    when(loteService.travarLotes(Set.of(1L))).thenReturn(travados);
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
+    doThrow(new BusinessException("Quantidade insuficiente em estoque fora das reservas. Disponível: 3"))
+        .when(livroReservas).reservarSaida(Chave.doLote(1L), 5, 0);
+
+    // When
+    var resposta = movimentacaoService.registrarEmMassa(List.of(
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 5),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.ENTRADA, 4),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 6)), "test@test.com");
+
+    // Then
+    assertEquals(List.of(false, true, true), resposta.resultados().stream().map(r -> r.sucesso()).toList());
+    assertEquals("Quantidade insuficiente em estoque fora das reservas. Disponível: 3",
+        resposta.resultados().get(0).erro());
+    verify(livroReservas).reservarSaida(Chave.doLote(1L), 6, 4);
+    verify(loteService).aplicarDeltas(travados, Map.of(1L, -2));
+  }
+
+  @Test
+  @DisplayName("Deve rejeitar em massa o item com usuário inexistente sem consumir o saldo do lote")
+  void deveRejeitarEmMassaItemComUsuarioInexistente() {
+    // Given
+    when(loteService.travarLotes(Set.of(1L))).thenReturn(Map.of(1L, lote));
+    when(usuarioService.buscarEntidadePorEmail("test@test.com")).thenReturn(usuario);
+    when(usuarioService.buscarEntidadesPorIds(Set.of(99L))).thenReturn(Map.of());
+
+    // When
+    var resposta = movimentacaoService.registrarEmMassa(List.of(
+        new MovimentacaoRequestDTO(1L, 99L, TipoMovimentacao.SAIDA, 100),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 100)), "test@test.com");
+
+    // Then
+    assertEquals(List.of(false, true), resposta.resultados().stream().map(r -> r.sucesso()).toList());
+    assertTrue(resposta.resultados().get(0).erro().contains("Usuário"));
+    verify(loteService).aplicarDeltas(Map.of(1L, lote), Map.of(1L, -100));
+    verify(eventPublisher, times(1)).publishEvent(any(MovimentacaoRegistradaEvent.class));
+  }
+
+  @Test
+  @DisplayName("Deve gravar o grupo da fila com o usuário de cada pedido")
+  void deveRegistrarGrupoComUsuarioDeCadaPedido() {
+    // Given
+    when(loteService.travarLotes(Set.of(1L))).thenReturn(Map.of(1L, lote));
+    when(usuarioService.buscarEntidadesPorEmails(Set.of("test@test.com", "removido@test.com")))
+        .thenReturn(Map.of("test@test.com", usuario));
+
+    // When
+    var resultados = movimentacaoService.registrarGrupo(List.of(
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 30),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 5),
+        new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 80)),
+        List.of("test@test.com", "removido@test.com", "test@test.com"));
+
+    // Then
+    assertEquals(30, resultados.get(0).movimentacao().quantidade());
+    assertEquals("test@test.com", resultados.get(0).movimentacao().usuario().email());
+    assertInstanceOf(ResourceNotFoundException.class, resultados.get(1).erro());
+    assertInstanceOf(BusinessException.class, resultados.get(2).erro());
+    assertEquals("Quantidade insuficiente em estoque. Disponível: 70", resultados.get(2).erro().getMessage());
+    verify(loteService).aplicarDeltas(Map.of(1L, lote), Map.of(1L, -30));
+    verify(eventPublisher, times(1)).publishEvent(any(MovimentacaoRegistradaEvent.class));
+  }
 }
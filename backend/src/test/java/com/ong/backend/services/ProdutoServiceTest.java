@@ -3,8 +3,12 @@ package com.ong.backend.services;
 import com.ong.backend.dto.produto.ProdutoDetalhesDTO;
 import com.ong.backend.dto.produto.ProdutoRequestDTO;
 import com.ong.backend.dto.produto.ProdutoResponseDTO;
+import com.ong.backend.events.EstoqueAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent;
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
 import com.ong.backend.exceptions.ResourceNotFoundException;
 import com.ong.backend.models.Categoria;
+import com.ong.backend.models.ComposicaoProduto;
 import com.ong.backend.models.Produto;
 import com.ong.backend.repositories.LoteItemRepository;
 import com.ong.backend.repositories.ProdutoRepository;
@@ -15,11 +19,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +50,9 @@ class ProdutoServiceTest {
     @Mock
     private com.ong.backend.repositories.ComposicaoProdutoRepository composicaoProdutoRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ProdutoService produtoService;
 
@@ -64,6 +79,7 @@ class ProdutoServiceTest {
                 null,
                 1L,
                 false,
+                null,
                 null
         );
     }
@@ -158,7 +174,8 @@ class ProdutoServiceTest {
                 null,
                 1L,
                 false,
-                null
+                null,
+                5
         );
 
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
@@ -170,8 +187,10 @@ class ProdutoServiceTest {
 
         // Then
         assertNotNull(resultado);
+        assertEquals(5, resultado.estoqueMinimo());
         verify(produtoRepository, times(1)).findById(1L);
         verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(eventPublisher, times(1)).publishEvent(any(EstoqueAlteradoEvent.class));
     }
 
     @Test
@@ -201,5 +220,88 @@ class ProdutoServiceTest {
         });
         verify(produtoRepository, never()).delete(any(Produto.class));
     }
-}
 
+    @Test
+    @DisplayName("Deve inserir os novos e atualizar só os produtos do catálogo que mudaram")
+    void deveGravarBlocoDoCatalogo() {
+        // Given
+        Produto feijao = new Produto();
+        feijao.setId(2L);
+        feijao.setNome("Feijão");
+        feijao.setCategoria(categoria);
+        Map<String, Long> indice = new HashMap<>(Map.of("789001", 1L, "789002", 2L));
+        when(produtoRepository.buscarPorIds(any())).thenReturn(List.of(produto, feijao));
+        when(produtoRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Produto> novos = inv.getArgument(0);
+            novos.forEach(novo -> novo.setId(3L));
+            return novos;
+        });
+
+        // When
+        ProdutoService.ResultadoCatalogo resultado = produtoService.gravarCatalogo(List.of(
+                new ProdutoService.ItemCatalogo("789001", "Arroz", null, categoria, 15),
+                new ProdutoService.ItemCatalogo("789002", "Feijão", null, categoria, null),
+                new ProdutoService.ItemCatalogo("789003", "Óleo", "Soja", categoria, null)), indice);
+
+        // Then
+        assertEquals(1, resultado.inseridos());
+        assertEquals(1, resultado.atualizados());
+        assertEquals(1, resultado.inalterados());
+        assertEquals(15, produto.getEstoqueMinimo());
+        assertEquals("Arroz branco", produto.getDescricao());
+        assertEquals(3L, indice.get("789003"));
+        verify(produtoRepository, never()).save(any(Produto.class));
+        verify(eventPublisher).publishEvent(new EstoqueAlteradoEvent(Set.of(), Set.of(1L)));
+    }
+
+    @Test
+    @DisplayName("Deve incluir no índice os produtos novos do catálogo só depois do commit")
+    void deveIncluirNoIndiceSoAposCommit() {
+        // Given
+        Map<String, Long> indice = new HashMap<>();
+        when(produtoRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Produto> novos = inv.getArgument(0);
+            novos.forEach(novo -> novo.setId(3L));
+            return novos;
+        });
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            produtoService.gravarCatalogo(
+                    List.of(new ProdutoService.ItemCatalogo("789003", "Óleo", null, categoria, null)), indice);
+
+            // Then: bloco ainda não confirmado não altera o índice
+            assertTrue(indice.isEmpty());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(Map.of("789003", 3L), indice);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve avisar as listagens do nome antigo, do novo e dos kits que usam o produto")
+    void devePublicarAlteracaoDoProdutoEDosKits() {
+        // Given
+        Produto cesta = new Produto();
+        cesta.setId(9L);
+        cesta.setNome("Cesta básica");
+        cesta.setCategoria(categoria);
+        ComposicaoProduto composicao = new ComposicaoProduto();
+        composicao.setProdutoPai(cesta);
+        composicao.setComponente(produto);
+        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(categoriaService.buscarEntidadePorId(1L)).thenReturn(categoria);
+        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
+        when(composicaoProdutoRepository.findByComponenteId(1L)).thenReturn(List.of(composicao));
+
+        // When
+        produtoService.atualizar(1L, new ProdutoRequestDTO("Arroz Integral", null, null, 1L, false, null, null));
+
+        // Then
+        verify(eventPublisher).publishEvent(new ProdutoAlteradoEvent(Set.of(
+                new ProdutoListado("Arroz", 1L),
+                new ProdutoListado("Arroz Integral", 1L),
+                new ProdutoListado("Cesta básica", 1L))));
+    }
+}
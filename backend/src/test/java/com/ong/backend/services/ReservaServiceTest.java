@@ -0,0 +1,208 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoResponseDTO;
+import com.ong.backend.dto.reserva.ReservaRequestDTO;
+import com.ong.backend.dto.reserva.ReservaResponseDTO;
+import com.ong.backend.events.ReservasFinalizadasEvent;
+import com.ong.backend.events.ReservasFinalizadasEvent.ReservaFinalizada;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.Reserva;
+import com.ong.backend.models.StatusReserva;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.models.Usuario;
+import com.ong.backend.repositories.LoteRepository;
+import com.ong.backend.repositories.ProdutoRepository;
+import com.ong.backend.repositories.ReservaRepository;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do ReservaService")
+class ReservaServiceTest {
+
+    @Mock
+    private ReservaRepository reservaRepository;
+
+    @Mock
+    private LoteRepository loteRepository;
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private UsuarioService usuarioService;
+
+    @Mock
+    private MovimentacaoService movimentacaoService;
+
+    @Mock
+    private LivroReservasEstoque livroReservas;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ReservaService reservaService;
+
+    private Usuario usuario;
+    private Lote lote;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reservaService, "ttlPadraoSegundos", 300);
+        ReflectionTestUtils.setField(reservaService, "ttlMaximoSegundos", 3600);
+        ReflectionTestUtils.setField(reservaService, "tamanhoLoteVarredura", 2);
+
+        usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setEmail("voluntario@ong.com");
+
+        lote = new Lote();
+        lote.setId(1L);
+    }
+
+    @Test
+    @DisplayName("Deve reservar no livro e gravar a reserva ativa com a validade padrão")
+    void deveReservarLote() {
+        // Given
+        when(usuarioService.buscarEntidadePorEmail("voluntario@ong.com")).thenReturn(usuario);
+        when(loteRepository.getReferenceById(1L)).thenReturn(lote);
+        when(reservaRepository.save(any(Reserva.class))).thenAnswer(inv -> {
+            Reserva reserva = inv.getArgument(0);
+            reserva.setId(10L);
+            return reserva;
+        });
+
+        // When
+        ReservaResponseDTO resposta = reservaService.reservar(
+                new ReservaRequestDTO(1L, null, null, 5, null), "voluntario@ong.com");
+
+        // Then
+        verify(livroReservas).reservar(Chave.doLote(1L), 5);
+        assertEquals(10L, resposta.id());
+        assertEquals(StatusReserva.ATIVA, resposta.status());
+        assertEquals(resposta.criadaEm().plusSeconds(300), resposta.expiraEm());
+    }
+
+    @Test
+    @DisplayName("Deve exigir lote ou produto, mas não os dois")
+    void deveExigirLoteOuProduto() {
+        // When & Then
+        assertThrows(BusinessException.class, () -> reservaService.reservar(
+                new ReservaRequestDTO(1L, 2L, null, 5, null), "voluntario@ong.com"));
+        assertThrows(BusinessException.class, () -> reservaService.reservar(
+                new ReservaRequestDTO(null, null, null, 5, null), "voluntario@ong.com"));
+        verifyNoInteractions(livroReservas, reservaRepository);
+    }
+
+    @Test
+    @DisplayName("Deve devolver o saldo ao livro quando a gravação falha")
+    void deveDevolverSaldoQuandoGravacaoFalha() {
+        // Given
+        when(usuarioService.buscarEntidadePorEmail("voluntario@ong.com")).thenReturn(usuario);
+        when(reservaRepository.save(any(Reserva.class))).thenThrow(new DataIntegrityViolationException("falha"));
+
+        // When & Then
+        assertThrows(DataIntegrityViolationException.class, () -> reservaService.reservar(
+                new ReservaRequestDTO(null, 2L, null, 5, 60), "voluntario@ong.com"));
+        verify(livroReservas).reservar(Chave.doProduto(2L), 5);
+        verify(livroReservas).liberar(Chave.doProduto(2L), 5);
+    }
+
+    @Test
+    @DisplayName("Deve confirmar a reserva de lote como saída do usuário que reservou")
+    void deveConfirmarReservaDeLote() {
+        // Given
+        Reserva reserva = reserva(StatusReserva.CONFIRMADA, LocalDateTime.now().plusMinutes(5));
+        when(reservaRepository.confirmarSeAtiva(eq(7L), any())).thenReturn(1);
+        when(reservaRepository.findById(7L)).thenReturn(Optional.of(reserva));
+        MovimentacaoResponseDTO saida = new MovimentacaoResponseDTO(20L, null, null, TipoMovimentacao.SAIDA, 5,
+                LocalDateTime.now());
+        when(movimentacaoService.criar(new MovimentacaoRequestDTO(1L, 1L, TipoMovimentacao.SAIDA, 5),
+                "admin@ong.com", 5)).thenReturn(saida);
+
+        // When
+        List<MovimentacaoResponseDTO> movimentacoes = reservaService.confirmar(7L, "admin@ong.com");
+
+        // Then
+        assertEquals(List.of(saida), movimentacoes);
+        verify(eventPublisher).publishEvent(new ReservasFinalizadasEvent(StatusReserva.CONFIRMADA,
+                List.of(new ReservaFinalizada(7L, 1L, null, 5))));
+    }
+
+    @Test
+    @DisplayName("Não deve confirmar reserva vencida")
+    void naoDeveConfirmarReservaVencida() {
+        // Given
+        Reserva reserva = reserva(StatusReserva.ATIVA, LocalDateTime.now().minusSeconds(1));
+        when(reservaRepository.confirmarSeAtiva(eq(7L), any())).thenReturn(0);
+        when(reservaRepository.findById(7L)).thenReturn(Optional.of(reserva));
+
+        // When & Then
+        BusinessException erro = assertThrows(BusinessException.class,
+                () -> reservaService.confirmar(7L, "admin@ong.com"));
+        assertTrue(erro.getMessage().startsWith("Reserva expirada"));
+        verifyNoInteractions(movimentacaoService, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Deve expirar as reservas vencidas em lotes até esvaziar")
+    void deveExpirarVencidasEmLotes() {
+        // Given
+        LocalDateTime vencida = LocalDateTime.now().minusMinutes(1);
+        Reserva r1 = reserva(StatusReserva.ATIVA, vencida);
+        Reserva r2 = reserva(StatusReserva.ATIVA, vencida);
+        r2.setId(8L);
+        when(reservaRepository.travarVencidas(any(), eq(Limit.of(2))))
+                .thenReturn(List.of(r1, r2))
+                .thenReturn(List.of());
+
+        // When
+        reservaService.expirarVencidas();
+
+        // Then
+        assertEquals(StatusReserva.EXPIRADA, r1.getStatus());
+        assertEquals(StatusReserva.EXPIRADA, r2.getStatus());
+        assertNotNull(r1.getFinalizadaEm());
+        verify(reservaRepository, times(2)).travarVencidas(any(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(ReservasFinalizadasEvent.class));
+        verify(reservaRepository, never()).confirmarSeAtiva(anyLong(), any());
+    }
+
+    private Reserva reserva(StatusReserva status, LocalDateTime expiraEm) {
+        Reserva reserva = new Reserva();
+        reserva.setId(7L);
+        reserva.setLote(lote);
+        reserva.setUsuario(usuario);
+        reserva.setQuantidade(5);
+        reserva.setStatus(status);
+        reserva.setCriadaEm(expiraEm.minusMinutes(5));
+        reserva.setExpiraEm(expiraEm);
+        return reserva;
+    }
+}
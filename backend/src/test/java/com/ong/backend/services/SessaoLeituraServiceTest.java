@@ -0,0 +1,192 @@
+package com.ong.backend.services;
+
+import com.ong.backend.dto.leitura.LeituraRequestDTO;
+import com.ong.backend.dto.leitura.ReciboLeituraDTO;
+import com.ong.backend.dto.leitura.SessaoLeituraDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO;
+import com.ong.backend.dto.movimentacao.MovimentacaoMassaResponseDTO.ResultadoItem;
+import com.ong.backend.dto.movimentacao.MovimentacaoRequestDTO;
+import com.ong.backend.exceptions.BusinessException;
+import com.ong.backend.exceptions.ResourceNotFoundException;
+import com.ong.backend.models.Lote;
+import com.ong.backend.models.TipoMovimentacao;
+import com.ong.backend.services.LivroReservasEstoque.Chave;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do SessaoLeituraService")
+class SessaoLeituraServiceTest {
+
+    private static final String EMAIL = "voluntario@ong.com";
+
+    @Mock
+    private LivroReservasEstoque livroReservas;
+
+    @Mock
+    private MovimentacaoService movimentacaoService;
+
+    @InjectMocks
+    private SessaoLeituraService sessaoLeituraService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sessaoLeituraService, "inatividadeMs", 900_000L);
+        ReflectionTestUtils.setField(sessaoLeituraService, "maxAbertas", 10);
+    }
+
+    @Test
+    @DisplayName("Deve somar as leituras por lote e gravar uma saída por lote na confirmação")
+    void deveSomarLeiturasPorLote() {
+        // Given
+        when(livroReservas.consultar(Chave.doLote(1L))).thenReturn(new LivroReservasEstoque.Posicao(10, 0));
+        when(livroReservas.consultar(Chave.doLote(2L))).thenReturn(new LivroReservasEstoque.Posicao(10, 0));
+        List<MovimentacaoRequestDTO> esperadas = List.of(
+                new MovimentacaoRequestDTO(1L, null, TipoMovimentacao.SAIDA, 4),
+                new MovimentacaoRequestDTO(2L, null, TipoMovimentacao.SAIDA, 1));
+        when(movimentacaoService.registrarEmMassa(esperadas, EMAIL))
+                .thenReturn(new MovimentacaoMassaResponseDTO(List.of(
+                        new ResultadoItem(0, 1L, true, 10L, null),
+                        new ResultadoItem(1, 2L, true, 11L, null))));
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+
+        // When
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), null), EMAIL);
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(2L), null), EMAIL);
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), null), EMAIL);
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), 2), EMAIL);
+        ReciboLeituraDTO recibo = sessaoLeituraService.confirmar(id, EMAIL);
+
+        // Then
+        assertEquals(4, recibo.leituras());
+        assertEquals(3, recibo.itens().get(0).leituras());
+        verify(movimentacaoService, times(1)).registrarEmMassa(esperadas, EMAIL);
+        verify(livroReservas, times(1)).consultar(Chave.doLote(1L));
+        // A sessão confirmada deixa de existir
+        assertThrows(ResourceNotFoundException.class, () -> sessaoLeituraService.buscar(id, EMAIL));
+    }
+
+    @Test
+    @DisplayName("Deve manter na sessão só os lotes recusados e listar no recibo só os gravados")
+    void deveManterLotesRecusadosNaSessao() {
+        // Given
+        when(livroReservas.consultar(Chave.doLote(1L))).thenReturn(new LivroReservasEstoque.Posicao(10, 0));
+        when(livroReservas.consultar(Chave.doLote(2L))).thenReturn(new LivroReservasEstoque.Posicao(10, 0));
+        when(movimentacaoService.registrarEmMassa(any(), eq(EMAIL)))
+                .thenReturn(new MovimentacaoMassaResponseDTO(List.of(
+                        new ResultadoItem(0, 1L, true, 10L, null),
+                        new ResultadoItem(1, 2L, false, null, "Quantidade insuficiente em estoque. Disponível: 0"))));
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), 3), EMAIL);
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(2L), null), EMAIL);
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(2L), null), EMAIL);
+
+        // When
+        ReciboLeituraDTO recibo = sessaoLeituraService.confirmar(id, EMAIL);
+
+        // Then
+        assertEquals(List.of(1L), recibo.itens().stream().map(item -> item.loteId()).toList());
+        assertEquals(1, recibo.leituras());
+        SessaoLeituraDTO sessao = sessaoLeituraService.buscar(id, EMAIL);
+        assertEquals(List.of(2L), sessao.itens().stream().map(item -> item.loteId()).toList());
+        assertEquals(2, sessao.leituras());
+        // A sessão segue aceitando leituras
+        assertEquals(3, sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(2L), null), EMAIL).leituras());
+    }
+
+    @Test
+    @DisplayName("Deve recusar código que não é de lote ou com dígito verificador errado")
+    void deveRecusarCodigoInvalido() {
+        // Given
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+        String valido = codigo(1L);
+        String digitoErrado = valido.substring(0, 12) + ((valido.charAt(12) - '0' + 1) % 10);
+
+        // When & Then
+        assertThrows(BusinessException.class,
+                () -> sessaoLeituraService.ler(id, new LeituraRequestDTO("7891234567895", null), EMAIL));
+        assertThrows(BusinessException.class,
+                () -> sessaoLeituraService.ler(id, new LeituraRequestDTO(digitoErrado, null), EMAIL));
+        verifyNoInteractions(livroReservas);
+    }
+
+    @Test
+    @DisplayName("Deve recusar a leitura que passa do saldo do lote sem perder as anteriores")
+    void deveRecusarLeituraAlemDoSaldo() {
+        // Given
+        when(livroReservas.consultar(Chave.doLote(1L))).thenReturn(new LivroReservasEstoque.Posicao(2, 0));
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), 2), EMAIL);
+
+        // When
+        BusinessException erro = assertThrows(BusinessException.class,
+                () -> sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), null), EMAIL));
+
+        // Then
+        assertEquals("Quantidade insuficiente em estoque. Disponível: 2", erro.getMessage());
+        SessaoLeituraDTO sessao = sessaoLeituraService.buscar(id, EMAIL);
+        assertEquals(1, sessao.leituras());
+        assertEquals(2, sessao.itens().get(0).quantidade());
+    }
+
+    @Test
+    @DisplayName("Não deve expor a sessão de outro usuário")
+    void naoDeveExporSessaoDeOutroUsuario() {
+        // Given
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> sessaoLeituraService.buscar(id, "outro@ong.com"));
+        assertThrows(ResourceNotFoundException.class, () -> sessaoLeituraService.confirmar(id, "outro@ong.com"));
+    }
+
+    @Test
+    @DisplayName("Deve manter a sessão aberta quando a gravação falha")
+    void deveManterSessaoQuandoGravacaoFalha() {
+        // Given
+        when(livroReservas.consultar(Chave.doLote(1L))).thenReturn(new LivroReservasEstoque.Posicao(10, 0));
+        when(movimentacaoService.registrarEmMassa(any(), any())).thenThrow(new IllegalStateException("falha"));
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+        sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), null), EMAIL);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> sessaoLeituraService.confirmar(id, EMAIL));
+
+        // Then
+        assertEquals(2, sessaoLeituraService.ler(id, new LeituraRequestDTO(codigo(1L), null), EMAIL).leituras());
+    }
+
+    @Test
+    @DisplayName("Deve descartar sessões inativas")
+    void deveDescartarSessoesInativas() {
+        // Given
+        UUID id = sessaoLeituraService.abrir(EMAIL).id();
+        ReflectionTestUtils.setField(sessaoLeituraService, "inatividadeMs", 0L);
+
+        // When
+        sessaoLeituraService.descartarInativas();
+
+        // Then
+        assertThrows(ResourceNotFoundException.class, () -> sessaoLeituraService.buscar(id, EMAIL));
+    }
+
+    private String codigo(Long loteId) {
+        Lote lote = new Lote();
+        lote.setId(loteId);
+        return lote.getCodigoBarras();
+    }
+}
@@ -0,0 +1,143 @@
+package com.ong.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ong.backend.events.ProdutoAlteradoEvent.ProdutoListado;
+import com.ong.backend.services.MensagemInvalidacaoCache.Tipo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da SincronizacaoCaches")
+class SincronizacaoCachesTest {
+
+    private BarramentoInvalidacaoLocal barramento;
+    private SimpleMeterRegistry meterRegistry;
+    private Cache categoriasNoA;
+    private Cache categoriasNoB;
+    private SincronizacaoCaches noA;
+    private SincronizacaoCaches noB;
+
+    // Dois nós, cada um com os seus caches, ligados pelo mesmo barramento
+    @BeforeEach
+    void setUp() {
+        barramento = new BarramentoInvalidacaoLocal();
+        meterRegistry = new SimpleMeterRegistry();
+        CaffeineCacheManager cachesA = new CaffeineCacheManager("categorias");
+        CaffeineCacheManager cachesB = new CaffeineCacheManager("categorias");
+        categoriasNoA = cachesA.getCache("categorias");
+        categoriasNoB = cachesB.getCache("categorias");
+        noA = new SincronizacaoCaches(barramento, cachesA, meterRegistry);
+        noB = new SincronizacaoCaches(barramento, cachesB, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Deve limpar nos outros nós o cache limpo em um nó, sem limpar o próprio de novo")
+    void deveLimparCacheNosOutrosNos() {
+        // Given
+        categoriasNoA.put("todas", List.of());
+        categoriasNoB.put("todas", List.of());
+
+        // When
+        noA.publicar(MensagemInvalidacaoCache.limpar("categorias"));
+
+        // Then
+        assertNull(categoriasNoB.get("todas"));
+        assertNotNull(categoriasNoA.get("todas"));
+        assertEquals(1.0, recebidas("aplicada"));
+    }
+
+    @Test
+    @DisplayName("Deve descartar mensagens repetidas ou mais antigas que a última aplicada da mesma origem")
+    void deveDescartarVersoesJaVistas() {
+        // Given
+        List<MensagemInvalidacaoCache> aplicadas = new ArrayList<>();
+        noB.aoReceber(Tipo.PRODUTOS, aplicadas::add);
+        String origem = UUID.randomUUID().toString();
+        MensagemInvalidacaoCache produtos = MensagemInvalidacaoCache.produtos(Set.of(new ProdutoListado("Arroz", 1L)));
+
+        // When
+        barramento.publicar(produtos.comOrigem(origem, 1));
+        barramento.publicar(produtos.comOrigem(origem, 2));
+        barramento.publicar(produtos.comOrigem(origem, 2));
+        barramento.publicar(produtos.comOrigem(origem, 1));
+        barramento.publicar(produtos.comOrigem(UUID.randomUUID().toString(), 1));
+
+        // Then
+        assertEquals(List.of(1L, 2L, 1L), aplicadas.stream().map(MensagemInvalidacaoCache::versao).toList());
+        // Os dois nós recebem as mesmas mensagens e descartam as mesmas duas
+        assertEquals(4.0, recebidas("repetida"));
+    }
+
+    @Test
+    @DisplayName("Deve entregar pela tabela, em ordem, o que outro nó publicou, relendo sem reaplicar")
+    void deveEntregarPelaTabela() throws Exception {
+        // Given
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:barramento-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        ObjectMapper objectMapper = new ObjectMapper();
+        BarramentoInvalidacaoTabela tabelaA = new BarramentoInvalidacaoTabela(objectMapper, dataSource);
+        BarramentoInvalidacaoTabela tabelaB = new BarramentoInvalidacaoTabela(objectMapper, dataSource);
+        ReflectionTestUtils.setField(tabelaB, "folgaLinhas", 100L);
+        SincronizacaoCaches origem = new SincronizacaoCaches(tabelaA, new CaffeineCacheManager("categorias"),
+                meterRegistry);
+        SincronizacaoCaches destino = new SincronizacaoCaches(tabelaB, new CaffeineCacheManager("categorias"),
+                meterRegistry);
+        List<Set<Long>> aplicadas = new ArrayList<>();
+        destino.aoReceber(Tipo.ESTOQUE, mensagem -> aplicadas.add(mensagem.loteIds()));
+
+        // When
+        origem.publicar(MensagemInvalidacaoCache.estoque(Set.of(1L), Set.of()));
+        origem.publicar(MensagemInvalidacaoCache.estoque(Set.of(2L), Set.of()));
+        tabelaA.pararPublicador();
+        tabelaB.varrer();
+        tabelaB.varrer();
+
+        // Then
+        assertEquals(List.of(Set.of(1L), Set.of(2L)), aplicadas);
+        assertEquals(2.0, recebidas("repetida"));
+    }
+
+    @Test
+    @DisplayName("Deve trocar por limpeza dos caches afetados a mensagem que não cabe no transporte")
+    void deveResumirMensagemGrande() throws Exception {
+        // Given
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:barramento-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        ObjectMapper objectMapper = new ObjectMapper();
+        BarramentoInvalidacaoTabela tabelaA = new BarramentoInvalidacaoTabela(objectMapper, dataSource);
+        BarramentoInvalidacaoTabela tabelaB = new BarramentoInvalidacaoTabela(objectMapper, dataSource);
+        List<MensagemInvalidacaoCache> recebidas = new ArrayList<>();
+        tabelaB.assinar(recebidas::add);
+        Set<Long> muitosLotes = new HashSet<>(IntStream.range(0, 5_000).mapToObj(Long::valueOf).toList());
+
+        // When
+        tabelaA.publicar(MensagemInvalidacaoCache.estoque(muitosLotes, Set.of()).comOrigem("a", 7));
+        tabelaA.pararPublicador();
+        tabelaB.varrer();
+
+        // Then
+        assertEquals(1, recebidas.size());
+        assertEquals(Tipo.LIMPAR, recebidas.get(0).tipo());
+        assertEquals(Set.of("produtos-estoque"), recebidas.get(0).caches());
+        assertEquals(7, recebidas.get(0).versao());
+    }
+
+    private double recebidas(String resultado) {
+        return meterRegistry.find("cache.invalidacao.recebida").tag("resultado", resultado).counters().stream()
+                .mapToDouble(contador -> contador.count()).sum();
+    }
+}
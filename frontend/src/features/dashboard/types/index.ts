@@ -18,6 +18,8 @@ export interface DashboardMetrics {
   ultimasMovimentacoes: MovimentacaoResumo[];
   movimentacoesPorDia: MovimentacaoPorDia[];
   movimentacoesPorTipo: TipoMovimentacaoCount[];
+  parcial?: boolean;
+  secoesIncompletas?: string[];
 }
 
 export interface AlertasCriticos {
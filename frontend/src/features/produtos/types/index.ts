@@ -21,6 +21,7 @@ export interface Produto {
   categoria: Categoria;
   isKit: boolean;
   componentes: Componente[];
+  estoqueMinimo?: number;
 }
 
 export interface ProdutoSimples {
@@ -40,6 +41,7 @@ export interface ProdutoFormData {
   categoriaId: number;
   isKit: boolean;
   componentes?: Componente[];
+  estoqueMinimo?: number;
 }
 
 export interface ProdutoFilters {